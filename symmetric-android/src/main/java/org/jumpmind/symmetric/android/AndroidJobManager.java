@@ -369,6 +369,11 @@ public class AndroidJobManager implements IJobManager {
         public String getDeprecatedStartParameter() {
             return null;
         }
+
+        @Override
+        public void signal() {
+            // The Android job already runs every second
+        }
     }
 
     @Override
@@ -391,6 +396,11 @@ public class AndroidJobManager implements IJobManager {
     public void removeJob(String name) {
     }
 
+    @Override
+    public void signalJob(String name) {
+        // No action on Android
+    }
+
     @Override
     public boolean isJobApplicableToNodeGroup(IJob job) {
         return false;
@@ -21,15 +21,30 @@
 package org.jumpmind.symmetric.db.postgresql;
 
 import java.sql.Types;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.apache.commons.lang.ArrayUtils;
+import org.jumpmind.db.model.Database;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.ISqlTemplate;
 import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.LogSqlResultsListener;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.sql.SqlException;
+import org.jumpmind.db.sql.SqlScript;
 import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.symmetric.SymmetricException;
 import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.common.TableConstants;
 import org.jumpmind.symmetric.db.AbstractSymmetricDialect;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.model.DataPartition;
 import org.jumpmind.symmetric.model.Trigger;
 import org.jumpmind.symmetric.service.IParameterService;
 
@@ -145,6 +160,150 @@ public class PostgreSqlSymmetricDialect extends AbstractSymmetricDialect impleme
 
     }
 
+    @Override
+    public boolean createOrAlterTablesIfNecessary(String... tableNames) {
+        boolean created = false;
+        if (parameterService.is(ParameterConstants.PURGE_PARTITION_ENABLED, false)) {
+            if (getMajorVersion() >= 11) {
+                created = createPartitionedDataTablesIfNecessary(tableNames);
+            } else {
+                log.warn("The {} parameter requires PostgreSQL 11 or later, so the data tables will not be partitioned",
+                        ParameterConstants.PURGE_PARTITION_ENABLED);
+            }
+        }
+        return super.createOrAlterTablesIfNecessary(tableNames) | created;
+    }
+
+    /*
+     * Creates the data and data_event tables as range partitioned by data_id.
+     * This only happens when the tables do not exist yet. Existing tables are
+     * never converted.
+     */
+    protected boolean createPartitionedDataTablesIfNecessary(String... tableNames) {
+        Database modelFromXml = readSymmetricSchemaFromXml();
+        boolean created = false;
+        for (String tableName : getPartitionedDataTableNames()) {
+            if (tableNames != null && tableNames.length > 0 && !ArrayUtils.contains(tableNames, tableName)) {
+                continue;
+            }
+            Table table = modelFromXml.findTable(tableName);
+            if (table != null && !doesTableExist(tableName)) {
+                log.info("Creating {} as a table partitioned by data_id", tableName);
+                String ddl = platform.getDdlBuilder().createTable(table);
+                Matcher matcher = Pattern.compile("(?s)(CREATE TABLE\\s+\"?" + Pattern.quote(tableName) + "\"?\\s*\\(.*?\\))(\\s*;)")
+                        .matcher(ddl);
+                if (!matcher.find()) {
+                    throw new SymmetricException("Could not create partitioned table " + tableName);
+                }
+                ddl = matcher.replaceFirst("$1 PARTITION BY RANGE (data_id)$2") + "\nCREATE TABLE " + tableName
+                        + "_pdefault PARTITION OF " + tableName + " DEFAULT;";
+                log.debug("Partitioned table SQL generated: {}", ddl);
+                SqlScript script = new SqlScript(ddl, platform.getSqlTemplate(), true, false, false, 
+                        platform.getDatabaseInfo().getSqlCommandDelimiter(), null);
+                script.setListener(new LogSqlResultsListener(log));
+                script.execute(platform.getDatabaseInfo().isRequiresAutoCommitForDdl());
+                created = true;
+            }
+        }
+        if (created) {
+            createDataPartitions(0);
+        }
+        return created;
+    }
+
+    protected String[] getPartitionedDataTableNames() {
+        return new String[] { TableConstants.getTableName(getTablePrefix(), TableConstants.SYM_DATA),
+                TableConstants.getTableName(getTablePrefix(), TableConstants.SYM_DATA_EVENT) };
+    }
+
+    protected boolean doesTableExist(String tableName) {
+        return platform.getSqlTemplate().queryForInt(
+                "select count(*) from pg_catalog.pg_class c inner join pg_catalog.pg_namespace n on n.oid = c.relnamespace "
+                        + "where c.relname = ? and n.nspname = ?", tableName, platform.getDefaultSchema()) > 0;
+    }
+
+    @Override
+    public boolean supportsDataPartitions() {
+        if (parameterService.is(ParameterConstants.PURGE_PARTITION_ENABLED, false) && getMajorVersion() >= 11) {
+            for (String tableName : getPartitionedDataTableNames()) {
+                if (platform.getSqlTemplate().queryForInt(
+                        "select count(*) from pg_catalog.pg_partitioned_table t inner join pg_catalog.pg_class c on c.oid = t.partrelid "
+                                + "inner join pg_catalog.pg_namespace n on n.oid = c.relnamespace where c.relname = ? and n.nspname = ?",
+                        tableName, platform.getDefaultSchema()) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void createDataPartitions(long maxDataId) {
+        long partitionSize = parameterService.getLong(ParameterConstants.PURGE_PARTITION_SIZE, 1000000);
+        int precreateCount = parameterService.getInt(ParameterConstants.PURGE_PARTITION_PRECREATE_COUNT, 5);
+        for (String tableName : getPartitionedDataTableNames()) {
+            List<DataPartition> partitions = getDataPartitions(tableName);
+            long startId = (maxDataId / partitionSize) * partitionSize;
+            if (partitions.size() > 0) {
+                long lastEndId = partitions.get(partitions.size() - 1).getEndId();
+                /*
+                 * Data beyond the last partition is already in the default
+                 * partition, which prevents creating partitions for its range
+                 */
+                startId = lastEndId > maxDataId ? lastEndId : startId + partitionSize;
+            }
+            long createUpToId = maxDataId + partitionSize * precreateCount;
+            while (startId <= createUpToId) {
+                String partitionName = tableName + "_p" + startId;
+                try {
+                    platform.getSqlTemplate().update(String.format("create table %s partition of %s for values from (%d) to (%d)",
+                            partitionName, tableName, startId, startId + partitionSize));
+                    log.info("Created partition {} for data ids {} through {}", 
+                            new Object[] { partitionName, startId, startId + partitionSize - 1 });
+                } catch (SqlException ex) {
+                    log.warn("Could not create partition {}: {}", partitionName, ex.getMessage());
+                    break;
+                }
+                startId += partitionSize;
+            }
+        }
+    }
+
+    @Override
+    public List<DataPartition> getDataPartitions(final String tableName) {
+        final Pattern boundPattern = Pattern.compile("FROM \\('?(-?\\d+)'?\\) TO \\('?(-?\\d+)'?\\)");
+        List<DataPartition> partitions = platform.getSqlTemplate().query(
+                "select c.relname, pg_catalog.pg_get_expr(c.relpartbound, c.oid) as partition_bound from pg_catalog.pg_inherits i "
+                        + "inner join pg_catalog.pg_class c on c.oid = i.inhrelid inner join pg_catalog.pg_class p on p.oid = i.inhparent "
+                        + "inner join pg_catalog.pg_namespace n on n.oid = p.relnamespace where p.relname = ? and n.nspname = ?",
+                new ISqlRowMapper<DataPartition>() {
+                    public DataPartition mapRow(Row row) {
+                        Matcher matcher = boundPattern.matcher(row.getString("partition_bound"));
+                        if (matcher.find()) {
+                            return new DataPartition(tableName, row.getString("relname"), Long.parseLong(matcher.group(1)),
+                                    Long.parseLong(matcher.group(2)));
+                        }
+                        return null;
+                    }
+                }, tableName, platform.getDefaultSchema());
+        partitions.removeAll(Collections.singleton(null));
+        Collections.sort(partitions, new Comparator<DataPartition>() {
+            public int compare(DataPartition o1, DataPartition o2) {
+                return o1.getStartId() < o2.getStartId() ? -1 : (o1.getStartId() == o2.getStartId() ? 0 : 1);
+            }
+        });
+        return partitions;
+    }
+
+    @Override
+    public void dropDataPartition(DataPartition partition) {
+        ISqlTemplate sqlTemplate = platform.getSqlTemplate();
+        sqlTemplate.update(String.format("alter table %s detach partition %s", partition.getTableName(),
+                partition.getPartitionName()));
+        sqlTemplate.update(String.format("drop table %s", partition.getPartitionName()));
+    }
+
     @Override
     public boolean requiresAutoCommitFalseToSetFetchSize() {
         return true;
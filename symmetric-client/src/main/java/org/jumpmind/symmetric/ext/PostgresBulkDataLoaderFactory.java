@@ -25,7 +25,9 @@ import java.util.List;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.db.platform.IDatabasePlatform;
 import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.io.PostgresBinaryBulkDatabaseWriter;
 import org.jumpmind.symmetric.io.PostgresBulkDatabaseWriter;
 import org.jumpmind.symmetric.io.data.IDataWriter;
 import org.jumpmind.symmetric.io.data.writer.Conflict;
@@ -51,7 +53,14 @@ public class PostgresBulkDataLoaderFactory extends DefaultDataLoaderFactory {
             List<? extends Conflict> conflictSettings, List<ResolvedData> resolvedData) {
 
         int maxRowsBeforeFlush = parameterService.getInt("postgres.bulk.load.max.rows.before.flush", 10000);
-        
+
+        if (parameterService.is(ParameterConstants.POSTGRES_BULK_LOAD_BINARY, false)) {
+            return new PostgresBinaryBulkDatabaseWriter(symmetricDialect.getPlatform(), symmetricDialect.getTargetPlatform(),
+                    symmetricDialect.getTablePrefix(),
+                    buildDatabaseWriterSettings(filters, errorHandlers, conflictSettings, resolvedData),
+                    maxRowsBeforeFlush);
+        }
+
         return new PostgresBulkDatabaseWriter(symmetricDialect.getPlatform(), symmetricDialect.getTargetPlatform(), 
         			symmetricDialect.getTablePrefix(),
                 buildDatabaseWriterSettings(filters, errorHandlers, conflictSettings, resolvedData),
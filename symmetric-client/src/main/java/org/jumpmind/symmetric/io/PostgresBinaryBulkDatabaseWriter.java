@@ -0,0 +1,533 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.JdbcSqlTransaction;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.writer.Conflict;
+import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
+import org.jumpmind.symmetric.io.data.writer.Conflict.PingBack;
+import org.jumpmind.symmetric.io.data.writer.Conflict.ResolveConflict;
+import org.jumpmind.symmetric.io.data.writer.DataWriterStatisticConstants;
+import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+
+/**
+ * Streams rows to PostgreSQL with COPY in the binary format. Rows are copied
+ * into a temporary staging table whose column types are chosen from the
+ * mapped type of each column, and are then applied to the target table with
+ * one set based insert, update or delete for each group of rows. A group ends
+ * when the type of change or the table changes, when an update repeats a key,
+ * or after the maximum number of rows before a flush.
+ * <p>
+ * Updates and deletes are only staged when conflicts are detected by primary
+ * key and resolved by falling back, which the set based statements can do
+ * themselves. Other changes are written one at a time by the default writer.
+ */
+public class PostgresBinaryBulkDatabaseWriter extends AbstractBulkDatabaseWriter {
+
+    protected static final int MAX_BYTES_BEFORE_COPY = 65536;
+
+    protected int maxRowsBeforeFlush;
+
+    protected CopyManager copyManager;
+
+    protected CopyIn copyIn;
+
+    protected PostgresBinaryCopyEncoder encoder = new PostgresBinaryCopyEncoder();
+
+    /*
+     * Staging tables are dropped on commit, so they are created again for
+     * each transaction
+     */
+    protected Map<String, StagingTable> stagingTables = new HashMap<String, StagingTable>();
+
+    protected int stagingTableCount;
+
+    protected StagingTable stagingTable;
+
+    protected DataEventType stagedEventType;
+
+    protected int stagedRows;
+
+    protected Set<String> stagedKeys = new HashSet<String>();
+
+    public PostgresBinaryBulkDatabaseWriter(IDatabasePlatform symmetricPlatform, IDatabasePlatform targetPlatform,
+            String tablePrefix, DatabaseWriterSettings settings, int maxRowsBeforeFlush) {
+        super(symmetricPlatform, targetPlatform, tablePrefix, settings);
+        this.maxRowsBeforeFlush = maxRowsBeforeFlush;
+    }
+
+    @Override
+    public void open(DataContext context) {
+        super.open(context);
+        try {
+            JdbcSqlTransaction jdbcTransaction = (JdbcSqlTransaction) getTargetTransaction();
+            Connection conn = jdbcTransaction.getConnection().unwrap(org.postgresql.jdbc.PgConnection.class);
+            copyManager = new CopyManager((BaseConnection) conn);
+        } catch (Exception ex) {
+            throw getPlatform().getSqlTemplate().translate(ex);
+        }
+    }
+
+    @Override
+    public boolean start(Table table) {
+        flushStagedRows();
+        this.stagingTable = null;
+        return super.start(table);
+    }
+
+    @Override
+    protected void bulkWrite(CsvData data) {
+        DataEventType dataEventType = data.getDataEventType();
+        StagingTable staging = targetTable != null ? getStagingTable() : null;
+        if (staging != null && staging.isStaged(dataEventType)) {
+            stage(staging, data, dataEventType);
+            statistics.get(batch).increment(DataWriterStatisticConstants.ROWCOUNT);
+            statistics.get(batch).increment(DataWriterStatisticConstants.LINENUMBER);
+        } else {
+            flushStagedRows();
+            writeDefault(data);
+        }
+    }
+
+    protected void stage(StagingTable staging, CsvData data, DataEventType dataEventType) {
+        String[] rowData = dataEventType != DataEventType.DELETE ? data.getParsedData(CsvData.ROW_DATA) : null;
+        String[] keyData = dataEventType != DataEventType.INSERT ? getKeyData(data) : null;
+
+        String key = keyData != null ? StringUtils.join(keyData, '\u0001') : null;
+        if (dataEventType != stagedEventType || (dataEventType == DataEventType.UPDATE && stagedKeys.contains(key))) {
+            /* Set based updates cannot apply two changes to the same row */
+            flushStagedRows();
+        }
+        if (dataEventType == DataEventType.UPDATE) {
+            stagedKeys.add(key);
+        }
+
+        if (copyIn == null) {
+            startCopy(staging, dataEventType);
+        }
+
+        statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+        encoder.startRow((keyData != null ? keyData.length : 0) + (rowData != null ? rowData.length : 0));
+        if (keyData != null) {
+            for (int i = 0; i < keyData.length; i++) {
+                encode(staging.keyTypes[i], keyData[i]);
+            }
+        }
+        if (rowData != null) {
+            for (int i = 0; i < rowData.length; i++) {
+                encode(staging.columnTypes[i], rowData[i]);
+            }
+        }
+        stagedRows++;
+
+        if (encoder.size() >= MAX_BYTES_BEFORE_COPY) {
+            writeToCopy();
+        }
+        statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
+
+        if (stagedRows >= maxRowsBeforeFlush) {
+            flushStagedRows();
+        }
+    }
+
+    protected String[] getKeyData(CsvData data) {
+        String[] keyData = data.getParsedData(CsvData.PK_DATA);
+        if (keyData == null || keyData.length == 0) {
+            String[] values = data.getParsedData(CsvData.OLD_DATA);
+            if (values == null || values.length == 0) {
+                values = data.getParsedData(CsvData.ROW_DATA);
+            }
+            Column[] keys = targetTable.getPrimaryKeyColumns();
+            keyData = new String[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keyData[i] = values[targetTable.getColumnIndex(keys[i])];
+            }
+        }
+        return keyData;
+    }
+
+    protected void encode(String type, String value) {
+        if (value == null) {
+            encoder.writeNull();
+        } else if (type.equals("int8")) {
+            long longValue;
+            try {
+                longValue = Long.parseLong(value);
+            } catch (NumberFormatException ex) {
+                longValue = new BigDecimal(value).longValueExact();
+            }
+            encoder.writeLong(longValue);
+        } else if (type.equals("float8")) {
+            encoder.writeDouble(Double.parseDouble(value));
+        } else if (type.equals("bytea")) {
+            if (batch.getBinaryEncoding().equals(BinaryEncoding.HEX)) {
+                try {
+                    encoder.writeBytes(Hex.decodeHex(value.toCharArray()));
+                } catch (Exception ex) {
+                    throw getPlatform().getSqlTemplate().translate(ex);
+                }
+            } else if (batch.getBinaryEncoding().equals(BinaryEncoding.BASE64)) {
+                encoder.writeBytes(Base64.decodeBase64(value.getBytes()));
+            } else {
+                encoder.writeBytes(value.getBytes());
+            }
+        } else {
+            encoder.writeText(removeIllegalCharacters(value));
+        }
+    }
+
+    protected String removeIllegalCharacters(String value) {
+        if (value.indexOf(0) < 0) {
+            return value;
+        }
+        StringBuilder buff = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c > 0) {
+                buff.append(c);
+            }
+        }
+        return buff.toString();
+    }
+
+    protected void startCopy(StagingTable staging, DataEventType dataEventType) {
+        StringBuilder sql = new StringBuilder("copy ").append(staging.name).append("(");
+        if (dataEventType != DataEventType.INSERT) {
+            appendStagedColumns(sql, "k", staging.keyTypes.length);
+        }
+        if (dataEventType != DataEventType.DELETE) {
+            if (dataEventType != DataEventType.INSERT) {
+                sql.append(",");
+            }
+            appendStagedColumns(sql, "c", staging.columnTypes.length);
+        }
+        sql.append(") from stdin with (format binary)");
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("Starting binary copy using: {}", sql);
+            }
+            copyIn = copyManager.copyIn(sql.toString());
+            encoder.writeHeader();
+            stagedEventType = dataEventType;
+        } catch (Exception ex) {
+            throw getPlatform().getSqlTemplate().translate(ex);
+        }
+    }
+
+    protected void appendStagedColumns(StringBuilder sql, String prefix, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sql.append(",");
+            }
+            sql.append(prefix).append(i);
+        }
+    }
+
+    protected void writeToCopy() {
+        byte[] bytes = encoder.drain();
+        if (bytes.length > 0) {
+            try {
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException ex) {
+                throw getPlatform().getSqlTemplate().translate(ex);
+            }
+        }
+    }
+
+    /**
+     * Ends the copy into the staging table and applies the staged rows to the
+     * target table.
+     */
+    protected void flushStagedRows() {
+        if (copyIn != null) {
+            try {
+                encoder.writeTrailer();
+                writeToCopy();
+                copyIn.endCopy();
+            } catch (SQLException ex) {
+                throw getPlatform().getSqlTemplate().translate(ex);
+            } finally {
+                copyIn = null;
+            }
+
+            ISqlTransaction transaction = getTargetTransaction();
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+            try {
+                if (stagedEventType == DataEventType.INSERT) {
+                    statistics.get(batch).increment(DataWriterStatisticConstants.INSERTCOUNT,
+                            transaction.execute(stagingTable.insertSql));
+                } else if (stagedEventType == DataEventType.UPDATE) {
+                    int updated = transaction.execute(stagingTable.updateSql);
+                    statistics.get(batch).increment(DataWriterStatisticConstants.UPDATECOUNT, updated);
+                    if (updated < stagedRows) {
+                        statistics.get(batch).increment(DataWriterStatisticConstants.FALLBACKINSERTCOUNT,
+                                transaction.execute(stagingTable.fallbackInsertSql));
+                    }
+                } else if (stagedEventType == DataEventType.DELETE) {
+                    int deleted = transaction.execute(stagingTable.deleteSql);
+                    statistics.get(batch).increment(DataWriterStatisticConstants.DELETECOUNT, deleted);
+                    statistics.get(batch).increment(DataWriterStatisticConstants.MISSINGDELETECOUNT, stagedRows - deleted);
+                }
+                transaction.execute("truncate table " + stagingTable.name);
+            } finally {
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
+            }
+        }
+        stagedEventType = null;
+        stagedRows = 0;
+        stagedKeys.clear();
+    }
+
+    protected void cancelCopy() {
+        if (copyIn != null) {
+            try {
+                copyIn.cancelCopy();
+            } catch (SQLException e) {
+            } finally {
+                copyIn = null;
+            }
+        }
+        encoder.drain();
+        stagedEventType = null;
+        stagedRows = 0;
+        stagedKeys.clear();
+    }
+
+    @Override
+    public void end(Table table) {
+        try {
+            flushStagedRows();
+        } finally {
+            super.end(table);
+        }
+    }
+
+    @Override
+    public void end(Batch batch, boolean inError) {
+        if (inError) {
+            cancelCopy();
+        }
+        super.end(batch, inError);
+    }
+
+    @Override
+    protected void commit(boolean earlyCommit) {
+        flushStagedRows();
+        super.commit(earlyCommit);
+        stagingTables.clear();
+        stagingTable = null;
+    }
+
+    @Override
+    protected void rollback() {
+        cancelCopy();
+        super.rollback();
+        stagingTables.clear();
+        stagingTable = null;
+    }
+
+    protected StagingTable getStagingTable() {
+        if (stagingTable == null) {
+            String name = targetTable.getFullyQualifiedTableName();
+            stagingTable = stagingTables.get(name);
+            if (stagingTable == null) {
+                stagingTable = createStagingTable();
+                stagingTables.put(name, stagingTable);
+            }
+        }
+        return stagingTable;
+    }
+
+    /**
+     * Reads the declared type of each target column so staged values can be
+     * cast to it, and creates a staging table with the type each value will be
+     * encoded with.
+     */
+    protected StagingTable createStagingTable() {
+        DatabaseInfo dbInfo = getPlatform().getDatabaseInfo();
+        String quote = dbInfo.getDelimiterToken();
+        String qualifiedName = targetTable.getQualifiedTableName(quote, dbInfo.getCatalogSeparator(),
+                dbInfo.getSchemaSeparator());
+
+        ISqlTransaction transaction = getTargetTransaction();
+        final Map<String, String> declaredTypes = new HashMap<String, String>();
+        transaction.query("select a.attname, format_type(a.atttypid, a.atttypmod) from pg_attribute a "
+                + "where a.attrelid = cast(? as regclass) and a.attnum > 0 and not a.attisdropped",
+                new ISqlRowMapper<Object>() {
+                    public Object mapRow(Row row) {
+                        declaredTypes.put(row.getString("attname"), row.getString("format_type"));
+                        return null;
+                    }
+                }, new Object[] { qualifiedName }, new int[] { Types.VARCHAR });
+
+        Column[] columns = targetTable.getColumns();
+        Column[] keys = targetTable.getPrimaryKeyColumns();
+        StagingTable staging = new StagingTable("sym_bulk_stage_" + (++stagingTableCount));
+        staging.columnTypes = new String[columns.length];
+        staging.keyTypes = new String[keys.length];
+        String[] declaredColumnTypes = new String[columns.length];
+        String[] declaredKeyTypes = new String[keys.length];
+        for (int i = 0; i < columns.length; i++) {
+            declaredColumnTypes[i] = declaredTypes.get(columns[i].getName());
+            staging.columnTypes[i] = getStagingType(columns[i], declaredColumnTypes[i]);
+            if (staging.columnTypes[i] == null) {
+                log.debug("Table {} has a column that cannot be staged for binary copy", qualifiedName);
+                staging.stagedEventTypes.clear();
+                return staging;
+            }
+        }
+        for (int i = 0; i < keys.length; i++) {
+            int index = targetTable.getColumnIndex(keys[i]);
+            declaredKeyTypes[i] = declaredColumnTypes[index];
+            staging.keyTypes[i] = staging.columnTypes[index];
+        }
+
+        staging.stagedEventTypes.add(DataEventType.INSERT);
+        Conflict conflict = writerSettings.pickConflict(targetTable, batch);
+        if (keys.length > 0 && conflict.getDetectType() == DetectConflict.USE_PK_DATA
+                && conflict.getResolveType() == ResolveConflict.FALLBACK && conflict.getPingBack() == PingBack.OFF
+                && (writerSettings.getResolvedData() == null || writerSettings.getResolvedData().size() == 0)) {
+            staging.stagedEventTypes.add(DataEventType.UPDATE);
+            staging.stagedEventTypes.add(DataEventType.DELETE);
+        }
+
+        StringBuilder create = new StringBuilder("create temporary table ").append(staging.name).append(" (");
+        for (int i = 0; i < keys.length; i++) {
+            create.append("k").append(i).append(" ").append(staging.keyTypes[i]).append(",");
+        }
+        for (int i = 0; i < columns.length; i++) {
+            create.append("c").append(i).append(" ").append(staging.columnTypes[i]).append(",");
+        }
+        create.replace(create.length() - 1, create.length(), ") on commit drop");
+        transaction.execute(create.toString());
+
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder selectList = new StringBuilder();
+        StringBuilder setList = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            String column = quote + columns[i].getName() + quote;
+            String value = cast("s.c" + i, declaredColumnTypes[i]);
+            columnList.append(i > 0 ? "," : "").append(column);
+            selectList.append(i > 0 ? "," : "").append(value);
+            setList.append(i > 0 ? "," : "").append(column).append("=").append(value);
+        }
+        StringBuilder oldKeyMatch = new StringBuilder();
+        StringBuilder newKeyMatch = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            String column = "t." + quote + keys[i].getName() + quote;
+            oldKeyMatch.append(i > 0 ? " and " : "").append(column).append("=").append(cast("s.k" + i, declaredKeyTypes[i]));
+            newKeyMatch.append(i > 0 ? " and " : "").append(column).append("=")
+                    .append(cast("s.c" + targetTable.getColumnIndex(keys[i]), declaredKeyTypes[i]));
+        }
+
+        staging.insertSql = "insert into " + qualifiedName + " (" + columnList + ") select " + selectList + " from "
+                + staging.name + " s";
+        staging.updateSql = "update " + qualifiedName + " t set " + setList + " from " + staging.name + " s where "
+                + oldKeyMatch;
+        staging.fallbackInsertSql = staging.insertSql + " where not exists (select 1 from " + qualifiedName
+                + " t where " + newKeyMatch + ")";
+        staging.deleteSql = "delete from " + qualifiedName + " t using " + staging.name + " s where " + oldKeyMatch;
+        return staging;
+    }
+
+    /**
+     * Integers, floating point numbers and bytea are encoded in their binary
+     * form. Everything else is sent as text and converted by the cast to the
+     * declared type. Returns null for a binary column that is not bytea.
+     */
+    protected String getStagingType(Column column, String declaredType) {
+        if (column.isOfBinaryType()) {
+            return "bytea".equals(declaredType) ? "bytea" : null;
+        }
+        switch (column.getMappedTypeCode()) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return "smallint".equals(declaredType) || "integer".equals(declaredType) || "bigint".equals(declaredType)
+                        ? "int8" : "text";
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return "real".equals(declaredType) || "double precision".equals(declaredType) ? "float8" : "text";
+            default:
+                return "text";
+        }
+    }
+
+    protected String cast(String expression, String declaredType) {
+        return declaredType != null ? "cast(" + expression + " as " + declaredType + ")" : expression;
+    }
+
+    protected static class StagingTable {
+
+        String name;
+
+        String[] columnTypes;
+
+        String[] keyTypes;
+
+        Set<DataEventType> stagedEventTypes = new HashSet<DataEventType>();
+
+        String insertSql;
+
+        String updateSql;
+
+        String fallbackInsertSql;
+
+        String deleteSql;
+
+        StagingTable(String name) {
+            this.name = name;
+        }
+
+        boolean isStaged(DataEventType dataEventType) {
+            return stagedEventTypes.contains(dataEventType);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.jumpmind.exception.IoException;
+
+/**
+ * Buffers rows in the PostgreSQL COPY binary format: a signature and header,
+ * then for each row a field count followed by a length prefixed value for each
+ * field (-1 for null), then a trailer.
+ */
+public class PostgresBinaryCopyEncoder {
+
+    protected static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0 };
+
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+    protected ByteArrayOutputStream buffer = new ByteArrayOutputStream(65536);
+
+    protected DataOutputStream out = new DataOutputStream(buffer);
+
+    public void writeHeader() {
+        try {
+            out.write(SIGNATURE);
+            /* flags, then the length of the header extension area */
+            out.writeInt(0);
+            out.writeInt(0);
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    public void startRow(int fieldCount) {
+        try {
+            out.writeShort(fieldCount);
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    public void writeNull() {
+        try {
+            out.writeInt(-1);
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    public void writeLong(long value) {
+        try {
+            out.writeInt(8);
+            out.writeLong(value);
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    public void writeDouble(double value) {
+        try {
+            out.writeInt(8);
+            out.writeDouble(value);
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    public void writeBytes(byte[] value) {
+        try {
+            out.writeInt(value.length);
+            out.write(value);
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    public void writeText(String value) {
+        writeBytes(value.getBytes(UTF8));
+    }
+
+    public void writeTrailer() {
+        try {
+            out.writeShort(-1);
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    public int size() {
+        return buffer.size();
+    }
+
+    /**
+     * Returns the buffered bytes and empties the buffer.
+     */
+    public byte[] drain() {
+        byte[] bytes = buffer.toByteArray();
+        buffer.reset();
+        return bytes;
+    }
+
+}
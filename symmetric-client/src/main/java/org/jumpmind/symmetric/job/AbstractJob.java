@@ -90,6 +90,16 @@ abstract public class AbstractJob implements Runnable, IJob {
     private String targetNodeId;
     
     private int targetNodeCount;
+
+    private AtomicBoolean signalPending = new AtomicBoolean(false);
+
+    private volatile long lastSignaledRunTime;
+
+    private Runnable signaledRun = new Runnable() {
+        public void run() {
+            runSignaled();
+        }
+    };
     
     public AbstractJob() {
         
@@ -202,6 +212,52 @@ abstract public class AbstractJob implements Runnable, IJob {
 
     @Override
     public boolean invoke(boolean force) {
+        return invoke(force, false);
+    }
+
+    @Override
+    public void signal() {
+        if (started && taskScheduler != null && signalPending.compareAndSet(false, true)) {
+            scheduleSignaledRun(lastSignaledRunTime + getSignalMinIntervalMs());
+        }
+    }
+
+    protected void scheduleSignaledRun(long runTime) {
+        try {
+            taskScheduler.schedule(signaledRun, new Date(Math.max(runTime, System.currentTimeMillis())));
+        } catch (Exception ex) {
+            signalPending.set(false);
+            log.debug("Failed to schedule a signaled run of job '{}'", jobName, ex);
+        }
+    }
+
+    protected void runSignaled() {
+        if (!started) {
+            signalPending.set(false);
+        } else if (running.get()) {
+            /* Keep the signal pending and try again after the current run */
+            scheduleSignaledRun(System.currentTimeMillis() + getSignalMinIntervalMs());
+        } else {
+            signalPending.set(false);
+            lastSignaledRunTime = System.currentTimeMillis();
+            MDC.put("engineName", engine != null ? engine.getEngineName() : "unknown");
+            invoke(false, true);
+        }
+    }
+
+    protected boolean isSignalPending() {
+        return signalPending.get();
+    }
+
+    protected long getLastSignaledRunTime() {
+        return lastSignaledRunTime;
+    }
+
+    protected long getSignalMinIntervalMs() {
+        return parameterService.getLong(ParameterConstants.JOB_SIGNAL_MIN_INTERVAL_MS, 500);
+    }
+
+    protected boolean invoke(boolean force, boolean signaled) {
         try {            
             MDC.put("engineName", engine.getEngineName());
             
@@ -221,10 +277,10 @@ abstract public class AbstractJob implements Runnable, IJob {
                 }
                 if (parameterService.is(ParameterConstants.SYNCHRONIZE_ALL_JOBS)) {
                     synchronized (AbstractJob.class) {
-                        doJob(force);
+                        doJob(force, signaled);
                     }
                 } else {
-                    doJob(force);
+                    doJob(force, signaled);
                 }
 
             } finally {
@@ -300,6 +356,22 @@ abstract public class AbstractJob implements Runnable, IJob {
 
     protected abstract void doJob(boolean force) throws Exception;
 
+    protected void doJob(boolean force, boolean signaled) throws Exception {
+        if (signaled) {
+            doSignaledJob();
+        } else {
+            doJob(force);
+        }
+    }
+
+    /**
+     * Called when the job runs because of a {@link #signal()} instead of its
+     * schedule.
+     */
+    protected void doSignaledJob() throws Exception {
+        doJob(false);
+    }
+
     @Override
     @ManagedOperation(description = "Pause this job")
     public void pause() {
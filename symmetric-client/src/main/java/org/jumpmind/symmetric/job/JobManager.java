@@ -107,6 +107,18 @@ public class JobManager extends AbstractService implements IJobManager {
         return null;
     }
     
+    @Override
+    public void signalJob(String name) {
+        List<IJob> jobs = this.jobs;
+        if (jobs != null) {
+            for (IJob job : jobs) {
+                if (job.getName().equals(name)) {
+                    job.signal();
+                }
+            }
+        }
+    }
+
     /*
      * Start the jobs if they are configured to be started
      */
@@ -49,4 +49,11 @@ public class PushJob extends AbstractJob {
         }
     }
 
+    @Override
+    protected void doSignaledJob() throws Exception {
+        if (engine != null) {
+            engine.getPushService().pushPendingData();
+        }
+    }
+
 }
\ No newline at end of file
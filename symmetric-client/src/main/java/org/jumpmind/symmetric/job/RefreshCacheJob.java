@@ -21,13 +21,22 @@
 package org.jumpmind.symmetric.job;
 
 import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.service.ClusterConstants;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IParameterService;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /*
- * Background job that checks if cached objects should be refreshed
+ * Background job that checks if cached objects should be refreshed.  The last update
+ * times of the configuration tables are only read after the configuration version
+ * changes, or once the verify period has passed since they were last read.
  */
 public class RefreshCacheJob extends AbstractJob {
+
+    private long lastConfigurationVersion = -1;
+
+    private long lastVerifyTime;
 
     public RefreshCacheJob(ISymmetricEngine engine, ThreadPoolTaskScheduler taskScheduler) {
         super(ClusterConstants.REFRESH_CACHE, engine, taskScheduler);
@@ -42,14 +51,32 @@ public class RefreshCacheJob extends AbstractJob {
     
     @Override
     public void doJob(boolean force) throws Exception {
-        engine.getParameterService().refreshFromDatabase();
-        engine.getTriggerRouterService().refreshFromDatabase();
-        engine.getGroupletService().refreshFromDatabase();
-        engine.getConfigurationService().refreshFromDatabase();
-        engine.getTransformService().refreshFromDatabase();
-        engine.getDataLoaderService().refreshFromDatabase();
-        engine.getLoadFilterService().refreshFromDatabase();
-        engine.getFileSyncService().refreshFromDatabase();
+        IParameterService parameterService = engine.getParameterService();
+        IConfigurationService configurationService = engine.getConfigurationService();
+        long now = currentTimeMillis();
+        long verifyPeriodInMs = parameterService.getLong(ParameterConstants.CACHE_CONFIG_VERIFY_PERIOD_IN_MS, 600000);
+        boolean verify = force || configurationService.getConfigurationVersion() != lastConfigurationVersion
+                || parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED)
+                || now - lastVerifyTime >= verifyPeriodInMs;
+        if (verify) {
+            boolean changed = parameterService.refreshFromDatabase();
+            changed |= engine.getTriggerRouterService().refreshFromDatabase();
+            changed |= engine.getGroupletService().refreshFromDatabase();
+            changed |= configurationService.refreshFromDatabase();
+            changed |= engine.getTransformService().refreshFromDatabase();
+            changed |= engine.getDataLoaderService().refreshFromDatabase();
+            changed |= engine.getLoadFilterService().refreshFromDatabase();
+            changed |= engine.getFileSyncService().refreshFromDatabase();
+            if (changed) {
+                configurationService.incrementConfigurationVersion();
+            }
+            lastConfigurationVersion = configurationService.getConfigurationVersion();
+            lastVerifyTime = now;
+        }
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
     }
 
 }
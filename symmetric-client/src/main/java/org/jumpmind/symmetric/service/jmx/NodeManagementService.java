@@ -28,6 +28,7 @@ import java.io.Writer;
 import java.text.DateFormat;
 import java.text.NumberFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 import javax.sql.DataSource;
@@ -42,6 +43,7 @@ import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.ext.ISymmetricEngineAware;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.service.IDataExtractorService;
+import org.jumpmind.symmetric.statistic.StageStats;
 import org.jumpmind.symmetric.transport.ConcurrentConnectionManager.NodeConnectionStatistics;
 import org.jumpmind.util.FormatUtils;
 import org.slf4j.Logger;
@@ -175,6 +177,35 @@ public class NodeManagementService implements IBuiltInExtensionPoint, ISymmetric
         return out.toString();
     }
 
+    @ManagedAttribute(description = "Get the latency percentiles in milliseconds of each stage and channel since the statistics were last flushed")
+    public String getStageLatencyStatisticsAsText() {
+        String lineFeed = "\n";
+        if (engine.getParameterService().getString(ParameterConstants.JMX_LINE_FEED).equals("html")) {
+            lineFeed = "</br>";
+        }
+        List<StageStats> stats = engine.getStatisticManager().getWorkingStageStats();
+        StringBuilder out = new StringBuilder();
+        out.append("-------------------------------------------------------------------------------------------------------------------------------");
+        out.append(lineFeed);
+        out.append("     STAGE             CHANNEL ID        COUNT         MEAN          P50          P90          P99        P99.9          MAX");
+        out.append(lineFeed);
+        out.append("-------------------------------------------------------------------------------------------------------------------------------");
+        out.append(lineFeed);
+        for (StageStats stat : stats) {
+            out.append(StringUtils.leftPad(stat.getStage(), 10));
+            out.append(StringUtils.leftPad(stat.getChannelId(), 23));
+            out.append(StringUtils.leftPad(Long.toString(stat.getSampleCount()), 13));
+            out.append(StringUtils.leftPad(Long.toString(stat.getTotalMillis() / stat.getSampleCount()), 13));
+            out.append(StringUtils.leftPad(Long.toString(stat.getP50Millis()), 13));
+            out.append(StringUtils.leftPad(Long.toString(stat.getP90Millis()), 13));
+            out.append(StringUtils.leftPad(Long.toString(stat.getP99Millis()), 13));
+            out.append(StringUtils.leftPad(Long.toString(stat.getP999Millis()), 13));
+            out.append(StringUtils.leftPad(Long.toString(stat.getMaxMillis()), 13));
+            out.append(lineFeed);
+        }
+        return out.toString();
+    }
+
     @ManagedOperation(description = "Clean up both incoming and outgoing resources that are older than the passed in number of milliseconds")
     @ManagedOperationParameters({ @ManagedOperationParameter(name = "timeToLiveInMS", description = "The number of milliseconds old a resource should be before it is cleaned up") })
     public long cleanStaging(long timeToLiveInMS) {
@@ -321,6 +321,12 @@ public class SnapshotUtil {
         createThreadsFile(tmpDir.getPath(), false);
         createThreadsFile(tmpDir.getPath(), true);
 
+        try (FileWriter writer = new FileWriter(new File(tmpDir, "sampled-stacks.txt"))) {
+            engine.getStatisticManager().writeSampledStacks(writer);
+        } catch (Exception e) {
+            log.warn("Failed to export sampled stack information", e);
+        }
+
         fos = null;
         try {
             fos = new FileOutputStream(new File(tmpDir, "parameters.properties"));
@@ -0,0 +1,182 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.db.postgresql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Database;
+import org.jumpmind.db.model.IndexColumn;
+import org.jumpmind.db.model.NonUniqueIndex;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.platform.postgresql.PostgreSqlDdlBuilder;
+import org.jumpmind.db.sql.ISqlStatementSource;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class PostgreSqlSymmetricDialectTest {
+
+    List<String> statements;
+
+    boolean tablesExist;
+
+    PostgreSqlSymmetricDialect dialect;
+
+    @Before
+    public void setUp() throws Exception {
+        statements = new ArrayList<String>();
+        tablesExist = false;
+        ISqlTemplate sqlTemplate = mock(ISqlTemplate.class, new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                String method = invocation.getMethod().getName();
+                Object[] args = invocation.getArguments();
+                if (method.equals("update") && args[args.length - 1] instanceof ISqlStatementSource) {
+                    ISqlStatementSource source = (ISqlStatementSource) args[args.length - 1];
+                    String sql = source.readSqlStatement();
+                    while (sql != null) {
+                        statements.add(sql.trim());
+                        sql = source.readSqlStatement();
+                    }
+                    return statements.size();
+                } else if (method.equals("update") && args[0] instanceof String) {
+                    statements.add((String) args[0]);
+                    return 0;
+                } else if (method.equals("queryForInt")) {
+                    return tablesExist ? 1 : 0;
+                } else if (method.equals("getDatabaseMajorVersion")) {
+                    return 11;
+                }
+                return RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+
+        PostgreSqlDdlBuilder ddlBuilder = new PostgreSqlDdlBuilder();
+        IDatabasePlatform platform = mock(IDatabasePlatform.class);
+        when(platform.getSqlTemplate()).thenReturn(sqlTemplate);
+        when(platform.getDdlBuilder()).thenReturn(ddlBuilder);
+        when(platform.getDatabaseInfo()).thenReturn(ddlBuilder.getDatabaseInfo());
+        when(platform.getDefaultSchema()).thenReturn("public");
+        when(platform.readDatabaseFromXml(anyString(), anyBoolean())).thenReturn(new Database());
+        when(platform.readDatabaseFromXml(eq("/symmetric-schema.xml"), anyBoolean())).thenReturn(newDataTables());
+
+        IParameterService parameterService = mock(IParameterService.class);
+        when(parameterService.getTablePrefix()).thenReturn("sym");
+        when(parameterService.is(ParameterConstants.PURGE_PARTITION_ENABLED, false)).thenReturn(true);
+        when(parameterService.getLong(ParameterConstants.PURGE_PARTITION_SIZE, 1000000)).thenReturn(1000000l);
+        when(parameterService.getInt(ParameterConstants.PURGE_PARTITION_PRECREATE_COUNT, 5)).thenReturn(1);
+
+        dialect = new PostgreSqlSymmetricDialect(parameterService, platform);
+    }
+
+    @Test
+    public void testCreatePartitionedDataTables() throws Exception {
+        assertTrue(dialect.createPartitionedDataTablesIfNecessary("sym_data", "sym_data_event"));
+
+        assertPartitionedTable("sym_data");
+        assertPartitionedTable("sym_data_event");
+        assertContains("CREATE TABLE sym_data_pdefault PARTITION OF sym_data DEFAULT");
+        assertContains("CREATE TABLE sym_data_event_pdefault PARTITION OF sym_data_event DEFAULT");
+        assertContains("create table sym_data_p0 partition of sym_data for values from (0) to (1000000)");
+        assertContains("create table sym_data_event_p1000000 partition of sym_data_event for values from (1000000) to (2000000)");
+        for (String sql : statements) {
+            if (sql.contains("CREATE INDEX")) {
+                assertFalse(sql, sql.contains("PARTITION BY"));
+            }
+        }
+    }
+
+    @Test
+    public void testCreateOnlyRequestedTables() throws Exception {
+        assertTrue(dialect.createPartitionedDataTablesIfNecessary("sym_data_event"));
+
+        assertPartitionedTable("sym_data_event");
+        for (String sql : statements) {
+            assertFalse(sql, sql.matches("(?s)CREATE TABLE \"?sym_data\"?\\s*\\(.*"));
+        }
+    }
+
+    @Test
+    public void testExistingTablesAreNotConverted() throws Exception {
+        tablesExist = true;
+        assertFalse(dialect.createPartitionedDataTablesIfNecessary("sym_data", "sym_data_event"));
+        assertEquals(0, statements.size());
+    }
+
+    protected void assertPartitionedTable(String tableName) {
+        for (String sql : statements) {
+            if (sql.matches("(?s)CREATE TABLE \"?" + tableName + "\"?\\s*\\(.*")) {
+                assertTrue(sql, sql.matches("(?s).*\\)\\s*PARTITION BY RANGE \\(data_id\\)\\s*;?"));
+                return;
+            }
+        }
+        throw new AssertionError("No create table statement for " + tableName + " in " + statements);
+    }
+
+    protected void assertContains(String expected) {
+        for (String sql : statements) {
+            if (sql.replace(";", "").trim().equals(expected)) {
+                return;
+            }
+        }
+        throw new AssertionError("Missing '" + expected + "' in " + statements);
+    }
+
+    protected Database newDataTables() {
+        Table data = new Table("sym_data");
+        data.addColumn(new Column("data_id", true, Types.BIGINT, 0, 0));
+        data.addColumn(new Column("table_name", false, Types.VARCHAR, 255, 0));
+        data.addColumn(new Column("event_type", false, Types.CHAR, 1, 0));
+        data.addColumn(new Column("create_time", false, Types.TIMESTAMP, 0, 0));
+
+        Table dataEvent = new Table("sym_data_event");
+        dataEvent.addColumn(new Column("data_id", true, Types.BIGINT, 0, 0));
+        dataEvent.addColumn(new Column("batch_id", true, Types.BIGINT, 0, 0));
+        dataEvent.addColumn(new Column("router_id", true, Types.VARCHAR, 50, 0));
+        dataEvent.addColumn(new Column("create_time", false, Types.TIMESTAMP, 0, 0));
+        NonUniqueIndex index = new NonUniqueIndex("sym_idx_de_batchid");
+        index.addColumn(new IndexColumn("batch_id"));
+        dataEvent.addIndex(index);
+
+        Database database = new Database();
+        database.addTable(data);
+        database.addTable(dataEvent);
+        return database;
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jumpmind.db.DbTestUtils;
+import org.jumpmind.db.platform.postgresql.PostgreSqlDatabasePlatform;
+import org.jumpmind.db.util.BasicDataSourcePropertyConstants;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PostgresBinaryBulkDatabaseWriterTest extends AbstractWriterTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        if (DbTestUtils.getEnvironmentSpecificProperties(DbTestUtils.ROOT)
+                .get(BasicDataSourcePropertyConstants.DB_POOL_DRIVER)
+                .equals("org.postgresql.Driver")) {
+            platform = DbTestUtils.createDatabasePlatform(DbTestUtils.ROOT);
+            platform.createDatabase(platform.readDatabaseFromXml("/testBulkWriter.xml", true), true,
+                    false);
+        }
+    }
+
+    @Before
+    public void setupTest() {
+        setErrorExpected(false);
+    }
+
+    @Override
+    protected long writeData(TableCsvData... datas) {
+        return writeData(new PostgresBinaryBulkDatabaseWriter(platform, platform, "sym_", new DatabaseWriterSettings(),
+                100), datas);
+    }
+
+    @Override
+    protected String getTestTable() {
+        return "test_bulkload_table_1";
+    }
+
+    @Test
+    public void testInsertUpdateDelete() {
+        if (platform != null && platform instanceof PostgreSqlDatabasePlatform) {
+            platform.getSqlTemplate().update("truncate table test_bulkload_table_1");
+
+            List<String> ids = new ArrayList<String>();
+            List<CsvData> datas = new ArrayList<CsvData>();
+            for (int i = 0; i < 1000; i++) {
+                String id = getNextId();
+                ids.add(id);
+                datas.add(new CsvData(DataEventType.INSERT, new String[] { id, "stri'ng2", "string not null2",
+                        "char2", "char not null2", "2007-01-02 03:20:10.0", "2007-02-03 04:05:06.0", "0", "47",
+                        "67.89", "-0.0747663" }));
+            }
+            writeData(new TableCsvData(platform.getTableFromCache("test_bulkload_table_1", false), datas));
+            Assert.assertEquals(1000, countRows("test_bulkload_table_1"));
+
+            datas.clear();
+            for (int i = 0; i < 500; i++) {
+                datas.add(new CsvData(DataEventType.UPDATE, new String[] { ids.get(i) },
+                    new String[] { ids.get(i), "updated", "string not null2",
+                        "char2", "char not null2", "2007-01-02 03:20:10.0", "2007-02-03 04:05:06.0", "1", "48",
+                        "1.23", "2.5" }));
+            }
+            /* a second change to the same row and an update of a missing row */
+            datas.add(new CsvData(DataEventType.UPDATE, new String[] { ids.get(0) },
+                    new String[] { ids.get(0), "twice", "string not null2",
+                    "char2", "char not null2", null, null, "1", "49", null, null }));
+            String missingId = getNextId();
+            datas.add(new CsvData(DataEventType.UPDATE, new String[] { missingId },
+                    new String[] { missingId, "fallback", "string not null2",
+                    "char2", "char not null2", null, null, "1", "50", null, null }));
+            for (int i = 500; i < 700; i++) {
+                datas.add(new CsvData(DataEventType.DELETE, new String[] { ids.get(i) }, null));
+            }
+            writeData(new TableCsvData(platform.getTableFromCache("test_bulkload_table_1", false), datas));
+
+            Assert.assertEquals(801, countRows("test_bulkload_table_1"));
+            Assert.assertEquals(499, platform.getSqlTemplate().queryForInt(
+                    "select count(*) from test_bulkload_table_1 where string_value='updated'"));
+            Assert.assertEquals("twice", platform.getSqlTemplate().queryForString(
+                    "select string_value from test_bulkload_table_1 where id=?", Integer.parseInt(ids.get(0))));
+            Assert.assertEquals("fallback", platform.getSqlTemplate().queryForString(
+                    "select string_value from test_bulkload_table_1 where id=?", Integer.parseInt(missingId)));
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+
+import org.junit.Test;
+
+public class PostgresBinaryCopyEncoderTest {
+
+    @Test
+    public void testHeaderAndTrailer() throws Exception {
+        PostgresBinaryCopyEncoder encoder = new PostgresBinaryCopyEncoder();
+        encoder.writeHeader();
+        encoder.writeTrailer();
+        byte[] bytes = encoder.drain();
+        assertArrayEquals(new byte[] { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0, 0, 0, 0, 0, 0, 0,
+                0, 0, (byte) 0xff, (byte) 0xff }, bytes);
+        assertEquals(0, encoder.size());
+    }
+
+    @Test
+    public void testRow() throws Exception {
+        PostgresBinaryCopyEncoder encoder = new PostgresBinaryCopyEncoder();
+        encoder.startRow(5);
+        encoder.writeLong(-2);
+        encoder.writeDouble(1.5);
+        encoder.writeNull();
+        encoder.writeText("caf\u00e9");
+        encoder.writeBytes(new byte[] { 1, 2, 3 });
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoder.drain()));
+        assertEquals(5, in.readShort());
+        assertEquals(8, in.readInt());
+        assertEquals(-2, in.readLong());
+        assertEquals(8, in.readInt());
+        assertEquals(1.5, in.readDouble(), 0);
+        assertEquals(-1, in.readInt());
+        assertEquals(5, in.readInt());
+        byte[] text = new byte[5];
+        in.readFully(text);
+        assertEquals("caf\u00e9", new String(text, "UTF-8"));
+        assertEquals(3, in.readInt());
+        assertEquals(1, in.readByte());
+        assertEquals(2, in.readByte());
+        assertEquals(3, in.readByte());
+        assertEquals(-1, in.read());
+    }
+
+}
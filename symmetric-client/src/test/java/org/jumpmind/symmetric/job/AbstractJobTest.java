@@ -0,0 +1,168 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.model.JobDefinition;
+import org.jumpmind.symmetric.model.Lock;
+import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+public class AbstractJobTest {
+
+    static final long MIN_INTERVAL_MS = 200;
+
+    ThreadPoolTaskScheduler taskScheduler;
+
+    ISymmetricEngine engine;
+
+    TestJob job;
+
+    @Before
+    public void setup() {
+        engine = mock(ISymmetricEngine.class);
+        IParameterService parameterService = mock(IParameterService.class);
+        IClusterService clusterService = mock(IClusterService.class);
+        Lock lock = new Lock();
+        lock.setLastLockTime(new Date());
+        when(clusterService.findLocks()).thenReturn(Collections.singletonMap("Test", lock));
+        when(engine.getParameterService()).thenReturn(parameterService);
+        when(engine.getClusterService()).thenReturn(clusterService);
+        when(engine.getEngineName()).thenReturn("test");
+        when(engine.isStarted()).thenReturn(true);
+        when(parameterService.getInt(ParameterConstants.JOB_RANDOM_MAX_START_TIME_MS)).thenReturn(1000);
+        when(parameterService.getLong(ParameterConstants.JOB_SIGNAL_MIN_INTERVAL_MS, 500)).thenReturn(MIN_INTERVAL_MS);
+        when(parameterService.getLong(ParameterConstants.STATISTIC_RECORD_COUNT_THRESHOLD, -1)).thenReturn(-1l);
+
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setPoolSize(2);
+        taskScheduler.initialize();
+
+        JobDefinition jobDefinition = new JobDefinition();
+        jobDefinition.setJobName("Test");
+        jobDefinition.setDefaultSchedule("3600000");
+        job = new TestJob(engine, taskScheduler);
+        job.setJobDefinition(jobDefinition);
+    }
+
+    @After
+    public void teardown() {
+        job.stop();
+        taskScheduler.shutdown();
+    }
+
+    @Test
+    public void testSignalIgnoredWhenNotStarted() throws Exception {
+        job.signal();
+        assertFalse(job.isSignalPending());
+        assertEquals(0, job.signaledRuns.get());
+    }
+
+    @Test
+    public void testSignalsAreCoalesced() throws Exception {
+        job.start();
+        job.release = new CountDownLatch(1);
+        job.signal();
+        assertTrue(job.firstRunStarted.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            job.signal();
+        }
+        assertTrue(job.isSignalPending());
+        job.release.countDown();
+        assertTrue(job.secondRunFinished.await(10, TimeUnit.SECONDS));
+        assertFalse(job.isSignalPending());
+        assertEquals(2, job.signaledRuns.get());
+        assertEquals(0, job.scheduledRuns.get());
+    }
+
+    @Test
+    public void testSignalsHonorMinimumInterval() throws Exception {
+        job.start();
+        job.signal();
+        assertTrue(job.firstRunStarted.await(10, TimeUnit.SECONDS));
+        job.signal();
+        assertTrue(job.secondRunFinished.await(10, TimeUnit.SECONDS));
+        long interval = job.runStartTimes.get(1) - job.runStartTimes.get(0);
+        assertTrue("Signaled runs were only " + interval + "ms apart", interval >= MIN_INTERVAL_MS);
+        assertEquals(2, job.signaledRuns.get());
+    }
+
+    static class TestJob extends AbstractJob {
+
+        AtomicInteger scheduledRuns = new AtomicInteger();
+
+        AtomicInteger signaledRuns = new AtomicInteger();
+
+        List<Long> runStartTimes = new CopyOnWriteArrayList<Long>();
+
+        CountDownLatch firstRunStarted = new CountDownLatch(1);
+
+        CountDownLatch secondRunFinished = new CountDownLatch(1);
+
+        volatile CountDownLatch release;
+
+        public TestJob(ISymmetricEngine engine, ThreadPoolTaskScheduler taskScheduler) {
+            super("Test", engine, taskScheduler);
+        }
+
+        @Override
+        public JobDefaults getDefaults() {
+            return new JobDefaults();
+        }
+
+        @Override
+        protected void doJob(boolean force) throws Exception {
+            scheduledRuns.incrementAndGet();
+        }
+
+        @Override
+        protected void doSignaledJob() throws Exception {
+            runStartTimes.add(getLastSignaledRunTime());
+            firstRunStarted.countDown();
+            if (release != null) {
+                release.await();
+            }
+            if (signaledRuns.incrementAndGet() == 2) {
+                secondRunFinished.countDown();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.ITypedPropertiesFactory;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.impl.ConfigurationService;
+import org.jumpmind.symmetric.service.impl.DataLoaderService;
+import org.jumpmind.symmetric.service.impl.FileSyncService;
+import org.jumpmind.symmetric.service.impl.GroupletService;
+import org.jumpmind.symmetric.service.impl.LoadFilterService;
+import org.jumpmind.symmetric.service.impl.ParameterService;
+import org.jumpmind.symmetric.service.impl.TransformService;
+import org.jumpmind.symmetric.service.impl.TriggerRouterService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class RefreshCacheJobTest {
+
+    static final long JOB_PERIOD_MS = 30000;
+
+    static final long HOUR_MS = 3600000;
+
+    /*
+     * The number of last update time queries each pass makes: parameters 1,
+     * trigger routers 3, grouplets 3, channels and groups 3, transforms 2,
+     * conflicts 1, load filters 1 and file triggers 3.
+     */
+    static final int QUERIES_PER_PASS = 17;
+
+    AtomicInteger queries = new AtomicInteger();
+
+    IParameterService parameterService;
+
+    ConfigurationService configurationService;
+
+    TriggerRouterService triggerRouterService;
+
+    TestRefreshCacheJob job;
+
+    @Before
+    public void setup() {
+        /* counts every query the services make, and finds no configuration */
+        ISqlTemplate sqlTemplate = mock(ISqlTemplate.class, new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                if (invocation.getMethod().getName().startsWith("query")) {
+                    queries.incrementAndGet();
+                }
+                return RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+        IDatabasePlatform platform = mock(IDatabasePlatform.class);
+        when(platform.getSqlTemplate()).thenReturn(sqlTemplate);
+        when(platform.getSqlTemplateDirty()).thenReturn(sqlTemplate);
+        when(platform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(platform.scrubSql(anyString())).then(returnsFirstArg());
+        ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
+        when(symmetricDialect.getPlatform()).thenReturn(platform);
+
+        final ParameterService databaseParameterService = new ParameterService(platform,
+                mock(ITypedPropertiesFactory.class), "sym");
+        parameterService = mock(IParameterService.class);
+        when(parameterService.getTablePrefix()).thenReturn("sym");
+        when(parameterService.is(ParameterConstants.GROUPLET_ENABLE)).thenReturn(true);
+        when(parameterService.is(ParameterConstants.CACHE_CONFIG_VERSION_ENABLED, true)).thenReturn(true);
+        when(parameterService.getInt(ParameterConstants.JOB_RANDOM_MAX_START_TIME_MS)).thenReturn(1000);
+        when(parameterService.getLong(ParameterConstants.CACHE_CONFIG_VERIFY_PERIOD_IN_MS, 600000)).thenReturn(600000l);
+        when(parameterService.refreshFromDatabase()).thenAnswer(new Answer<Boolean>() {
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return databaseParameterService.refreshFromDatabase();
+            }
+        });
+
+        ISymmetricEngine engine = mock(ISymmetricEngine.class);
+        IExtensionService extensionService = mock(IExtensionService.class);
+        when(engine.getParameterService()).thenReturn(parameterService);
+        when(engine.getSymmetricDialect()).thenReturn(symmetricDialect);
+        when(engine.getExtensionService()).thenReturn(extensionService);
+        when(engine.getNodeService()).thenReturn(mock(INodeService.class));
+        configurationService = new ConfigurationService(parameterService, symmetricDialect, engine.getNodeService());
+        when(engine.getConfigurationService()).thenReturn(configurationService);
+        when(engine.getGroupletService()).thenReturn(new GroupletService(engine));
+        triggerRouterService = new TriggerRouterService(engine);
+        when(engine.getTriggerRouterService()).thenReturn(triggerRouterService);
+        when(engine.getTransformService()).thenReturn(
+                new TransformService(parameterService, symmetricDialect, configurationService, extensionService));
+        when(engine.getLoadFilterService()).thenReturn(
+                new LoadFilterService(parameterService, symmetricDialect, configurationService));
+        when(engine.getDataLoaderService()).thenReturn(new DataLoaderService(engine));
+        when(engine.getFileSyncService()).thenReturn(new FileSyncService(engine));
+
+        job = new TestRefreshCacheJob(engine);
+    }
+
+    @Test
+    public void testIdleHourOnlyVerifiesPeriodically() throws Exception {
+        job.doJob(false);
+        assertEquals(QUERIES_PER_PASS, queries.get());
+
+        readConfiguration();
+        int queriesToLoad = queries.get() - QUERIES_PER_PASS;
+        assertTrue(queriesToLoad > 0);
+
+        /* an idle hour of job runs, with the routing and loading threads reading configuration in between */
+        for (long time = JOB_PERIOD_MS; time < HOUR_MS; time += JOB_PERIOD_MS) {
+            job.now = time;
+            job.doJob(false);
+            readConfiguration();
+        }
+        assertEquals(6 * QUERIES_PER_PASS + queriesToLoad, queries.get());
+    }
+
+    @Test
+    public void testCachesDoNotQueryWhileVersionIsUnchanged() throws Exception {
+        readConfiguration();
+        int queriesToLoad = queries.get();
+        assertTrue(queriesToLoad > 0);
+        for (int i = 0; i < 100; i++) {
+            readConfiguration();
+        }
+        assertEquals(queriesToLoad, queries.get());
+
+        configurationService.incrementConfigurationVersion();
+        readConfiguration();
+        assertEquals(2 * queriesToLoad, queries.get());
+        readConfiguration();
+        assertEquals(2 * queriesToLoad, queries.get());
+    }
+
+    @Test
+    public void testVersionChangeVerifiesOnNextRun() throws Exception {
+        job.doJob(false);
+        assertEquals(QUERIES_PER_PASS, queries.get());
+
+        job.now += JOB_PERIOD_MS;
+        job.doJob(false);
+        assertEquals(QUERIES_PER_PASS, queries.get());
+
+        configurationService.incrementConfigurationVersion();
+        job.now += JOB_PERIOD_MS;
+        job.doJob(false);
+        assertEquals(2 * QUERIES_PER_PASS, queries.get());
+
+        job.now += JOB_PERIOD_MS;
+        job.doJob(false);
+        assertEquals(2 * QUERIES_PER_PASS, queries.get());
+    }
+
+    @Test
+    public void testClusterVerifiesEveryRun() throws Exception {
+        when(parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED)).thenReturn(true);
+        for (long time = 0; time < HOUR_MS; time += JOB_PERIOD_MS) {
+            job.now = time;
+            job.doJob(false);
+        }
+        assertEquals(HOUR_MS / JOB_PERIOD_MS * QUERIES_PER_PASS, queries.get());
+    }
+
+    protected void readConfiguration() {
+        configurationService.getChannels(false);
+        triggerRouterService.getTriggerRoutersForCurrentNode(false);
+    }
+
+    static class TestRefreshCacheJob extends RefreshCacheJob {
+
+        long now;
+
+        public TestRefreshCacheJob(ISymmetricEngine engine) {
+            super(engine, null);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    }
+
+}
@@ -356,7 +356,7 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
         this.concurrentConnectionManager = new ConcurrentConnectionManager(parameterService,
                 statisticManager);
         this.purgeService = new PurgeService(parameterService, symmetricDialect, clusterService,
-                statisticManager, extensionService);
+                nodeService, statisticManager, extensionService, stagingManager);
         this.transformService = new TransformService(parameterService, symmetricDialect,
                 configurationService, extensionService);
         this.loadFilterService = new LoadFilterService(parameterService, symmetricDialect,
@@ -855,8 +855,12 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
         if (updateService != null) {
             updateService.stop();
         }
+        if (nodeService != null) {
+            nodeService.stop();
+        }
         
         if (statisticManager != null) {
+            statisticManager.stopProcessSampler();
             List<ProcessInfo> infos = statisticManager.getProcessInfos();
             for (ProcessInfo processInfo : infos) {
                 Thread thread = processInfo.getThread();
@@ -52,6 +52,7 @@ final public class ParameterConstants {
     public final static String JDBC_EXECUTE_BULK_BATCH_OVERRIDE = "db.jdbc.bulk.execute.batch.override";
     public final static String JDBC_READ_STRINGS_AS_BYTES = "db.read.strings.as.bytes";
     public final static String JDBC_ISOLATION_LEVEL = "db.jdbc.isolation.level";
+    public final static String JDBC_PREPARED_STATEMENT_CACHE_SIZE = "db.jdbc.prepared.statement.cache.size";
 
     public final static String DB_USER = "db.user";
     public final static String DB_PASSWORD = "db.password";
@@ -85,6 +86,12 @@ final public class ParameterConstants {
     public final static String PULL_LOCK_TIMEOUT_MS = "pull.lock.timeout.ms";
     public final static String PULL_IMMEDIATE_IF_DATA_FOUND = "pull.immediate.if.data.found";
 
+    public final static String PULL_LONG_POLL_ENABLED = "pull.long.poll.enabled";
+
+    public final static String PULL_LONG_POLL_TIMEOUT_MS = "pull.long.poll.timeout.ms";
+
+    public final static String PULL_LONG_POLL_MAX_HELD_REQUESTS = "pull.long.poll.max.held.requests";
+
     public final static String PUSH_THREAD_COUNT_PER_SERVER = "push.thread.per.server.count";
     public final static String PUSH_MINIMUM_PERIOD_MS = "push.period.minimum.ms";
     public final static String PUSH_LOCK_TIMEOUT_MS = "push.lock.timeout.ms";
@@ -107,6 +114,8 @@ final public class ParameterConstants {
     public final static String JOB_RANDOM_MAX_START_TIME_MS = "job.random.max.start.time.ms";
     public final static String JOB_PULL_PERIOD_TIME_MS = "job.pull.period.time.ms";
     public final static String JOB_PUSH_PERIOD_TIME_MS = "job.push.period.time.ms";
+    public final static String JOB_SIGNAL_ENABLED = "job.signal.enabled";
+    public final static String JOB_SIGNAL_MIN_INTERVAL_MS = "job.signal.min.interval.ms";
     
     public final static String JOB_FILE_SYNC_PULL_PERIOD_TIME_MS = "job.file.sync.pull.period.time.ms";
     public final static String JOB_FILE_SYNC_PUSH_PERIOD_TIME_MS = "job.file.sync.push.period.time.ms";    
@@ -229,7 +238,15 @@ final public class ParameterConstants {
     public final static String DATA_LOADER_NUM_OF_ACK_RETRIES = "num.of.ack.retries";
     public final static String DATA_LOADER_SEND_ACK_KEEPALIVE = "send.ack.keepalive.ms";
     public final static String DATA_LOADER_TIME_BETWEEN_ACK_RETRIES = "time.between.ack.retries.ms";
+    public final static String ACK_BULK_MAX_BATCHES = "ack.bulk.max.batches";
     public final static String DATA_LOADER_MAX_ROWS_BEFORE_COMMIT = "dataloader.max.rows.before.commit";
+    public final static String DATA_LOADER_PARSE_AHEAD_ENABLED = "dataloader.parse.ahead.enabled";
+    public final static String DATA_LOADER_PARSE_AHEAD_QUEUE_SIZE = "dataloader.parse.ahead.queue.size";
+    public final static String DATA_LOADER_JDBC_BATCH_ENABLED = "dataloader.jdbc.batch.enabled";
+    public final static String DATA_LOADER_CONFLICT_PREFETCH_ENABLED = "dataloader.conflict.prefetch.enabled";
+    public final static String DATA_LOADER_PARALLEL_APPLY_THREADS = "dataloader.parallel.apply.threads";
+    public final static String DATA_LOADER_RELOAD_PARTITIONS = "dataloader.reload.partitions";
+    public final static String DATA_LOADER_MERGE_APPLY_THRESHOLD = "dataloader.merge.apply.threshold";
     public final static String DATA_LOADER_CREATE_TABLE_ALTER_TO_MATCH_DB_CASE = "dataloader.create.table.alter.to.match.db.case";
     public final static String DATA_LOADER_TEXT_COLUMN_EXPRESSION = "dataloader.text.column.expression";
     public final static String DATA_LOADER_SLEEP_TIME_AFTER_EARLY_COMMIT = "dataloader.sleep.time.after.early.commit";
@@ -292,6 +309,8 @@ final public class ParameterConstants {
     public final static String CACHE_TIMEOUT_NOTIFICATION_IN_MS = "cache.notification.time.ms";
     public final static String CACHE_CHANNEL_COMMON_BATCHES_IN_MS = "cache.channel.common.batches.time.ms";
     public final static String CACHE_CHANNEL_DEFAULT_ROUTER_IN_MS = "cache.channel.default.router.time.ms";
+    public final static String CACHE_CONFIG_VERSION_ENABLED = "cache.config.version.enabled";
+    public final static String CACHE_CONFIG_VERIFY_PERIOD_IN_MS = "cache.config.verify.period.ms";
 
     public final static String TRIGGER_UPDATE_CAPTURE_CHANGED_DATA_ONLY = "trigger.update.capture.changed.data.only.enabled";
     public final static String TRIGGER_CREATE_BEFORE_INITIAL_LOAD = "trigger.create.before.initial.load.enabled";
@@ -331,6 +350,10 @@ final public class ParameterConstants {
     public final static String PURGE_MAX_NUMBER_OF_EVENT_BATCH_IDS = "job.purge.max.num.data.event.batches.to.delete.in.tx";
     public final static String PURGE_FIRST_PASS = "job.purge.first.pass";
     public final static String PURGE_FIRST_PASS_OUTSTANDING_BATCHES_THRESHOLD = "job.purge.first.pass.outstanding.batches.threshold";
+    public final static String PURGE_WORKER_THREADS = "job.purge.worker.threads";
+    public final static String PURGE_PARTITION_ENABLED = "job.purge.partition.enabled";
+    public final static String PURGE_PARTITION_SIZE = "job.purge.partition.size";
+    public final static String PURGE_PARTITION_PRECREATE_COUNT = "job.purge.partition.precreate.count";
     
     public final static String JMX_LINE_FEED = "jmx.line.feed";
 
@@ -360,6 +383,10 @@ final public class ParameterConstants {
 
     public final static String STATISTIC_RECORD_COUNT_THRESHOLD = "statistic.record.count.threshold";
 
+    public final static String STATISTIC_SAMPLER_ENABLED = "statistic.sampler.enabled";
+
+    public final static String STATISTIC_SAMPLER_INTERVAL_MS = "statistic.sampler.interval.ms";
+
     public final static String CURRENT_ACTIVITY_HISTORY_KEEP_COUNT = "statistic.activity.history.keep.count";
 
     public final static String STORES_UPPERCASE_NAMES_IN_CATALOG = "stores.uppercase.names.in.catalog";
@@ -391,6 +418,8 @@ final public class ParameterConstants {
     public final static String BSH_LOAD_FILTER_HANDLES_MISSING_TABLES = "bsh.load.filter.handles.missing.tables";
     
     public final static String BSH_TRANSFORM_GLOBAL_SCRIPT = "bsh.transform.global.script";
+
+    public final static String TRANSFORM_LOOKUP_CACHE_SIZE = "transform.lookup.cache.size";
     
     public final static String MSSQL_ROW_LEVEL_LOCKS_ONLY = "mssql.allow.only.row.level.locks.on.runtime.tables";
     public final static String MSSQL_USE_NTYPES_FOR_SYNC = "mssql.use.ntypes.for.sync";
@@ -514,6 +543,8 @@ final public class ParameterConstants {
     public final static String REDSHIFT_BULK_LOAD_S3_ENDPOINT = "redshift.bulk.load.s3.endpoint";
 
     public final static String POSTGRES_SECURITY_DEFINER = "postgres.security.definer";
+
+    public final static String POSTGRES_BULK_LOAD_BINARY = "postgres.bulk.load.binary";
     
     public static Map<String, ParameterMetaData> getParameterMetaData() {
         return parameterMetaData;
@@ -55,6 +55,7 @@ public class TableConstants {
     public static final String SYM_NODE_GROUP_LINK = "node_group_link";
     public static final String SYM_NODE_HOST_STATS = "node_host_stats";
     public static final String SYM_NODE_HOST_JOB_STATS = "node_host_job_stats";
+    public static final String SYM_NODE_HOST_STAGE_STATS = "node_host_stage_stats";
     public static final String SYM_REGISTRATION_REQUEST = "registration_request";
     public static final String SYM_REGISTRATION_REDIRECT = "registration_redirect";
     public static final String SYM_NODE_CHANNEL_CTL = "node_channel_ctl";
@@ -165,6 +166,7 @@ public class TableConstants {
         tables.add(getTableName(tablePrefix, SYM_NODE_HOST_CHANNEL_STATS));
         tables.add(getTableName(tablePrefix, SYM_NODE_HOST_STATS));
         tables.add(getTableName(tablePrefix, SYM_NODE_HOST_JOB_STATS));
+        tables.add(getTableName(tablePrefix, SYM_NODE_HOST_STAGE_STATS));
         tables.add(getTableName(tablePrefix, SYM_REGISTRATION_REDIRECT));
         tables.add(getTableName(tablePrefix, SYM_REGISTRATION_REQUEST));
         tables.add(getTableName(tablePrefix, SYM_DATA));
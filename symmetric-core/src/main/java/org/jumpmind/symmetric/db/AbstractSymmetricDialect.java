@@ -54,6 +54,7 @@ import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.ext.IDatabaseUpgradeListener;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.model.Channel;
+import org.jumpmind.symmetric.model.DataPartition;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.Trigger;
 import org.jumpmind.symmetric.model.TriggerHistory;
@@ -923,6 +924,20 @@ abstract public class AbstractSymmetricDialect implements ISymmetricDialect {
     public void cleanupTriggers() {
     }
 
+    public boolean supportsDataPartitions() {
+        return false;
+    }
+
+    public void createDataPartitions(long maxDataId) {
+    }
+
+    public List<DataPartition> getDataPartitions(String tableName) {
+        return new ArrayList<DataPartition>(0);
+    }
+
+    public void dropDataPartition(DataPartition partition) {
+    }
+
     public AbstractTriggerTemplate getTriggerTemplate() {
         return triggerTemplate;
     }
@@ -34,6 +34,7 @@ import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.model.Channel;
+import org.jumpmind.symmetric.model.DataPartition;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.Trigger;
 import org.jumpmind.symmetric.model.TriggerHistory;
@@ -244,6 +245,29 @@ public interface ISymmetricDialect {
 
     public void cleanupTriggers();
 
+    /**
+     * Indicates whether the data and data_event tables are range partitioned
+     * by data_id, so that whole partitions can be dropped by the purge job.
+     */
+    public boolean supportsDataPartitions();
+
+    /**
+     * Make sure partitions exist for data ids well beyond the given data id.
+     */
+    public void createDataPartitions(long maxDataId);
+
+    /**
+     * @return the range partitions of the given table ordered by start id
+     */
+    public List<DataPartition> getDataPartitions(String tableName);
+
+    /**
+     * Detach and drop a partition returned by {@link #getDataPartitions(String)}.
+     * Dialects that do not support data partitions ignore the call, so callers
+     * should check {@link #supportsDataPartitions()} first.
+     */
+    public void dropDataPartition(DataPartition partition);
+
     public String getDriverName();
 
     public String getDriverVersion();
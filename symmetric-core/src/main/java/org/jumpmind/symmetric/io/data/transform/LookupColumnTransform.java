@@ -22,8 +22,13 @@ package org.jumpmind.symmetric.io.data.transform;
 
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.platform.IDatabasePlatform;
@@ -31,15 +36,32 @@ import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.sql.mapper.StringMapper;
 import org.jumpmind.extension.IBuiltInExtensionPoint;
 import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.ext.ISymmetricEngineAware;
+import org.jumpmind.symmetric.io.data.Batch;
 import org.jumpmind.symmetric.io.data.DataContext;
 import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.model.Channel;
 import org.jumpmind.symmetric.model.Data;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.util.FormatUtils;
 import org.jumpmind.util.LinkedCaseInsensitiveMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class LookupColumnTransform implements ISingleNewAndOldValueColumnTransform, IBuiltInExtensionPoint {
+/**
+ * Looks up the target value with SQL that binds the source values as named
+ * parameters. During initial loads the results are cached per transform
+ * column. Values that are not cached are still looked up one row at a time:
+ * the lookup SQL is free form and rows reach column transforms one at a time,
+ * so the keys of several rows cannot be resolved with one IN-list query.
+ * An instance created without services, as extensions do, gets them when it
+ * is registered as an extension point and does not cache until then.
+ */
+public class LookupColumnTransform implements ISingleNewAndOldValueColumnTransform, ISymmetricEngineAware,
+        IBuiltInExtensionPoint {
 
     protected final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -47,6 +69,27 @@ public class LookupColumnTransform implements ISingleNewAndOldValueColumnTransfo
 
     protected static final StringMapper lookupColumnRowMapper = new StringMapper();
 
+    protected static final Pattern NAMED_PARAMETER = Pattern.compile("(?<!:):(\\w+)");
+
+    protected IParameterService parameterService;
+
+    protected IConfigurationService configurationService;
+
+    protected Map<String, List<String>> parameterNamesBySql = new ConcurrentHashMap<String, List<String>>();
+
+    public LookupColumnTransform() {
+    }
+
+    public LookupColumnTransform(IParameterService parameterService, IConfigurationService configurationService) {
+        this.parameterService = parameterService;
+        this.configurationService = configurationService;
+    }
+
+    public void setSymmetricEngine(ISymmetricEngine engine) {
+        this.parameterService = engine.getParameterService();
+        this.configurationService = engine.getConfigurationService();
+    }
+
     public String getName() {
         return NAME;
     }
@@ -82,10 +125,25 @@ public class LookupColumnTransform implements ISingleNewAndOldValueColumnTransfo
                     namedParams.put("TRM_" + transformedCol.getKey().toUpperCase(), transformedCol.getValue());
                 }
             }
-            if (transaction != null) {
-                values = transaction.query(sql, lookupColumnRowMapper, namedParams);
-            } else {
-                values = platform.getSqlTemplate().query(sql, lookupColumnRowMapper, namedParams);
+            Map<List<String>, List<String>> cache = getLookupCache(context, column);
+            List<String> cacheKey = null;
+            if (cache != null) {
+                cacheKey = getCacheKey(sql, namedParams);
+                values = cache.get(cacheKey);
+            }
+            if (values == null) {
+                if (transaction != null) {
+                    values = transaction.query(sql, lookupColumnRowMapper, namedParams);
+                } else {
+                    values = platform.getSqlTemplate().query(sql, lookupColumnRowMapper, namedParams);
+                }
+                /*
+                 * Lookups that found nothing are not cached because the row
+                 * might be loaded later in the same load
+                 */
+                if (cache != null && values.size() > 0) {
+                    cache.put(cacheKey, values);
+                }
             }
 
             int rowCount = values.size();
@@ -115,6 +173,68 @@ public class LookupColumnTransform implements ISingleNewAndOldValueColumnTransfo
         }
     }
     
+    /**
+     * Lookup results are cached for the duration of an initial load so that
+     * rows sharing the same lookup values only query once. The cache is kept
+     * on the data context, which belongs to a single load thread.
+     */
+    protected Map<List<String>, List<String>> getLookupCache(DataContext context, TransformColumn column) {
+        if (parameterService == null || context.getBatch() == null || !isInitialLoad(context.getBatch())) {
+            return null;
+        }
+        final int cacheSize = parameterService.getInt(ParameterConstants.TRANSFORM_LOOKUP_CACHE_SIZE, 1000);
+        if (cacheSize <= 0) {
+            return null;
+        }
+        String cacheName = String.format("%s.%s.%s", getClass().getName(), column.getTransformId(),
+                column.getTargetColumnName());
+        @SuppressWarnings("unchecked")
+        Map<List<String>, List<String>> cache = (Map<List<String>, List<String>>) context.get(cacheName);
+        if (cache == null) {
+            cache = new LinkedHashMap<List<String>, List<String>>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<String>, List<String>> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+            context.put(cacheName, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Loaded batches do not carry the initial load flag, so a batch on a
+     * reload channel is taken to be part of an initial load.
+     */
+    protected boolean isInitialLoad(Batch batch) {
+        if (batch.isInitialLoad()) {
+            return true;
+        }
+        Channel channel = configurationService != null ? configurationService.getChannel(batch.getChannelId()) : null;
+        return channel != null ? channel.isReloadFlag() : Constants.CHANNEL_RELOAD.equals(batch.getChannelId());
+    }
+
+    protected List<String> getCacheKey(String sql, Map<String, Object> namedParams) {
+        List<String> parameterNames = parameterNamesBySql.get(sql);
+        if (parameterNames == null) {
+            parameterNames = new ArrayList<String>();
+            Matcher matcher = NAMED_PARAMETER.matcher(sql);
+            while (matcher.find()) {
+                parameterNames.add(matcher.group(1));
+            }
+            parameterNamesBySql.put(sql, parameterNames);
+        }
+        List<String> key = new ArrayList<String>(parameterNames.size() + 1);
+        key.add(sql);
+        for (String parameterName : parameterNames) {
+            Object value = namedParams.get(parameterName);
+            key.add(value != null ? value.toString() : null);
+        }
+        return key;
+    }
+
     protected String doTokenReplacementOnSql(DataContext context, String sql) {
         if (isNotBlank(sql)) {
             Data csvData = (Data) context.get(Constants.DATA_CONTEXT_CURRENT_CSV_DATA);
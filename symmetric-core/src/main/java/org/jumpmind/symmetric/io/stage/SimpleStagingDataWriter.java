@@ -24,9 +24,12 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.model.Table;
 import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.csv.CsvReader;
@@ -152,6 +155,9 @@ public class SimpleStagingDataWriter {
                         resource.setState(State.DONE);
                         writer = null;
                     }
+                    if (batch != null) {
+                        batch.setTableNames(getTableNames(batchTableLines.keySet()));
+                    }
                     batchTableLines.clear();
                     
                     if (batch != null) {
@@ -293,6 +299,15 @@ public class SimpleStagingDataWriter {
         return null;
     }
 
+    protected Set<String> getTableNames(Set<TableLine> tableLines) throws IOException {
+        Set<String> tableNames = new HashSet<String>(tableLines.size());
+        for (TableLine tableLine : tableLines) {
+            tableNames.add(Table.getFullyQualifiedTableName(getArgLine(tableLine.catalogLine),
+                    getArgLine(tableLine.schemaLine), getArgLine(tableLine.tableLine)).toLowerCase());
+        }
+        return tableNames;
+    }
+
     protected BinaryEncoding getBinaryEncoding(String line) throws IOException {
         String value = getArgLine(line);
         if (value != null) {
@@ -63,6 +63,12 @@ public interface IJob {
     public long getAverageExecutionTimeInMs();
     
     public boolean invoke(boolean force);
+
+    /**
+     * Request a run outside of the schedule. Requests that arrive within the
+     * minimum signal interval are coalesced into one run.
+     */
+    public void signal();
     
     public String getDeprecatedStartParameter();
     
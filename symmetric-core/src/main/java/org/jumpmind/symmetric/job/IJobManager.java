@@ -42,6 +42,8 @@ public interface IJobManager {
     
     public IJob getJob(String name);
 
+    public void signalJob(String name);
+
     public void saveJob(JobDefinition jobDefinition);
     
     public void removeJob(String name);
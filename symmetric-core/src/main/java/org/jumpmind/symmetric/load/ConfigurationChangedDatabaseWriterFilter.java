@@ -100,6 +100,9 @@ public class ConfigurationChangedDatabaseWriterFilter extends DatabaseWriterFilt
     final String CTX_KEY_INITIAL_LOAD_LISTENER = "InitialLoadListener."
             + ConfigurationChangedDatabaseWriterFilter.class.getSimpleName() + hashCode();
 
+    final String CTX_KEY_CONFIGURATION_VERSION_NEEDED = "ConfigurationVersion."
+            + ConfigurationChangedDatabaseWriterFilter.class.getSimpleName() + hashCode();
+
     private ISymmetricEngine engine;
 
     public ConfigurationChangedDatabaseWriterFilter(ISymmetricEngine engine) {
@@ -139,6 +142,7 @@ public class ConfigurationChangedDatabaseWriterFilter extends DatabaseWriterFilt
         recordNodeSecurityFlushNeeded(context, table);
         recordNodeFlushNeeded(context, table, data);
         recordFileSyncEnabled(context, table, data);
+        recordConfigurationVersionNeeded(context, table);
     }
 
     private void checkReloadStarted(DataContext context, Table table, CsvData data) {
@@ -283,12 +287,31 @@ public class ConfigurationChangedDatabaseWriterFilter extends DatabaseWriterFilt
         }
     }
     
+    private void recordConfigurationVersionNeeded(DataContext context, Table table) {
+        if (isConfigurationVersionNeeded(table)) {
+            context.put(CTX_KEY_CONFIGURATION_VERSION_NEEDED, true);
+        }
+    }
+
     private void recordFileSyncEnabled(DataContext context, Table table, CsvData data) {
         if (isFileSyncEnabled(table, data)) {
             context.put(CTX_KEY_FILE_SYNC_ENABLED, true);
         }
     }
 
+    private boolean isConfigurationVersionNeeded(Table table) {
+        return matchesTable(table, TableConstants.SYM_TRIGGER)
+                || matchesTable(table, TableConstants.SYM_ROUTER)
+                || matchesTable(table, TableConstants.SYM_TRIGGER_ROUTER)
+                || matchesTable(table, TableConstants.SYM_TRIGGER_ROUTER_GROUPLET)
+                || matchesTable(table, TableConstants.SYM_GROUPLET)
+                || matchesTable(table, TableConstants.SYM_GROUPLET_LINK)
+                || matchesTable(table, TableConstants.SYM_NODE_GROUP)
+                || matchesTable(table, TableConstants.SYM_NODE_GROUP_LINK)
+                || matchesTable(table, TableConstants.SYM_CHANNEL)
+                || matchesTable(table, TableConstants.SYM_NODE_GROUP_CHANNEL_WND);
+    }
+
     private boolean isSyncTriggersNeeded(DataContext context, Table table) {
         boolean autoSync = engine.getParameterService().is(ParameterConstants.AUTO_SYNC_TRIGGERS_AFTER_CONFIG_LOADED) || 
                 context.getBatch().getBatchId() == Constants.VIRTUAL_BATCH_FOR_REGISTRATION;
@@ -447,6 +470,11 @@ public class ConfigurationChangedDatabaseWriterFilter extends DatabaseWriterFilt
             }
         }       
         
+        if (context.get(CTX_KEY_CONFIGURATION_VERSION_NEEDED) != null) {
+            engine.getConfigurationService().incrementConfigurationVersion();
+            context.remove(CTX_KEY_CONFIGURATION_VERSION_NEEDED);
+        }
+
         if (context.get(CTX_KEY_FLUSH_GROUPLETS_NEEDED) != null) {
             log.info("Grouplets flushed because new grouplet config came through the data loader");
             engine.getGroupletService().clearCache();
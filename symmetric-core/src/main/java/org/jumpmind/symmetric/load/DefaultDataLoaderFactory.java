@@ -36,6 +36,7 @@ import org.jumpmind.symmetric.io.data.writer.CassandraDatabaseWriter;
 import org.jumpmind.symmetric.io.data.writer.Conflict;
 import org.jumpmind.symmetric.io.data.writer.Conflict.PingBack;
 import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
+import org.jumpmind.symmetric.io.data.writer.DefaultDatabaseWriter;
 import org.jumpmind.symmetric.io.data.writer.DefaultTransformWriterConflictResolver;
 import org.jumpmind.symmetric.io.data.writer.DynamicDefaultDatabaseWriter;
 import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterErrorHandler;
@@ -107,6 +108,11 @@ public class DefaultDataLoaderFactory extends AbstractDataLoaderFactory implemen
             }
         }
 
+        /* Only the default writer spreads reload inserts across connections and merges rows */
+        DatabaseWriterSettings settings = buildDatabaseWriterSettings(filters, errorHandlers, conflictSettings, resolvedData);
+        settings.setReloadPartitionCount(parameterService.getInt(ParameterConstants.DATA_LOADER_RELOAD_PARTITIONS, 1));
+        settings.setMergeApplyThreshold(parameterService.getInt(ParameterConstants.DATA_LOADER_MERGE_APPLY_THRESHOLD, 0));
+
         DynamicDefaultDatabaseWriter writer = new DynamicDefaultDatabaseWriter(symmetricDialect.getPlatform(),
                 symmetricDialect.getTargetPlatform(), symmetricDialect.getTablePrefix(),
                 new DefaultTransformWriterConflictResolver(transformWriter) {
@@ -133,7 +139,18 @@ public class DefaultDataLoaderFactory extends AbstractDataLoaderFactory implemen
                             }
                         }
                     }
-                }, buildDatabaseWriterSettings(filters, errorHandlers, conflictSettings, resolvedData));
+                }, settings) {
+            /* Each reload partition has its own connection, so triggers are disabled on it too */
+            @Override
+            protected void startReloadPartition(DefaultDatabaseWriter partitionWriter) {
+                symmetricDialect.disableSyncTriggers(partitionWriter.getTransaction(), sourceNodeId);
+            }
+
+            @Override
+            protected void endReloadPartition(DefaultDatabaseWriter partitionWriter) {
+                symmetricDialect.enableSyncTriggers(partitionWriter.getTransaction());
+            }
+        };
 
         return writer;
     }
@@ -148,6 +165,8 @@ public class DefaultDataLoaderFactory extends AbstractDataLoaderFactory implemen
         DatabaseWriterSettings settings = buildParameterDatabaseWritterSettings();
         settings.setDatabaseWriterFilters(filters);
         settings.setDatabaseWriterErrorHandlers(errorHandlers);
+        settings.setJdbcBatchEnabled(parameterService.is(ParameterConstants.DATA_LOADER_JDBC_BATCH_ENABLED, false));
+        settings.setConflictPrefetchEnabled(parameterService.is(ParameterConstants.DATA_LOADER_CONFLICT_PREFETCH_ENABLED, true));
         
         
         Map<String, Conflict> byChannel = new HashMap<String, Conflict>();
@@ -134,6 +134,12 @@ public class AbstractBatch implements Serializable {
     private long missingDeleteCount;
 
     private long skipCount;
+
+    private Date minCaptureTime;
+
+    private Date maxCaptureTime;
+
+    private long lagMillis;
     
     private long loadRowCount;
 
@@ -203,6 +209,8 @@ public class AbstractBatch implements Serializable {
         this.extractInsertRowCount = 0;
         this.extractUpdateRowCount = 0;
         this.extractDeleteRowCount = 0;
+        this.minCaptureTime = null;
+        this.maxCaptureTime = null;
     }
 
     public long getBatchId() {
@@ -616,6 +624,50 @@ public class AbstractBatch implements Serializable {
         return skipCount;
     }
 
+    /**
+     * Widen the range of capture times of the batch to include the time a
+     * change was captured in the data table.
+     */
+    public void includeCaptureTime(Date captureTime) {
+        if (captureTime != null) {
+            if (minCaptureTime == null || captureTime.before(minCaptureTime)) {
+                minCaptureTime = captureTime;
+            }
+            if (maxCaptureTime == null || captureTime.after(maxCaptureTime)) {
+                maxCaptureTime = captureTime;
+            }
+        }
+    }
+
+    public Date getMinCaptureTime() {
+        return minCaptureTime;
+    }
+
+    public void setMinCaptureTime(Date minCaptureTime) {
+        this.minCaptureTime = minCaptureTime;
+    }
+
+    public Date getMaxCaptureTime() {
+        return maxCaptureTime;
+    }
+
+    public void setMaxCaptureTime(Date maxCaptureTime) {
+        this.maxCaptureTime = maxCaptureTime;
+    }
+
+    /**
+     * @return the milliseconds from the capture of the oldest change in the
+     *         batch until the batch was loaded at the target, as measured by
+     *         the clocks of the source and the target
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public void setLagMillis(long lagMillis) {
+        this.lagMillis = lagMillis;
+    }
+
     public long getIgnoreRowCount() {
         return ignoreRowCount;
     }
@@ -80,6 +80,8 @@ public class BatchAck  implements Serializable {
     
     private long transformLoadMillis;
 
+    private long lagMillis;
+
     public BatchAck(long batchId) {
         this.batchId = batchId;
         isOk = true;
@@ -274,6 +276,14 @@ public class BatchAck  implements Serializable {
     public void setSkipCount(long skipCount) {
         this.skipCount = skipCount;
     }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public void setLagMillis(long lagMillis) {
+        this.lagMillis = lagMillis;
+    }
     
     public void setTransformLoadMillis(long transformLoadMillis) {
         this.transformLoadMillis = transformLoadMillis;
@@ -0,0 +1,66 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.model;
+
+import java.io.Serializable;
+
+/**
+ * A range partition of the data or data_event table.  The partition holds
+ * data ids from the start id (inclusive) up to the end id (exclusive).
+ */
+public class DataPartition implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String tableName;
+    private String partitionName;
+    private long startId;
+    private long endId;
+
+    public DataPartition(String tableName, String partitionName, long startId, long endId) {
+        this.tableName = tableName;
+        this.partitionName = partitionName;
+        this.startId = startId;
+        this.endId = endId;
+    }
+
+    @Override
+    public String toString() {
+        return "{ partitionName: \"" + partitionName + "\", startId: " + startId + ", endId: " + endId + " }";
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getPartitionName() {
+        return partitionName;
+    }
+
+    public long getStartId() {
+        return startId;
+    }
+
+    public long getEndId() {
+        return endId;
+    }
+
+}
@@ -102,6 +102,8 @@ public class IncomingBatch extends AbstractBatch {
         if (statistics.contains(EXTRACT_UPDATE_ROW_COUNT)) setExtractUpdateRowCount(statistics.get(DataReaderStatistics.EXTRACT_UPDATE_ROW_COUNT));
         if (statistics.contains(EXTRACT_DELETE_ROW_COUNT)) setExtractDeleteRowCount(statistics.get(DataReaderStatistics.EXTRACT_DELETE_ROW_COUNT));
         if (statistics.contains(FAILED_DATA_ID)) setFailedDataId(statistics.get(DataReaderStatistics.FAILED_DATA_ID));
+        if (statistics.get(MIN_CAPTURE_TIME) > 0) setMinCaptureTime(new Date(statistics.get(DataReaderStatistics.MIN_CAPTURE_TIME)));
+        if (statistics.get(MAX_CAPTURE_TIME) > 0) setMaxCaptureTime(new Date(statistics.get(DataReaderStatistics.MAX_CAPTURE_TIME)));
     }   
         
     public void setNodeBatchId(String value) {
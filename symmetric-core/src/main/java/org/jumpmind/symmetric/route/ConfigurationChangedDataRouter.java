@@ -101,6 +101,9 @@ public class ConfigurationChangedDataRouter extends AbstractDataRouter implement
     final String CTX_KEY_FILE_SYNC_TRIGGERS_NEEDED = "FileSyncTriggers."
             + ConfigurationChangedDataRouter.class.getSimpleName() + hashCode();
 
+    final String CTX_KEY_CONFIGURATION_VERSION_NEEDED = "ConfigurationVersion."
+            + ConfigurationChangedDataRouter.class.getSimpleName() + hashCode();
+
     public final static String KEY = "symconfig";
 
     protected ISymmetricEngine engine;
@@ -191,6 +194,19 @@ public class ConfigurationChangedDataRouter extends AbstractDataRouter implement
                     routingContext.put(CTX_KEY_FLUSH_CHANNELS_NEEDED, Boolean.TRUE);
                 }
 
+                if (tableMatches(dataMetaData, TableConstants.SYM_TRIGGER)
+                        || tableMatches(dataMetaData, TableConstants.SYM_ROUTER)
+                        || tableMatches(dataMetaData, TableConstants.SYM_TRIGGER_ROUTER)
+                        || tableMatches(dataMetaData, TableConstants.SYM_TRIGGER_ROUTER_GROUPLET)
+                        || tableMatches(dataMetaData, TableConstants.SYM_GROUPLET)
+                        || tableMatches(dataMetaData, TableConstants.SYM_GROUPLET_LINK)
+                        || tableMatches(dataMetaData, TableConstants.SYM_NODE_GROUP)
+                        || tableMatches(dataMetaData, TableConstants.SYM_NODE_GROUP_LINK)
+                        || tableMatches(dataMetaData, TableConstants.SYM_CHANNEL)
+                        || tableMatches(dataMetaData, TableConstants.SYM_NODE_GROUP_CHANNEL_WND)) {
+                    routingContext.put(CTX_KEY_CONFIGURATION_VERSION_NEEDED, Boolean.TRUE);
+                }
+
                 if (tableMatches(dataMetaData, TableConstants.SYM_CONFLICT)) {
                     routingContext.put(CTX_KEY_FLUSH_CONFLICTS_NEEDED, Boolean.TRUE);
                 }
@@ -559,6 +575,10 @@ public class ConfigurationChangedDataRouter extends AbstractDataRouter implement
     public void contextCommitted(SimpleRouterContext routingContext) {
         if (engine.getParameterService().is(ParameterConstants.AUTO_REFRESH_AFTER_CONFIG_CHANGED,
                 true)) {
+            if (routingContext.get(CTX_KEY_CONFIGURATION_VERSION_NEEDED) != null) {
+                engine.getConfigurationService().incrementConfigurationVersion();
+            }
+
             if (routingContext.get(CTX_KEY_FLUSH_PARAMETERS_NEEDED) != null
                     && engine.getParameterService().is(ParameterConstants.AUTO_SYNC_CONFIGURATION)) {
                 log.info("About to refresh the cache of parameters because new configuration came through the data router");
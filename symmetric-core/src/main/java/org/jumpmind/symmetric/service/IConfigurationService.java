@@ -37,6 +37,15 @@ import org.jumpmind.symmetric.model.NodeGroupLinkAction;
 public interface IConfigurationService {
     
     public boolean refreshFromDatabase();
+
+    /**
+     * The configuration version is incremented every time configuration
+     * changes, so caches of configuration can tell when to reload without
+     * querying the database.
+     */
+    public long getConfigurationVersion();
+
+    public void incrementConfigurationVersion();
 
     public List<NodeGroup> getNodeGroups();
     
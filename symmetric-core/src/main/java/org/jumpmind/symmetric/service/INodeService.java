@@ -106,6 +106,8 @@ public interface INodeService {
     
     public void flushNodeGroupCache();
 
+    public void stop();
+
     public boolean isRegistrationEnabled(String nodeId);
 
     public Node findIdentity();
@@ -52,6 +52,12 @@ public interface IOutgoingBatchService {
 
     public OutgoingBatch findOutgoingBatch(long batchId, String nodeId);
 
+    /**
+     * Read several outgoing batches for a node with a single query. Batch ids
+     * that do not exist are absent from the returned list.
+     */
+    public List<OutgoingBatch> findOutgoingBatches(String nodeId, List<Long> batchIds);
+
     public OutgoingBatches getOutgoingBatches(String nodeId, boolean includeDisabledChannels);
 
     public OutgoingBatches getOutgoingBatches(String nodeId, String channelId, boolean includeDisabledChannels);
@@ -88,6 +94,8 @@ public interface IOutgoingBatchService {
 
     public void updateOutgoingBatches(List<OutgoingBatch> batches);
 
+    public void updateOutgoingBatches(ISqlTransaction transaction, List<OutgoingBatch> batches);
+
     public void insertOutgoingBatch(OutgoingBatch outgoingBatch);
     
     public void insertOutgoingBatch(ISqlTransaction transaction, OutgoingBatch outgoingBatch);
@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.service;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 
@@ -41,6 +42,20 @@ public interface IPushService extends IOfflineDetectorService {
      * @return RemoteNodeStatuses the status of the push attempt(s)
      */
     public RemoteNodeStatuses pushData(boolean force);
+
+    /**
+     * Record that batches were routed for the given nodes so the next call to
+     * {@link #pushPendingData()} will push to them.
+     */
+    public void addPendingNodes(Collection<String> nodeIds);
+
+    /**
+     * Push data only to the nodes recorded by {@link #addPendingNodes(Collection)}
+     * since the last call.
+     * 
+     * @return RemoteNodeStatuses the status of the push attempt(s)
+     */
+    public RemoteNodeStatuses pushPendingData();
     
     public Map<String, Date> getStartTimesOfNodesBeingPushedTo();
 
@@ -28,6 +28,7 @@ import java.util.TreeMap;
 import org.jumpmind.symmetric.statistic.ChannelStats;
 import org.jumpmind.symmetric.statistic.HostStats;
 import org.jumpmind.symmetric.statistic.JobStats;
+import org.jumpmind.symmetric.statistic.StageStats;
 
 
 /**
@@ -40,6 +41,8 @@ public interface IStatisticService {
     public void save(HostStats stats);
     
     public void save(JobStats stats);
+
+    public void save(StageStats stats);
     
     public Date getMinNodeStats(String nodeId);
     
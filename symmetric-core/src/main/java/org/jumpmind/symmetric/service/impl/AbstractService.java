@@ -99,6 +99,18 @@ abstract public class AbstractService implements IService {
         return date;
     }
 
+    /**
+     * A configuration cache is stale once the configuration version has moved
+     * past the version it was loaded at. When configuration versioning is
+     * turned off, the cache also goes stale when its time out expires.
+     */
+    protected boolean isConfigCacheStale(long cacheVersion, long currentVersion, long cacheTime,
+            long cacheTimeoutInMs) {
+        return cacheVersion != currentVersion
+                || (!parameterService.is(ParameterConstants.CACHE_CONFIG_VERSION_ENABLED, true)
+                        && System.currentTimeMillis() - cacheTime >= cacheTimeoutInMs);
+    }
+
     protected void setSqlMap(ISqlMap sqlMap) {
         this.sqlMap = sqlMap;
     }
@@ -318,8 +330,8 @@ abstract public class AbstractService implements IService {
             }
             log.debug("Saving ack: {}, {}", batchInfo.getBatchId(),
                     (batchInfo.isOk() ? "OK" : "ER"));
-            acknowledgeService.ack(batchInfo);
         }
+        acknowledgeService.ack(batchAcks);
 
         for (Long batchId : batchIds) {
             if (batchId < batchIdInError) {                
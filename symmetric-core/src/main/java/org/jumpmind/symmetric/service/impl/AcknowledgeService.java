@@ -22,8 +22,14 @@ package org.jumpmind.symmetric.service.impl;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.sql.mapper.NumberMapper;
 import org.jumpmind.symmetric.ISymmetricEngine;
 import org.jumpmind.symmetric.common.Constants;
@@ -37,7 +43,7 @@ import org.jumpmind.symmetric.model.Channel;
 import org.jumpmind.symmetric.model.OutgoingBatch;
 import org.jumpmind.symmetric.service.IAcknowledgeService;
 import org.jumpmind.symmetric.service.IOutgoingBatchService;
-import org.jumpmind.symmetric.service.IRegistrationService;
+import org.jumpmind.symmetric.statistic.LatencyStage;
 import org.jumpmind.symmetric.statistic.RouterStats;
 import org.jumpmind.symmetric.transport.IAcknowledgeEventListener;
 
@@ -56,150 +62,286 @@ public class AcknowledgeService extends AbstractService implements IAcknowledgeS
     }
 
     public BatchAckResult ack(final BatchAck batch) {
-
-        IRegistrationService registrationService = engine.getRegistrationService();
-        IOutgoingBatchService outgoingBatchService = engine.getOutgoingBatchService();
         BatchAckResult result = new BatchAckResult(batch);
-    	
-        for (IAcknowledgeEventListener listener : engine.getExtensionService().getExtensionPointList(IAcknowledgeEventListener.class)) {
-            listener.onAcknowledgeEvent(batch);
-        }
+        fireAcknowledgeEvent(batch);
 
         if (batch.getBatchId() == Constants.VIRTUAL_BATCH_FOR_REGISTRATION) {
-            if (batch.isOk()) {
-                registrationService.markNodeAsRegistered(batch.getNodeId());
-            }
+            ackRegistration(batch);
         } else {
+            IOutgoingBatchService outgoingBatchService = engine.getOutgoingBatchService();
             OutgoingBatch outgoingBatch = outgoingBatchService
                     .findOutgoingBatch(batch.getBatchId(), batch.getNodeId());
-            Status status = batch.isResend() ? Status.RS : batch.isOk() ? Status.OK : Status.ER;
-            Status oldStatus = null;
-            if (outgoingBatch != null && outgoingBatch.getStatus() != Status.RQ) {
-                // Allow an outside system/user to indicate that a batch
-                // is OK.
-                if (outgoingBatch.getStatus() != Status.OK && 
-                        outgoingBatch.getStatus() != Status.IG) {
-                    outgoingBatch.setStatus(status);
-                    outgoingBatch.setErrorFlag(!batch.isOk());
-                } else if (outgoingBatch.getStatus() != Status.OK) {
-                    // clearing the error flag in case the user set the batch
-                    // status to OK
-                    oldStatus = outgoingBatch.getStatus();
-                    outgoingBatch.setStatus(Status.OK);
-                    outgoingBatch.setErrorFlag(false);
-                    status = Status.OK;
-                    log.info("Batch {} for node {} was set to {}.  Updating the status to OK.",
-                            new Object[] { batch.getBatchId(), batch.getNodeId(), oldStatus.name() });
-                }
-                if (batch.isIgnored()) {
-                    outgoingBatch.incrementIgnoreCount();
-                }
-                outgoingBatch.setNetworkMillis(batch.getNetworkMillis());
-                outgoingBatch.setFilterMillis(batch.getFilterMillis());
-                outgoingBatch.setLoadMillis(batch.getLoadMillis());
-                outgoingBatch.setLoadStartTime(new Date(batch.getStartTime()));
-                outgoingBatch.setSqlCode(batch.getSqlCode());
-                outgoingBatch.setSqlState(batch.getSqlState());
-                outgoingBatch.setSqlMessage(batch.getSqlMessage());
-                outgoingBatch.setLoadRowCount(batch.getLoadRowCount());
-                outgoingBatch.setLoadInsertRowCount(batch.getLoadInsertRowCount());
-                outgoingBatch.setLoadUpdateRowCount(batch.getLoadUpdateRowCount());
-                outgoingBatch.setTransformLoadMillis(batch.getTransformLoadMillis());
-                outgoingBatch.setLoadDeleteRowCount(batch.getLoadDeleteRowCount());
-                outgoingBatch.setFallbackInsertCount(batch.getFallbackInsertCount());
-                outgoingBatch.setFallbackUpdateCount(batch.getFallbackUpdateCount());
-                outgoingBatch.setIgnoreRowCount(batch.getIgnoreRowCount());
-                outgoingBatch.setMissingDeleteCount(batch.getMissingDeleteCount());
-                outgoingBatch.setSkipCount(batch.getSkipCount());
-
-                boolean isNewError = false;
-                if (!batch.isOk() && batch.getErrorLine() != 0) {
-                    if (outgoingBatch.isLoadFlag()) {
-                        isNewError = outgoingBatch.getSentCount() == 1;
-                    } else {
-                        String sql = getSql("selectDataIdSql");
-                        if (parameterService.is(ParameterConstants.DBDIALECT_ORACLE_SEQUENCE_NOORDER, false)) {
-                            sql = getSql("selectDataIdByCreateTimeSql");
-                        } else if (parameterService.is(ParameterConstants.ROUTING_DATA_READER_ORDER_BY_DATA_ID_ENABLED, true)) {
-                            sql += getSql("orderByDataId");
-                        }
-    
-                        List<Number> ids = sqlTemplateDirty.query(sql, new NumberMapper(), outgoingBatch.getBatchId());
-                        if (ids.size() >= batch.getErrorLine()) {
-                            long failedDataId = ids.get((int) batch.getErrorLine() - 1).longValue();
-                            if (outgoingBatch.getFailedDataId() == 0 || outgoingBatch.getFailedDataId() != failedDataId) {
-                                isNewError = true;
-                            }
-                            outgoingBatch.setFailedDataId(failedDataId);
-                        }
-                    }
+            AckedBatch ackedBatch = applyAck(batch, outgoingBatch, result);
+            if (ackedBatch != null) {
+                outgoingBatchService.updateOutgoingBatch(outgoingBatch);
+                afterAck(ackedBatch);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Acknowledge a list of batches. Batches for the same node are read with
+     * one query and updated in one transaction, up to
+     * {@link ParameterConstants#ACK_BULK_MAX_BATCHES} at a time. Listeners,
+     * statistics and staging cleanup are dispatched after the transaction
+     * commits.
+     */
+    public List<BatchAckResult> ack(List<BatchAck> batches) {
+        List<BatchAckResult> results = new ArrayList<BatchAckResult>(batches.size());
+        if (batches.size() <= 1) {
+            for (BatchAck batch : batches) {
+                results.add(ack(batch));
+            }
+            return results;
+        }
+
+        Map<BatchAck, BatchAckResult> resultsByBatch = new IdentityHashMap<BatchAck, BatchAckResult>(batches.size());
+        Map<String, List<BatchAck>> batchesByNodeId = new LinkedHashMap<String, List<BatchAck>>();
+        for (BatchAck batch : batches) {
+            if (batch.getBatchId() == Constants.VIRTUAL_BATCH_FOR_REGISTRATION || StringUtils.isBlank(batch.getNodeId())) {
+                /*
+                 * Registration and acks from older versions without a node id
+                 * go through the single batch path
+                 */
+                resultsByBatch.put(batch, ack(batch));
+            } else {
+                List<BatchAck> nodeBatches = batchesByNodeId.get(batch.getNodeId());
+                if (nodeBatches == null) {
+                    nodeBatches = new ArrayList<BatchAck>();
+                    batchesByNodeId.put(batch.getNodeId(), nodeBatches);
                 }
+                nodeBatches.add(batch);
+            }
+        }
+
+        int maxBatches = Math.max(1, parameterService.getInt(ParameterConstants.ACK_BULK_MAX_BATCHES, 500));
+        for (Map.Entry<String, List<BatchAck>> entry : batchesByNodeId.entrySet()) {
+            List<BatchAck> nodeBatches = entry.getValue();
+            for (int i = 0; i < nodeBatches.size(); i += maxBatches) {
+                List<BatchAck> chunk = nodeBatches.subList(i, Math.min(i + maxBatches, nodeBatches.size()));
+                ack(entry.getKey(), chunk, resultsByBatch);
+            }
+        }
+
+        for (BatchAck batch : batches) {
+            results.add(resultsByBatch.get(batch));
+        }
+        return results;
+    }
+
+    protected void ack(String nodeId, List<BatchAck> batches, Map<BatchAck, BatchAckResult> resultsByBatch) {
+        IOutgoingBatchService outgoingBatchService = engine.getOutgoingBatchService();
+        List<Long> batchIds = new ArrayList<Long>(batches.size());
+        for (BatchAck batch : batches) {
+            batchIds.add(batch.getBatchId());
+        }
 
-                if (status == Status.ER) {
-                    boolean suppressLogError = false;
-                    if (isNewError) {
-                        engine.getStatisticManager().incrementDataLoadedOutgoingErrors(outgoingBatch.getChannelId(), 1);
+        Map<Long, OutgoingBatch> outgoingBatchesById = new HashMap<Long, OutgoingBatch>(batches.size());
+        for (OutgoingBatch outgoingBatch : outgoingBatchService.findOutgoingBatches(nodeId, batchIds)) {
+            outgoingBatchesById.put(outgoingBatch.getBatchId(), outgoingBatch);
+        }
+
+        List<AckedBatch> ackedBatches = new ArrayList<AckedBatch>(batches.size());
+        List<OutgoingBatch> outgoingBatches = new ArrayList<OutgoingBatch>(batches.size());
+        for (BatchAck batch : batches) {
+            BatchAckResult result = new BatchAckResult(batch);
+            resultsByBatch.put(batch, result);
+            AckedBatch ackedBatch = applyAck(batch, outgoingBatchesById.get(batch.getBatchId()), result);
+            if (ackedBatch != null) {
+                ackedBatches.add(ackedBatch);
+                outgoingBatches.add(ackedBatch.outgoingBatch);
+            }
+        }
+
+        ISqlTransaction transaction = null;
+        try {
+            transaction = sqlTemplate.startSqlTransaction();
+            outgoingBatchService.updateOutgoingBatches(transaction, outgoingBatches);
+            transaction.commit();
+        } catch (Error ex) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw ex;
+        } finally {
+            close(transaction);
+        }
+
+        for (BatchAck batch : batches) {
+            fireAcknowledgeEvent(batch);
+        }
+
+        for (AckedBatch ackedBatch : ackedBatches) {
+            afterAck(ackedBatch);
+        }
+    }
+
+    protected void fireAcknowledgeEvent(BatchAck batch) {
+        for (IAcknowledgeEventListener listener : engine.getExtensionService().getExtensionPointList(IAcknowledgeEventListener.class)) {
+            listener.onAcknowledgeEvent(batch);
+        }
+    }
+
+    protected void ackRegistration(BatchAck batch) {
+        if (batch.isOk()) {
+            engine.getRegistrationService().markNodeAsRegistered(batch.getNodeId());
+        }
+    }
+
+    /**
+     * Apply the acknowledgement to the outgoing batch without saving it.
+     * 
+     * @return the batch to be saved or null if there is nothing to save
+     */
+    protected AckedBatch applyAck(BatchAck batch, OutgoingBatch outgoingBatch, BatchAckResult result) {
+        Status status = batch.isResend() ? Status.RS : batch.isOk() ? Status.OK : Status.ER;
+        Status oldStatus = null;
+        if (outgoingBatch == null) {
+            log.error("Could not find batch {}-{} to acknowledge as {}", new Object[] {batch.getNodeId(), batch.getBatchId(),
+                    status.name()});
+            result.setOk(false);
+            return null;
+        } else if (outgoingBatch.getStatus() == Status.RQ) {
+            return null;
+        } else {
+            // Allow an outside system/user to indicate that a batch
+            // is OK.
+            if (outgoingBatch.getStatus() != Status.OK && 
+                    outgoingBatch.getStatus() != Status.IG) {
+                outgoingBatch.setStatus(status);
+                outgoingBatch.setErrorFlag(!batch.isOk());
+            } else if (outgoingBatch.getStatus() != Status.OK) {
+                // clearing the error flag in case the user set the batch
+                // status to OK
+                oldStatus = outgoingBatch.getStatus();
+                outgoingBatch.setStatus(Status.OK);
+                outgoingBatch.setErrorFlag(false);
+                status = Status.OK;
+                log.info("Batch {} for node {} was set to {}.  Updating the status to OK.",
+                        new Object[] { batch.getBatchId(), batch.getNodeId(), oldStatus.name() });
+            }
+            if (batch.isIgnored()) {
+                outgoingBatch.incrementIgnoreCount();
+            }
+            outgoingBatch.setNetworkMillis(batch.getNetworkMillis());
+            outgoingBatch.setFilterMillis(batch.getFilterMillis());
+            outgoingBatch.setLoadMillis(batch.getLoadMillis());
+            outgoingBatch.setLoadStartTime(new Date(batch.getStartTime()));
+            outgoingBatch.setSqlCode(batch.getSqlCode());
+            outgoingBatch.setSqlState(batch.getSqlState());
+            outgoingBatch.setSqlMessage(batch.getSqlMessage());
+            outgoingBatch.setLoadRowCount(batch.getLoadRowCount());
+            outgoingBatch.setLoadInsertRowCount(batch.getLoadInsertRowCount());
+            outgoingBatch.setLoadUpdateRowCount(batch.getLoadUpdateRowCount());
+            outgoingBatch.setTransformLoadMillis(batch.getTransformLoadMillis());
+            outgoingBatch.setLoadDeleteRowCount(batch.getLoadDeleteRowCount());
+            outgoingBatch.setFallbackInsertCount(batch.getFallbackInsertCount());
+            outgoingBatch.setFallbackUpdateCount(batch.getFallbackUpdateCount());
+            outgoingBatch.setIgnoreRowCount(batch.getIgnoreRowCount());
+            outgoingBatch.setMissingDeleteCount(batch.getMissingDeleteCount());
+            outgoingBatch.setSkipCount(batch.getSkipCount());
+            outgoingBatch.setLagMillis(batch.getLagMillis());
+
+            boolean isNewError = false;
+            if (!batch.isOk() && batch.getErrorLine() != 0) {
+                if (outgoingBatch.isLoadFlag()) {
+                    isNewError = outgoingBatch.getSentCount() == 1;
+                } else {
+                    String sql = getSql("selectDataIdSql");
+                    if (parameterService.is(ParameterConstants.DBDIALECT_ORACLE_SEQUENCE_NOORDER, false)) {
+                        sql = getSql("selectDataIdByCreateTimeSql");
+                    } else if (parameterService.is(ParameterConstants.ROUTING_DATA_READER_ORDER_BY_DATA_ID_ENABLED, true)) {
+                        sql += getSql("orderByDataId");
                     }
-                    if (isNewError && outgoingBatch.getSqlCode() == ErrorConstants.FK_VIOLATION_CODE) {
-                        if (!outgoingBatch.isLoadFlag() && parameterService.is(ParameterConstants.AUTO_RESOLVE_FOREIGN_KEY_VIOLATION)) {
-                            engine.getDataService().reloadMissingForeignKeyRows(outgoingBatch.getNodeId(), outgoingBatch.getFailedDataId());
-                            suppressLogError = true;
-                        }
-                        if (outgoingBatch.isLoadFlag() && parameterService.is(ParameterConstants.AUTO_RESOLVE_FOREIGN_KEY_VIOLATION_REVERSE_RELOAD)) {
-                            suppressLogError = true;
+
+                    List<Number> ids = sqlTemplateDirty.query(sql, new NumberMapper(), outgoingBatch.getBatchId());
+                    if (ids.size() >= batch.getErrorLine()) {
+                        long failedDataId = ids.get((int) batch.getErrorLine() - 1).longValue();
+                        if (outgoingBatch.getFailedDataId() == 0 || outgoingBatch.getFailedDataId() != failedDataId) {
+                            isNewError = true;
                         }
+                        outgoingBatch.setFailedDataId(failedDataId);
                     }
-                    if (outgoingBatch.getSqlCode() == ErrorConstants.PROTOCOL_VIOLATION_CODE
-                            && ErrorConstants.PROTOCOL_VIOLATION_STATE.equals(outgoingBatch.getSqlState())) {
-                        if (outgoingBatch.isLoadFlag()) {
-                            log.info("The batch {} may be corrupt in staging. Not removing the batch because it was a load batch, but you may need to clear the batch from staging manually.",
-                                    outgoingBatch.getNodeBatchId());
-                        } else {
-                            IStagedResource resource = engine.getStagingManager().find(Constants.STAGING_CATEGORY_OUTGOING,
-                                    outgoingBatch.getStagedLocation(), outgoingBatch.getBatchId());
-                            if (resource != null) {
-                                log.info("The batch {} may be corrupt in staging, so removing it.", outgoingBatch.getNodeBatchId());
-                                resource.delete();
-                                suppressLogError = isNewError;
-                            }
-                        }
+                }
+            }
+
+            if (status == Status.ER) {
+                boolean suppressLogError = false;
+                if (isNewError) {
+                    engine.getStatisticManager().incrementDataLoadedOutgoingErrors(outgoingBatch.getChannelId(), 1);
+                }
+                if (isNewError && outgoingBatch.getSqlCode() == ErrorConstants.FK_VIOLATION_CODE) {
+                    if (!outgoingBatch.isLoadFlag() && parameterService.is(ParameterConstants.AUTO_RESOLVE_FOREIGN_KEY_VIOLATION)) {
+                        engine.getDataService().reloadMissingForeignKeyRows(outgoingBatch.getNodeId(), outgoingBatch.getFailedDataId());
+                        suppressLogError = true;
                     }
-                    if (!suppressLogError) {
-                        log.error("The outgoing batch {} failed: {}{}", outgoingBatch.getNodeBatchId(),
-                                (batch.getSqlCode() != 0 ? "[" + batch.getSqlState() + "," + batch.getSqlCode() + "] " : ""), batch.getSqlMessage());
-                        RouterStats routerStats = engine.getStatisticManager().getRouterStatsByBatch(batch.getBatchId());
-                        if (routerStats != null) {
-                            log.info("Router stats for batch " + outgoingBatch.getBatchId() + ": " + routerStats.toString());
-                        }
+                    if (outgoingBatch.isLoadFlag() && parameterService.is(ParameterConstants.AUTO_RESOLVE_FOREIGN_KEY_VIOLATION_REVERSE_RELOAD)) {
+                        suppressLogError = true;
                     }
-                } else if (status == Status.RS) {
-                    log.info("The outgoing batch {} received resend request", outgoingBatch.getNodeBatchId());
                 }
-                
-                outgoingBatchService.updateOutgoingBatch(outgoingBatch);
-                if (status == Status.OK) {
-                    if (!Status.OK.equals(oldStatus)) {
-                        if (outgoingBatch.getLoadId() > 0) {
-                            engine.getDataExtractorService().updateExtractRequestLoadTime(new Date(), outgoingBatch);
+                if (outgoingBatch.getSqlCode() == ErrorConstants.PROTOCOL_VIOLATION_CODE
+                        && ErrorConstants.PROTOCOL_VIOLATION_STATE.equals(outgoingBatch.getSqlState())) {
+                    if (outgoingBatch.isLoadFlag()) {
+                        log.info("The batch {} may be corrupt in staging. Not removing the batch because it was a load batch, but you may need to clear the batch from staging manually.",
+                                outgoingBatch.getNodeBatchId());
+                    } else {
+                        IStagedResource resource = engine.getStagingManager().find(Constants.STAGING_CATEGORY_OUTGOING,
+                                outgoingBatch.getStagedLocation(), outgoingBatch.getBatchId());
+                        if (resource != null) {
+                            log.info("The batch {} may be corrupt in staging, so removing it.", outgoingBatch.getNodeBatchId());
+                            resource.delete();
+                            suppressLogError = isNewError;
                         }
-                        engine.getStatisticManager().incrementDataLoadedOutgoing(outgoingBatch.getChannelId(), outgoingBatch.getLoadRowCount());
-                        engine.getStatisticManager().incrementDataBytesLoadedOutgoing(outgoingBatch.getChannelId(), outgoingBatch.getByteCount());
                     }
-                    purgeLoadBatchesFromStaging(outgoingBatch);
-                    Channel channel = engine.getConfigurationService().getChannel(outgoingBatch.getChannelId());
-                    if (channel != null && channel.isFileSyncFlag()){
-                        /* Acknowledge the file_sync in case the file needs deleted. */
-                        engine.getFileSyncService().acknowledgeFiles(outgoingBatch);
+                }
+                if (!suppressLogError) {
+                    log.error("The outgoing batch {} failed: {}{}", outgoingBatch.getNodeBatchId(),
+                            (batch.getSqlCode() != 0 ? "[" + batch.getSqlState() + "," + batch.getSqlCode() + "] " : ""), batch.getSqlMessage());
+                    RouterStats routerStats = engine.getStatisticManager().getRouterStatsByBatch(batch.getBatchId());
+                    if (routerStats != null) {
+                        log.info("Router stats for batch " + outgoingBatch.getBatchId() + ": " + routerStats.toString());
                     }
-                    engine.getStatisticManager().removeRouterStatsByBatch(batch.getBatchId());
                 }
-            } else if (outgoingBatch == null) {
-                log.error("Could not find batch {}-{} to acknowledge as {}", new Object[] {batch.getNodeId(), batch.getBatchId(),
-                        status.name()});
-                result.setOk(false);
+            } else if (status == Status.RS) {
+                log.info("The outgoing batch {} received resend request", outgoingBatch.getNodeBatchId());
             }
         }
-        return result;
+        return new AckedBatch(outgoingBatch, status, oldStatus);
+    }
+
+    /**
+     * Work that runs after the acknowledged batch has been saved
+     */
+    protected void afterAck(AckedBatch ackedBatch) {
+        OutgoingBatch outgoingBatch = ackedBatch.outgoingBatch;
+        if (ackedBatch.status == Status.OK) {
+            if (!Status.OK.equals(ackedBatch.oldStatus)) {
+                if (outgoingBatch.getLoadId() > 0) {
+                    engine.getDataExtractorService().updateExtractRequestLoadTime(new Date(), outgoingBatch);
+                }
+                engine.getStatisticManager().incrementDataLoadedOutgoing(outgoingBatch.getChannelId(), outgoingBatch.getLoadRowCount());
+                engine.getStatisticManager().incrementDataBytesLoadedOutgoing(outgoingBatch.getChannelId(), outgoingBatch.getByteCount());
+                engine.getStatisticManager().addStageLatency(LatencyStage.TRANSFER, outgoingBatch.getChannelId(),
+                        outgoingBatch.getNetworkMillis());
+                if (outgoingBatch.getCreateTime() != null) {
+                    engine.getStatisticManager().addStageLatency(LatencyStage.ACK, outgoingBatch.getChannelId(),
+                            System.currentTimeMillis() - outgoingBatch.getCreateTime().getTime());
+                }
+            }
+            purgeLoadBatchesFromStaging(outgoingBatch);
+            Channel channel = engine.getConfigurationService().getChannel(outgoingBatch.getChannelId());
+            if (channel != null && channel.isFileSyncFlag()){
+                /* Acknowledge the file_sync in case the file needs deleted. */
+                engine.getFileSyncService().acknowledgeFiles(outgoingBatch);
+            }
+            engine.getStatisticManager().removeRouterStatsByBatch(outgoingBatch.getBatchId());
+        }
     }
 
     protected void purgeLoadBatchesFromStaging(OutgoingBatch outgoingBatch) {
@@ -215,12 +357,18 @@ public class AcknowledgeService extends AbstractService implements IAcknowledgeS
         }
     }
 
-	public List<BatchAckResult> ack(List<BatchAck> batches) {
-		
-		List<BatchAckResult> results = new ArrayList<BatchAckResult>();
-		for (BatchAck batch:batches) {
-			results.add(ack(batch));
-		}
-		return results;
-	}
+    static class AckedBatch {
+
+        OutgoingBatch outgoingBatch;
+
+        Status status;
+
+        Status oldStatus;
+
+        AckedBatch(OutgoingBatch outgoingBatch, Status status, Status oldStatus) {
+            this.outgoingBatch = outgoingBatch;
+            this.status = status;
+            this.oldStatus = oldStatus;
+        }
+    }
 }
@@ -0,0 +1,166 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.symmetric.model.IncomingBatch;
+
+/**
+ * Runs the loads of staged batches on an executor in the order they arrive.
+ * When loads are applied in parallel, a load waits for the earlier loads on
+ * the same channel and for the earlier loads that share a table with it. A
+ * load whose tables are unknown waits for every earlier load. If a load it
+ * waits for fails, the load is not run and fails as well, so nothing is
+ * applied out of order after an error.
+ */
+public class BatchLoadScheduler {
+
+    protected ExecutorService executor;
+
+    protected boolean parallel;
+
+    protected List<ScheduledLoad> scheduledLoads = new ArrayList<ScheduledLoad>();
+
+    public BatchLoadScheduler(ExecutorService executor, boolean parallel) {
+        this.executor = executor;
+        this.parallel = parallel;
+    }
+
+    /**
+     * @param tableNames
+     *            the lower case, fully qualified names of the tables the load
+     *            writes to, or null if they are unknown
+     * @param batchesProcessed
+     *            the incoming batches the load records, which are added to
+     *            the batches processed by the sync in {@link #isDone(List)}
+     * @param cleanup
+     *            run after the load, even when it did not run because a load
+     *            it waited for failed
+     */
+    public Future<IncomingBatch> schedule(String channelId, Set<String> tableNames,
+            List<IncomingBatch> batchesProcessed, final Callable<IncomingBatch> load, final Runnable cleanup) {
+        final List<Future<IncomingBatch>> dependencies = parallel ? findDependencies(channelId, tableNames)
+                : new ArrayList<Future<IncomingBatch>>(0);
+        Future<IncomingBatch> future = executor.submit(new Callable<IncomingBatch>() {
+            public IncomingBatch call() throws Exception {
+                try {
+                    awaitDependencies(dependencies);
+                    return load.call();
+                } finally {
+                    if (cleanup != null) {
+                        cleanup.run();
+                    }
+                }
+            }
+        });
+        scheduledLoads.add(new ScheduledLoad(channelId, tableNames, batchesProcessed, future));
+        return future;
+    }
+
+    protected List<Future<IncomingBatch>> findDependencies(String channelId, Set<String> tableNames) {
+        List<Future<IncomingBatch>> dependencies = new ArrayList<Future<IncomingBatch>>();
+        for (ScheduledLoad load : scheduledLoads) {
+            if (load.mustPrecede(channelId, tableNames)) {
+                dependencies.add(load.future);
+            }
+        }
+        return dependencies;
+    }
+
+    protected void awaitDependencies(List<Future<IncomingBatch>> dependencies) throws InterruptedException {
+        for (Future<IncomingBatch> dependency : dependencies) {
+            try {
+                dependency.get();
+            } catch (ExecutionException e) {
+                throw new CancellationException("Did not load because an earlier batch it follows failed to load");
+            }
+        }
+    }
+
+    /**
+     * Adds the batches processed by finished loads to the given list and
+     * throws the error of the first load that failed.
+     * 
+     * @return true if all scheduled loads have finished
+     */
+    public boolean isDone(List<IncomingBatch> batchesProcessed) throws Throwable {
+        boolean isDone = true;
+        Throwable error = null;
+        for (ScheduledLoad load : scheduledLoads) {
+            if (load.future.isDone()) {
+                if (load.batchesProcessed != batchesProcessed && !load.merged) {
+                    batchesProcessed.addAll(load.batchesProcessed);
+                    load.merged = true;
+                }
+                try {
+                    load.future.get();
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e.getCause() != null ? e.getCause() : e;
+                    }
+                }
+            } else {
+                isDone = false;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return isDone;
+    }
+
+    static class ScheduledLoad {
+
+        String channelId;
+
+        Set<String> tableNames;
+
+        List<IncomingBatch> batchesProcessed;
+
+        Future<IncomingBatch> future;
+
+        boolean merged;
+
+        ScheduledLoad(String channelId, Set<String> tableNames, List<IncomingBatch> batchesProcessed,
+                Future<IncomingBatch> future) {
+            this.channelId = channelId;
+            this.tableNames = tableNames;
+            this.batchesProcessed = batchesProcessed;
+            this.future = future;
+        }
+
+        boolean mustPrecede(String otherChannelId, Set<String> otherTableNames) {
+            return StringUtils.equals(channelId, otherChannelId) || tableNames == null || otherTableNames == null
+                    || !Collections.disjoint(tableNames, otherTableNames);
+        }
+    }
+
+}
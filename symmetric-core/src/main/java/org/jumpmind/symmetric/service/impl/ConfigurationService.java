@@ -28,6 +28,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.Row;
@@ -53,21 +55,33 @@ public class ConfigurationService extends AbstractService implements IConfigurat
 
     private INodeService nodeService;
 
-    private Map<String, List<NodeChannel>> nodeChannelCache;
+    private volatile Map<String, List<NodeChannel>> nodeChannelCache;
 
-    private Map<String, Channel> channelsCache;
+    private volatile Map<String, Channel> channelsCache;
 
-    private List<NodeGroupLink> nodeGroupLinksCache;
+    private volatile List<NodeGroupLink> nodeGroupLinksCache;
 
     private long channelCacheTime;
 
+    private long channelCacheVersion;
+
     private long nodeChannelCacheTime;
 
+    private long nodeChannelCacheVersion;
+
     private long nodeGroupLinkCacheTime;
 
+    private long nodeGroupLinkCacheVersion;
+
+    private long channelWindowsCacheTime;
+
+    private long channelWindowsCacheVersion;
+
     private Map<String, Channel> defaultChannels;
     
-    private Map<String, List<NodeGroupChannelWindow>> channelWindowsByChannelCache;
+    private volatile Map<String, List<NodeGroupChannelWindow>> channelWindowsByChannelCache;
+
+    private AtomicLong configurationVersion = new AtomicLong();
 
     private Date lastUpdateTime;
 
@@ -236,21 +250,23 @@ public class ConfigurationService extends AbstractService implements IConfigurat
 
     public List<NodeGroupLink> getNodeGroupLinks(boolean refreshCache) {
         if (refreshCache) {
-            nodeGroupLinkCacheTime = 0;
+            nodeGroupLinksCache = null;
             nodeService.flushNodeGroupCache();
         }
         long cacheTimeoutInMs = parameterService
                 .getLong(ParameterConstants.CACHE_TIMEOUT_NODE_GROUP_LINK_IN_MS);
         List<NodeGroupLink> links = nodeGroupLinksCache;
-        if (System.currentTimeMillis() - nodeGroupLinkCacheTime >= cacheTimeoutInMs
-                || links == null) {
+        if (links == null || isConfigCacheStale(nodeGroupLinkCacheVersion, configurationVersion.get(),
+                nodeGroupLinkCacheTime, cacheTimeoutInMs)) {
             synchronized (this) {
                 links = nodeGroupLinksCache;
-                if (System.currentTimeMillis() - nodeGroupLinkCacheTime >= cacheTimeoutInMs
-                        || links == null) {
+                long version = configurationVersion.get();
+                if (links == null || isConfigCacheStale(nodeGroupLinkCacheVersion, version,
+                        nodeGroupLinkCacheTime, cacheTimeoutInMs)) {
                     links = sqlTemplate.query(getSql("groupsLinksSql"), new NodeGroupLinkMapper());
-                    nodeGroupLinksCache = links;
                     nodeGroupLinkCacheTime = System.currentTimeMillis();
+                    nodeGroupLinkCacheVersion = version;
+                    nodeGroupLinksCache = links;
                 }
             }
         }
@@ -374,16 +390,20 @@ public class ConfigurationService extends AbstractService implements IConfigurat
     public List<NodeChannel> getNodeChannels(final String nodeId, boolean refreshExtractMillis) {
         boolean loaded = false;
         long channelCacheTimeoutInMs = parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_CHANNEL_IN_MS);
-        List<NodeChannel> nodeChannels = nodeChannelCache != null ? nodeChannelCache.get(nodeId) : null;
-        if (System.currentTimeMillis() - nodeChannelCacheTime >= channelCacheTimeoutInMs || nodeChannels == null) {
+        Map<String, List<NodeChannel>> cache = nodeChannelCache;
+        List<NodeChannel> nodeChannels = cache != null && nodeId != null ? cache.get(nodeId) : null;
+        if (nodeChannels == null || isNodeChannelCacheStale(channelCacheTimeoutInMs)) {
             synchronized (this) {
-                if (System.currentTimeMillis() - nodeChannelCacheTime >= channelCacheTimeoutInMs
-                        || nodeChannelCache == null || nodeChannelCache.get(nodeId) == null || nodeChannels == null) {
-                    if (System.currentTimeMillis() - nodeChannelCacheTime >= channelCacheTimeoutInMs || nodeChannelCache == null) {
-                        nodeChannelCache = new HashMap<String, List<NodeChannel>>();
-                        nodeChannelCacheTime = System.currentTimeMillis();
-                    }
+                cache = nodeChannelCache;
+                if (cache == null || isNodeChannelCacheStale(channelCacheTimeoutInMs)) {
+                    nodeChannelCacheTime = System.currentTimeMillis();
+                    nodeChannelCacheVersion = configurationVersion.get();
+                    cache = new ConcurrentHashMap<String, List<NodeChannel>>();
+                    nodeChannelCache = cache;
+                }
+                nodeChannels = nodeId != null ? cache.get(nodeId) : null;
 
+                if (nodeChannels == null) {
                     if (nodeId != null) {
                         nodeChannels = sqlTemplate.query(getSql("selectNodeChannelsSql"), new NodeChannelMapper(nodeId));
                         
@@ -409,7 +429,7 @@ public class ConfigurationService extends AbstractService implements IConfigurat
                                 }
                             }
                         }
-                        nodeChannelCache.put(nodeId, nodeChannels);
+                        cache.put(nodeId, nodeChannels);
                         loaded = true;
                     } else {
                         nodeChannels = new ArrayList<NodeChannel>(0);
@@ -451,6 +471,24 @@ public class ConfigurationService extends AbstractService implements IConfigurat
         return nodeChannels;
     }
 
+    /*
+     * The node channel control and channel window tables are not covered by
+     * the last update time check, so their caches still expire with time even
+     * when the configuration version is used.
+     */
+    protected boolean isNodeChannelCacheStale(long cacheTimeoutInMs) {
+        return nodeChannelCacheVersion != configurationVersion.get()
+                || System.currentTimeMillis() - nodeChannelCacheTime >= cacheTimeoutInMs;
+    }
+
+    public long getConfigurationVersion() {
+        return configurationVersion.get();
+    }
+
+    public void incrementConfigurationVersion() {
+        configurationVersion.incrementAndGet();
+    }
+
     public void clearCache() {
         synchronized (this) {
             nodeChannelCache = null;
@@ -458,6 +496,7 @@ public class ConfigurationService extends AbstractService implements IConfigurat
             nodeGroupLinksCache = null;
             channelWindowsByChannelCache = null;
         }
+        incrementConfigurationVersion();
     }
 
     public NodeGroupLinkAction getDataEventActionByGroupLinkId(String sourceGroupId,
@@ -507,10 +546,13 @@ public class ConfigurationService extends AbstractService implements IConfigurat
     public List<NodeGroupChannelWindow> getNodeGroupChannelWindows(String notUsed, String channelId) {
         long channelCacheTimeoutInMs = parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_CHANNEL_IN_MS, 60000);
         Map<String, List<NodeGroupChannelWindow>> channelWindowsByChannel = channelWindowsByChannelCache;
-        if (System.currentTimeMillis() - channelCacheTime >= channelCacheTimeoutInMs || channelWindowsByChannel == null) {
+        if (channelWindowsByChannel == null || channelWindowsCacheVersion != configurationVersion.get()
+                || System.currentTimeMillis() - channelWindowsCacheTime >= channelCacheTimeoutInMs) {
             synchronized (this) {
                 channelWindowsByChannel = channelWindowsByChannelCache;
-                if (System.currentTimeMillis() - channelCacheTime >= channelCacheTimeoutInMs || channelWindowsByChannel == null) {
+                long version = configurationVersion.get();
+                if (channelWindowsByChannel == null || channelWindowsCacheVersion != version
+                        || System.currentTimeMillis() - channelWindowsCacheTime >= channelCacheTimeoutInMs) {
                     channelWindowsByChannel = new HashMap<String, List<NodeGroupChannelWindow>>();
                     String nodeGroupId = parameterService.getNodeGroupId();
                     Set<String> channelIds = getChannels(false).keySet();
@@ -519,6 +561,8 @@ public class ConfigurationService extends AbstractService implements IConfigurat
                                 new NodeGroupChannelWindowMapper(), nodeGroupId, id));
                     }
 
+                    channelWindowsCacheTime = System.currentTimeMillis();
+                    channelWindowsCacheVersion = version;
                     channelWindowsByChannelCache = channelWindowsByChannel;
                 }
             }
@@ -559,12 +603,13 @@ public class ConfigurationService extends AbstractService implements IConfigurat
         long channelCacheTimeoutInMs = parameterService.getLong(
                 ParameterConstants.CACHE_TIMEOUT_CHANNEL_IN_MS, 60000);
         Map<String, Channel> channels = channelsCache;
-        if (System.currentTimeMillis() - channelCacheTime >= channelCacheTimeoutInMs
-                || channels == null || refreshCache) {
+        if (channels == null || refreshCache || isConfigCacheStale(channelCacheVersion,
+                configurationVersion.get(), channelCacheTime, channelCacheTimeoutInMs)) {
             synchronized (this) {
                 channels = channelsCache;
-                if (System.currentTimeMillis() - channelCacheTime >= channelCacheTimeoutInMs
-                        || channels == null || refreshCache) {
+                long version = configurationVersion.get();
+                if (channels == null || refreshCache || isConfigCacheStale(channelCacheVersion, version,
+                        channelCacheTime, channelCacheTimeoutInMs)) {
                     channels = new HashMap<String, Channel>();
                     List<Channel> list = sqlTemplate.query(getSql("selectChannelsSql"),
                             new ISqlRowMapper<Channel>() {
@@ -601,8 +646,9 @@ public class ConfigurationService extends AbstractService implements IConfigurat
                     for (Channel channel : list) {
                         channels.put(channel.getChannelId(), channel);
                     }
-                    channelsCache = channels;
                     channelCacheTime = System.currentTimeMillis();
+                    channelCacheVersion = version;
+                    channelsCache = channels;
                 }
             }
         }
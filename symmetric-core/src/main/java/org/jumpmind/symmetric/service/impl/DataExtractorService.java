@@ -165,6 +165,7 @@ import org.jumpmind.symmetric.service.ITransformService;
 import org.jumpmind.symmetric.service.ITriggerRouterService;
 import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGroupLink;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.statistic.LatencyStage;
 import org.jumpmind.symmetric.transport.BatchBufferedWriter;
 import org.jumpmind.symmetric.transport.IOutgoingTransport;
 import org.jumpmind.symmetric.transport.TransportUtils;
@@ -1131,6 +1132,8 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                 // "re-queried"
                 if (extractTimeInMs > 0) {
                     currentBatch.setExtractMillis(extractTimeInMs);
+                    statisticManager.addStageLatency(LatencyStage.EXTRACT, currentBatch.getChannelId(),
+                            extractTimeInMs);
                 }
 
                 if (byteCount > 0) {
@@ -1689,7 +1692,8 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                 DataReaderStatistics.DATA_INSERT_ROW_COUNT, DataReaderStatistics.DATA_UPDATE_ROW_COUNT,
                 DataReaderStatistics.DATA_DELETE_ROW_COUNT, DataReaderStatistics.EXTRACT_ROW_COUNT,
                 DataReaderStatistics.EXTRACT_INSERT_ROW_COUNT, DataReaderStatistics.EXTRACT_UPDATE_ROW_COUNT,
-                DataReaderStatistics.EXTRACT_DELETE_ROW_COUNT, DataReaderStatistics.FAILED_DATA_ID }, ',');
+                DataReaderStatistics.EXTRACT_DELETE_ROW_COUNT, DataReaderStatistics.FAILED_DATA_ID,
+                DataReaderStatistics.MIN_CAPTURE_TIME, DataReaderStatistics.MAX_CAPTURE_TIME }, ',');
     }
 
     protected String getBatchStats(OutgoingBatch batch) {
@@ -1702,7 +1706,9 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                 String.valueOf(batch.getDataInsertRowCount()), String.valueOf(batch.getDataUpdateRowCount()),
                 String.valueOf(batch.getDataDeleteRowCount()), String.valueOf(batch.getExtractRowCount()),
                 String.valueOf(batch.getExtractInsertRowCount()), String.valueOf(batch.getExtractUpdateRowCount()),
-                String.valueOf(batch.getExtractDeleteRowCount()), String.valueOf(batch.getFailedDataId()) }, ',');
+                String.valueOf(batch.getExtractDeleteRowCount()), String.valueOf(batch.getFailedDataId()),
+                String.valueOf(batch.getMinCaptureTime() != null ? batch.getMinCaptureTime().getTime() : 0),
+                String.valueOf(batch.getMaxCaptureTime() != null ? batch.getMaxCaptureTime().getTime() : 0) }, ',');
     }
 
     public boolean extractBatchRange(Writer writer, String nodeId, long startBatchId,
@@ -2495,6 +2501,7 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             if (data == null) {
                 data = this.cursor.next();
                 if (data != null) {
+                    outgoingBatch.includeCaptureTime(data.getCreateTime());
                     String routerId = data.getAttribute(CsvData.ATTRIBUTE_ROUTER_ID);
 
                     if (data.getDataEventType() == DataEventType.RELOAD) {
@@ -39,16 +39,18 @@ import java.net.MalformedURLException;
 import java.net.UnknownHostException;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipException;
 
@@ -77,9 +79,11 @@ import org.jumpmind.symmetric.io.data.Batch.BatchType;
 import org.jumpmind.symmetric.io.data.DataContext;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.DataProcessor;
+import org.jumpmind.symmetric.io.data.IDataReader;
 import org.jumpmind.symmetric.io.data.IDataWriter;
 import org.jumpmind.symmetric.io.data.ProtocolException;
 import org.jumpmind.symmetric.io.data.reader.DataReaderStatistics;
+import org.jumpmind.symmetric.io.data.reader.PipelinedDataReader;
 import org.jumpmind.symmetric.io.data.reader.ProtocolDataReader;
 import org.jumpmind.symmetric.io.data.transform.TransformPoint;
 import org.jumpmind.symmetric.io.data.transform.TransformTable;
@@ -88,6 +92,7 @@ import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
 import org.jumpmind.symmetric.io.data.writer.Conflict.PingBack;
 import org.jumpmind.symmetric.io.data.writer.Conflict.ResolveConflict;
 import org.jumpmind.symmetric.io.data.writer.ConflictException;
+import org.jumpmind.symmetric.io.data.writer.DefaultDatabaseWriter;
 import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterErrorHandler;
 import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterFilter;
 import org.jumpmind.symmetric.io.data.writer.IProtocolDataWriterListener;
@@ -118,6 +123,7 @@ import org.jumpmind.symmetric.model.ProcessInfo.ProcessStatus;
 import org.jumpmind.symmetric.model.ProcessInfoDataWriter;
 import org.jumpmind.symmetric.model.ProcessInfoKey;
 import org.jumpmind.symmetric.model.RemoteNodeStatus;
+import org.jumpmind.symmetric.service.ClusterConstants;
 import org.jumpmind.symmetric.service.IConfigurationService;
 import org.jumpmind.symmetric.service.IDataLoaderService;
 import org.jumpmind.symmetric.service.IExtensionService;
@@ -176,6 +182,8 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
     private Date lastUpdateTime;
     
     private CustomizableThreadFactory threadFactory;
+
+    private Set<String> longPollNodeIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     
     public DataLoaderService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
@@ -278,6 +286,9 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 requestProperties.put(WebConstants.IGNORED_CHANNELS,
                         suspendIgnoreChannels.getIgnoreChannelsAsString());
                 requestProperties.put(WebConstants.CHANNEL_QUEUE, status.getQueue());
+                if (isLongPollSupported(remote)) {
+                    requestProperties.put(WebConstants.LONG_POLL_TIMEOUT, String.valueOf(getLongPollTimeoutMs()));
+                }
                 transport = transportManager.getPullTransport(remote, local,
                         localSecurity.getNodePassword(), requestProperties,
                         parameterService.getRegistrationUrl());
@@ -330,6 +341,7 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 }
                 
                 updateBatchToSendCount(remote, transport);
+                updateLongPollSupported(remote, transport);
                 purgeLoadBatchesFromStaging(list);
                 
             } catch (RuntimeException e) {
@@ -371,6 +383,32 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
         }
     }
 
+    protected boolean isLongPollSupported(Node remote) {
+        return parameterService.is(ParameterConstants.PULL_LONG_POLL_ENABLED)
+                && longPollNodeIds.contains(remote.getNodeId());
+    }
+
+    protected long getLongPollTimeoutMs() {
+        long timeoutMs = parameterService.getLong(ParameterConstants.PULL_LONG_POLL_TIMEOUT_MS, 30000);
+        long httpTimeoutMs = parameterService.getLong(ParameterConstants.TRANSPORT_HTTP_TIMEOUT);
+        return httpTimeoutMs > 0 ? Math.min(timeoutMs, httpTimeoutMs / 2) : timeoutMs;
+    }
+
+    /**
+     * The server advertises long poll support on every pull response, so the
+     * client only asks to be held once it knows the server will honor it.
+     */
+    protected void updateLongPollSupported(Node remote, IIncomingTransport transport) {
+        if (remote.getNodeId() != null) {
+            Map<String, String> headers = transport.getHeaders();
+            if (headers != null && Boolean.parseBoolean(headers.get(WebConstants.LONG_POLL_SUPPORTED))) {
+                longPollNodeIds.add(remote.getNodeId());
+            } else {
+                longPollNodeIds.remove(remote.getNodeId());
+            }
+        }
+    }
+
     private boolean containsError(List<IncomingBatch> list) {
         for (IncomingBatch incomingBatch : list) {
             if (incomingBatch.getStatus() == Status.ER) {
@@ -583,10 +621,20 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                     threadFactory = new CustomizableThreadFactory(parameterService.getEngineName().toLowerCase() + "-dataloader");
                 }
                 
-                ExecutorService executor = Executors.newFixedThreadPool(1, threadFactory);
+                int parallelApplyThreads = Math.max(1, parameterService.getInt(ParameterConstants.DATA_LOADER_PARALLEL_APPLY_THREADS, 1));
+                ExecutorService executor = Executors.newFixedThreadPool(parallelApplyThreads, threadFactory);
+                
+                /*
+                 * Staged batches are parsed on their own thread so that
+                 * parsing the next batch overlaps with loading the current
+                 * one. Unless parallel apply is enabled, batches are still
+                 * loaded one at a time in order.
+                 */
+                ExecutorService parseExecutor = parameterService.is(ParameterConstants.DATA_LOADER_PARSE_AHEAD_ENABLED, true)
+                        ? Executors.newFixedThreadPool(parallelApplyThreads, threadFactory) : null;
                 
                 LoadIntoDatabaseOnArrivalListener loadListener = new LoadIntoDatabaseOnArrivalListener(transferInfo,
-                        sourceNode.getNodeId(), listener, executor);
+                        sourceNode.getNodeId(), listener, executor, parseExecutor, parallelApplyThreads > 1);
                 
                 try {
                     new SimpleStagingDataWriter(transferInfo, transport.openReader(), stagingManager, Constants.STAGING_CATEGORY_INCOMING, 
@@ -594,6 +642,9 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 } finally {
                     /* Previously submitted tasks will still be executed */
                     executor.shutdown();
+                    if (parseExecutor != null) {
+                        parseExecutor.shutdown();
+                    }
                 }
 
                 OutputStreamWriter outWriter = null;
@@ -662,9 +713,25 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 l.syncEnded(ctx, listener.getBatchesProcessed(), error);
             }
         }
+        signalRouting(listener.getBatchesProcessed());
         return listener.getBatchesProcessed();
     }
 
+    /**
+     * Loaded data may have been captured for other nodes, so wake up routing
+     * instead of waiting for its next scheduled run.
+     */
+    protected void signalRouting(List<IncomingBatch> batchesProcessed) {
+        if (parameterService.is(ParameterConstants.JOB_SIGNAL_ENABLED) && engine.getJobManager() != null) {
+            for (IncomingBatch batch : batchesProcessed) {
+                if (batch.getStatus() == Status.OK) {
+                    engine.getJobManager().signalJob(ClusterConstants.ROUTE);
+                    break;
+                }
+            }
+        }
+    }
+
     private void awaitTermination(ExecutorService executor) throws InterruptedException {
         long hours = 1;
         while (!executor.awaitTermination(1, TimeUnit.HOURS)) {
@@ -762,6 +829,10 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
         IDataWriter targetWriter = getFactory(channelId).getDataWriter(sourceNodeId,
                 this.engine.getSymmetricDialect(), transformWriter, dynamicFilters, dynamicErrorHandlers,
                 getConflictSettingsNodeGroupLinks(link, false), resolvedDatas);
+        if (isRetry && targetWriter instanceof DefaultDatabaseWriter) {
+            /* a failed set based merge cannot say which row failed, so retries go one row at a time */
+            ((DefaultDatabaseWriter) targetWriter).getWriterSettings().setMergeApplyThreshold(0);
+        }
         transformWriter.setNestedWriter(new ProcessInfoDataWriter(targetWriter, processInfo));
         return transformWriter;
     }
@@ -1010,57 +1081,114 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
         
         private ProcessInfo transferInfo;
 
-        private ProcessInfo loadInfo;
-        
         private ExecutorService executor;
         
-        private List<Future<IncomingBatch>> futures = new ArrayList<Future<IncomingBatch>>();
+        private ExecutorService parseExecutor;
+        
+        private int parseAheadQueueSize;
+        
+        private boolean parallelApply;
         
-        private boolean isError;
+        private BatchLoadScheduler scheduler;
+        
+        private Map<String, Set<String>> transformTargetTableNames;
+        
+        private volatile boolean isError;
 
         public LoadIntoDatabaseOnArrivalListener(ProcessInfo transferInfo, String sourceNodeId,
                 ManageIncomingBatchListener listener, ExecutorService executor) {
+            this(transferInfo, sourceNodeId, listener, executor, null, false);
+        }
+
+        public LoadIntoDatabaseOnArrivalListener(ProcessInfo transferInfo, String sourceNodeId,
+                ManageIncomingBatchListener listener, ExecutorService executor, ExecutorService parseExecutor) {
+            this(transferInfo, sourceNodeId, listener, executor, parseExecutor, false);
+        }
+
+        public LoadIntoDatabaseOnArrivalListener(ProcessInfo transferInfo, String sourceNodeId,
+                ManageIncomingBatchListener listener, ExecutorService executor, ExecutorService parseExecutor,
+                boolean parallelApply) {
             this.sourceNodeId = sourceNodeId;
             this.listener = listener;
             this.executor = executor;
+            this.parseExecutor = parseExecutor;
             this.transferInfo = transferInfo;
+            this.parallelApply = parallelApply;
+            this.parseAheadQueueSize = parameterService.getInt(ParameterConstants.DATA_LOADER_PARSE_AHEAD_QUEUE_SIZE, 1000);
+            this.scheduler = new BatchLoadScheduler(executor, parallelApply);
         }
 
         public void start(DataContext ctx, Batch batch) {
             batchStartsToArriveTimeInMs = System.currentTimeMillis();
         }
 
-        protected ProtocolDataReader buildDataReader(final Batch batchInStaging, final IStagedResource resource) {
+        protected ProtocolDataReader buildDataReader(final Batch batchInStaging, final IStagedResource resource,
+                final ManageIncomingBatchListener listener) {
             return new ProtocolDataReader(BatchType.LOAD, batchInStaging.getTargetNodeId(), resource) {
                 @Override
                 public Table nextTable() {
-                    Table table = super.nextTable();
-                    if (table != null && listener.currentBatch != null) {
-                        listener.currentBatch.incrementTableCount(table.getNameLowerCase());
-                    }
-                    return table;
+                    return tableRead(listener, super.nextTable());
                 }        
                 
                 public Batch nextBatch() {
-                    Batch nextBatch = super.nextBatch();
-                    if (nextBatch != null) {
-                        nextBatch.setStatistics(batchInStaging.getStatistics());
-                    }
-                    return nextBatch;
+                    return batchRead(batchInStaging, super.nextBatch());
                 }
             };
         }
+
+        protected PipelinedDataReader buildPipelinedDataReader(final Batch batchInStaging, final IStagedResource resource,
+                final ManageIncomingBatchListener listener) {
+            PipelinedDataReader reader = new PipelinedDataReader(new ProtocolDataReader(BatchType.LOAD,
+                    batchInStaging.getTargetNodeId(), resource), parseAheadQueueSize) {
+                @Override
+                public Table nextTable() {
+                    return tableRead(listener, super.nextTable());
+                }
+
+                public Batch nextBatch() {
+                    return batchRead(batchInStaging, super.nextBatch());
+                }
+            };
+            reader.start(parseExecutor);
+            return reader;
+        }
+
+        protected Table tableRead(ManageIncomingBatchListener listener, Table table) {
+            if (table != null && listener.currentBatch != null) {
+                listener.currentBatch.incrementTableCount(table.getNameLowerCase());
+            }
+            return table;
+        }
+
+        protected Batch batchRead(Batch batchInStaging, Batch nextBatch) {
+            if (nextBatch != null) {
+                nextBatch.setStatistics(batchInStaging.getStatistics());
+            }
+            return nextBatch;
+        }
         
-        public void end(final DataContext ctx, final Batch batchInStaging, final IStagedResource resource) {
+        public void end(final DataContext parentCtx, final Batch batchInStaging, final IStagedResource resource) {
             final long networkMillis = System.currentTimeMillis() - batchStartsToArriveTimeInMs;
 
+            /*
+             * The listener and context hold the state of the batch being
+             * loaded, so batches that are applied in parallel each get their
+             * own.
+             */
+            final ManageIncomingBatchListener listener = parallelApply ? new ManageIncomingBatchListener(transferInfo, engine)
+                    : this.listener;
+            final DataContext ctx = parallelApply ? copyContext(parentCtx) : parentCtx;
+
+            final PipelinedDataReader pipelinedReader = parseExecutor != null && !isError && resource != null
+                    && resource.exists() ? buildPipelinedDataReader(batchInStaging, resource, listener) : null;
+
             Callable<IncomingBatch> loadBatchFromStage = new Callable<IncomingBatch>() {
                 public IncomingBatch call() throws Exception {
                     IncomingBatch incomingBatch = null;
                     DataProcessor processor = null;
                     if (!isError && resource != null && resource.exists()) {
                         try {
-                            loadInfo = statisticManager.newProcessInfo(new ProcessInfoKey(transferInfo.getSourceNodeId(),
+                            final ProcessInfo loadInfo = statisticManager.newProcessInfo(new ProcessInfoKey(transferInfo.getSourceNodeId(),
                                     transferInfo.getQueue(), transferInfo.getTargetNodeId(), transferInfo.getProcessType() == PULL_JOB_TRANSFER ? PULL_JOB_LOAD : PUSH_HANDLER_LOAD));            
                             if (batchInStaging.getStatistics() != null) {                
                                 loadInfo.setTotalDataCount(batchInStaging.getStatistics().get(DataReaderStatistics.DATA_ROW_COUNT));
@@ -1068,7 +1196,7 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
 
                             loadInfo.setStatus(ProcessInfo.ProcessStatus.LOADING);
                             
-                            ProtocolDataReader reader = buildDataReader(batchInStaging, resource);
+                            IDataReader reader = pipelinedReader != null ? pipelinedReader : buildDataReader(batchInStaging, resource, listener);
                             
                             processor = new DataProcessor(reader, null, listener, "data load from stage") {
                                 @Override
@@ -1089,7 +1217,7 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                                 
                                 ctx.put(ContextConstants.CONTEXT_BULK_WRITER_TO_USE, "default");
                                 listener.currentBatch.setStatus(Status.OK);
-                                processor.setDataReader(buildDataReader(batchInStaging, resource));
+                                processor.setDataReader(buildDataReader(batchInStaging, resource, listener));
                                 try {
                                     listener.getBatchesProcessed().remove(listener.currentBatch);
                                     processor.process(ctx);
@@ -1142,7 +1270,7 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
             
             if (resource == null) {
                 IncomingBatch incomingBatch = new IncomingBatch(batchInStaging);
-                listener.getBatchesProcessed().add(incomingBatch);
+                this.listener.getBatchesProcessed().add(incomingBatch);
                 if (incomingBatchService.acquireIncomingBatch(incomingBatch)) {
                     log.info("Unable to retry batch {} because it's not in staging.  Setting status to resend.", batchInStaging.getNodeBatchId());
                     incomingBatch.setStatus(Status.RS);
@@ -1150,24 +1278,63 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 }
                 isError = true;
             } else {
-                futures.add(executor.submit(loadBatchFromStage));
+                scheduler.schedule(batchInStaging.getChannelId(), getLoadedTableNames(batchInStaging),
+                        listener.getBatchesProcessed(), loadBatchFromStage, new Runnable() {
+                            public void run() {
+                                if (pipelinedReader != null) {
+                                    pipelinedReader.close();
+                                }
+                            }
+                        });
             }
         }
-        
-        public boolean isDone() throws Throwable {
-            boolean isDone = true;
-            for (Future<IncomingBatch> future : futures) {
-                if (future.isDone()) {
-                    try {
-                        future.get();
-                    } catch (ExecutionException e) {
-                        throw e.getCause() != null ? e.getCause() : e;
+
+        /**
+         * The tables in the staged batch plus the tables that load transforms
+         * write them to. Transforms can write different source tables to the
+         * same target table, so those batches must not load at the same time.
+         */
+        protected Set<String> getLoadedTableNames(Batch batchInStaging) {
+            Set<String> tableNames = batchInStaging.getTableNames();
+            if (tableNames == null || !parallelApply) {
+                return tableNames;
+            }
+            if (transformTargetTableNames == null) {
+                transformTargetTableNames = new HashMap<String, Set<String>>();
+                Node sourceNode = nodeService.findNode(sourceNodeId, true);
+                List<TransformTableNodeGroupLink> transforms = sourceNode != null ? transformService.findTransformsFor(
+                        new NodeGroupLink(sourceNode.getNodeGroupId(), parameterService.getNodeGroupId()),
+                        TransformPoint.LOAD) : null;
+                if (transforms != null) {
+                    for (TransformTableNodeGroupLink transform : transforms) {
+                        String sourceTableName = transform.getFullyQualifiedSourceTableName().toLowerCase();
+                        Set<String> targetTableNames = transformTargetTableNames.get(sourceTableName);
+                        if (targetTableNames == null) {
+                            targetTableNames = new HashSet<String>();
+                            transformTargetTableNames.put(sourceTableName, targetTableNames);
+                        }
+                        targetTableNames.add(transform.getFullyQualifiedTargetTableName().toLowerCase());
                     }
-                } else {
-                    isDone = false;
                 }
             }
-            return isDone;
+            Set<String> loadedTableNames = new HashSet<String>(tableNames);
+            for (String tableName : tableNames) {
+                Set<String> targetTableNames = transformTargetTableNames.get(tableName);
+                if (targetTableNames != null) {
+                    loadedTableNames.addAll(targetTableNames);
+                }
+            }
+            return loadedTableNames;
+        }
+
+        protected DataContext copyContext(DataContext parentCtx) {
+            DataContext ctx = new DataContext();
+            ctx.getContext().putAll(parentCtx.getContext());
+            return ctx;
+        }
+
+        public boolean isDone() throws Throwable {
+            return scheduler.isDone(listener.getBatchesProcessed());
         }
     }
     
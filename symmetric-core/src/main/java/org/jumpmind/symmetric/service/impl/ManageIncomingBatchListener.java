@@ -56,6 +56,7 @@ import org.jumpmind.symmetric.service.IIncomingBatchService;
 import org.jumpmind.symmetric.service.IOutgoingBatchService;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.statistic.LatencyStage;
 import org.jumpmind.symmetric.transport.TransportException;
 import org.jumpmind.util.ExceptionUtils;
 import org.slf4j.Logger;
@@ -157,6 +158,14 @@ class ManageIncomingBatchListener implements IDataProcessorListener {
                 this.currentBatch.getLoadRowCount());
         statisticManager.incrementDataBytesLoaded(this.currentBatch.getChannelId(),
                 this.currentBatch.getByteCount());
+        statisticManager.addStageLatency(LatencyStage.LOAD, this.currentBatch.getChannelId(),
+                this.currentBatch.getLoadMillis());
+        if (this.currentBatch.getMinCaptureTime() != null) {
+            this.currentBatch.setLagMillis(System.currentTimeMillis()
+                    - this.currentBatch.getMinCaptureTime().getTime());
+            statisticManager.addStageLatency(LatencyStage.LAG, this.currentBatch.getChannelId(),
+                    this.currentBatch.getLagMillis());
+        }
         Status oldStatus = this.currentBatch.getStatus();
 
         try {
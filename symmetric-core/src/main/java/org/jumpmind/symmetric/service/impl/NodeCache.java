@@ -0,0 +1,277 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.util.CustomizableThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds an immutable snapshot of the node table indexed by node id, node group
+ * and node group link. Readers never lock. When the snapshot times out, one
+ * reader starts a reload on a background thread and everyone keeps reading the
+ * old snapshot until the new one is published. Reloads run one at a time on a
+ * single named thread that is released when idle and shut down by
+ * {@link #stop()}. After a {@link #flush()} the
+ * next reader reloads before returning so that callers see their own changes.
+ * Local changes are applied with {@link #put(Node)} and {@link #remove(String)}
+ * by copying the snapshot instead of reloading the table.
+ */
+public class NodeCache {
+
+    public interface INodeLoader {
+        public List<Node> loadNodes();
+    }
+
+    public interface ILinkedNodesBuilder {
+        public List<Node> buildLinkedNodes(Snapshot snapshot);
+    }
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final INodeLoader loader;
+
+    private final String name;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong modifications = new AtomicLong();
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    private final Object refreshExecutorLock = new Object();
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    public NodeCache(String name, INodeLoader loader) {
+        this.name = name;
+        this.loader = loader;
+    }
+
+    /**
+     * @return the current snapshot, or null if nothing has been loaded yet
+     */
+    public Snapshot getIfPresent() {
+        return snapshot;
+    }
+
+    public Snapshot get(long cacheTimeoutInMs) {
+        Snapshot current = snapshot;
+        if (current == null || current.generation != generation.get()) {
+            synchronized (this) {
+                current = snapshot;
+                long currentGeneration = generation.get();
+                if (current == null || current.generation != currentGeneration) {
+                    current = load(currentGeneration);
+                    snapshot = current;
+                }
+            }
+        } else if (currentTimeMillis() - current.loadTime >= cacheTimeoutInMs) {
+            refreshInBackground();
+        }
+        return current;
+    }
+
+    public void flush() {
+        generation.incrementAndGet();
+    }
+
+    public void clearLinkIndex() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            current.nodesByLink.clear();
+        }
+    }
+
+    public synchronized void put(Node node) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            Map<String, Node> nodes = new HashMap<String, Node>(current.nodesById);
+            nodes.put(node.getNodeId(), node);
+            modifications.incrementAndGet();
+            snapshot = new Snapshot(nodes.values(), current.generation, current.loadTime);
+        }
+    }
+
+    public synchronized void remove(String nodeId) {
+        Snapshot current = snapshot;
+        if (current != null && current.nodesById.containsKey(nodeId)) {
+            Map<String, Node> nodes = new HashMap<String, Node>(current.nodesById);
+            nodes.remove(nodeId);
+            modifications.incrementAndGet();
+            snapshot = new Snapshot(nodes.values(), current.generation, current.loadTime);
+        }
+    }
+
+    public boolean isRefreshing() {
+        return refreshing.get();
+    }
+
+    protected void refreshInBackground() {
+        if (refreshing.compareAndSet(false, true)) {
+            final long refreshGeneration = generation.get();
+            final long refreshModifications = modifications.get();
+            Runnable refresh = new Runnable() {
+                public void run() {
+                    try {
+                        Snapshot loaded = load(refreshGeneration);
+                        synchronized (NodeCache.this) {
+                            Snapshot current = snapshot;
+                            if (refreshGeneration == generation.get() && refreshModifications == modifications.get()
+                                    && current != null && current.generation == refreshGeneration) {
+                                snapshot = loaded;
+                            }
+                        }
+                    } catch (Throwable ex) {
+                        log.warn("Failed to refresh the node cache", ex);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            };
+            try {
+                getRefreshExecutor().execute(refresh);
+            } catch (RejectedExecutionException ex) {
+                refreshing.set(false);
+            }
+        }
+    }
+
+    protected ThreadPoolExecutor getRefreshExecutor() {
+        synchronized (refreshExecutorLock) {
+            if (refreshExecutor == null) {
+                refreshExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                        new CustomizableThreadFactory(String.format("%s-node-cache", name)));
+                refreshExecutor.allowCoreThreadTimeOut(true);
+            }
+            return refreshExecutor;
+        }
+    }
+
+    /**
+     * Stops a background reload that is in progress. Lookups keep working and
+     * the next timed out lookup starts a new refresh thread.
+     */
+    public void stop() {
+        synchronized (refreshExecutorLock) {
+            if (refreshExecutor != null) {
+                if (!refreshExecutor.shutdownNow().isEmpty()) {
+                    refreshing.set(false);
+                }
+                refreshExecutor = null;
+            }
+        }
+    }
+
+    protected Snapshot load(long loadGeneration) {
+        long loadTime = currentTimeMillis();
+        List<Node> nodes = loader.loadNodes();
+        return new Snapshot(nodes, loadGeneration, loadTime);
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public static class Snapshot {
+
+        private final Map<String, Node> nodesById;
+
+        private final Map<String, List<Node>> nodesByGroupId;
+
+        private final Map<String, List<Node>> nodesByLink = new ConcurrentHashMap<String, List<Node>>();
+
+        private final long generation;
+
+        private final long loadTime;
+
+        protected Snapshot(Collection<Node> nodes, long generation, long loadTime) {
+            Map<String, Node> byId = new HashMap<String, Node>(nodes.size());
+            Map<String, List<Node>> byGroupId = new HashMap<String, List<Node>>();
+            for (Node node : nodes) {
+                byId.put(node.getNodeId(), node);
+                List<Node> list = byGroupId.get(node.getNodeGroupId());
+                if (list == null) {
+                    list = new ArrayList<Node>();
+                    byGroupId.put(node.getNodeGroupId(), list);
+                }
+                list.add(node);
+            }
+            for (Map.Entry<String, List<Node>> entry : byGroupId.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            this.nodesById = Collections.unmodifiableMap(byId);
+            this.nodesByGroupId = Collections.unmodifiableMap(byGroupId);
+            this.generation = generation;
+            this.loadTime = loadTime;
+        }
+
+        public Node getNode(String nodeId) {
+            return nodeId != null ? nodesById.get(nodeId) : null;
+        }
+
+        public Map<String, Node> getNodesById() {
+            return nodesById;
+        }
+
+        public List<Node> getNodesInGroup(String nodeGroupId) {
+            List<Node> list = nodeGroupId != null ? nodesByGroupId.get(nodeGroupId) : null;
+            return list != null ? list : Collections.<Node> emptyList();
+        }
+
+        /**
+         * Nodes reached through node group links are derived from this snapshot
+         * once per key and kept until the snapshot is replaced or the link index
+         * is cleared.
+         */
+        public List<Node> getLinkedNodes(String key, ILinkedNodesBuilder builder) {
+            List<Node> list = nodesByLink.get(key);
+            if (list == null) {
+                list = Collections.unmodifiableList(builder.buildLinkedNodes(this));
+                nodesByLink.put(key, list);
+            }
+            return list;
+        }
+
+        public long getLoadTime() {
+            return loadTime;
+        }
+
+    }
+
+}
@@ -44,11 +44,13 @@ import org.jumpmind.symmetric.config.INodeIdCreator;
 import org.jumpmind.symmetric.ext.IOfflineServerListener;
 import org.jumpmind.symmetric.model.NetworkedNode;
 import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.NodeGroupLink;
 import org.jumpmind.symmetric.model.NodeGroupLinkAction;
 import org.jumpmind.symmetric.model.NodeHost;
 import org.jumpmind.symmetric.model.NodeSecurity;
 import org.jumpmind.symmetric.model.NodeStatus;
 import org.jumpmind.symmetric.security.INodePasswordFilter;
+import org.jumpmind.symmetric.service.IConfigurationService;
 import org.jumpmind.symmetric.service.IExtensionService;
 import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.util.DefaultNodeIdCreator;
@@ -63,23 +65,13 @@ public class NodeService extends AbstractService implements INodeService {
 
     private IExtensionService extensionService;
 
-    private Node cachedNodeIdentity;
+    private volatile Node cachedNodeIdentity;
 
-    private Map<String, NodeSecurity> securityCache;
+    private volatile Map<String, NodeSecurity> securityCache;
 
-    private long securityCacheTime;
+    private volatile long securityCacheTime;
 
-    private Map<String, Node> nodeCache = new HashMap<String, Node>();
-
-    private long nodeCacheTime;
-
-    private Map<String, List<Node>> sourceNodesCache = new HashMap<String, List<Node>>();
-
-    private Map<String, List<Node>> targetNodesCache = new HashMap<String, List<Node>>();
-
-    private Map<String, Long> sourceNodeLinkCacheTime = new HashMap<String, Long>(); 
-    
-    private Map<String, Long> targetNodeLinkCacheTime = new HashMap<String, Long>();
+    private NodeCache nodeCache;
 
     private INodePasswordFilter nodePasswordFilter;
 
@@ -91,6 +83,11 @@ public class NodeService extends AbstractService implements INodeService {
         extensionService = engine.getExtensionService();
         extensionService.addExtensionPoint(new DefaultNodeIdCreator(parameterService, this, engine.getSecurityService()));
         setSqlMap(new NodeServiceSqlMap(symmetricDialect.getPlatform(), createSqlReplacementTokens()));
+        nodeCache = new NodeCache(parameterService.getEngineName(), new NodeCache.INodeLoader() {
+            public List<Node> loadNodes() {
+                return findAllNodes();
+            }
+        });
     }
 
     public String findSymmetricVersion() {
@@ -149,24 +146,33 @@ public class NodeService extends AbstractService implements INodeService {
     } 
     
     public Node findNodeInCacheOnly(String id) {
-        return nodeCache.get(id);
+        NodeCache.Snapshot snapshot = nodeCache.getIfPresent();
+        return snapshot != null ? snapshot.getNode(id) : null;
     }
 
     public Node findNode(String id, boolean useCache) {
         if (useCache) {
-            long cacheTimeoutInMs = parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_NODE_IN_MS);
-            if ((System.currentTimeMillis() - nodeCacheTime) >= cacheTimeoutInMs) {
-                nodeCache = findAllNodesAsMap();
-                nodeCacheTime = System.currentTimeMillis();
-            }
-            return nodeCache.get(id);
+            return getNodeSnapshot().getNode(id);
         } else {
             return findNode(id);
         }
     }
 
+    /**
+     * The snapshot is reloaded in the background once it is older than
+     * {@link ParameterConstants#CACHE_TIMEOUT_NODE_IN_MS}, so lookups only wait
+     * on the first load and after the cache is flushed.
+     */
+    protected NodeCache.Snapshot getNodeSnapshot() {
+        return nodeCache.get(parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_NODE_IN_MS));
+    }
+
     public void flushNodeCache() {
-        nodeCacheTime = 0;
+        nodeCache.flush();
+    }
+
+    public void stop() {
+        nodeCache.stop();
     }
 
     public Node findNodeByExternalId(String nodeGroupId, String externalId) {
@@ -251,6 +257,7 @@ public class NodeService extends AbstractService implements INodeService {
 
             close(transaction);
         }
+        nodeCache.remove(nodeId);
     }
 
     public void insertNodeIdentity(String nodeId) {
@@ -293,10 +300,8 @@ public class NodeService extends AbstractService implements INodeService {
                             Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
                             Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.VARCHAR,
                             Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR });
-
-            flushNodeGroupCache();
         }
-        flushNodeCache();
+        nodeCache.put(node);
     }
 
     public boolean updateNode(Node node) {
@@ -369,34 +374,44 @@ public class NodeService extends AbstractService implements INodeService {
     }
 
     public List<Node> findSourceNodesFor(NodeGroupLinkAction eventAction) {
-        Node node = findIdentity();
-        long cacheTimeoutInMs = parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_NODE_GROUP_LINK_IN_MS);
-        if (node != null) {
-            List<Node> list = sourceNodesCache.get(eventAction.name());
-            if (list == null || (System.currentTimeMillis() - sourceNodeLinkCacheTime.get(eventAction.toString())) >= cacheTimeoutInMs) {
-                list = sqlTemplate.query(getSql("selectNodePrefixSql", "findNodesWhoTargetMeSql"),
-                        new NodeRowMapper(), node.getNodeGroupId(), eventAction.name());
-                sourceNodesCache.put(eventAction.name(), list);
-                sourceNodeLinkCacheTime.put(eventAction.toString(), System.currentTimeMillis());
-            }
-            return list;
-        } else {
-            return Collections.emptyList();
-        }
+        return findLinkedNodesFor(eventAction, true);
     }
 
     public List<Node> findTargetNodesFor(NodeGroupLinkAction eventAction) {
-        Node node = findIdentity();
-        long cacheTimeoutInMs = parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_NODE_GROUP_LINK_IN_MS);
-        if (node != null) {
-            List<Node> list = targetNodesCache.get(eventAction.name());
-            
-            if (list == null || (System.currentTimeMillis() - targetNodeLinkCacheTime.get(eventAction.toString())) >= cacheTimeoutInMs) {
-                list = sqlTemplate.query(getSql("selectNodePrefixSql", "findNodesWhoITargetSql"),
-                        new NodeRowMapper(), node.getNodeGroupId(), eventAction.name());
-                targetNodesCache.put(eventAction.name(), list);
-                targetNodeLinkCacheTime.put(eventAction.toString(),System.currentTimeMillis());
-            }
+        return findLinkedNodesFor(eventAction, false);
+    }
+
+    /**
+     * Nodes on the other side of the node group links for my group, taken from
+     * the node snapshot and indexed per link direction, action and configuration
+     * version.
+     */
+    protected List<Node> findLinkedNodesFor(final NodeGroupLinkAction eventAction, final boolean source) {
+        final Node identity = findIdentity();
+        if (identity != null) {
+            final IConfigurationService configurationService = engine.getConfigurationService();
+            String key = (source ? "source-" : "target-") + eventAction.name() + "-"
+                    + configurationService.getConfigurationVersion();
+            List<Node> list = getNodeSnapshot().getLinkedNodes(key, new NodeCache.ILinkedNodesBuilder() {
+                public List<Node> buildLinkedNodes(NodeCache.Snapshot snapshot) {
+                    List<Node> nodes = new ArrayList<Node>();
+                    Set<String> nodeGroupIds = new HashSet<String>();
+                    for (NodeGroupLink link : configurationService.getNodeGroupLinks(false)) {
+                        String myNodeGroupId = source ? link.getTargetNodeGroupId() : link.getSourceNodeGroupId();
+                        String otherNodeGroupId = source ? link.getSourceNodeGroupId() : link.getTargetNodeGroupId();
+                        if (identity.getNodeGroupId().equals(myNodeGroupId)
+                                && (link.getDataEventAction() == eventAction || link.isReversible())
+                                && nodeGroupIds.add(otherNodeGroupId)) {
+                            for (Node node : snapshot.getNodesInGroup(otherNodeGroupId)) {
+                                if (!node.getNodeId().equals(identity.getNodeId())) {
+                                    nodes.add(node);
+                                }
+                            }
+                        }
+                    }
+                    return nodes;
+                }
+            });
             return new ArrayList<Node>(list);
         } else {
             return Collections.emptyList();
@@ -404,8 +419,7 @@ public class NodeService extends AbstractService implements INodeService {
     }
 
     public void flushNodeGroupCache() {
-        sourceNodesCache = new HashMap<String, List<Node>>();
-        targetNodesCache = new HashMap<String, List<Node>>();
+        nodeCache.clearLinkIndex();
     }
 
     public List<String> findAllExternalIds() {
@@ -61,7 +61,7 @@ public class OutgoingBatchServiceSqlMap extends AbstractSqlMap {
                         + "  load_row_count=?, load_insert_row_count=?, load_update_row_count=?, load_delete_row_count=?, "
                         + "  fallback_insert_count=?, fallback_update_count=?, ignore_row_count=?, missing_delete_count=?, "
                         + "  skip_count=?, extract_row_count=?, extract_insert_row_count=?, extract_update_row_count=?, extract_delete_row_count=?, "
-                        + "  transform_extract_millis=?, transform_load_millis=? "
+                        + "  transform_extract_millis=?, transform_load_millis=?, min_capture_time=?, max_capture_time=?, lag_millis=? "
                         + "  where batch_id=? and node_id=?                    ");
 
         putSql("updateOutgoingBatchStatusSql",
@@ -78,6 +78,10 @@ public class OutgoingBatchServiceSqlMap extends AbstractSqlMap {
 
         putSql("findOutgoingBatchByIdOnlySql", "where batch_id=? ");
 
+        putSql("findOutgoingBatchesSql", "where node_id=:NODE_ID and batch_id in (:BATCH_IDS) ");
+
+        putSql("findOutgoingBatchesByIdOnlySql", "where batch_id in (:BATCH_IDS) ");
+
         putSql("selectOutgoingBatchSql",
                 "where node_id = ? and status in (?, ?, ?, ?, ?, ?, ?, ?) order by batch_id asc   ");
 
@@ -115,7 +119,7 @@ public class OutgoingBatchServiceSqlMap extends AbstractSqlMap {
                         + "  b.sql_message, b.load_insert_row_count, b.load_update_row_count, b.load_delete_row_count, b.load_row_count, "
                         + "  b.extract_insert_row_count, b.extract_update_row_count, b.extract_delete_row_count, b.extract_row_count, "
                         + "  b.transform_extract_millis, b.transform_load_millis, b.fallback_insert_count, b.fallback_update_count, "
-                        + "  b.ignore_row_count, b.missing_delete_count, b.skip_count, "
+                        + "  b.ignore_row_count, b.missing_delete_count, b.skip_count, b.min_capture_time, b.max_capture_time, b.lag_millis, "
                         + "  b.failed_data_id, b.last_update_hostname, b.last_update_time, b.create_time, b.batch_id, b.extract_job_flag, "
                         + "  b.load_flag, b.error_flag, b.common_flag, b.load_id, b.create_by, b.summary from      "
                         + "  $(outgoing_batch) b                                                                                       ");
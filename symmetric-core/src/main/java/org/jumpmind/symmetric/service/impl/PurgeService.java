@@ -27,26 +27,53 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.time.DateUtils;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.sql.Row;
 import org.jumpmind.db.sql.mapper.StringMapper;
+import org.jumpmind.symmetric.SymmetricException;
+import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.common.TableConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.ext.IPurgeListener;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.stage.IStagingManager;
+import org.jumpmind.symmetric.model.DataPartition;
 import org.jumpmind.symmetric.model.ExtractRequest;
 import org.jumpmind.symmetric.model.IncomingBatch;
 import org.jumpmind.symmetric.model.OutgoingBatch;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessInfo.ProcessStatus;
+import org.jumpmind.symmetric.model.ProcessInfoKey;
+import org.jumpmind.symmetric.model.ProcessType;
 import org.jumpmind.symmetric.model.RegistrationRequest;
 import org.jumpmind.symmetric.service.ClusterConstants;
 import org.jumpmind.symmetric.service.IClusterService;
 import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.IPurgeService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.util.CustomizableThreadFactory;
 
 /**
  * @see IPurgeService
@@ -54,7 +81,15 @@ import org.jumpmind.symmetric.statistic.IStatisticManager;
 public class PurgeService extends AbstractService implements IPurgeService {
 
     enum MinMaxDeleteSql {
-        DATA, DATA_RANGE, DATA_EVENT, DATA_EVENT_RANGE, OUTGOING_BATCH, OUTGOING_BATCH_RANGE, STRANDED_DATA, STRANDED_DATA_EVENT
+        DATA, DATA_RANGE, DATA_EVENT, DATA_EVENT_RANGE, OUTGOING_BATCH, OUTGOING_BATCH_RANGE, STRANDED_DATA, STRANDED_DATA_EVENT;
+
+        /**
+         * The cluster lock held while purging, which is refreshed during long
+         * purges. All of these tables are purged by the outgoing purge.
+         */
+        String getLock() {
+            return ClusterConstants.PURGE_OUTGOING;
+        }
     };
 
     private IClusterService clusterService;
@@ -62,11 +97,20 @@ public class PurgeService extends AbstractService implements IPurgeService {
     private IStatisticManager statisticManager;
 
     private IExtensionService extensionService;
+
+    private INodeService nodeService;
+
+    private IStagingManager stagingManager;
+
+    private static final long PURGE_BACK_OFF_BASELINE_MS = 100;
     
     public PurgeService(IParameterService parameterService, ISymmetricDialect symmetricDialect,
-            IClusterService clusterService, IStatisticManager statisticManager, IExtensionService extensionService) {
+            IClusterService clusterService, INodeService nodeService, IStatisticManager statisticManager,
+            IExtensionService extensionService, IStagingManager stagingManager) {
         super(parameterService, symmetricDialect);
         this.clusterService = clusterService;
+        this.nodeService = nodeService;
+        this.stagingManager = stagingManager;
         this.statisticManager = statisticManager;
         this.extensionService = extensionService;
         
@@ -119,6 +163,9 @@ public class PurgeService extends AbstractService implements IPurgeService {
                     rowsPurged += purgeOutgoingByRetentionCutoff(retentionCutoff);
                 } else {
                     rowsPurged += purgeStrandedBatches();
+                    if (getSymmetricDialect().supportsDataPartitions()) {
+                        rowsPurged += purgeDataPartitions(retentionCutoff);
+                    }
                     rowsPurged += purgeDataRows(retentionCutoff);
                     rowsPurged += purgeOutgoingBatch(retentionCutoff);
                     rowsPurged += purgeStranded(retentionCutoff);
@@ -248,6 +295,88 @@ public class PurgeService extends AbstractService implements IPurgeService {
         return rowsPurged;
     }
 
+    /*
+     * Drops whole partitions of data and data_event when all of their rows
+     * are older than the retention cutoff and below the first data_id that is
+     * still needed, either by an outstanding batch or by a data gap. The
+     * partitions that are left are purged by deleting rows.
+     */
+    protected long purgeDataPartitions(final Calendar time) {
+        long maxDataId = sqlTemplateDirty.queryForLong(getSql("selectDataMaxSql"));
+        getSymmetricDialect().createDataPartitions(maxDataId);
+
+        log.info("Getting first data_id that cannot be purged by partition");
+        long purgeUpToId = Math.min(sqlTemplateDirty.queryForLong(getSql("minDataGapStartId")), maxDataId);
+        long minDataId = sqlTemplateDirty.queryForLong(getSql("selectDataEventMinNotStatusSql"),
+                OutgoingBatch.Status.OK.name());
+        if (minDataId > 0) {
+            purgeUpToId = Math.min(purgeUpToId, minDataId);
+        }
+
+        String dataTable = TableConstants.getTableName(getTablePrefix(), TableConstants.SYM_DATA);
+        String dataEventTable = TableConstants.getTableName(getTablePrefix(), TableConstants.SYM_DATA_EVENT);
+        Map<Long, DataPartition> dataEventPartitions = new HashMap<Long, DataPartition>();
+        for (DataPartition partition : getSymmetricDialect().getDataPartitions(dataEventTable)) {
+            dataEventPartitions.put(partition.getStartId(), partition);
+        }
+
+        long dataDeletedCount = 0;
+        long dataEventDeletedCount = 0;
+        for (DataPartition dataPartition : getSymmetricDialect().getDataPartitions(dataTable)) {
+            DataPartition dataEventPartition = dataEventPartitions.get(dataPartition.getStartId());
+            if (dataPartition.getEndId() > purgeUpToId || dataEventPartition == null
+                    || dataEventPartition.getEndId() != dataPartition.getEndId()) {
+                break;
+            }
+            Row dataSummary = queryForPartitionSummary(dataPartition);
+            Row dataEventSummary = queryForPartitionSummary(dataEventPartition);
+            if (!isBefore(dataPartition, dataSummary, time) || !isBefore(dataEventPartition, dataEventSummary, time)) {
+                break;
+            }
+            log.info("Dropping partitions {} and {} for data ids {} through {}", new Object[] { dataEventPartition.getPartitionName(),
+                    dataPartition.getPartitionName(), dataPartition.getStartId(), dataPartition.getEndId() - 1 });
+            getSymmetricDialect().dropDataPartition(dataEventPartition);
+            dataEventDeletedCount += getDataIdCount(dataEventSummary);
+            getSymmetricDialect().dropDataPartition(dataPartition);
+            dataDeletedCount += getDataIdCount(dataSummary);
+        }
+
+        statisticManager.incrementPurgedDataEventRows(dataEventDeletedCount);
+        statisticManager.incrementPurgedDataRows(dataDeletedCount);
+        log.info("Done purging {} data and {} data event rows by partition", dataDeletedCount, dataEventDeletedCount);
+        return dataDeletedCount + dataEventDeletedCount;
+    }
+
+    /*
+     * Reads the lowest and highest data_id of a partition from the primary
+     * key instead of scanning the partition.  The counts reported for dropped
+     * partitions are the number of data ids they held.
+     */
+    private Row queryForPartitionSummary(DataPartition partition) {
+        return sqlTemplateDirty.queryForRow(String.format(getSql("selectPartitionSummarySql"), partition.getPartitionName()));
+    }
+
+    /*
+     * Data ids are handed out in order, so the rows with the highest data_id
+     * in a partition are also its newest ones.
+     */
+    private boolean isBefore(DataPartition partition, Row summary, Calendar time) {
+        if (summary == null || summary.get("max_data_id") == null) {
+            return true;
+        }
+        Date maxCreateTime = sqlTemplateDirty.queryForObject(
+                String.format(getSql("selectPartitionMaxCreateTimeSql"), partition.getPartitionName()), Date.class,
+                summary.getLong("max_data_id"));
+        return maxCreateTime == null || maxCreateTime.before(time.getTime());
+    }
+
+    private long getDataIdCount(Row summary) {
+        if (summary == null || summary.get("max_data_id") == null) {
+            return 0;
+        }
+        return summary.getLong("max_data_id") - summary.getLong("min_data_id") + 1;
+    }
+
     private long purgeDataRows(final Calendar time) {
         log.info("Getting range for data");
         long[] minMax = queryForMinMax(getSql("selectDataRangeSql"), new Object[0]);
@@ -360,94 +489,211 @@ public class PurgeService extends AbstractService implements IPurgeService {
         return count;
     }
 
-    private int purgeByMinMax(long[] minMax, long minGapStartId, MinMaxDeleteSql identifier, Date retentionTime,
+    protected int purgeByMinMax(long[] minMax, long minGapStartId, MinMaxDeleteSql identifier, Date retentionTime,
             int maxNumtoPurgeinTx) {
         long minId = minMax[0];
         long purgeUpToId = minMax[1];
         long ts = System.currentTimeMillis();
         int totalCount = 0;
         int totalDeleteStmts = 0;
-        int idSqlType = symmetricDialect.getSqlTypeForIds();
         Timestamp cutoffTime = new Timestamp(retentionTime.getTime());
         log.info("About to purge {} using range {} through {}", identifier.toString().toLowerCase(), minMax[0], minMax[1]);
-        
-        while (minId <= purgeUpToId) {
-            totalDeleteStmts++;
-            long maxId = minId + maxNumtoPurgeinTx;
-            if (maxId > purgeUpToId) {
-                maxId = purgeUpToId;
-            }
 
-            String deleteSql = null;
-            Object[] args = null;
-            int[] argTypes = null;
-
-            switch (identifier) {
-                case DATA:
-                    deleteSql = getSql("deleteDataSql");
-                    args = new Object[] { minId, maxId, cutoffTime, minId, maxId, minId, maxId,
-                            OutgoingBatch.Status.OK.name() };
-                    argTypes = new int[] { idSqlType, idSqlType, Types.TIMESTAMP, 
-                            idSqlType, idSqlType, idSqlType, idSqlType, Types.VARCHAR};
-                    break;
-                case DATA_RANGE:
-                case STRANDED_DATA:
-                    deleteSql = getSql("deleteDataByRangeSql");
-                    args = new Object[] { minId, maxId, cutoffTime };
-                    argTypes = new int[] { idSqlType, idSqlType, Types.TIMESTAMP };
-                    break;
-                case DATA_EVENT:
-                    deleteSql = getSql("deleteDataEventSql");
-                    args = new Object[] { minId, maxId, OutgoingBatch.Status.OK.name(), minId,
-                            maxId };
-                    argTypes = new int[] { idSqlType, idSqlType, Types.VARCHAR, idSqlType, idSqlType};
-
-                    break;
-                case DATA_EVENT_RANGE:
-                    deleteSql = getSql("deleteDataEventByRangeSql");
-                    args = new Object[] { minId, maxId };
-                    argTypes = new int[] { idSqlType, idSqlType };
-                    break;
-                case OUTGOING_BATCH:
-                    deleteSql = getSql("deleteOutgoingBatchSql");
-                    args = new Object[] { OutgoingBatch.Status.OK.name(), minId, maxId, minId,
-                            maxId };
-                    argTypes = new int[] {Types.VARCHAR, idSqlType, idSqlType, idSqlType, idSqlType};
-
-                    break;
-                case OUTGOING_BATCH_RANGE:
-                    deleteSql = getSql("deleteOutgoingBatchByRangeSql");
-                    args = new Object[] { minId, maxId };
-                    argTypes = new int[] { idSqlType, idSqlType };
-                    break;
-                case STRANDED_DATA_EVENT:
-                    deleteSql = getSql("deleteStrandedDataEvent");
-                    args = new Object[] { minId, maxId, cutoffTime };
-                    argTypes = new int[] { idSqlType, idSqlType, Types.TIMESTAMP };
-                    break;
-            }
+        ProcessInfo processInfo = statisticManager.newProcessInfo(new ProcessInfoKey(nodeService.findIdentityNodeId(),
+                identifier.toString().toLowerCase(), null, ProcessType.PURGE));
+        processInfo.setStatus(ProcessStatus.PROCESSING);
+        processInfo.setCurrentTableName(identifier.toString().toLowerCase());
+        processInfo.setTotalDataCount(purgeUpToId >= minId ? purgeUpToId - minId + 1 : 0);
+        try {
+            int workerThreads = parameterService.getInt(ParameterConstants.PURGE_WORKER_THREADS, 1);
+            if (workerThreads > 1 && identifier != MinMaxDeleteSql.STRANDED_DATA
+                    && identifier != MinMaxDeleteSql.STRANDED_DATA_EVENT
+                    && purgeUpToId - minId > maxNumtoPurgeinTx) {
+                totalCount = purgeByMinMaxInParallel(minId, purgeUpToId, identifier, cutoffTime, maxNumtoPurgeinTx,
+                        workerThreads, processInfo);
+            } else {
+                while (minId <= purgeUpToId) {
+                    totalDeleteStmts++;
+                    long maxId = minId + maxNumtoPurgeinTx;
+                    if (maxId > purgeUpToId) {
+                        maxId = purgeUpToId;
+                    }
 
-            log.debug("Running the following statement: {} with the following arguments: {}", deleteSql, Arrays.toString(args));
-            int count = sqlTemplate.update(deleteSql, args, argTypes);
-            log.debug("Deleted {} rows", count);
-            totalCount += count;
+                    int count = purgeRange(identifier, minId, maxId, cutoffTime);
+                    totalCount += count;
+                    processInfo.setCurrentDataCount(maxId - minMax[0] + 1);
 
-            if (count == 0 && (identifier == MinMaxDeleteSql.STRANDED_DATA || identifier == MinMaxDeleteSql.STRANDED_DATA_EVENT)) {
-                break;
-            }
+                    if (count == 0 && (identifier == MinMaxDeleteSql.STRANDED_DATA || identifier == MinMaxDeleteSql.STRANDED_DATA_EVENT)) {
+                        break;
+                    }
 
-            if (System.currentTimeMillis() - ts > DateUtils.MILLIS_PER_MINUTE * 5) {
-                log.info("Purged {} of {} rows so far using {} statements", new Object[] {
-                        totalCount, identifier.toString().toLowerCase(), totalDeleteStmts });
-                ts = System.currentTimeMillis();
-                clusterService.refreshLock(ClusterConstants.PURGE_OUTGOING);
+                    if (System.currentTimeMillis() - ts > DateUtils.MILLIS_PER_MINUTE * 5) {
+                        log.info("Purged {} of {} rows so far using {} statements", new Object[] {
+                                totalCount, identifier.toString().toLowerCase(), totalDeleteStmts });
+                        ts = System.currentTimeMillis();
+                        clusterService.refreshLock(identifier.getLock());
+                    }
+                    minId = maxId + 1;
+                }
             }
-            minId = maxId + 1;
+            processInfo.setStatus(ProcessStatus.OK);
+        } catch (RuntimeException ex) {
+            processInfo.setStatus(ProcessStatus.ERROR);
+            throw ex;
         }
         log.info("Done purging {} of {} rows", totalCount, identifier.toString().toLowerCase());
         return totalCount;
     }
 
+    /**
+     * Splits the range into the same windows as a single threaded purge and
+     * hands them out to a pool of workers, each deleting with its own
+     * connection. A worker pauses after a delete that took more than twice as
+     * long as the fastest delete so far, so that the workers slow down
+     * together when the database is under pressure. The first worker to fail
+     * stops the others and its error is thrown right away.
+     */
+    private int purgeByMinMaxInParallel(long minId, final long purgeUpToId, final MinMaxDeleteSql identifier,
+            final Timestamp cutoffTime, final int maxNumtoPurgeinTx, int workerThreads, final ProcessInfo processInfo) {
+        final long firstId = minId;
+        final AtomicLong nextMinId = new AtomicLong(minId);
+        final AtomicLong purgedUpToCount = new AtomicLong();
+        final AtomicInteger totalCount = new AtomicInteger();
+        final AtomicInteger totalDeleteStmts = new AtomicInteger();
+        final AtomicLong fastestDeleteMs = new AtomicLong(Long.MAX_VALUE);
+        final AtomicBoolean stopped = new AtomicBoolean();
+        log.info("Purging {} with {} worker threads", identifier.toString().toLowerCase(), workerThreads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerThreads, new CustomizableThreadFactory(
+                String.format("%s-purge-%s", parameterService.getEngineName().toLowerCase(),
+                        identifier.toString().toLowerCase())));
+        CompletionService<Object> completionService = new ExecutorCompletionService<Object>(executor);
+        for (int i = 0; i < workerThreads; i++) {
+            completionService.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    try {
+                        long windowMinId = nextMinId.getAndAdd(maxNumtoPurgeinTx + 1);
+                        while (windowMinId <= purgeUpToId && !stopped.get() && !Thread.currentThread().isInterrupted()) {
+                            long windowMaxId = Math.min(windowMinId + maxNumtoPurgeinTx, purgeUpToId);
+                            long startTime = System.currentTimeMillis();
+                            totalCount.addAndGet(purgeRange(identifier, windowMinId, windowMaxId, cutoffTime));
+                            totalDeleteStmts.incrementAndGet();
+                            processInfo.setCurrentDataCount(purgedUpToCount.addAndGet(windowMaxId - windowMinId + 1));
+                            backOff(System.currentTimeMillis() - startTime, fastestDeleteMs);
+                            windowMinId = nextMinId.getAndAdd(maxNumtoPurgeinTx + 1);
+                        }
+                    } catch (Exception ex) {
+                        stopped.set(true);
+                        throw ex;
+                    }
+                    return null;
+                }
+            });
+        }
+        executor.shutdown();
+
+        try {
+            long ts = System.currentTimeMillis();
+            int finishedWorkers = 0;
+            while (finishedWorkers < workerThreads) {
+                Future<Object> future = completionService.poll(1, TimeUnit.MINUTES);
+                if (future != null) {
+                    future.get();
+                    finishedWorkers++;
+                }
+                if (System.currentTimeMillis() - ts > DateUtils.MILLIS_PER_MINUTE * 5) {
+                    log.info("Purged {} of {} rows so far using {} statements, up through id {} of {} to {}", new Object[] {
+                            totalCount.get(), identifier.toString().toLowerCase(), totalDeleteStmts.get(),
+                            Math.min(nextMinId.get() - 1, purgeUpToId), firstId, purgeUpToId });
+                    ts = System.currentTimeMillis();
+                    clusterService.refreshLock(identifier.getLock());
+                }
+            }
+        } catch (InterruptedException ex) {
+            stopped.set(true);
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while purging " + identifier.toString().toLowerCase());
+        } catch (ExecutionException ex) {
+            stopped.set(true);
+            executor.shutdownNow();
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new SymmetricException("Failed to purge " + identifier.toString().toLowerCase(), ex.getCause());
+        }
+        return totalCount.get();
+    }
+
+    private void backOff(long deleteMs, AtomicLong fastestDeleteMs) throws InterruptedException {
+        long fastest = fastestDeleteMs.get();
+        while (deleteMs < fastest && !fastestDeleteMs.compareAndSet(fastest, deleteMs)) {
+            fastest = fastestDeleteMs.get();
+        }
+        long baselineMs = Math.max(fastestDeleteMs.get(), PURGE_BACK_OFF_BASELINE_MS);
+        if (deleteMs > baselineMs * 2) {
+            log.debug("Delete took {} ms compared to {} ms, so pausing before the next delete", deleteMs, baselineMs);
+            Thread.sleep(deleteMs - baselineMs);
+        }
+    }
+
+    private int purgeRange(MinMaxDeleteSql identifier, long minId, long maxId, Timestamp cutoffTime) {
+        int idSqlType = symmetricDialect.getSqlTypeForIds();
+        String deleteSql = null;
+        Object[] args = null;
+        int[] argTypes = null;
+
+        switch (identifier) {
+            case DATA:
+                deleteSql = getSql("deleteDataSql");
+                args = new Object[] { minId, maxId, cutoffTime, minId, maxId, minId, maxId,
+                        OutgoingBatch.Status.OK.name() };
+                argTypes = new int[] { idSqlType, idSqlType, Types.TIMESTAMP, 
+                        idSqlType, idSqlType, idSqlType, idSqlType, Types.VARCHAR};
+                break;
+            case DATA_RANGE:
+            case STRANDED_DATA:
+                deleteSql = getSql("deleteDataByRangeSql");
+                args = new Object[] { minId, maxId, cutoffTime };
+                argTypes = new int[] { idSqlType, idSqlType, Types.TIMESTAMP };
+                break;
+            case DATA_EVENT:
+                deleteSql = getSql("deleteDataEventSql");
+                args = new Object[] { minId, maxId, OutgoingBatch.Status.OK.name(), minId,
+                        maxId };
+                argTypes = new int[] { idSqlType, idSqlType, Types.VARCHAR, idSqlType, idSqlType};
+
+                break;
+            case DATA_EVENT_RANGE:
+                deleteSql = getSql("deleteDataEventByRangeSql");
+                args = new Object[] { minId, maxId };
+                argTypes = new int[] { idSqlType, idSqlType };
+                break;
+            case OUTGOING_BATCH:
+                deleteSql = getSql("deleteOutgoingBatchSql");
+                args = new Object[] { OutgoingBatch.Status.OK.name(), minId, maxId, minId,
+                        maxId };
+                argTypes = new int[] {Types.VARCHAR, idSqlType, idSqlType, idSqlType, idSqlType};
+
+                break;
+            case OUTGOING_BATCH_RANGE:
+                deleteSql = getSql("deleteOutgoingBatchByRangeSql");
+                args = new Object[] { minId, maxId };
+                argTypes = new int[] { idSqlType, idSqlType };
+                break;
+            case STRANDED_DATA_EVENT:
+                deleteSql = getSql("deleteStrandedDataEvent");
+                args = new Object[] { minId, maxId, cutoffTime };
+                argTypes = new int[] { idSqlType, idSqlType, Types.TIMESTAMP };
+                break;
+        }
+
+        log.debug("Running the following statement: {} with the following arguments: {}", deleteSql, Arrays.toString(args));
+        int count = sqlTemplate.update(deleteSql, args, argTypes);
+        log.debug("Deleted {} rows", count);
+        return count;
+    }
+
     public long purgeIncoming(Calendar retentionCutoff, boolean force) {
         long purgedRowCount = 0;
         try {
@@ -494,53 +740,90 @@ public class PurgeService extends AbstractService implements IPurgeService {
         return rowCount;
     }
 
-    private long purgeIncomingBatch(final Calendar time) {
-        log.info("Getting range for incoming batch");
-        List<NodeBatchRange> nodeBatchRangeList = sqlTemplateDirty.query(
-                getSql("selectIncomingBatchRangeSql"), new ISqlRowMapper<NodeBatchRange>() {
-                    public NodeBatchRange mapRow(Row rs) {
-                        return new NodeBatchRange(rs.getString("node_id"), rs.getLong("min_id"), rs
-                                .getLong("max_id"));
-                    }
-                }, time.getTime(), IncomingBatch.Status.OK.name());
-        int incomingBatchesPurgedCount = purgeByNodeBatchRangeList(nodeBatchRangeList);
-        statisticManager.incrementPurgedBatchIncomingRows(incomingBatchesPurgedCount);
-        return incomingBatchesPurgedCount;
-    }
-
-    private int purgeByNodeBatchRangeList(List<NodeBatchRange> nodeBatchRangeList) {
+    /*
+     * Walks the completed incoming batches that are older than the retention
+     * cutoff in primary key order, a chunk at a time. Each chunk deletes the
+     * incoming errors and incoming batches together in one transaction and
+     * then deletes the staging files of the batches by their paths, so the
+     * staging directory does not have to be listed to find them.  Common
+     * batches are staged under the common location instead of the node id.
+     */
+    protected long purgeIncomingBatch(final Calendar time) {
         long ts = System.currentTimeMillis();
+        int maxNumOfBatchIdsToPurgeInTx = parameterService.getInt(ParameterConstants.PURGE_MAX_NUMBER_OF_BATCH_IDS);
+        String status = IncomingBatch.Status.OK.name();
+        long lastBatchId = -1;
+        String lastNodeId = "";
         int totalCount = 0;
-        int totalDeleteStmts = 0;
+        int errorCount = 0;
+        int stagingCount = 0;
+        List<Row> batches = null;
         log.info("About to purge incoming batch");
 
-        for (NodeBatchRange nodeBatchRange : nodeBatchRangeList) {
-            int maxNumOfDataIdsToPurgeInTx = parameterService
-                    .getInt(ParameterConstants.PURGE_MAX_NUMBER_OF_BATCH_IDS);
-            long minBatchId = nodeBatchRange.getMinBatchId();
-            long purgeUpToBatchId = nodeBatchRange.getMaxBatchId();
-
-            while (minBatchId <= purgeUpToBatchId) {
-                totalDeleteStmts++;
-                long maxBatchId = minBatchId + maxNumOfDataIdsToPurgeInTx;
-                if (maxBatchId > purgeUpToBatchId) {
-                    maxBatchId = purgeUpToBatchId;
+        do {
+            batches = sqlTemplateDirty.query(getSql("selectIncomingBatchToPurgeSql"), maxNumOfBatchIdsToPurgeInTx,
+                    new ISqlRowMapper<Row>() {
+                        public Row mapRow(Row row) {
+                            return row;
+                        }
+                    }, time.getTime(), status, lastBatchId, lastBatchId, lastNodeId);
+
+            if (batches.size() > 0) {
+                ISqlTransaction transaction = null;
+                try {
+                    transaction = sqlTemplate.startSqlTransaction();
+                    transaction.setInBatchMode(true);
+                    int[] types = new int[] { symmetricDialect.getSqlTypeForIds(), Types.VARCHAR };
+                    transaction.prepare(getSql("deleteIncomingErrorByBatchSql"));
+                    for (Row batch : batches) {
+                        transaction.addRow(batch, new Object[] { batch.getLong("batch_id"), batch.getString("node_id") }, types);
+                    }
+                    types = new int[] { symmetricDialect.getSqlTypeForIds(), Types.VARCHAR, Types.CHAR };
+                    errorCount += transaction.flush();
+                    transaction.prepare(getSql("deleteIncomingBatchSql"));
+                    for (Row batch : batches) {
+                        transaction.addRow(batch, new Object[] { batch.getLong("batch_id"), batch.getString("node_id"), status },
+                                types);
+                    }
+                    totalCount += transaction.flush();
+                    transaction.commit();
+                } catch (Error ex) {
+                    if (transaction != null) {
+                        transaction.rollback();
+                    }
+                    throw ex;
+                } catch (RuntimeException ex) {
+                    if (transaction != null) {
+                        transaction.rollback();
+                    }
+                    throw ex;
+                } finally {
+                    close(transaction);
                 }
-                totalCount += sqlTemplate.update(getSql("deleteIncomingBatchSql"),
-                        new Object[] { minBatchId, maxBatchId, nodeBatchRange.getNodeId(),
-                                IncomingBatch.Status.OK.name() });
-                minBatchId = maxBatchId + 1;
+
+                for (Row batch : batches) {
+                    if (stagingManager.delete(Constants.STAGING_CATEGORY_INCOMING,
+                            Batch.getStagedLocation(batch.getBoolean("common_flag"), batch.getString("node_id")),
+                            batch.getLong("batch_id"))) {
+                        stagingCount++;
+                    }
+                }
+
+                Row lastBatch = batches.get(batches.size() - 1);
+                lastBatchId = lastBatch.getLong("batch_id");
+                lastNodeId = lastBatch.getString("node_id");
             }
 
-            if (totalCount > 0
-                    && (System.currentTimeMillis() - ts > DateUtils.MILLIS_PER_MINUTE * 5)) {
-                log.info("Purged {} incoming batch rows so far using {} statements", new Object[] {
-                        totalCount, totalDeleteStmts });
+            if (totalCount > 0 && (System.currentTimeMillis() - ts > DateUtils.MILLIS_PER_MINUTE * 5)) {
+                log.info("Purged {} incoming batch rows so far", totalCount);
                 ts = System.currentTimeMillis();
             }
-        }
-        log.info("Done purging {} incoming batch rows", totalCount);
-        return totalCount;
+        } while (batches.size() >= maxNumOfBatchIdsToPurgeInTx);
+
+        log.info("Done purging {} incoming batch rows, {} incoming error rows and {} staging files", 
+                new Object[] { totalCount, errorCount, stagingCount });
+        statisticManager.incrementPurgedBatchIncomingRows(totalCount);
+        return totalCount + errorCount;
     }
     
     public void purgeStats(boolean force) {
@@ -555,6 +838,8 @@ public class PurgeService extends AbstractService implements IPurgeService {
                         retentionCutoff.getTime());
                 purgedCount += sqlTemplate.update(getSql("purgeNodeHostJobStatsSql"),
                         retentionCutoff.getTime());
+                purgedCount += sqlTemplate.update(getSql("purgeNodeHostStageStatsSql"),
+                        retentionCutoff.getTime());
                 if (purgedCount > 0) {
                     log.debug("{} stats rows were purged", purgedCount);
                 }
@@ -566,32 +851,6 @@ public class PurgeService extends AbstractService implements IPurgeService {
         }
     }
 
-    static class NodeBatchRange {
-        private String nodeId;
-
-        private long minBatchId;
-
-        private long maxBatchId;
-
-        public NodeBatchRange(String nodeId, long minBatchId, long maxBatchId) {
-            this.nodeId = nodeId;
-            this.minBatchId = minBatchId;
-            this.maxBatchId = maxBatchId;
-        }
-
-        public String getNodeId() {
-            return nodeId;
-        }
-
-        public long getMaxBatchId() {
-            return maxBatchId;
-        }
-
-        public long getMinBatchId() {
-            return minBatchId;
-        }
-    }
-
     public void purgeAllIncomingEventsForNode(String nodeId) {
         int count = sqlTemplate.update(getSql("deleteIncomingBatchByNodeSql"),
                 new Object[] { nodeId });
@@ -71,6 +71,12 @@ public class PurgeServiceSqlMap extends AbstractSqlMap {
         
         putSql("selectDataMinSql", "select min(data_id) from $(data)");
 
+        putSql("selectDataMaxSql", "select max(data_id) from $(data)");
+
+        putSql("selectPartitionSummarySql", "select min(data_id) as min_data_id, max(data_id) as max_data_id from %s");
+
+        putSql("selectPartitionMaxCreateTimeSql", "select max(create_time) from %s where data_id = ?");
+
         putSql("deleteDataSql" ,
 "delete from $(data) where                                       " + 
 "  data_id between ? and ? and                                   " + 
@@ -86,13 +92,15 @@ public class PurgeServiceSqlMap extends AbstractSqlMap {
 "  (select batch_id from $(outgoing_batch) where                 " + 
 "  status != ?)))                                  " );
 
-        putSql("selectIncomingBatchRangeSql" ,
-"select node_id, min(batch_id) as min_id, max(batch_id) as max_id from $(incoming_batch) where   " + 
-"  create_time < ? and status = ? group by node_id                                               " );
+        putSql("selectIncomingBatchToPurgeSql" ,
+"select batch_id, node_id, common_flag from $(incoming_batch) where create_time < ? and status = ?   " + 
+"  and (batch_id > ? or (batch_id = ? and node_id > ?)) order by batch_id, node_id                 " );
 
         putSql("deleteIncomingBatchSql" ,
-"delete from $(incoming_batch) where batch_id between ? and ? and node_id = ? and status = ?" );
+"delete from $(incoming_batch) where batch_id = ? and node_id = ? and status = ?" );
         
+        putSql("deleteIncomingErrorByBatchSql", "delete from $(incoming_error) where batch_id = ? and node_id = ?");
+
         putSql("deleteIncomingErrorsSql", "delete from $(incoming_error) where batch_id not in (select batch_id from $(incoming_batch))");
 
         putSql("deleteFromDataGapsSql" ,
@@ -106,6 +114,7 @@ public class PurgeServiceSqlMap extends AbstractSqlMap {
         putSql("purgeNodeHostStatsSql", "delete from $(node_host_stats) where start_time < ?");
                 
         putSql("purgeNodeHostJobStatsSql", "delete from $(node_host_job_stats) where start_time < ?");
+        putSql("purgeNodeHostStageStatsSql", "delete from $(node_host_stage_stats) where start_time < ?");
         
         putSql("selectIncomingErrorsBatchIdsSql", "select distinct e.batch_id as batch_id from $(incoming_error) e LEFT OUTER JOIN $(incoming_batch) i ON e.batch_id = i.batch_id where i.batch_id IS NULL");
         
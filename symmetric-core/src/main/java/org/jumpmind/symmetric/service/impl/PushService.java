@@ -20,10 +20,15 @@
  */
 package org.jumpmind.symmetric.service.impl;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.symmetric.common.ParameterConstants;
@@ -80,6 +85,8 @@ public class PushService extends AbstractOfflineDetectorService implements IPush
 
     private Map<String, Date> startTimesOfNodesBeingPushedTo = new HashMap<String, Date>();
 
+    private Set<String> pendingNodeIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     public PushService(IParameterService parameterService, ISymmetricDialect symmetricDialect,
             IDataExtractorService dataExtractorService, IAcknowledgeService acknowledgeService,
             ITransportManager transportManager, INodeService nodeService,
@@ -100,8 +107,27 @@ public class PushService extends AbstractOfflineDetectorService implements IPush
         return new HashMap<String, Date>(startTimesOfNodesBeingPushedTo);
     }
 
-    synchronized public RemoteNodeStatuses pushData(boolean force) {
+    public void addPendingNodes(Collection<String> nodeIds) {
+        pendingNodeIds.addAll(nodeIds);
+    }
+
+    public RemoteNodeStatuses pushPendingData() {
+        Set<String> nodeIds = new HashSet<String>(pendingNodeIds);
+        pendingNodeIds.removeAll(nodeIds);
+        if (nodeIds.size() > 0) {
+            return pushData(false, nodeIds);
+        } else {
+            return new RemoteNodeStatuses(configurationService.getChannels(false));
+        }
+    }
+
+    public RemoteNodeStatuses pushData(boolean force) {
+        return pushData(force, null);
+    }
+
+    synchronized protected RemoteNodeStatuses pushData(boolean force, Set<String> nodeIds) {
         RemoteNodeStatuses statuses = new RemoteNodeStatuses(configurationService.getChannels(false));
+        Set<String> unpushedNodeIds = nodeIds != null ? new HashSet<String>(nodeIds) : null;
         
         Node identity = nodeService.findIdentity();
         if (identity != null && identity.isSyncEnabled()) {
@@ -114,18 +140,30 @@ public class PushService extends AbstractOfflineDetectorService implements IPush
                         if (identitySecurity != null) {
                             int availableThreads = nodeCommunicationService
                                     .getAvailableThreads(CommunicationType.PUSH);
+                            Set<String> skippedNodeIds = new HashSet<String>();
                             for (NodeCommunication nodeCommunication : nodes) {
+                                if (nodeIds != null && !nodeIds.contains(nodeCommunication.getNodeId())) {
+                                    continue;
+                                }
                                 boolean meetsMinimumTime = true;
                                 if (minimumPeriodMs > 0 && nodeCommunication.getLastLockTime() != null &&
                                    (System.currentTimeMillis() - nodeCommunication.getLastLockTime().getTime()) < minimumPeriodMs) {
                                    meetsMinimumTime = false; 
                                 }
+                                boolean executed = false;
                                 if (availableThreads > 0 && meetsMinimumTime) {
                                     if (nodeCommunicationService.execute(nodeCommunication, statuses,
                                             this)) {
                                         availableThreads--;
+                                        executed = true;
                                     }
                                 }
+                                if (!executed) {
+                                    skippedNodeIds.add(nodeCommunication.getNodeId());
+                                }
+                            }
+                            if (unpushedNodeIds != null) {
+                                unpushedNodeIds.retainAll(skippedNodeIds);
                             }
                         } else {
                             Node doubleCheckidentity = nodeService.findIdentity(false);
@@ -134,11 +172,17 @@ public class PushService extends AbstractOfflineDetectorService implements IPush
                                     identity.getNodeId());
                             }
                         }
+                    } else if (unpushedNodeIds != null) {
+                        unpushedNodeIds.clear();
                     }
             } else {
                 log.debug("Did not run the push process because it has been stopped");
             }
         }
+        if (unpushedNodeIds != null && unpushedNodeIds.size() > 0) {
+            /* Keep the nodes that were skipped for the next signaled push */
+            pendingNodeIds.addAll(unpushedNodeIds);
+        }
         return statuses;
     }
 
@@ -104,6 +104,7 @@ import org.jumpmind.symmetric.service.IExtensionService;
 import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IRouterService;
 import org.jumpmind.symmetric.service.ITriggerRouterService;
+import org.jumpmind.symmetric.statistic.LatencyStage;
 import org.jumpmind.symmetric.statistic.StatisticConstants;
 import org.jumpmind.util.FormatUtils;
 
@@ -847,6 +848,7 @@ public class RouterService extends AbstractService implements IRouterService {
                     context.getDataGaps(), null, batches);
         }
 
+        Set<String> routedNodeIds = new HashSet<String>(batches.size());
         for (OutgoingBatch batch : batches) {
             batch.setRouterMillis(System.currentTimeMillis() - batch.getCreateTime().getTime());
             for (IDataRouter dataRouter : usedRouters) {
@@ -856,6 +858,9 @@ public class RouterService extends AbstractService implements IRouterService {
                 batch.setStatus(Status.OK);
             } else {
                 batch.setStatus(Status.NE);
+                routedNodeIds.add(batch.getNodeId());
+                engine.getStatisticManager().addStageLatency(LatencyStage.ROUTE, batch.getChannelId(),
+                        batch.getRouterMillis());
             }
             engine.getOutgoingBatchService().updateOutgoingBatch(context.getSqlTransaction(), batch);
             context.getBatchesByNodes().remove(batch.getNodeId());
@@ -867,6 +872,16 @@ public class RouterService extends AbstractService implements IRouterService {
             dataRouter.contextCommitted(context);
         }
         context.setNeedsCommitted(false);
+
+        if (routedNodeIds.size() > 0 && engine.getConcurrentConnectionManager() != null) {
+            engine.getConcurrentConnectionManager().dataRouted(routedNodeIds, context.getChannel().getQueue());
+        }
+
+        if (routedNodeIds.size() > 0 && parameterService.is(ParameterConstants.JOB_SIGNAL_ENABLED)
+                && engine.getJobManager() != null) {
+            engine.getPushService().addPendingNodes(routedNodeIds);
+            engine.getJobManager().signalJob(ClusterConstants.PUSH);
+        }
     }
 
     protected Set<Node> findAvailableNodes(TriggerRouter triggerRouter, ChannelRouterContext context) {
@@ -38,6 +38,7 @@ import org.jumpmind.symmetric.statistic.HostStats;
 import org.jumpmind.symmetric.statistic.HostStatsByPeriodMap;
 import org.jumpmind.symmetric.statistic.JobStats;
 import org.jumpmind.symmetric.statistic.NodeStatsByPeriodMap;
+import org.jumpmind.symmetric.statistic.StageStats;
 
 /**
  * @see IStatisticService
@@ -78,6 +79,19 @@ public class StatisticService extends AbstractService implements IStatisticServi
                         Types.TIMESTAMP, Types.BIGINT, Types.VARCHAR, Types.INTEGER }); 
     }
     
+    public void save(StageStats stats) {
+        sqlTemplate.update(
+                getSql("insertStageStatsSql"),
+                new Object[] { stats.getNodeId(), stats.getHostName(), stats.getStage(),
+                        stats.getChannelId(), stats.getStartTime(), stats.getEndTime(),
+                        stats.getSampleCount(), stats.getTotalMillis(), stats.getMaxMillis(),
+                        stats.getP50Millis(), stats.getP90Millis(), stats.getP99Millis(),
+                        stats.getP999Millis() }, new int[] {
+                        Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+                        Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT, Types.BIGINT,
+                        Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT });
+    }
+
     public List<JobStats> getJobStatsForPeriod(Date start, Date end,
             String nodeId) {
         return sqlTemplate.query(getSql("selectChannelStatsSql"),
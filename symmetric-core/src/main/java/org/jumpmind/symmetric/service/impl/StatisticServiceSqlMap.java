@@ -100,6 +100,13 @@ public class StatisticServiceSqlMap extends AbstractSqlMap {
 "  processed_count, target_node_id, target_node_count)                              " + 
 "  values(?,?,?,?,?,?,?,?)                                    " );
 
+        putSql("insertStageStatsSql" ,"" + 
+"insert into $(node_host_stage_stats)                                  " + 
+"  (node_id, host_name, stage, channel_id, start_time, end_time,       " + 
+"  sample_count, total_millis, max_millis,                             " + 
+"  p50_millis, p90_millis, p99_millis, p999_millis)                    " + 
+"  values(?,?,?,?,?,?,?,?,?,?,?,?,?)                                   " );
+
         putSql("selectJobStatsSql" ,"" + 
 "select node_id, host_name, job_name, start_time, end_time,                         " + 
 "  processed_count                                                                  " + 
@@ -97,26 +97,36 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
     
     private IParameterService parameterService;
     
-    private Map<String, Router> routersCache;
+    private volatile Map<String, Router> routersCache;
 
     private long routersCacheTime;
 
-    private Map<String, Trigger> triggersCache;
+    private long routersCacheVersion;
+
+    private volatile Map<String, Trigger> triggersCache;
 
     private long triggersCacheTime;
+
+    private long triggersCacheVersion;
     
     private long triggerRoutersCacheTime;
 
-    private Map<String, TriggerRoutersCache> triggerRouterCacheByNodeGroupId = new HashMap<String, TriggerRoutersCache>();
+    private long triggerRoutersCacheVersion;
+
+    private volatile Map<String, TriggerRoutersCache> triggerRouterCacheByNodeGroupId = new HashMap<String, TriggerRoutersCache>();
 
-    private Map<String, List<TriggerRouter>> triggerRouterCacheByChannel = new HashMap<String, List<TriggerRouter>>();
+    private volatile Map<String, List<TriggerRouter>> triggerRouterCacheByChannel = new HashMap<String, List<TriggerRouter>>();
     
-    private List<TriggerRouter> triggerRoutersCache = new ArrayList<TriggerRouter>();
+    private volatile List<TriggerRouter> triggerRoutersCache = new ArrayList<TriggerRouter>();
 
     private long triggerRouterPerNodeCacheTime;
 
+    private long triggerRouterPerNodeCacheVersion;
+
     private long triggerRouterPerChannelCacheTime;
 
+    private long triggerRouterPerChannelCacheVersion;
+
     private TriggerFailureListener failureListener = new TriggerFailureListener();
 
     private IStatisticManager statisticManager;
@@ -714,10 +724,17 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                 .getLong(ParameterConstants.CACHE_TIMEOUT_TRIGGER_ROUTER_IN_MS);
         TriggerRoutersCache cache = triggerRouterCacheByNodeGroupId == null ? null
                 : triggerRouterCacheByNodeGroupId.get(myNodeGroupId);
-        if (cache == null
-                || refreshCache
-                || System.currentTimeMillis() - this.triggerRouterPerNodeCacheTime > triggerRouterCacheTimeoutInMs) {
+        if (cache == null || refreshCache || isConfigCacheStale(triggerRouterPerNodeCacheVersion,
+                configurationService.getConfigurationVersion(), triggerRouterPerNodeCacheTime,
+                triggerRouterCacheTimeoutInMs)) {
             synchronized (cacheLock) {
+                long version = configurationService.getConfigurationVersion();
+                cache = triggerRouterCacheByNodeGroupId == null ? null
+                        : triggerRouterCacheByNodeGroupId.get(myNodeGroupId);
+                if (cache != null && !refreshCache && !isConfigCacheStale(triggerRouterPerNodeCacheVersion,
+                        version, triggerRouterPerNodeCacheTime, triggerRouterCacheTimeoutInMs)) {
+                    return cache;
+                }
                 this.triggerRouterPerNodeCacheTime = System.currentTimeMillis();
                 Map<String, TriggerRoutersCache> newTriggerRouterCacheByNodeGroupId = new HashMap<String, TriggerRoutersCache>();
                 List<TriggerRouter> triggerRouters = getAllTriggerRoutersForCurrentNode(myNodeGroupId);
@@ -743,6 +760,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
 
                 newTriggerRouterCacheByNodeGroupId.put(myNodeGroupId, new TriggerRoutersCache(
                         triggerRoutersByTriggerId, routers));
+                this.triggerRouterPerNodeCacheVersion = version;
                 this.triggerRouterCacheByNodeGroupId = newTriggerRouterCacheByNodeGroupId;
                 cache = triggerRouterCacheByNodeGroupId == null ? null
                         : triggerRouterCacheByNodeGroupId.get(myNodeGroupId);
@@ -787,8 +805,10 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                 .getLong(ParameterConstants.CACHE_TIMEOUT_TRIGGER_ROUTER_IN_MS);
         Map<String, Trigger> cache = this.triggersCache;
         if (cache == null || !cache.containsKey(triggerId) || refreshCache
-                || (System.currentTimeMillis() - this.triggersCacheTime) > triggerCacheTimeoutInMs) {
+                || isConfigCacheStale(triggersCacheVersion, configurationService.getConfigurationVersion(),
+                        triggersCacheTime, triggerCacheTimeoutInMs)) {
             synchronized (cacheLock) {
+                long version = configurationService.getConfigurationVersion();
                 this.triggersCacheTime = System.currentTimeMillis();
                 List<Trigger> triggers = new ArrayList<Trigger>(getTriggers());
                 triggers.addAll(buildTriggersForSymmetricTables(Version.version()));
@@ -796,6 +816,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                 for (Trigger t : triggers) {
                     cache.put(t.getTriggerId(), t);
                 }
+                this.triggersCacheVersion = version;
                 this.triggersCache = cache;
             }
         }
@@ -814,15 +835,17 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         final long routerCacheTimeoutInMs = parameterService
                 .getLong(ParameterConstants.CACHE_TIMEOUT_TRIGGER_ROUTER_IN_MS);
         Map<String, Router> cache = this.routersCache;
-        if (cache == null || refreshCache
-                || System.currentTimeMillis() - this.routersCacheTime > routerCacheTimeoutInMs) {
+        if (cache == null || refreshCache || isConfigCacheStale(routersCacheVersion,
+                configurationService.getConfigurationVersion(), routersCacheTime, routerCacheTimeoutInMs)) {
             synchronized (cacheLock) {
+                long version = configurationService.getConfigurationVersion();
                 this.routersCacheTime = System.currentTimeMillis();
                 List<Router> routers = getRouters();
                 cache = new HashMap<String, Router>(routers.size());
                 for (Router router : routers) {
                     cache.put(router.getRouterId(), router);
                 }
+                this.routersCacheVersion = version;
                 this.routersCache = cache;
             }
         }
@@ -856,15 +879,17 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         long triggerRouterCacheTimeoutInMs = parameterService
                 .getLong(ParameterConstants.CACHE_TIMEOUT_TRIGGER_ROUTER_IN_MS);
         List<TriggerRouter> testValue = triggerRoutersCache;
-        if (testValue == null
-                || refreshCache
-                || System.currentTimeMillis() - this.triggerRoutersCacheTime > triggerRouterCacheTimeoutInMs) {
+        if (testValue == null || refreshCache || isConfigCacheStale(triggerRoutersCacheVersion,
+                configurationService.getConfigurationVersion(), triggerRoutersCacheTime,
+                triggerRouterCacheTimeoutInMs)) {
             synchronized (cacheLock) {
+                long version = configurationService.getConfigurationVersion();
                 List<TriggerRouter> newValue = enhanceTriggerRouters(sqlTemplate.query(
                         getTriggerRouterSql(null), new TriggerRouterMapper()));
+                triggerRoutersCacheTime = System.currentTimeMillis();
+                triggerRoutersCacheVersion = version;
                 triggerRoutersCache = newValue;
                 testValue = newValue;
-                triggerRoutersCacheTime = System.currentTimeMillis();
             }
         }
         return testValue;
@@ -928,13 +953,14 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         long triggerRouterCacheTimeoutInMs = parameterService
                 .getLong(ParameterConstants.CACHE_TIMEOUT_TRIGGER_ROUTER_IN_MS);
         Map<String, List<TriggerRouter>> testValue = triggerRouterCacheByChannel;
-        if (testValue == null
-                || refreshCache
-                || System.currentTimeMillis() - this.triggerRouterPerChannelCacheTime > triggerRouterCacheTimeoutInMs) {
+        if (testValue == null || refreshCache || isConfigCacheStale(triggerRouterPerChannelCacheVersion,
+                configurationService.getConfigurationVersion(), triggerRouterPerChannelCacheTime,
+                triggerRouterCacheTimeoutInMs)) {
             synchronized (cacheLock) {
                 testValue = triggerRouterCacheByChannel;
-                if (testValue == null || refreshCache
-                        || System.currentTimeMillis() - this.triggerRouterPerChannelCacheTime > triggerRouterCacheTimeoutInMs) {
+                long version = configurationService.getConfigurationVersion();
+                if (testValue == null || refreshCache || isConfigCacheStale(triggerRouterPerChannelCacheVersion,
+                        version, triggerRouterPerChannelCacheTime, triggerRouterCacheTimeoutInMs)) {
                     final  Map<String, List<TriggerRouter>> newValue = new HashMap<String, List<TriggerRouter>>();
                     this.triggerRouterPerChannelCacheTime = System.currentTimeMillis();
                     List<TriggerRouter> triggerRouters = enhanceTriggerRouters(sqlTemplate.query(
@@ -947,6 +973,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                         }
                         list.add(triggerRouter);                    	
                     }
+                    triggerRouterPerChannelCacheVersion = version;
                     triggerRouterCacheByChannel = newValue;
                     testValue = newValue;
                 }
@@ -1039,6 +1066,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
 
     protected void resetTriggerRouterCacheByNodeGroupId() {
         triggerRouterPerNodeCacheTime = 0;
+        triggerRouterPerNodeCacheVersion = -1;
     }
 
     public void saveRouter(Router router) {
@@ -1245,6 +1273,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
             this.routersCacheTime = 0;
             this.triggersCacheTime = 0;
         }
+        configurationService.incrementConfigurationVersion();
     }
 
     protected Set<String> getTriggerIdsFrom(List<Trigger> triggersThatShouldBeActive) {
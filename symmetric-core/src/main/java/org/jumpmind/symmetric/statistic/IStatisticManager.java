@@ -20,6 +20,8 @@
  */
 package org.jumpmind.symmetric.statistic;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -89,6 +91,8 @@ public interface IStatisticManager {
     
     public void incrementDataSentErrors(String channelId, long count);
     
+    public void addStageLatency(LatencyStage stage, String channelId, long millis);
+
     public void incrementRestart();
     
     public void incrementNodesPulled(long count);
@@ -124,6 +128,14 @@ public interface IStatisticManager {
     public Map<String, ChannelStats> getWorkingChannelStats();
     
     public HostStats getWorkingHostStats();
+
+    public List<StageStats> getWorkingStageStats();
+
+    public void writeSampledStacks(Writer writer) throws IOException;
+
+    public void clearSampledStacks();
+
+    public void stopProcessSampler();
     
     public TreeMap<Date, Map<String, ChannelStats>> getNodeStatsForPeriod(Date start, Date end, String nodeId, int periodSizeInMinutes);
         
@@ -0,0 +1,50 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+/**
+ * The stages a batch passes through on its way from the source to the target,
+ * each of which has its latency recorded by the {@link IStatisticManager}.
+ */
+public enum LatencyStage {
+
+    /** Time from the creation of an outgoing batch until routing committed it */
+    ROUTE,
+
+    /** Time spent extracting an outgoing batch */
+    EXTRACT,
+
+    /** Time spent sending an outgoing batch over the network */
+    TRANSFER,
+
+    /** Time spent loading an incoming batch */
+    LOAD,
+
+    /** Time from the creation of an outgoing batch until it was acknowledged */
+    ACK,
+
+    /**
+     * Time from the capture of the oldest change in an incoming batch at the
+     * source until the batch was loaded
+     */
+    LAG;
+
+}
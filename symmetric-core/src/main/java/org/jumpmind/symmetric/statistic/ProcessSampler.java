@@ -0,0 +1,184 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessInfo.ProcessStatus;
+import org.jumpmind.symmetric.model.ProcessType;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically captures the stack of each thread that is running a process
+ * and counts the samples by process type and current table. The counts are
+ * written as collapsed stacks, one "frame;frame;frame count" line per
+ * distinct stack, which is the input format of the common flame graph tools.
+ */
+public class ProcessSampler implements Runnable {
+
+    private static final int MAX_STACK_DEPTH = 100;
+
+    private static final int MAX_DISTINCT_STACKS = 10000;
+
+    private static final String NO_TABLE = "-";
+
+    private static final String TRUNCATED = "[truncated]";
+
+    protected Logger log = LoggerFactory.getLogger(getClass());
+
+    protected IParameterService parameterService;
+
+    protected Collection<ProcessInfo> processInfos;
+
+    protected Map<String, LongAdder> stacks = new ConcurrentHashMap<String, LongAdder>();
+
+    protected volatile Thread thread;
+
+    protected volatile boolean stopped = true;
+
+    public ProcessSampler(IParameterService parameterService, Collection<ProcessInfo> processInfos) {
+        this.parameterService = parameterService;
+        this.processInfos = processInfos;
+    }
+
+    /**
+     * Starts a new capture window. Samples from an earlier window are
+     * discarded so they do not crowd out the stacks of this one.
+     */
+    public synchronized void start() {
+        if (thread == null || !thread.isAlive()) {
+            clear();
+            stopped = false;
+            thread = new Thread(this, "process-sampler-" + parameterService.getEngineName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public synchronized void stop() {
+        stopped = true;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return !stopped;
+    }
+
+    public void run() {
+        log.info("Starting to sample the stacks of running processes");
+        while (!stopped && thread == Thread.currentThread()) {
+            try {
+                sample();
+            } catch (Exception e) {
+                log.warn("Failed to sample the stacks of running processes", e);
+            }
+
+            try {
+                Thread.sleep(parameterService.getLong(ParameterConstants.STATISTIC_SAMPLER_INTERVAL_MS, 100));
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        log.info("Stopped sampling the stacks of running processes");
+    }
+
+    protected void sample() {
+        for (ProcessInfo processInfo : processInfos) {
+            ProcessStatus status = processInfo.getStatus();
+            Thread processThread = processInfo.getThread();
+            if (status != ProcessStatus.OK && status != ProcessStatus.ERROR && processThread != null
+                    && processThread.isAlive()) {
+                addSample(processInfo.getProcessType(), processInfo.getCurrentTableName(),
+                        processThread.getStackTrace());
+            }
+        }
+    }
+
+    protected void addSample(ProcessType processType, String tableName, StackTraceElement[] trace) {
+        if (trace == null || trace.length == 0) {
+            return;
+        }
+
+        StringBuilder stack = new StringBuilder();
+        stack.append(processType.name()).append(';');
+        stack.append(tableName == null ? NO_TABLE : sanitize(tableName));
+        String prefix = stack.toString();
+
+        int depth = Math.min(trace.length, MAX_STACK_DEPTH);
+        for (int i = depth - 1; i >= 0; i--) {
+            stack.append(';').append(trace[i].getClassName()).append('.').append(trace[i].getMethodName());
+        }
+
+        String key = stack.toString();
+        LongAdder count = stacks.get(key);
+        if (count == null) {
+            if (stacks.size() >= MAX_DISTINCT_STACKS) {
+                key = prefix + ";" + TRUNCATED;
+            }
+            count = stacks.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Writes the samples collected so far in collapsed stack format, sorted by
+     * stack so that repeated downloads can be compared.
+     */
+    public void write(Writer writer) throws IOException {
+        Map<String, Long> sorted = new TreeMap<String, Long>();
+        for (Map.Entry<String, LongAdder> entry : stacks.entrySet()) {
+            sorted.put(entry.getKey(), entry.getValue().sum());
+        }
+        for (Map.Entry<String, Long> entry : sorted.entrySet()) {
+            writer.write(entry.getKey());
+            writer.write(' ');
+            writer.write(Long.toString(entry.getValue()));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    public void clear() {
+        stacks.clear();
+    }
+
+    /*
+     * Frames are separated by semicolons and the count by the last space, so
+     * neither can appear in a table name.
+     */
+    protected static String sanitize(String name) {
+        return name.replace(';', '_').replaceAll("\\s", "_");
+    }
+
+}
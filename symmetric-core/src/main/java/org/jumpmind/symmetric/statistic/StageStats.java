@@ -0,0 +1,131 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import java.util.Date;
+
+public class StageStats extends AbstractNodeHostStats {
+
+    private String stage;
+    private String channelId;
+    private long sampleCount;
+    private long totalMillis;
+    private long maxMillis;
+    private long p50Millis;
+    private long p90Millis;
+    private long p99Millis;
+    private long p999Millis;
+
+    public StageStats() {
+    }
+
+    public StageStats(String nodeId, String hostName, Date startTime, Date endTime, String stage,
+            String channelId) {
+        super(nodeId, hostName, startTime, endTime);
+        this.stage = stage;
+        this.channelId = channelId;
+    }
+
+    public StageStats(String nodeId, String hostName, Date startTime, Date endTime,
+            LatencyStage stage, String channelId, LatencyHistogram.Snapshot snapshot) {
+        this(nodeId, hostName, startTime, endTime, stage.name(), channelId);
+        this.sampleCount = snapshot.getCount();
+        this.totalMillis = snapshot.getTotalMillis();
+        this.maxMillis = snapshot.getMaxMillis();
+        this.p50Millis = snapshot.getValueAtPercentile(50);
+        this.p90Millis = snapshot.getValueAtPercentile(90);
+        this.p99Millis = snapshot.getValueAtPercentile(99);
+        this.p999Millis = snapshot.getValueAtPercentile(99.9);
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(String channelId) {
+        this.channelId = channelId;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(long maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    public long getP50Millis() {
+        return p50Millis;
+    }
+
+    public void setP50Millis(long p50Millis) {
+        this.p50Millis = p50Millis;
+    }
+
+    public long getP90Millis() {
+        return p90Millis;
+    }
+
+    public void setP90Millis(long p90Millis) {
+        this.p90Millis = p90Millis;
+    }
+
+    public long getP99Millis() {
+        return p99Millis;
+    }
+
+    public void setP99Millis(long p99Millis) {
+        this.p99Millis = p99Millis;
+    }
+
+    public long getP999Millis() {
+        return p999Millis;
+    }
+
+    public void setP999Millis(long p999Millis) {
+        this.p999Millis = p999Millis;
+    }
+
+}
@@ -20,10 +20,13 @@
  */
 package org.jumpmind.symmetric.statistic;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -34,6 +37,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.common.ParameterConstants;
@@ -63,7 +67,12 @@ public class StatisticManager implements IStatisticManager {
 
     private static final int NUMBER_OF_PERMITS = 1000;
 
-    private Map<String, ChannelStats> channelStats = new ConcurrentHashMap<String, ChannelStats>();
+    private ConcurrentHashMap<String, ChannelCounters> channelCounters = new ConcurrentHashMap<String, ChannelCounters>();
+
+    private Map<LatencyStage, ConcurrentHashMap<String, LatencyHistogram>> stageLatencies = new EnumMap<LatencyStage, ConcurrentHashMap<String, LatencyHistogram>>(
+            LatencyStage.class);
+
+    private volatile Date stageLatenciesStartTime = new Date();
 
     private List<JobStats> jobStats = new ArrayList<JobStats>();
 
@@ -81,8 +90,6 @@ public class StatisticManager implements IStatisticManager {
 
     protected IClusterService clusterService;
 
-    protected Semaphore channelStatsLock = new Semaphore(NUMBER_OF_PERMITS, true);
-
     protected Semaphore hostStatsLock = new Semaphore(NUMBER_OF_PERMITS, true);
 
     protected Semaphore jobStatsLock = new Semaphore(NUMBER_OF_PERMITS, true);
@@ -92,6 +99,8 @@ public class StatisticManager implements IStatisticManager {
     protected Map<ProcessInfoKey, ProcessInfo> processInfosThatHaveDoneWork = new ConcurrentHashMap<ProcessInfoKey, ProcessInfo>();
 
     private Map<Date, Map<String, ChannelStats>> baseChannelStatsInMemory = new LinkedHashMap<Date, Map<String, ChannelStats>>();
+
+    protected ProcessSampler processSampler;
     
     public StatisticManager(IParameterService parameterService, INodeService nodeService,
             IConfigurationService configurationService, IStatisticService statisticsService,
@@ -105,6 +114,31 @@ public class StatisticManager implements IStatisticManager {
     }
 
     protected void init() {
+        for (LatencyStage stage : LatencyStage.values()) {
+            stageLatencies.put(stage, new ConcurrentHashMap<String, LatencyHistogram>());
+        }
+        processSampler = new ProcessSampler(parameterService, processInfos.values());
+        checkProcessSampler();
+    }
+
+    protected void checkProcessSampler() {
+        if (parameterService.is(ParameterConstants.STATISTIC_SAMPLER_ENABLED, false)) {
+            processSampler.start();
+        } else if (processSampler.isRunning()) {
+            processSampler.stop();
+        }
+    }
+
+    public void stopProcessSampler() {
+        processSampler.stop();
+    }
+
+    public void writeSampledStacks(Writer writer) throws IOException {
+        processSampler.write(writer);
+    }
+
+    public void clearSampledStacks() {
+        processSampler.clear();
     }
 
 
@@ -208,138 +242,76 @@ public class StatisticManager implements IStatisticManager {
     }
 
     public void incrementDataRouted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataRouted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataRouted.add(count);
     }
 
     public void setDataUnRouted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).setDataUnRouted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataUnRouted = count;
     }
 
     public void incrementDataExtracted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataExtracted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataExtracted.add(count);
     }
 
     public void incrementDataBytesExtracted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataBytesExtracted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataBytesExtracted.add(count);
     }
 
     public void incrementDataExtractedErrors(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataExtractedErrors(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataExtractedErrors.add(count);
     }
 
     public void incrementDataEventInserted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataEventInserted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataEventInserted.add(count);
     }
 
     public void incrementDataSent(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataSent(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataSent.add(count);
     }
 
     public void incrementDataBytesSent(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataBytesSent(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataBytesSent.add(count);
     }
 
     public void incrementDataSentErrors(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataSentErrors(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataSentErrors.add(count);
     }
 
     public void incrementDataLoaded(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataLoaded(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataLoaded.add(count);
     }
 
     public void incrementDataBytesLoaded(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataBytesLoaded(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataBytesLoaded.add(count);
     }
 
     public void incrementDataLoadedErrors(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataLoadedErrors(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataLoadedErrors.add(count);
     }
     
     public void incrementDataLoadedOutgoing(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataLoadedOutgoing(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataLoadedOutgoing.add(count);
     }
 
     public void incrementDataBytesLoadedOutgoing(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataBytesLoadedOutgoing(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).dataBytesLoadedOutgoing.add(count);
     }
 
     public void incrementDataLoadedOutgoingErrors(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataLoadedOutgoingErrors(count);
-        } finally {
-            channelStatsLock.release();
+        getChannelCounters(channelId).dataLoadedOutgoingErrors.add(count);
+    }
+
+    public void addStageLatency(LatencyStage stage, String channelId, long millis) {
+        ConcurrentHashMap<String, LatencyHistogram> histograms = stageLatencies.get(stage);
+        LatencyHistogram histogram = histograms.get(channelId);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = histograms.putIfAbsent(channelId, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
         }
+        histogram.record(millis);
     }
 
     public void incrementRestart() {
@@ -495,31 +467,18 @@ public class StatisticManager implements IStatisticManager {
     
     public void flush() {
 
+        checkProcessSampler();
+
         boolean recordStatistics = parameterService.is(ParameterConstants.STATISTIC_RECORD_ENABLE,
                 false);
         long recordStatisticsCountThreshold = parameterService.getLong(ParameterConstants.STATISTIC_RECORD_COUNT_THRESHOLD,-1);
         
-        if (channelStats != null) {
-            channelStatsLock.acquireUninterruptibly(NUMBER_OF_PERMITS);
-            try {
-                if (recordStatistics) {
-                    Date endTime = new Date();
-                    for (ChannelStats stats : channelStats.values()) {
-                        if (stats.getNodeId().equals(UNKNOWN)) {
-                            Node node = nodeService.getCachedIdentity();
-                            if (node != null) {
-                                stats.setNodeId(node.getNodeId());
-                            }
-                        }
-                        stats.setEndTime(endTime);
-                        saveAdditionalStats(endTime, stats);
-                        statisticService.save(stats);
-                    }
-                    
-                }
-                resetChannelStats(true);
-            } finally {
-                channelStatsLock.release(NUMBER_OF_PERMITS);
+        Date endTime = new Date();
+        List<ChannelStats> channelStatsToFlush = snapshotChannelStats(endTime, true);
+        if (recordStatistics) {
+            for (ChannelStats stats : channelStatsToFlush) {
+                saveAdditionalStats(endTime, stats);
+                statisticService.save(stats);
             }
         }
 
@@ -543,6 +502,15 @@ public class StatisticManager implements IStatisticManager {
             }
         }
         
+        List<StageStats> stageStatsToFlush = snapshotStageStats(endTime, true);
+        if (recordStatistics) {
+            for (StageStats stats : stageStatsToFlush) {
+                if (!stats.getNodeId().equals(UNKNOWN)) {
+                    statisticService.save(stats);
+                }
+            }
+        }
+
         if (hostStats != null) {
             hostStatsLock.acquireUninterruptibly(NUMBER_OF_PERMITS);
             try {
@@ -605,18 +573,11 @@ public class StatisticManager implements IStatisticManager {
     }
 
     public Map<String, ChannelStats> getWorkingChannelStats() {
-        if (channelStats != null) {
-            HashMap<String, ChannelStats> stats = new HashMap<String, ChannelStats>();
-            for (ChannelStats stat : channelStats.values()) {
-                ChannelStats newStat = new ChannelStats(stat.getNodeId(), stat.getHostName(), stat.getStartTime(),
-                        stat.getEndTime(), stat.getChannelId());
-                newStat.add(stat);
-                stats.put(newStat.getChannelId(), newStat);
-            }
-            return stats;
-        } else {
-            return new HashMap<String, ChannelStats>();
+        HashMap<String, ChannelStats> stats = new HashMap<String, ChannelStats>();
+        for (ChannelStats stat : snapshotChannelStats(null, false)) {
+            stats.put(stat.getChannelId(), stat);
         }
+        return stats;
     }
 
     public HostStats getWorkingHostStats() {
@@ -627,34 +588,81 @@ public class StatisticManager implements IStatisticManager {
         }
     }
 
-    protected void resetChannelStats(boolean force) {
-        if (force) {
-            channelStats = null;
+    public List<StageStats> getWorkingStageStats() {
+        return snapshotStageStats(null, false);
+    }
+
+    /*
+     * Reads the latency percentiles of every stage and channel that recorded
+     * a value since the last flush. When resetting, the histograms of
+     * channels that are no longer configured are dropped.
+     */
+    protected List<StageStats> snapshotStageStats(Date endTime, boolean reset) {
+        Set<String> channelIds = new HashSet<String>();
+        if (reset) {
+            for (NodeChannel nodeChannel : configurationService.getNodeChannels(false)) {
+                channelIds.add(nodeChannel.getChannelId());
+            }
         }
 
-        if (channelStats == null) {
-            List<NodeChannel> channels = configurationService.getNodeChannels(false);
-            channelStats = new HashMap<String, ChannelStats>(channels.size());
-            for (NodeChannel nodeChannel : channels) {
-                getChannelStats(nodeChannel.getChannelId());
+        Node node = nodeService.getCachedIdentity();
+        String nodeId = node != null ? node.getNodeId() : UNKNOWN;
+        String serverId = clusterService.getServerId();
+        Date startTime = stageLatenciesStartTime;
+        List<StageStats> stats = new ArrayList<StageStats>();
+        for (Map.Entry<LatencyStage, ConcurrentHashMap<String, LatencyHistogram>> entry : stageLatencies.entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> histogram : entry.getValue().entrySet()) {
+                if (reset && !channelIds.contains(histogram.getKey())) {
+                    entry.getValue().remove(histogram.getKey());
+                }
+                LatencyHistogram.Snapshot snapshot = histogram.getValue().snapshot(reset);
+                if (snapshot.getCount() > 0) {
+                    stats.add(new StageStats(nodeId, serverId, startTime, endTime, entry.getKey(),
+                            histogram.getKey(), snapshot));
+                }
             }
         }
+        if (reset) {
+            stageLatenciesStartTime = endTime;
+        }
+        return stats;
     }
 
-    protected ChannelStats getChannelStats(String channelId) {
-        resetChannelStats(false);
-        ChannelStats stats = channelStats.get(channelId);
-        if (stats == null) {
-            Node node = nodeService.getCachedIdentity();
-            if (node != null) {
-                stats = new ChannelStats(node.getNodeId(), clusterService.getServerId(),
-                        new Date(), null, channelId);
-                channelStats.put(channelId, stats);
-            } else {
-                stats = new ChannelStats(UNKNOWN, clusterService.getServerId(), new Date(), null,
-                        channelId);
+    protected ChannelCounters getChannelCounters(String channelId) {
+        ChannelCounters counters = channelCounters.get(channelId);
+        if (counters == null) {
+            counters = new ChannelCounters(channelId);
+            ChannelCounters existing = channelCounters.putIfAbsent(channelId, counters);
+            if (existing != null) {
+                counters = existing;
+            }
+        }
+        return counters;
+    }
+
+    /*
+     * Reads the counters of every configured channel, and of any other channel
+     * that has counts, into channel stats. The node id is filled in from the
+     * identity at the time of the snapshot. When resetting, the counts are
+     * taken and zeroed cell by cell, so an increment that races with the flush
+     * is counted either in this flush or in the next one. Counters are never
+     * removed, because a thread could still be adding to a removed counter.
+     */
+    protected List<ChannelStats> snapshotChannelStats(Date endTime, boolean reset) {
+        Set<String> channelIds = new HashSet<String>();
+        for (NodeChannel nodeChannel : configurationService.getNodeChannels(false)) {
+            channelIds.add(nodeChannel.getChannelId());
+            getChannelCounters(nodeChannel.getChannelId());
+        }
+
+        Node node = nodeService.getCachedIdentity();
+        String nodeId = node != null ? node.getNodeId() : UNKNOWN;
+        String serverId = clusterService.getServerId();
+        List<ChannelStats> stats = new ArrayList<ChannelStats>(channelCounters.size());
+        for (ChannelCounters counters : channelCounters.values()) {
+            if (channelIds.contains(counters.channelId) || !counters.isIdle()) {
+                stats.add(counters.toChannelStats(nodeId, serverId, endTime, reset));
             }
-
         }
         return stats;
     }
@@ -673,4 +681,94 @@ public class StatisticManager implements IStatisticManager {
         return hostStats;
     }
 
+    /*
+     * The counts of a channel since the last flush, with a striped cell per
+     * metric so that routing, extract and load threads do not contend on
+     * the same lock when they count.
+     */
+    static class ChannelCounters {
+
+        final String channelId;
+
+        volatile Date startTime = new Date();
+
+        volatile long dataUnRouted;
+
+        final LongAdder dataRouted = new LongAdder();
+
+        final LongAdder dataExtracted = new LongAdder();
+
+        final LongAdder dataBytesExtracted = new LongAdder();
+
+        final LongAdder dataExtractedErrors = new LongAdder();
+
+        final LongAdder dataEventInserted = new LongAdder();
+
+        final LongAdder dataSent = new LongAdder();
+
+        final LongAdder dataBytesSent = new LongAdder();
+
+        final LongAdder dataSentErrors = new LongAdder();
+
+        final LongAdder dataLoaded = new LongAdder();
+
+        final LongAdder dataBytesLoaded = new LongAdder();
+
+        final LongAdder dataLoadedErrors = new LongAdder();
+
+        final LongAdder dataLoadedOutgoing = new LongAdder();
+
+        final LongAdder dataBytesLoadedOutgoing = new LongAdder();
+
+        final LongAdder dataLoadedOutgoingErrors = new LongAdder();
+
+        ChannelCounters(String channelId) {
+            this.channelId = channelId;
+        }
+
+        ChannelStats toChannelStats(String nodeId, String hostName, Date endTime, boolean reset) {
+            ChannelStats stats = new ChannelStats(nodeId, hostName, startTime, endTime, channelId);
+            stats.setDataUnRouted(dataUnRouted);
+            stats.setDataRouted(sum(dataRouted, reset));
+            stats.setDataExtracted(sum(dataExtracted, reset));
+            stats.setDataBytesExtracted(sum(dataBytesExtracted, reset));
+            stats.setDataExtractedErrors(sum(dataExtractedErrors, reset));
+            stats.setDataEventInserted(sum(dataEventInserted, reset));
+            stats.setDataSent(sum(dataSent, reset));
+            stats.setDataBytesSent(sum(dataBytesSent, reset));
+            stats.setDataSentErrors(sum(dataSentErrors, reset));
+            stats.setDataLoaded(sum(dataLoaded, reset));
+            stats.setDataBytesLoaded(sum(dataBytesLoaded, reset));
+            stats.setDataLoadedErrors(sum(dataLoadedErrors, reset));
+            stats.setDataLoadedOutgoing(sum(dataLoadedOutgoing, reset));
+            stats.setDataBytesLoadedOutgoing(sum(dataBytesLoadedOutgoing, reset));
+            stats.setDataLoadedOutgoingErrors(sum(dataLoadedOutgoingErrors, reset));
+            if (reset) {
+                startTime = endTime;
+            }
+            return stats;
+        }
+
+        boolean isIdle() {
+            return dataRouted.sum() == 0 && dataExtracted.sum() == 0 && dataBytesExtracted.sum() == 0
+                    && dataExtractedErrors.sum() == 0 && dataEventInserted.sum() == 0 && dataSent.sum() == 0
+                    && dataBytesSent.sum() == 0 && dataSentErrors.sum() == 0 && dataLoaded.sum() == 0
+                    && dataBytesLoaded.sum() == 0 && dataLoadedErrors.sum() == 0 && dataLoadedOutgoing.sum() == 0
+                    && dataBytesLoadedOutgoing.sum() == 0 && dataLoadedOutgoingErrors.sum() == 0;
+        }
+
+        /*
+         * LongAdder.sumThenReset() on Java 8 reads and then zeroes each cell,
+         * losing any increment made in between. Subtracting what was read
+         * leaves those increments for the next flush.
+         */
+        static long sum(LongAdder counter, boolean reset) {
+            long value = counter.sum();
+            if (reset && value != 0) {
+                counter.add(-value);
+            }
+            return value;
+        }
+    }
+
 }
\ No newline at end of file
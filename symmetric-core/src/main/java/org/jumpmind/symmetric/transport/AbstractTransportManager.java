@@ -110,6 +110,7 @@ abstract public class AbstractTransportManager {
                 append(builder, WebConstants.ACK_IGNORE_ROW_COUNT + batchId, batch.getIgnoreRowCount());
                 append(builder, WebConstants.ACK_MISSING_DELETE_COUNT + batchId, batch.getMissingDeleteCount());
                 append(builder, WebConstants.ACK_SKIP_COUNT + batchId, batch.getSkipCount());
+                append(builder, WebConstants.ACK_LAG_MILLIS + batchId, batch.getLagMillis());
 
                 if (batch.getIgnoreCount() > 0) {
                     append(builder, WebConstants.ACK_IGNORE_COUNT + batchId, batch.getIgnoreCount());
@@ -199,6 +200,7 @@ abstract public class AbstractTransportManager {
         batchInfo.setIgnoreRowCount(getParamAsNum(parameters, WebConstants.ACK_IGNORE_ROW_COUNT + batchId));
         batchInfo.setMissingDeleteCount(getParamAsNum(parameters, WebConstants.ACK_MISSING_DELETE_COUNT + batchId));
         batchInfo.setSkipCount(getParamAsNum(parameters, WebConstants.ACK_SKIP_COUNT + batchId));
+        batchInfo.setLagMillis(getParamAsNum(parameters, WebConstants.ACK_LAG_MILLIS + batchId));
         
         batchInfo.setIgnored(getParamAsBoolean(parameters, WebConstants.ACK_IGNORE_COUNT + batchId));
         String status = getParam(parameters, WebConstants.ACK_BATCH_NAME + batchId, "").trim();
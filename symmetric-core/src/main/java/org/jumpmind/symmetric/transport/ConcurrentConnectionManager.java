@@ -20,11 +20,20 @@
  */
 package org.jumpmind.symmetric.transport;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.service.IParameterService;
@@ -33,6 +42,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Reservations are kept in a concurrent map per pool. A reservation holds one
+ * permit from its pool's counter for as long as it is in the map, so the pool
+ * size can be checked and claimed without a lock. Soft reservations are
+ * expired by a timer wheel instead of scanning every pool on each request.
+ * 
  * @see IConcurrentConnectionManager
  */
 public class ConcurrentConnectionManager implements IConcurrentConnectionManager {
@@ -41,13 +55,21 @@ public class ConcurrentConnectionManager implements IConcurrentConnectionManager
 
     protected IParameterService parameterService;
 
-    protected Map<String, Map<String, Reservation>> activeReservationsByNodeByPool = new HashMap<String, Map<String, Reservation>>();
+    protected ConcurrentMap<String, Map<String, Reservation>> activeReservationsByNodeByPool = new ConcurrentHashMap<String, Map<String, Reservation>>();
 
-    protected Map<String, Map<String, NodeConnectionStatistics>> nodeConnectionStatistics = new HashMap<String, Map<String, NodeConnectionStatistics>>();
+    protected ConcurrentMap<String, AtomicInteger> permitsByPool = new ConcurrentHashMap<String, AtomicInteger>();
 
-    protected Set<String> whiteList = new HashSet<String>();
+    protected ConcurrentMap<String, Map<String, NodeConnectionStatistics>> nodeConnectionStatistics = new ConcurrentHashMap<String, Map<String, NodeConnectionStatistics>>();
 
-    protected Map<String, Long> transportErrorTimeByNode = new HashMap<String, Long>();
+    protected Set<String> whiteList = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    protected Map<String, Long> transportErrorTimeByNode = new ConcurrentHashMap<String, Long>();
+
+    protected ReservationTimerWheel timerWheel = new ReservationTimerWheel(1000, 64);
+
+    protected ConcurrentMap<String, Set<LongPoll>> longPollsByNodeId = new ConcurrentHashMap<String, Set<LongPoll>>();
+
+    protected AtomicInteger longPollCount = new AtomicInteger();
     
     public ConcurrentConnectionManager(IParameterService parameterService,
             IStatisticManager statisticManager) {
@@ -55,36 +77,37 @@ public class ConcurrentConnectionManager implements IConcurrentConnectionManager
     }
 
     protected void logTooBusyRejection(String nodeId, String poolId) {
-        getNodeConnectionStatistics(nodeId, poolId).numOfRejections++;
+        NodeConnectionStatistics stats = getNodeConnectionStatistics(nodeId, poolId);
+        synchronized (stats) {
+            stats.numOfRejections++;
+        }
     }
 
     protected void logConnectedTimePeriod(String nodeId, long startMs, long endMs, String poolId) {
         NodeConnectionStatistics stats = getNodeConnectionStatistics(nodeId, poolId);
-        stats.totalConnectionCount++;
-        stats.totalConnectionTimeMs += endMs - startMs;
-        stats.lastConnectionTimeMs = startMs;
+        synchronized (stats) {
+            stats.totalConnectionCount++;
+            stats.totalConnectionTimeMs += endMs - startMs;
+            stats.lastConnectionTimeMs = startMs;
+        }
     }
 
-    private synchronized NodeConnectionStatistics getNodeConnectionStatistics(String nodeId,
-            String poolId) {
+    private NodeConnectionStatistics getNodeConnectionStatistics(String nodeId, String poolId) {
         Map<String, NodeConnectionStatistics> statsMap = nodeConnectionStatistics.get(poolId);
         if (statsMap == null) {
-            statsMap = new HashMap<String, NodeConnectionStatistics>();
-            nodeConnectionStatistics.put(poolId, statsMap);
+            statsMap = nodeConnectionStatistics.computeIfAbsent(poolId, k -> new ConcurrentHashMap<String, NodeConnectionStatistics>());
         }
         NodeConnectionStatistics stats = statsMap.get(nodeId);
         if (stats == null) {
-            stats = new NodeConnectionStatistics();
-            statsMap.put(nodeId, stats);
+            stats = statsMap.computeIfAbsent(nodeId, k -> new NodeConnectionStatistics());
         }
         return stats;
     }
 
-    synchronized public boolean releaseConnection(String nodeId, String channelId, String poolId) {
-		String reservationId = getReservationIdentifier(nodeId, channelId);
-    	log.debug("Releasing connection for {} {}", poolId, reservationId);
-		Map<String, Reservation> reservations = getReservationMap(poolId);
-        Reservation reservation = reservations.remove(reservationId);
+    public boolean releaseConnection(String nodeId, String channelId, String poolId) {
+        String reservationId = getReservationIdentifier(nodeId, channelId);
+        log.debug("Releasing connection for {} {}", poolId, reservationId);
+        Reservation reservation = removeReservation(poolId, reservationId);
         if (reservation != null) {
             logConnectedTimePeriod(reservationId, reservation.createTime, System.currentTimeMillis(),
                     poolId);
@@ -93,11 +116,10 @@ public class ConcurrentConnectionManager implements IConcurrentConnectionManager
             log.warn("Failed to release connection for {}", reservationId);
             return false;
         }
-	}
+    }
     
-    synchronized public boolean releaseConnection(String nodeId, String poolId) {
-		Map<String, Reservation> reservations = getReservationMap(poolId);
-        Reservation reservation = reservations.remove(nodeId);
+    public boolean releaseConnection(String nodeId, String poolId) {
+        Reservation reservation = removeReservation(poolId, nodeId);
         if (reservation != null) {
             logConnectedTimePeriod(nodeId, reservation.createTime, System.currentTimeMillis(),
                     poolId);
@@ -105,58 +127,72 @@ public class ConcurrentConnectionManager implements IConcurrentConnectionManager
         } else {
             return false;
         }
-	}
+    }
 
-    synchronized public void addToWhitelist(String nodeId) {
+    public void addToWhitelist(String nodeId) {
         whiteList.add(nodeId);
     }
 
-    synchronized public void removeFromWhiteList(String nodeId) {
+    public void removeFromWhiteList(String nodeId) {
         whiteList.remove(nodeId);
     }
 
-    synchronized public String[] getWhiteList() {
-        return whiteList.toArray(new String[whiteList.size()]);
+    public String[] getWhiteList() {
+        return whiteList.toArray(new String[0]);
     }
 
-    synchronized public int getReservationCount(String poolId) {
-        return getReservationMap(poolId).size();
+    public int getReservationCount(String poolId) {
+        timerWheel.expire(this, System.currentTimeMillis());
+        return getPermits(poolId).get();
     }
 
-    synchronized public boolean reserveConnection(String nodeId, String channelId, String poolId,
+    public boolean reserveConnection(String nodeId, String channelId, String poolId,
             ReservationType reservationRequest) {
-    	
-    	String reservationId = getReservationIdentifier(nodeId, channelId);
-    	log.debug("Reserving connection for {} {}", poolId, reservationId);
-        Map<String, Reservation> reservations = getReservationMap(poolId);
-        int maxPoolSize = parameterService.getInt(ParameterConstants.CONCURRENT_WORKERS);
+        String reservationId = getReservationIdentifier(nodeId, channelId);
+        log.debug("Reserving connection for {} {}", poolId, reservationId);
+        ConcurrentMap<String, Reservation> reservations = getReservationMap(poolId);
         long timeout = parameterService.getLong(ParameterConstants.CONCURRENT_RESERVATION_TIMEOUT);
-        removeTimedOutReservations(reservations);
-        if (reservations.size() < maxPoolSize || reservations.containsKey(reservationId)
-                || whiteList.contains(reservationId)) {
+        long currentTime = System.currentTimeMillis();
+        timerWheel.expire(this, currentTime);
+        
+        Reservation reservation = new Reservation(reservationId,
+                reservationRequest == ReservationType.SOFT ? currentTime + timeout : Long.MAX_VALUE,
+                reservationRequest);
+        reservation.poolId = poolId;
+
+        while (true) {
             Reservation existingReservation = reservations.get(reservationId);
-            if (existingReservation == null
-                    || existingReservation.getType() == ReservationType.SOFT) {
-                reservations.put(reservationId, new Reservation(reservationId,
-                        reservationRequest == ReservationType.SOFT ? System.currentTimeMillis()
-                                + timeout : Long.MAX_VALUE, reservationRequest));
-                transportErrorTimeByNode.remove(nodeId);
-                return true;
-            } else {
-                String message = "Node '{}' Channel '{}' requested a {} connection, but was rejected because it already has one";
-                if (shouldLogTransportError(nodeId)) {
-                    log.warn(message, nodeId, channelId, poolId);
-                } else {
-                    log.info(message, nodeId, channelId, poolId);
+            if (existingReservation != null) {
+                if (existingReservation.getType() != ReservationType.SOFT) {
+                    String message = "Node '{}' Channel '{}' requested a {} connection, but was rejected because it already has one";
+                    if (shouldLogTransportError(nodeId)) {
+                        log.warn(message, nodeId, channelId, poolId);
+                    } else {
+                        log.info(message, nodeId, channelId, poolId);
+                    }
+                    return false;
+                } else if (replaceReservation(reservations, reservationId, existingReservation, reservation)) {
+                    /* the permit held by the soft reservation carries over */
+                    break;
                 }
+            } else if (acquirePermit(poolId, whiteList.contains(reservationId))) {
+                if (reservations.putIfAbsent(reservationId, reservation) == null) {
+                    break;
+                }
+                releasePermit(poolId);
+            } else {
                 return false;
             }
-        } else {
-            return false;
         }
+
+        if (reservation.getType() == ReservationType.SOFT) {
+            timerWheel.schedule(reservation);
+        }
+        transportErrorTimeByNode.remove(nodeId);
+        return true;
     }
     
-    synchronized public boolean reserveConnection(String nodeId, String poolId,
+    public boolean reserveConnection(String nodeId, String poolId,
             ReservationType reservationRequest) {
         return reserveConnection(nodeId, null, poolId, reservationRequest);
     }
@@ -171,47 +207,255 @@ public class ConcurrentConnectionManager implements IConcurrentConnectionManager
     
     protected Map<String, Date> getReservationsByNodeId(String urlPath) {
         Map<String, Date> byNodeId = new HashMap<String, Date>();
-        Set<String> poolIds = activeReservationsByNodeByPool.keySet();
-        for (String poolId : poolIds) {
-            if (poolId.endsWith(urlPath)) {
-                Map<String, Reservation> reservations = activeReservationsByNodeByPool.get(poolId);
-                Set<String> nodeIds = new HashSet<String>(reservations.keySet());
-                for (String nodeId : nodeIds) {
-                      Reservation reservation = reservations.get(nodeId);
-                      if (reservation != null && reservation.getType() == ReservationType.HARD) {                          
-                          byNodeId.put(nodeId, new Date(reservation.getCreateTime()));
-                      }
+        for (Map.Entry<String, Map<String, Reservation>> pool : activeReservationsByNodeByPool.entrySet()) {
+            if (pool.getKey().endsWith(urlPath)) {
+                for (Reservation reservation : pool.getValue().values()) {
+                    if (reservation.getType() == ReservationType.HARD) {
+                        byNodeId.put(reservation.getNodeId(), new Date(reservation.getCreateTime()));
+                    }
                 }
             }
         }
         return byNodeId;
     }
 
+    /**
+     * Scan a reservation map for soft reservations that have timed out. The
+     * timer wheel normally takes care of this without a scan.
+     */
     protected void removeTimedOutReservations(Map<String, Reservation> reservations) {
         long currentTime = System.currentTimeMillis();
-        String[] keys = reservations.keySet().toArray(new String[reservations.size()]);
-        if (keys != null) {
-            for (String key : keys) {
-                Reservation reservation = reservations.get(key);
-                if (reservation.timeToLiveInMs < currentTime) {
-                    reservations.remove(key);
-                }
+        String[] keys = reservations.keySet().toArray(new String[0]);
+        for (String key : keys) {
+            Reservation reservation = reservations.get(key);
+            if (reservation != null && reservation.timeToLiveInMs < currentTime) {
+                expireReservation(reservations, key, reservation);
+            }
+        }
+    }
+
+    protected void expireReservation(Reservation reservation) {
+        Map<String, Reservation> reservations = activeReservationsByNodeByPool.get(reservation.poolId);
+        if (reservations != null) {
+            expireReservation(reservations, reservation.getNodeId(), reservation);
+        }
+    }
+
+    protected void expireReservation(Map<String, Reservation> reservations, String reservationId, Reservation reservation) {
+        if (replaceReservation(reservations, reservationId, reservation, null) && reservation.poolId != null) {
+            releasePermit(reservation.poolId);
+        }
+    }
+
+    /**
+     * Reservations are equal by node id, so compare instances here to avoid
+     * touching a reservation that was renewed by another thread.
+     */
+    protected boolean replaceReservation(Map<String, Reservation> reservations, String reservationId,
+            final Reservation expected, final Reservation replacement) {
+        final boolean[] replaced = new boolean[1];
+        reservations.computeIfPresent(reservationId, (k, current) -> {
+            replaced[0] = current == expected;
+            return replaced[0] ? replacement : current;
+        });
+        return replaced[0];
+    }
+
+    protected Reservation removeReservation(String poolId, String reservationId) {
+        Reservation reservation = getReservationMap(poolId).remove(reservationId);
+        if (reservation != null) {
+            releasePermit(poolId);
+        }
+        return reservation;
+    }
+
+    protected boolean acquirePermit(String poolId, boolean ignoreLimit) {
+        AtomicInteger permits = getPermits(poolId);
+        if (ignoreLimit) {
+            permits.incrementAndGet();
+            return true;
+        }
+        int maxPoolSize = parameterService.getInt(ParameterConstants.CONCURRENT_WORKERS);
+        while (true) {
+            int count = permits.get();
+            if (count >= maxPoolSize) {
+                return false;
+            } else if (permits.compareAndSet(count, count + 1)) {
+                return true;
             }
         }
     }
 
-    private Map<String, Reservation> getReservationMap(String poolId) {
+    protected void releasePermit(String poolId) {
+        getPermits(poolId).decrementAndGet();
+    }
+
+    protected AtomicInteger getPermits(String poolId) {
+        AtomicInteger permits = permitsByPool.get(poolId);
+        if (permits == null) {
+            permits = permitsByPool.computeIfAbsent(poolId, k -> new AtomicInteger());
+        }
+        return permits;
+    }
+
+    private ConcurrentMap<String, Reservation> getReservationMap(String poolId) {
         Map<String, Reservation> reservations = activeReservationsByNodeByPool.get(poolId);
         if (reservations == null) {
-            reservations = new HashMap<String, Reservation>();
-            activeReservationsByNodeByPool.put(poolId, reservations);
+            reservations = activeReservationsByNodeByPool.computeIfAbsent(poolId,
+                    k -> new ConcurrentHashMap<String, Reservation>());
+        }
+        return (ConcurrentMap<String, Reservation>) reservations;
+    }
+
+    public LongPoll startLongPoll(String nodeId, String queue) {
+        int maxHeld = parameterService.getInt(ParameterConstants.PULL_LONG_POLL_MAX_HELD_REQUESTS, 10);
+        while (true) {
+            int count = longPollCount.get();
+            if (count >= maxHeld) {
+                return null;
+            } else if (longPollCount.compareAndSet(count, count + 1)) {
+                break;
+            }
+        }
+        final LongPoll longPoll = new LongPoll(nodeId, queue);
+        longPollsByNodeId.compute(nodeId, (k, longPolls) -> {
+            if (longPolls == null) {
+                longPolls = Collections.newSetFromMap(new ConcurrentHashMap<LongPoll, Boolean>());
+            }
+            longPolls.add(longPoll);
+            return longPolls;
+        });
+        return longPoll;
+    }
+
+    public void endLongPoll(final LongPoll longPoll) {
+        final boolean[] removed = new boolean[1];
+        longPollsByNodeId.computeIfPresent(longPoll.getNodeId(), (k, longPolls) -> {
+            removed[0] = longPolls.remove(longPoll);
+            return longPolls.isEmpty() ? null : longPolls;
+        });
+        if (removed[0]) {
+            longPollCount.decrementAndGet();
+        }
+    }
+
+    public void dataRouted(Collection<String> nodeIds, String queue) {
+        if (longPollCount.get() > 0) {
+            for (String nodeId : nodeIds) {
+                Set<LongPoll> longPolls = longPollsByNodeId.get(nodeId);
+                if (longPolls != null) {
+                    for (LongPoll longPoll : longPolls) {
+                        if (longPoll.getQueue() == null || queue == null
+                                || longPoll.getQueue().equals(queue)) {
+                            longPoll.signal();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public int getLongPollCount() {
+        return longPollCount.get();
+    }
+
+    /**
+     * A hashed timer wheel of soft reservations. Each slot covers one tick and
+     * holds the reservations that expire during that tick. Slots are drained
+     * by whichever thread first notices the clock has moved past them.
+     * Reservations that expire more than one revolution out are put back until
+     * their time comes, and ones that were released or renewed in the
+     * meantime are skipped because removal is conditional on the exact
+     * instance.
+     */
+    protected static class ReservationTimerWheel {
+        
+        final long tickMs;
+
+        final Queue<Reservation>[] slots;
+
+        final AtomicLong lastTick;
+
+        @SuppressWarnings("unchecked")
+        public ReservationTimerWheel(long tickMs, int slotCount) {
+            this.tickMs = tickMs;
+            this.slots = new Queue[slotCount];
+            for (int i = 0; i < slotCount; i++) {
+                slots[i] = new ConcurrentLinkedQueue<Reservation>();
+            }
+            this.lastTick = new AtomicLong(System.currentTimeMillis() / tickMs);
+        }
+
+        public void schedule(Reservation reservation) {
+            long tick = Math.max(reservation.timeToLiveInMs / tickMs, lastTick.get() + 1);
+            slots[(int) (tick % slots.length)].add(reservation);
+        }
+
+        public void expire(ConcurrentConnectionManager manager, long currentTime) {
+            long tick = currentTime / tickMs;
+            long previousTick = lastTick.get();
+            if (tick > previousTick && lastTick.compareAndSet(previousTick, tick)) {
+                long ticks = Math.min(tick - previousTick, slots.length);
+                for (long t = tick - ticks + 1; t <= tick; t++) {
+                    Queue<Reservation> slot = slots[(int) (t % slots.length)];
+                    int size = slot.size();
+                    for (int i = 0; i < size; i++) {
+                        Reservation reservation = slot.poll();
+                        if (reservation == null) {
+                            break;
+                        } else if (reservation.timeToLiveInMs < currentTime) {
+                            manager.expireReservation(reservation);
+                        } else {
+                            schedule(reservation);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A pull request that is being held open until data is routed for its
+     * node and queue.
+     */
+    public static class LongPoll {
+        String nodeId;
+        String queue;
+        CountDownLatch latch = new CountDownLatch(1);
+
+        public LongPoll(String nodeId, String queue) {
+            this.nodeId = nodeId;
+            this.queue = queue;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public String getQueue() {
+            return queue;
+        }
+
+        public void signal() {
+            latch.countDown();
+        }
+
+        public boolean isSignaled() {
+            return latch.getCount() == 0;
+        }
+
+        /**
+         * @return true if data was routed before the timeout expired
+         */
+        public boolean await(long timeoutMs) throws InterruptedException {
+            return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
         }
-        return reservations;
     }
 
     public static class Reservation {
         String nodeId;
         String channelId = "0";
+        String poolId;
         
         long timeToLiveInMs;
         long createTime = System.currentTimeMillis();
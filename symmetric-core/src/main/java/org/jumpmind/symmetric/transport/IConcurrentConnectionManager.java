@@ -20,9 +20,11 @@
  */
 package org.jumpmind.symmetric.transport;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 
+import org.jumpmind.symmetric.transport.ConcurrentConnectionManager.LongPoll;
 import org.jumpmind.symmetric.transport.ConcurrentConnectionManager.NodeConnectionStatistics;
 import org.jumpmind.symmetric.transport.ConcurrentConnectionManager.Reservation;
 
@@ -77,4 +79,23 @@ public interface IConcurrentConnectionManager {
     
     public Map<String, Date> getPushReservationsByNodeId();
 
+    /**
+     * Register a pull request that will wait for data to be routed. The
+     * registration should happen before checking for pending batches so a
+     * notification is not missed.
+     * 
+     * @return null if too many requests are already being held
+     */
+    public LongPoll startLongPoll(String nodeId, String queue);
+
+    public void endLongPoll(LongPoll longPoll);
+
+    /**
+     * Wake up pull requests held for the nodes that batches were just routed
+     * to. A null queue wakes up requests for every queue.
+     */
+    public void dataRouted(Collection<String> nodeIds, String queue);
+
+    public int getLongPollCount();
+
 }
\ No newline at end of file
@@ -115,6 +115,8 @@ public class WebConstants {
     
     public static final String ACK_SKIP_COUNT = "skipCount-";
 
+    public static final String ACK_LAG_MILLIS = "lagMillis-";
+
     public static final String NODE_ID = "nodeId";
 
     public static final String NODE_GROUP_ID = "nodeGroupId";
@@ -147,6 +149,10 @@ public class WebConstants {
     
     public static final String CHANNEL_QUEUE = "threadChannel";
     
+    public static final String LONG_POLL_TIMEOUT = "Long-Poll-Timeout";
+    
+    public static final String LONG_POLL_SUPPORTED = "Long-Poll-Supported";
+    
     public static final String CONFIG_VERSION = "configVersion";
 
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+
+import org.jumpmind.symmetric.io.data.reader.DataReaderStatistics;
+import org.junit.Test;
+
+public class IncomingBatchTest {
+
+    @Test
+    public void testCaptureTimesFromBatchStatistics() {
+        OutgoingBatch outgoingBatch = new OutgoingBatch("00001", "default", AbstractBatch.Status.NE);
+        outgoingBatch.includeCaptureTime(new Date(2000));
+        outgoingBatch.includeCaptureTime(null);
+        outgoingBatch.includeCaptureTime(new Date(1000));
+        outgoingBatch.includeCaptureTime(new Date(3000));
+        assertEquals(1000, outgoingBatch.getMinCaptureTime().getTime());
+        assertEquals(3000, outgoingBatch.getMaxCaptureTime().getTime());
+
+        DataReaderStatistics statistics = new DataReaderStatistics();
+        statistics.set(DataReaderStatistics.MIN_CAPTURE_TIME, outgoingBatch.getMinCaptureTime().getTime());
+        statistics.set(DataReaderStatistics.MAX_CAPTURE_TIME, outgoingBatch.getMaxCaptureTime().getTime());
+        IncomingBatch incomingBatch = new IncomingBatch();
+        incomingBatch.mergeInjectedBatchStatistics(statistics);
+        assertEquals(1000, incomingBatch.getMinCaptureTime().getTime());
+        assertEquals(3000, incomingBatch.getMaxCaptureTime().getTime());
+    }
+
+    @Test
+    public void testNoCaptureTimesFromOlderSource() {
+        IncomingBatch incomingBatch = new IncomingBatch();
+        incomingBatch.mergeInjectedBatchStatistics(new DataReaderStatistics());
+        assertNull(incomingBatch.getMinCaptureTime());
+        assertNull(incomingBatch.getMaxCaptureTime());
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jumpmind.symmetric.model.IncomingBatch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchLoadSchedulerTest {
+
+    ExecutorService executor;
+
+    BatchLoadScheduler scheduler;
+
+    CountDownLatch release;
+
+    List<IncomingBatch> batchesProcessed;
+
+    @Before
+    public void setup() {
+        executor = Executors.newFixedThreadPool(4);
+        scheduler = new BatchLoadScheduler(executor, true);
+        release = new CountDownLatch(1);
+        batchesProcessed = new ArrayList<IncomingBatch>();
+    }
+
+    @After
+    public void teardown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testOverlappingTablesLoadInOrder() throws Throwable {
+        Future<IncomingBatch> first = schedule("channel1", tables("t1", "t2"), blockedLoad(1));
+        Future<IncomingBatch> second = schedule("channel2", tables("t2", "t3"), load(2));
+        assertNotDone(second);
+        release.countDown();
+        assertEquals(2, second.get(10, TimeUnit.SECONDS).getBatchId());
+        assertTrue(first.isDone());
+    }
+
+    @Test
+    public void testSameChannelLoadsInOrder() throws Throwable {
+        schedule("channel1", tables("t1"), blockedLoad(1));
+        Future<IncomingBatch> second = schedule("channel1", tables("t2"), load(2));
+        assertNotDone(second);
+        release.countDown();
+        assertEquals(2, second.get(10, TimeUnit.SECONDS).getBatchId());
+    }
+
+    @Test
+    public void testUnknownTablesFollowEverything() throws Throwable {
+        schedule("channel1", tables("t1"), blockedLoad(1));
+        Future<IncomingBatch> second = schedule("channel2", null, load(2));
+        assertNotDone(second);
+        release.countDown();
+        assertEquals(2, second.get(10, TimeUnit.SECONDS).getBatchId());
+    }
+
+    @Test
+    public void testDisjointTablesLoadInParallel() throws Throwable {
+        Future<IncomingBatch> first = schedule("channel1", tables("t1"), blockedLoad(1));
+        Future<IncomingBatch> second = schedule("channel2", tables("t2"), load(2));
+        assertEquals(2, second.get(10, TimeUnit.SECONDS).getBatchId());
+        assertFalse(first.isDone());
+        assertFalse(scheduler.isDone(batchesProcessed));
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        assertTrue(scheduler.isDone(batchesProcessed));
+    }
+
+    @Test
+    public void testLoadsRunInOrderWhenNotParallel() throws Throwable {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            scheduler = new BatchLoadScheduler(single, false);
+            Future<IncomingBatch> first = schedule("channel1", tables("t1"), load(1));
+            Future<IncomingBatch> second = schedule("channel2", tables("t2"), load(2));
+            second.get(10, TimeUnit.SECONDS);
+            assertTrue(first.isDone());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedLoadStopsTheLoadsThatFollowIt() throws Throwable {
+        final RuntimeException error = new RuntimeException("failed to load");
+        final AtomicBoolean dependentLoaded = new AtomicBoolean();
+        final AtomicBoolean dependentCleanedUp = new AtomicBoolean();
+        List<IncomingBatch> failedBatches = new ArrayList<IncomingBatch>();
+        failedBatches.add(new IncomingBatch());
+        Future<IncomingBatch> failed = scheduler.schedule("channel1", tables("t1"), failedBatches,
+                new Callable<IncomingBatch>() {
+                    public IncomingBatch call() throws Exception {
+                        release.await();
+                        throw error;
+                    }
+                }, null);
+        Future<IncomingBatch> dependent = scheduler.schedule("channel2", tables("t1"), new ArrayList<IncomingBatch>(),
+                new Callable<IncomingBatch>() {
+                    public IncomingBatch call() throws Exception {
+                        dependentLoaded.set(true);
+                        return null;
+                    }
+                }, new Runnable() {
+                    public void run() {
+                        dependentCleanedUp.set(true);
+                    }
+                });
+        Future<IncomingBatch> independent = schedule("channel3", tables("t2"), load(3));
+        release.countDown();
+
+        waitFor(failed, dependent, independent);
+        assertFalse(dependentLoaded.get());
+        assertTrue(dependentCleanedUp.get());
+        try {
+            scheduler.isDone(batchesProcessed);
+            fail("Expected the error of the failed load");
+        } catch (RuntimeException ex) {
+            assertSame(error, ex);
+        }
+        assertEquals(2, batchesProcessed.size());
+        assertEquals(3, batchesProcessed.get(1).getBatchId());
+    }
+
+    @Test
+    public void testBatchesProcessedAreMergedOnce() throws Throwable {
+        Future<IncomingBatch> first = schedule("channel1", tables("t1"), load(1));
+        Future<IncomingBatch> second = schedule("channel2", tables("t2"), load(2));
+        waitFor(first, second);
+        assertTrue(scheduler.isDone(batchesProcessed));
+        assertTrue(scheduler.isDone(batchesProcessed));
+        assertEquals(2, batchesProcessed.size());
+
+        List<IncomingBatch> shared = new ArrayList<IncomingBatch>();
+        scheduler = new BatchLoadScheduler(executor, true);
+        waitFor(scheduler.schedule("channel1", tables("t1"), shared, record(shared, 3), null));
+        assertTrue(scheduler.isDone(shared));
+        assertEquals(1, shared.size());
+    }
+
+    protected Future<IncomingBatch> schedule(String channelId, Set<String> tableNames, Callable<IncomingBatch> load) {
+        List<IncomingBatch> loadBatches = new ArrayList<IncomingBatch>();
+        return scheduler.schedule(channelId, tableNames, loadBatches, record(loadBatches, load), null);
+    }
+
+    protected Callable<IncomingBatch> record(final List<IncomingBatch> loadBatches, final long batchId) {
+        return record(loadBatches, load(batchId));
+    }
+
+    protected Callable<IncomingBatch> record(final List<IncomingBatch> loadBatches, final Callable<IncomingBatch> load) {
+        return new Callable<IncomingBatch>() {
+            public IncomingBatch call() throws Exception {
+                IncomingBatch batch = load.call();
+                loadBatches.add(batch);
+                return batch;
+            }
+        };
+    }
+
+    protected Callable<IncomingBatch> load(final long batchId) {
+        return new Callable<IncomingBatch>() {
+            public IncomingBatch call() throws Exception {
+                IncomingBatch batch = new IncomingBatch();
+                batch.setBatchId(batchId);
+                return batch;
+            }
+        };
+    }
+
+    protected Callable<IncomingBatch> blockedLoad(final long batchId) {
+        return new Callable<IncomingBatch>() {
+            public IncomingBatch call() throws Exception {
+                release.await();
+                return load(batchId).call();
+            }
+        };
+    }
+
+    protected Set<String> tables(String... tableNames) {
+        return new HashSet<String>(Arrays.asList(tableNames));
+    }
+
+    protected void assertNotDone(Future<IncomingBatch> future) throws Exception {
+        try {
+            future.get(200, TimeUnit.MILLISECONDS);
+            fail("The load should be waiting for an earlier load");
+        } catch (TimeoutException ex) {
+        }
+    }
+
+    @SafeVarargs
+    protected final void waitFor(Future<IncomingBatch>... futures) throws Exception {
+        for (Future<IncomingBatch> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+            } catch (java.util.concurrent.ExecutionException ex) {
+            }
+        }
+    }
+
+}
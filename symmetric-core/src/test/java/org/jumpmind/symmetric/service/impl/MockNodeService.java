@@ -325,6 +325,10 @@ public class MockNodeService implements INodeService {
     public void flushNodeCache() {
     }
 
+    @Override
+    public void stop() {
+    }
+
     @Override
     public Node findNode(String id, boolean useCache) {
         return null;
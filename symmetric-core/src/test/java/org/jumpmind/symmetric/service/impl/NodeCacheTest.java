@@ -0,0 +1,161 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jumpmind.symmetric.model.Node;
+import org.junit.Test;
+
+public class NodeCacheTest {
+
+    private static final int NODE_COUNT = 20000;
+
+    private static final int GROUP_COUNT = 10;
+
+    @Test
+    public void testLookupsDoNotWaitForRefresh() throws Exception {
+        final TestLoader loader = new TestLoader();
+        final NodeCache cache = new NodeCache("test", loader);
+        assertEquals("1", cache.get(Long.MAX_VALUE).getNode("1").getExternalId());
+
+        loader.release = new CountDownLatch(1);
+        assertEquals("1", cache.get(0).getNode("1").getExternalId());
+        assertTrue(loader.loading.await(30, TimeUnit.SECONDS));
+        assertTrue(cache.isRefreshing());
+
+        /* the loader is held on the latch, so every lookup here has to be served from the old snapshot */
+        final AtomicInteger lookups = new AtomicInteger();
+        final AtomicInteger misses = new AtomicInteger();
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            Thread reader = new Thread(new Runnable() {
+                public void run() {
+                    Random random = new Random();
+                    for (int j = 0; j < 10000; j++) {
+                        String nodeId = Integer.toString(random.nextInt(NODE_COUNT));
+                        Node node = cache.get(0).getNode(nodeId);
+                        if (node == null || !nodeId.equals(node.getExternalId())) {
+                            misses.incrementAndGet();
+                        }
+                        lookups.incrementAndGet();
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertEquals(40000, lookups.get());
+        assertEquals(0, misses.get());
+        assertEquals(2, loader.loads.get());
+        assertFalse(loader.timedOut);
+
+        loader.release.countDown();
+        while (cache.isRefreshing()) {
+            Thread.sleep(10);
+        }
+        assertEquals("1-2", cache.get(Long.MAX_VALUE).getNode("1").getExternalId());
+        assertEquals(2, loader.loads.get());
+        cache.stop();
+    }
+
+    @Test
+    public void testFlushReloadsBeforeReturning() {
+        TestLoader loader = new TestLoader();
+        NodeCache cache = new NodeCache("test", loader);
+        NodeCache.Snapshot snapshot = cache.get(Long.MAX_VALUE);
+        assertSame(snapshot, cache.get(Long.MAX_VALUE));
+        assertEquals(NODE_COUNT / GROUP_COUNT, snapshot.getNodesInGroup("group-3").size());
+
+        cache.flush();
+        assertEquals("1-2", cache.get(Long.MAX_VALUE).getNode("1").getExternalId());
+        assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void testPutAndRemoveCopyTheSnapshot() {
+        TestLoader loader = new TestLoader();
+        NodeCache cache = new NodeCache("test", loader);
+        NodeCache.Snapshot snapshot = cache.get(Long.MAX_VALUE);
+        List<Node> linked = snapshot.getLinkedNodes("group-1", new NodeCache.ILinkedNodesBuilder() {
+            public List<Node> buildLinkedNodes(NodeCache.Snapshot snapshot) {
+                return snapshot.getNodesInGroup("group-1");
+            }
+        });
+        assertSame(linked, snapshot.getLinkedNodes("group-1", null));
+
+        cache.put(new Node("new", "group-1"));
+        NodeCache.Snapshot updated = cache.get(Long.MAX_VALUE);
+        assertFalse(snapshot == updated);
+        assertNull(snapshot.getNode("new"));
+        assertEquals("group-1", updated.getNode("new").getNodeGroupId());
+        assertEquals(NODE_COUNT / GROUP_COUNT + 1, updated.getNodesInGroup("group-1").size());
+
+        cache.remove("new");
+        assertNull(cache.get(Long.MAX_VALUE).getNode("new"));
+        assertEquals(1, loader.loads.get());
+    }
+
+    static class TestLoader implements NodeCache.INodeLoader {
+
+        final AtomicInteger loads = new AtomicInteger();
+
+        final CountDownLatch loading = new CountDownLatch(1);
+
+        volatile CountDownLatch release;
+
+        volatile boolean timedOut;
+
+        public List<Node> loadNodes() {
+            int load = loads.incrementAndGet();
+            if (release != null) {
+                loading.countDown();
+                try {
+                    timedOut = !release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<Node> nodes = new ArrayList<Node>(NODE_COUNT);
+            for (int i = 0; i < NODE_COUNT; i++) {
+                Node node = new Node(Integer.toString(i), "group-" + (i % GROUP_COUNT));
+                node.setExternalId(load > 1 ? i + "-" + load : Integer.toString(i));
+                nodes.add(node);
+            }
+            return nodes;
+        }
+    }
+
+}
@@ -0,0 +1,314 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.sql.SqlException;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.AbstractSymmetricDialect;
+import org.jumpmind.symmetric.io.stage.IStagingManager;
+import org.jumpmind.symmetric.model.DataPartition;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessInfoKey;
+import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.impl.PurgeService.MinMaxDeleteSql;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class PurgeServiceTest {
+
+    ISqlTemplate sqlTemplate;
+
+    ISqlTemplate sqlTemplateDirty;
+
+    IDatabasePlatform platform;
+
+    IParameterService parameterService;
+
+    AbstractSymmetricDialect symmetricDialect;
+
+    IStagingManager stagingManager;
+
+    IStatisticManager statisticManager;
+
+    PurgeService purgeService;
+
+    @Before
+    public void setUp() throws Exception {
+        sqlTemplate = mock(ISqlTemplate.class);
+        sqlTemplateDirty = mock(ISqlTemplate.class);
+        platform = mock(IDatabasePlatform.class);
+        when(platform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(platform.getSqlTemplate()).thenReturn(sqlTemplate);
+        when(platform.getSqlTemplateDirty()).thenReturn(sqlTemplateDirty);
+        when(platform.scrubSql(anyString())).then(returnsFirstArg());
+        symmetricDialect = mock(AbstractSymmetricDialect.class);
+        when(symmetricDialect.getPlatform()).thenReturn(platform);
+        when(symmetricDialect.getSqlTypeForIds()).thenReturn(Types.NUMERIC);
+
+        parameterService = mock(IParameterService.class);
+        when(parameterService.getTablePrefix()).thenReturn("sym");
+        statisticManager = mock(IStatisticManager.class);
+        when(statisticManager.newProcessInfo(any(ProcessInfoKey.class))).thenReturn(new ProcessInfo());
+        stagingManager = mock(IStagingManager.class);
+
+        purgeService = newPurgeService();
+    }
+
+    protected PurgeService newPurgeService() {
+        return new PurgeService(parameterService, symmetricDialect, mock(IClusterService.class),
+                mock(INodeService.class), statisticManager, mock(IExtensionService.class), stagingManager);
+    }
+
+    @Test
+    public void testParallelPurgeStopsOnFirstFailure() throws Exception {
+        when(parameterService.getInt(ParameterConstants.PURGE_WORKER_THREADS, 1)).thenReturn(4);
+        final SqlException error = new SqlException("Failed to delete the first range");
+        final AtomicInteger deletes = new AtomicInteger();
+        when(sqlTemplate.update(anyString(), any(Object[].class), any(int[].class))).thenAnswer(new Answer<Integer>() {
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                deletes.incrementAndGet();
+                Object[] args = invocation.getArgument(1);
+                if (((Long) args[0]) == 1) {
+                    throw error;
+                }
+                Thread.sleep(5);
+                return 1;
+            }
+        });
+
+        try {
+            purgeService.purgeByMinMax(new long[] { 1, 100000 }, 0, MinMaxDeleteSql.DATA_EVENT_RANGE, new Date(), 99);
+            fail("Expected the error of the failed range");
+        } catch (SqlException ex) {
+            assertEquals(error, ex);
+        }
+        /* without stopping, the other workers would delete all 1000 ranges */
+        assertTrue("Deleted " + deletes.get() + " ranges", deletes.get() < 100);
+    }
+
+    @Test
+    public void testParallelPurgeDeletesEveryRange() throws Exception {
+        when(parameterService.getInt(ParameterConstants.PURGE_WORKER_THREADS, 1)).thenReturn(4);
+        when(sqlTemplate.update(anyString(), any(Object[].class), any(int[].class))).thenAnswer(new Answer<Integer>() {
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                Object[] args = invocation.getArgument(1);
+                return (int) ((Long) args[1] - (Long) args[0] + 1);
+            }
+        });
+
+        assertEquals(100000, purgeService.purgeByMinMax(new long[] { 1, 100000 }, 0, MinMaxDeleteSql.DATA_EVENT_RANGE,
+                new Date(), 99));
+    }
+
+    @Test
+    public void testPurgeDataPartitionsDropsOldPartitionsOnly() throws Exception {
+        final Calendar retentionCutoff = Calendar.getInstance();
+        final Date oldTime = new Date(retentionCutoff.getTimeInMillis() - 60000);
+        final Date newTime = new Date(retentionCutoff.getTimeInMillis() + 60000);
+        final List<String> sqls = new ArrayList<String>();
+        sqlTemplateDirty = mock(ISqlTemplate.class, new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                String sql = invocation.getArgument(0);
+                sqls.add(sql);
+                String method = invocation.getMethod().getName();
+                if (method.equals("queryForLong")) {
+                    if (sql.contains("max(data_id) from sym_data")) {
+                        return 3500000l;
+                    } else if (sql.contains("min(start_id) from sym_data_gap")) {
+                        return 2600000l;
+                    }
+                    return 0l;
+                } else if (method.equals("queryForRow")) {
+                    long startId = Long.parseLong(sql.substring(sql.lastIndexOf("_p") + 2));
+                    Row row = new Row(2);
+                    row.put("min_data_id", startId + 1);
+                    row.put("max_data_id", startId + 999999);
+                    return row;
+                } else if (method.equals("queryForObject")) {
+                    Long maxDataId = invocation.getArgument(2);
+                    return maxDataId < 1000000 ? oldTime : newTime;
+                }
+                return null;
+            }
+        });
+        when(platform.getSqlTemplateDirty()).thenReturn(sqlTemplateDirty);
+        purgeService = newPurgeService();
+
+        List<DataPartition> dataPartitions = newDataPartitions("sym_data");
+        List<DataPartition> dataEventPartitions = newDataPartitions("sym_data_event");
+        when(symmetricDialect.getDataPartitions("sym_data")).thenReturn(dataPartitions);
+        when(symmetricDialect.getDataPartitions("sym_data_event")).thenReturn(dataEventPartitions);
+
+        assertEquals(2 * 999999, purgeService.purgeDataPartitions(retentionCutoff));
+
+        verify(symmetricDialect).createDataPartitions(3500000);
+        verify(symmetricDialect).dropDataPartition(dataPartitions.get(0));
+        verify(symmetricDialect).dropDataPartition(dataEventPartitions.get(0));
+        /* the second partition still has new data, which stops the drops */
+        for (int i = 1; i < dataPartitions.size(); i++) {
+            verify(symmetricDialect, never()).dropDataPartition(dataPartitions.get(i));
+            verify(symmetricDialect, never()).dropDataPartition(dataEventPartitions.get(i));
+        }
+        for (String sql : sqls) {
+            assertFalse("Partitions should not be scanned: " + sql, sql.contains("count("));
+        }
+    }
+
+    @Test
+    public void testPurgeIncomingBatchPagesAcrossNodes() throws Exception {
+        when(parameterService.getInt(ParameterConstants.PURGE_MAX_NUMBER_OF_BATCH_IDS)).thenReturn(2);
+        /* batch 2 from both nodes straddles the first page boundary */
+        final List<Row> incomingBatches = Arrays.asList(newIncomingBatch(1, "n1", false), newIncomingBatch(2, "n1", false),
+                newIncomingBatch(2, "n2", false), newIncomingBatch(3, "n2", true), newIncomingBatch(4, "n1", false));
+        final List<Object[]> pageArgs = new ArrayList<Object[]>();
+        sqlTemplateDirty = mock(ISqlTemplate.class, new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Object[] args = invocation.getArguments();
+                if (invocation.getMethod().getName().equals("query")) {
+                    pageArgs.add(args);
+                    int maxRows = (Integer) args[1];
+                    long lastBatchId = (Long) args[5];
+                    String lastNodeId = (String) args[7];
+                    List<Row> page = new ArrayList<Row>();
+                    for (Row batch : incomingBatches) {
+                        long batchId = batch.getLong("batch_id");
+                        if (page.size() < maxRows && (batchId > lastBatchId
+                                || (batchId == lastBatchId && batch.getString("node_id").compareTo(lastNodeId) > 0))) {
+                            page.add(batch);
+                        }
+                    }
+                    return page;
+                }
+                return null;
+            }
+        });
+        when(platform.getSqlTemplateDirty()).thenReturn(sqlTemplateDirty);
+        final List<String> deletedBatches = new ArrayList<String>();
+        ISqlTransaction transaction = mock(ISqlTransaction.class);
+        when(sqlTemplate.startSqlTransaction()).thenReturn(transaction);
+        when(transaction.addRow(any(), any(Object[].class), any(int[].class))).thenAnswer(new Answer<Integer>() {
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                Object[] values = invocation.getArgument(1);
+                if (values.length == 3) {
+                    deletedBatches.add(values[0] + "-" + values[1]);
+                }
+                return 1;
+            }
+        });
+        when(transaction.flush()).thenReturn(2, 2, 2, 2, 1, 1);
+        when(stagingManager.delete(Constants.STAGING_CATEGORY_INCOMING, "n1", 1l)).thenReturn(true);
+        purgeService = newPurgeService();
+
+        assertEquals(10, purgeService.purgeIncomingBatch(Calendar.getInstance()));
+
+        assertEquals(Arrays.asList("1-n1", "2-n1", "2-n2", "3-n2", "4-n1"), deletedBatches);
+        assertEquals(3, pageArgs.size());
+        assertEquals(2l, pageArgs.get(1)[5]);
+        assertEquals("n1", pageArgs.get(1)[7]);
+        assertEquals(3l, pageArgs.get(2)[5]);
+        assertEquals("n2", pageArgs.get(2)[7]);
+
+        /* every page deletes its errors before its batches and commits before the next page */
+        InOrder inOrder = inOrder(transaction);
+        for (int i = 0; i < 3; i++) {
+            inOrder.verify(transaction).prepare(purgeService.getSql("deleteIncomingErrorByBatchSql"));
+            inOrder.verify(transaction).prepare(purgeService.getSql("deleteIncomingBatchSql"));
+            inOrder.verify(transaction).commit();
+        }
+        verify(transaction, never()).rollback();
+        verify(transaction, times(3)).close();
+    }
+
+    @Test
+    public void testPurgeIncomingBatchDeletesStagingIncludingCommon() throws Exception {
+        when(parameterService.getInt(ParameterConstants.PURGE_MAX_NUMBER_OF_BATCH_IDS)).thenReturn(10);
+        final List<Row> incomingBatches = Arrays.asList(newIncomingBatch(1, "n1", false), newIncomingBatch(2, "n2", true));
+        sqlTemplateDirty = mock(ISqlTemplate.class, new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                if (invocation.getMethod().getName().equals("query")) {
+                    return ((Long) invocation.getArgument(5)) < 0 ? incomingBatches : new ArrayList<Row>();
+                }
+                return null;
+            }
+        });
+        when(platform.getSqlTemplateDirty()).thenReturn(sqlTemplateDirty);
+        when(sqlTemplate.startSqlTransaction()).thenReturn(mock(ISqlTransaction.class));
+        purgeService = newPurgeService();
+
+        purgeService.purgeIncomingBatch(Calendar.getInstance());
+
+        verify(stagingManager).delete(Constants.STAGING_CATEGORY_INCOMING, "n1", 1l);
+        verify(stagingManager).delete(Constants.STAGING_CATEGORY_INCOMING, "common", 2l);
+        verify(stagingManager, never()).delete(Constants.STAGING_CATEGORY_INCOMING, "n2", 2l);
+    }
+
+    protected Row newIncomingBatch(long batchId, String nodeId, boolean common) {
+        Row row = new Row(3);
+        row.put("batch_id", batchId);
+        row.put("node_id", nodeId);
+        row.put("common_flag", common ? 1 : 0);
+        return row;
+    }
+
+    protected List<DataPartition> newDataPartitions(String tableName) {
+        List<DataPartition> partitions = new ArrayList<DataPartition>();
+        for (long startId : Arrays.asList(0l, 1000000l, 2000000l, 3000000l)) {
+            partitions.add(new DataPartition(tableName, tableName + "_p" + startId, startId, startId + 1000000));
+        }
+        return partitions;
+    }
+
+}
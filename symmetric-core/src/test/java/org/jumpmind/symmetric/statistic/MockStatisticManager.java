@@ -20,6 +20,8 @@
  */
 package org.jumpmind.symmetric.statistic;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -60,6 +62,9 @@ public class MockStatisticManager implements IStatisticManager {
     public void addJobStats(String jobName, long startTime, long endTime, long processedCount) {
     }
 
+    public void addStageLatency(LatencyStage stage, String channelId, long millis) {
+    }
+
     public void incrementRestart() {
     }
 
@@ -125,6 +130,19 @@ public class MockStatisticManager implements IStatisticManager {
         return null;
     }
 
+    public List<StageStats> getWorkingStageStats() {
+        return null;
+    }
+
+    public void writeSampledStacks(Writer writer) throws IOException {
+    }
+
+    public void clearSampledStacks() {
+    }
+
+    public void stopProcessSampler() {
+    }
+
     public void incrementNodesLoaded(long count) {
 
     }
@@ -0,0 +1,73 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessType;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.Test;
+
+public class ProcessSamplerTest {
+
+    @Test
+    public void testCollapsedStacks() throws Exception {
+        ProcessSampler sampler = new ProcessSampler(null, new ArrayList<ProcessInfo>());
+        StackTraceElement[] trace = new StackTraceElement[] {
+                new StackTraceElement("org.example.Writer", "write", "Writer.java", 20),
+                new StackTraceElement("org.example.Loader", "load", "Loader.java", 10) };
+        sampler.addSample(ProcessType.PULL_JOB_LOAD, "my table", trace);
+        sampler.addSample(ProcessType.PULL_JOB_LOAD, "my table", trace);
+        sampler.addSample(ProcessType.ROUTER_JOB, null, trace);
+
+        StringWriter writer = new StringWriter();
+        sampler.write(writer);
+        assertEquals("PULL_JOB_LOAD;my_table;org.example.Loader.load;org.example.Writer.write 2\n"
+                + "ROUTER_JOB;-;org.example.Loader.load;org.example.Writer.write 1\n", writer.toString());
+
+        sampler.clear();
+        writer = new StringWriter();
+        sampler.write(writer);
+        assertEquals("", writer.toString());
+    }
+
+    @Test
+    public void testStartDiscardsEarlierSamples() throws Exception {
+        IParameterService parameterService = mock(IParameterService.class);
+        when(parameterService.getEngineName()).thenReturn("test");
+        ProcessSampler sampler = new ProcessSampler(parameterService, new ArrayList<ProcessInfo>());
+        sampler.addSample(ProcessType.ROUTER_JOB, null, new StackTraceElement[] {
+                new StackTraceElement("org.example.Router", "route", "Router.java", 10) });
+
+        sampler.start();
+        sampler.stop();
+        StringWriter writer = new StringWriter();
+        sampler.write(writer);
+        assertEquals("", writer.toString());
+    }
+
+}
@@ -0,0 +1,261 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.NodeChannel;
+import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.IStatisticService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class StatisticManagerTest {
+
+    final Logger log = LoggerFactory.getLogger(getClass());
+
+    INodeService nodeService;
+
+    List<ChannelStats> saved;
+
+    StatisticManager statisticManager;
+
+    @Before
+    public void setUp() throws Exception {
+        IParameterService parameterService = mock(IParameterService.class);
+        when(parameterService.is(ParameterConstants.STATISTIC_RECORD_ENABLE, false)).thenReturn(true);
+        when(parameterService.getLong(ParameterConstants.STATISTIC_RECORD_COUNT_THRESHOLD, -1)).thenReturn(-1l);
+        nodeService = mock(INodeService.class);
+        IConfigurationService configurationService = mock(IConfigurationService.class);
+        when(configurationService.getNodeChannels(false)).thenReturn(
+                Arrays.asList(new NodeChannel("default"), new NodeChannel("reload")));
+        IClusterService clusterService = mock(IClusterService.class);
+        when(clusterService.getServerId()).thenReturn("server");
+
+        saved = Collections.synchronizedList(new ArrayList<ChannelStats>());
+        IStatisticService statisticService = mock(IStatisticService.class);
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                saved.add((ChannelStats) invocation.getArgument(0));
+                return null;
+            }
+        }).when(statisticService).save(any(ChannelStats.class));
+
+        statisticManager = new StatisticManager(parameterService, nodeService, configurationService, statisticService,
+                clusterService);
+    }
+
+    @Test
+    public void testCountsBeforeIdentityAreSavedWithNodeIdAtFlush() throws Exception {
+        statisticManager.incrementDataLoaded("default", 5);
+        statisticManager.incrementDataBytesLoaded("default", 100);
+
+        when(nodeService.getCachedIdentity()).thenReturn(new Node("00001", "store"));
+        statisticManager.flush();
+
+        ChannelStats stats = getSaved("default");
+        assertEquals("00001", stats.getNodeId());
+        assertEquals("server", stats.getHostName());
+        assertEquals(5, stats.getDataLoaded());
+        assertEquals(100, stats.getDataBytesLoaded());
+        assertEquals(0, getSaved("reload").getDataLoaded());
+    }
+
+    @Test
+    public void testCountsWithoutIdentityAreNotDropped() throws Exception {
+        statisticManager.incrementDataRouted("default", 3);
+
+        statisticManager.flush();
+
+        ChannelStats stats = getSaved("default");
+        assertEquals("Unknown", stats.getNodeId());
+        assertEquals(3, stats.getDataRouted());
+    }
+
+    @Test
+    public void testUnconfiguredChannelKeepsCounting() throws Exception {
+        when(nodeService.getCachedIdentity()).thenReturn(new Node("00001", "store"));
+        statisticManager.incrementDataSent("gone", 2);
+        statisticManager.flush();
+        assertEquals(2, getSaved("gone").getDataSent());
+
+        saved.clear();
+        statisticManager.flush();
+        assertEquals(null, getSavedByChannel().get("gone"));
+
+        statisticManager.incrementDataSent("gone", 4);
+        statisticManager.flush();
+        assertEquals(4, getSaved("gone").getDataSent());
+    }
+
+    @Test
+    public void testWorkingStatsDoNotReset() throws Exception {
+        statisticManager.incrementDataExtracted("default", 7);
+        assertEquals(7, statisticManager.getWorkingChannelStats().get("default").getDataExtracted());
+        assertEquals(7, statisticManager.getWorkingChannelStats().get("default").getDataExtracted());
+
+        statisticManager.flush();
+        assertEquals(7, getSaved("default").getDataExtracted());
+        assertEquals(0, statisticManager.getWorkingChannelStats().get("default").getDataExtracted());
+    }
+
+    @Test
+    public void testResetKeepsIncrementsMadeWhileFlushing() throws Exception {
+        /* an increment that lands right after the flush has read the counter */
+        LongAdder counter = new LongAdder() {
+            private static final long serialVersionUID = 1L;
+
+            boolean raced;
+
+            @Override
+            public long sum() {
+                long sum = super.sum();
+                if (!raced) {
+                    raced = true;
+                    increment();
+                }
+                return sum;
+            }
+        };
+        counter.add(5);
+        assertEquals(5, StatisticManager.ChannelCounters.sum(counter, true));
+        assertEquals(1, StatisticManager.ChannelCounters.sum(counter, true));
+        assertEquals(0, StatisticManager.ChannelCounters.sum(counter, false));
+    }
+
+    /*
+     * Counts from several threads while another thread keeps flushing. Every
+     * increment has to end up in exactly one flush, including the counts of
+     * a channel that is not configured.
+     */
+    @Test
+    public void testConcurrentIncrementsWithFlushBenchmark() throws Exception {
+        when(nodeService.getCachedIdentity()).thenReturn(new Node("00001", "store"));
+        final int threadCount = 8;
+        final int incrementsPerThread = 200000;
+        final String[] channelIds = { "default", "reload", "gone" };
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean counting = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threadCount; t++) {
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        awaitQuietly(start);
+                        for (int i = 0; i < incrementsPerThread; i++) {
+                            statisticManager.incrementDataLoaded(channelIds[i % channelIds.length], 1);
+                        }
+                    }
+                }));
+            }
+            Future<?> flusher = executor.submit(new Runnable() {
+                public void run() {
+                    awaitQuietly(start);
+                    while (counting.get()) {
+                        statisticManager.flush();
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException ex) {
+                            return;
+                        }
+                    }
+                }
+            });
+
+            long ts = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - ts;
+            counting.set(false);
+            flusher.get();
+            statisticManager.flush();
+
+            long total = 0;
+            synchronized (saved) {
+                for (ChannelStats stats : saved) {
+                    total += stats.getDataLoaded();
+                }
+            }
+            assertEquals((long) threadCount * incrementsPerThread, total);
+            log.info("Counted {} increments on {} threads in {} ms while flushing", new Object[] {
+                    threadCount * incrementsPerThread, threadCount, TimeUnit.NANOSECONDS.toMillis(elapsed) });
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected ChannelStats getSaved(String channelId) {
+        ChannelStats stats = getSavedByChannel().get(channelId);
+        if (stats == null) {
+            throw new AssertionError("No stats were saved for channel " + channelId);
+        }
+        return stats;
+    }
+
+    protected Map<String, ChannelStats> getSavedByChannel() {
+        Map<String, ChannelStats> byChannel = new HashMap<String, ChannelStats>();
+        synchronized (saved) {
+            for (ChannelStats stats : saved) {
+                byChannel.put(stats.getChannelId(), stats);
+            }
+        }
+        return byChannel;
+    }
+
+    protected static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.mapper.StringMapper;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.transform.LookupColumnTransform;
+import org.jumpmind.symmetric.io.data.transform.TransformColumn;
+import org.jumpmind.symmetric.io.data.transform.TransformPoint;
+import org.jumpmind.symmetric.io.data.transform.TransformTable;
+import org.jumpmind.symmetric.io.data.transform.TransformedData;
+import org.jumpmind.symmetric.model.Channel;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class LookupColumnTransformTest {
+
+    static final String SQL = "select name from customer where id = :ID";
+
+    IDatabasePlatform platform;
+
+    IParameterService parameterService;
+
+    IConfigurationService configurationService;
+
+    LookupColumnTransform transform;
+
+    TransformColumn column;
+
+    Map<String, String> names;
+
+    List<String> queriedIds;
+
+    @Before
+    public void setUp() throws Exception {
+        names = new HashMap<String, String>();
+        names.put("1", "one");
+        names.put("2", "two");
+        names.put("3", "three");
+        queriedIds = new ArrayList<String>();
+
+        ISqlTemplate sqlTemplate = mock(ISqlTemplate.class);
+        when(sqlTemplate.query(anyString(), any(StringMapper.class), anyMap())).thenAnswer(new Answer<List<String>>() {
+            public List<String> answer(InvocationOnMock invocation) throws Throwable {
+                Map<?, ?> namedParams = invocation.getArgument(2);
+                String id = (String) namedParams.get("ID");
+                queriedIds.add(id);
+                List<String> rows = new ArrayList<String>();
+                if (names.containsKey(id)) {
+                    rows.add(names.get(id));
+                }
+                return rows;
+            }
+        });
+        platform = mock(IDatabasePlatform.class);
+        when(platform.getSqlTemplate()).thenReturn(sqlTemplate);
+
+        parameterService = mock(IParameterService.class);
+        when(parameterService.getInt(ParameterConstants.TRANSFORM_LOOKUP_CACHE_SIZE, 1000)).thenReturn(1000);
+
+        Channel reloadChannel = new Channel("custom_reload", 1);
+        reloadChannel.setReloadFlag(true);
+        configurationService = mock(IConfigurationService.class);
+        when(configurationService.getChannel("custom_reload")).thenReturn(reloadChannel);
+        when(configurationService.getChannel("default")).thenReturn(new Channel("default", 1));
+
+        transform = new LookupColumnTransform(parameterService, configurationService);
+        column = new TransformColumn("id", "name", false, LookupColumnTransform.NAME, SQL);
+    }
+
+    @Test
+    public void testCachedDuringInitialLoad() throws Exception {
+        DataContext context = newContext(Constants.CHANNEL_RELOAD);
+        assertEquals("one", lookup(context, "1"));
+        assertEquals("two", lookup(context, "2"));
+        assertEquals("one", lookup(context, "1"));
+        assertEquals("two", lookup(context, "2"));
+        assertEquals(2, queriedIds.size());
+    }
+
+    @Test
+    public void testCachedOnCustomReloadChannel() throws Exception {
+        DataContext context = newContext("custom_reload");
+        lookup(context, "1");
+        lookup(context, "1");
+        assertEquals(1, queriedIds.size());
+    }
+
+    @Test
+    public void testMissesAreNotCached() throws Exception {
+        DataContext context = newContext(Constants.CHANNEL_RELOAD);
+        assertNull(lookup(context, "4"));
+        names.put("4", "four");
+        assertEquals("four", lookup(context, "4"));
+        assertEquals("four", lookup(context, "4"));
+        assertEquals(2, queriedIds.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        when(parameterService.getInt(ParameterConstants.TRANSFORM_LOOKUP_CACHE_SIZE, 1000)).thenReturn(2);
+        DataContext context = newContext(Constants.CHANNEL_RELOAD);
+        lookup(context, "1");
+        lookup(context, "2");
+        lookup(context, "1");
+        lookup(context, "3");
+        lookup(context, "1");
+        assertEquals(3, queriedIds.size());
+        lookup(context, "2");
+        assertEquals(4, queriedIds.size());
+    }
+
+    @Test
+    public void testNotCachedOutsideInitialLoad() throws Exception {
+        DataContext context = newContext("default");
+        lookup(context, "1");
+        lookup(context, "1");
+        assertEquals(2, queriedIds.size());
+    }
+
+    @Test
+    public void testNotSharedBetweenLoads() throws Exception {
+        lookup(newContext(Constants.CHANNEL_RELOAD), "1");
+        lookup(newContext(Constants.CHANNEL_RELOAD), "1");
+        assertEquals(2, queriedIds.size());
+    }
+
+    @Test
+    public void testNotCachedWhenSizeIsZero() throws Exception {
+        when(parameterService.getInt(ParameterConstants.TRANSFORM_LOOKUP_CACHE_SIZE, 1000)).thenReturn(0);
+        DataContext context = newContext(Constants.CHANNEL_RELOAD);
+        lookup(context, "1");
+        lookup(context, "1");
+        assertEquals(2, queriedIds.size());
+    }
+
+    @Test
+    public void testExtensionInstanceCachesOnceEngineAware() throws Exception {
+        transform = new LookupColumnTransform();
+        DataContext context = newContext(Constants.CHANNEL_RELOAD);
+        lookup(context, "1");
+        lookup(context, "1");
+        assertEquals(2, queriedIds.size());
+
+        ISymmetricEngine engine = mock(ISymmetricEngine.class);
+        when(engine.getParameterService()).thenReturn(parameterService);
+        when(engine.getConfigurationService()).thenReturn(configurationService);
+        transform.setSymmetricEngine(engine);
+        lookup(context, "1");
+        lookup(context, "1");
+        assertEquals(3, queriedIds.size());
+    }
+
+    protected DataContext newContext(String channelId) {
+        return new DataContext(new Batch(BatchType.LOAD, 1, channelId, BinaryEncoding.BASE64, "00001", "00000", false));
+    }
+
+    protected String lookup(DataContext context, String id) throws Exception {
+        TransformTable table = new TransformTable("customer_source", "customer", TransformPoint.LOAD, column);
+        Map<String, String> sourceValues = new HashMap<String, String>();
+        sourceValues.put("ID", id);
+        TransformedData data = new TransformedData(table, DataEventType.INSERT, new HashMap<String, String>(),
+                null, sourceValues);
+        return transform.transform(platform, context, column, data, sourceValues, id, null).getNewValue();
+    }
+
+}
@@ -20,12 +20,23 @@
  */
 package org.jumpmind.symmetric.transport;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.statistic.MockStatisticManager;
+import org.jumpmind.symmetric.transport.ConcurrentConnectionManager.LongPoll;
 import org.jumpmind.symmetric.transport.ConcurrentConnectionManager.Reservation;
 import org.jumpmind.symmetric.transport.IConcurrentConnectionManager.ReservationType;
 import org.junit.Test;
@@ -52,4 +63,95 @@ public class ConcurrentConnectionManagerUnitTest {
         mgr.removeTimedOutReservations(reservations);
         assertEquals(1, reservations.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLongPollSignaledForNodeAndQueue() throws Exception {
+        ConcurrentConnectionManager mgr = new ConcurrentConnectionManager(mockParameterService(10), new MockStatisticManager());
+        LongPoll defaultQueue = mgr.startLongPoll("1", "default");
+        LongPoll anyQueue = mgr.startLongPoll("1", null);
+        LongPoll otherNode = mgr.startLongPoll("2", "default");
+        assertEquals(3, mgr.getLongPollCount());
+
+        mgr.dataRouted(Arrays.asList("1"), "reload");
+        assertFalse(defaultQueue.isSignaled());
+        assertTrue(anyQueue.isSignaled());
+        assertFalse(otherNode.isSignaled());
+
+        mgr.dataRouted(Arrays.asList("1"), "default");
+        assertTrue(defaultQueue.await(0));
+        assertFalse(otherNode.await(10));
+
+        mgr.endLongPoll(defaultQueue);
+        mgr.endLongPoll(anyQueue);
+        mgr.endLongPoll(otherNode);
+        mgr.endLongPoll(otherNode);
+        assertEquals(0, mgr.getLongPollCount());
+    }
+
+    @Test
+    public void testLongPollLimit() {
+        ConcurrentConnectionManager mgr = new ConcurrentConnectionManager(mockParameterService(1), new MockStatisticManager());
+        LongPoll longPoll = mgr.startLongPoll("1", null);
+        assertNotNull(longPoll);
+        assertNull(mgr.startLongPoll("2", null));
+        mgr.endLongPoll(longPoll);
+        assertNotNull(mgr.startLongPoll("2", null));
+    }
+
+    @Test
+    public void testSoftReservationExpiredByTimerWheel() {
+        ConcurrentConnectionManager mgr = new ConcurrentConnectionManager(mockParameterService(10), new MockStatisticManager());
+        assertTrue(mgr.reserveConnection("1", "push", ReservationType.SOFT));
+        assertTrue(mgr.reserveConnection("2", "push", ReservationType.SOFT));
+        assertTrue(mgr.reserveConnection("2", "push", ReservationType.HARD));
+        assertEquals(2, mgr.getReservationCount("push"));
+
+        mgr.timerWheel.expire(mgr, System.currentTimeMillis() + 30000);
+        assertEquals(1, mgr.getReservationCount("push"));
+        assertFalse(mgr.releaseConnection("1", "push"));
+        assertTrue(mgr.releaseConnection("2", "push"));
+        assertEquals(0, mgr.getReservationCount("push"));
+    }
+
+    @Test
+    public void testReservationsUnderContention() throws Exception {
+        final int maxWorkers = 8;
+        final ConcurrentConnectionManager mgr = new ConcurrentConnectionManager(mockParameterService(10), new MockStatisticManager());
+        final AtomicInteger reserved = new AtomicInteger();
+        final AtomicInteger overbooked = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 32; i++) {
+            final String nodeId = Integer.toString(i);
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 5000; j++) {
+                    if (mgr.reserveConnection(nodeId, "pull", ReservationType.HARD)) {
+                        reserved.incrementAndGet();
+                        if (mgr.getReservationCount("pull") > maxWorkers) {
+                            overbooked.incrementAndGet();
+                        }
+                        mgr.releaseConnection(nodeId, "pull");
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(reserved.get() > 0);
+        assertTrue(reserved.get() <= threads.size() * 5000);
+        assertEquals(0, overbooked.get());
+        assertEquals(0, mgr.getReservationCount("pull"));
+        assertTrue(mgr.getActiveReservationsByNodeByPool().get("pull").isEmpty());
+    }
+
+    protected IParameterService mockParameterService(int maxHeldRequests) {
+        IParameterService parameterService = mock(IParameterService.class);
+        when(parameterService.getInt(ParameterConstants.CONCURRENT_WORKERS)).thenReturn(8);
+        when(parameterService.getLong(ParameterConstants.CONCURRENT_RESERVATION_TIMEOUT)).thenReturn(20000l);
+        when(parameterService.getInt(eq(ParameterConstants.PULL_LONG_POLL_MAX_HELD_REQUESTS), anyInt())).thenReturn(maxHeldRequests);
+        return parameterService;
+    }
+}
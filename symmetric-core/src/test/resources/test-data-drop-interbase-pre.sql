@@ -48,6 +48,7 @@ DROP TABLE SYM_PARAMETER;
 DROP TABLE SYM_NODE_HOST_CHANNEL_STATS;
 DROP TABLE SYM_NODE_HOST_STATS;
 DROP TABLE SYM_NODE_HOST_JOB_STATS;
+DROP TABLE SYM_NODE_HOST_STAGE_STATS;
 DROP TABLE SYM_REGISTRATION_REDIRECT;
 DROP TABLE SYM_REGISTRATION_REQUEST;
 DROP TABLE SYM_CONTEXT;
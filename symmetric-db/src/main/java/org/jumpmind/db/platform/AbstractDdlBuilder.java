@@ -1211,6 +1211,18 @@ public abstract class AbstractDdlBuilder implements IDdlBuilder {
 		return ddl.toString();
 	}
 
+	public String createTemporaryTable(Table table) {
+		return null;
+	}
+
+	public Table getTemporaryTable(Table table) {
+		return table;
+	}
+
+	public String dropTemporaryTable(Table table) {
+		return "DROP TABLE " + getFullyQualifiedTableNameShorten(getTemporaryTable(table));
+	}
+
 	/**
 	 * Outputs the DDL to create the table along with any non-external constraints
 	 * as well as with external primary keys and indices (but not foreign keys).
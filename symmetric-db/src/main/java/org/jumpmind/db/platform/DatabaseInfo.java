@@ -224,6 +224,12 @@ public class DatabaseInfo {
     private boolean requiresAutoCommitForDdl = false;
     
     private boolean requiresSavePointsInTransaction = false;
+
+    /**
+     * True when the JDBC driver returns the number of rows each statement in a
+     * batch changed, instead of {@link java.sql.Statement#SUCCESS_NO_INFO}.
+     */
+    private boolean batchUpdateCountsReported = false;
     
     private String catalogSeparator = ".";
     
@@ -1300,6 +1306,14 @@ public class DatabaseInfo {
     public boolean isRequiresSavePointsInTransaction() {
         return requiresSavePointsInTransaction;
     }
+
+    public void setBatchUpdateCountsReported(boolean batchUpdateCountsReported) {
+        this.batchUpdateCountsReported = batchUpdateCountsReported;
+    }
+
+    public boolean isBatchUpdateCountsReported() {
+        return batchUpdateCountsReported;
+    }
     
     public int getMinIsolationLevelToPreventPhantomReads() {
 		return minIsolationLevelToPreventPhantomReads;
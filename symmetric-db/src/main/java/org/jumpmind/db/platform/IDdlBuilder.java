@@ -44,6 +44,21 @@ public interface IDdlBuilder {
     public boolean isAlterDatabase(Database currentModel, Database desiredModel, IAlterDatabaseInterceptor... alterDatabaseInterceptors);
     
     public String createTable(Table table);
+
+    /**
+     * Returns the DDL to create a table that is only visible to the current
+     * connection, or null if the platform does not support it.
+     */
+    public String createTemporaryTable(Table table);
+
+    /**
+     * Returns the table as it is named once it is created with
+     * {@link #createTemporaryTable(Table)}. Platforms that keep these tables in
+     * a schema of their own return a copy in that schema.
+     */
+    public Table getTemporaryTable(Table table);
+
+    public String dropTemporaryTable(Table table);
     
     public String alterDatabase(Database currentModel, Database desiredModel, IAlterDatabaseInterceptor... alterDatabaseInterceptors);
     
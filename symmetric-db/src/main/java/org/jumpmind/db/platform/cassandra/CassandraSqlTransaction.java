@@ -125,6 +125,16 @@ public class CassandraSqlTransaction implements ISqlTransaction {
 		return 0;
 	}
 
+	@Override
+	public int[] flushWithUpdateCounts() {
+		return new int[0];
+	}
+
+	@Override
+	public int getBatchSize() {
+		return 1;
+	}
+
 	@Override
 	public <T> List<T> getUnflushedMarkers(boolean clear) {
 		// TODO Auto-generated method stub
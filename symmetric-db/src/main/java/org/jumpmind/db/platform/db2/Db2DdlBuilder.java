@@ -84,6 +84,7 @@ public class Db2DdlBuilder extends AbstractDdlBuilder {
         databaseInfo.setEmptyStringNulled(false);
         databaseInfo.setBinaryQuoteStart("blob(X'");
         databaseInfo.setBinaryQuoteEnd("')");
+        databaseInfo.setBatchUpdateCountsReported(true);
 
     }
 
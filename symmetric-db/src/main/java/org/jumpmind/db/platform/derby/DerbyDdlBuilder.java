@@ -78,6 +78,7 @@ public class DerbyDdlBuilder extends AbstractDdlBuilder {
         databaseInfo.setBlankCharColumnSpacePadded(true);
         databaseInfo.setCharColumnSpaceTrimmed(false);
         databaseInfo.setEmptyStringNulled(false);        
+        databaseInfo.setBatchUpdateCountsReported(true);
     }
 
     @Override
@@ -92,6 +93,29 @@ public class DerbyDdlBuilder extends AbstractDdlBuilder {
         }
     }
 
+    @Override
+    public String createTemporaryTable(Table table) {
+        table = getTemporaryTable(table);
+        StringBuilder ddl = new StringBuilder("DECLARE GLOBAL TEMPORARY TABLE ");
+        ddl.append(getFullyQualifiedTableNameShorten(table));
+        println("(", ddl);
+        writeColumns(table, ddl);
+        println(ddl);
+        ddl.append(") ON COMMIT PRESERVE ROWS NOT LOGGED");
+        return ddl.toString();
+    }
+
+    /**
+     * Declared temporary tables always belong to the SESSION schema.
+     */
+    @Override
+    public Table getTemporaryTable(Table table) {
+        Table temporaryTable = table.copy();
+        temporaryTable.setCatalog(null);
+        temporaryTable.setSchema("SESSION");
+        return temporaryTable;
+    }
+
     @Override
     public String getSelectLastIdentityValues(Table table) {
         return "VALUES IDENTITY_VAL_LOCAL()";
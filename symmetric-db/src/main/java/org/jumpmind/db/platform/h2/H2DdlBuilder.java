@@ -84,6 +84,7 @@ public class H2DdlBuilder extends AbstractDdlBuilder {
         databaseInfo.setCharColumnSpaceTrimmed(true);
         databaseInfo.setEmptyStringNulled(false);                
         databaseInfo.setNullAsDefaultValueRequired(true);
+        databaseInfo.setBatchUpdateCountsReported(true);
                 
     }
     
@@ -181,6 +182,18 @@ public class H2DdlBuilder extends AbstractDdlBuilder {
         }
     }
 
+    @Override
+    public String createTemporaryTable(Table table) {
+        StringBuilder ddl = new StringBuilder("CREATE LOCAL TEMPORARY TABLE ");
+        ddl.append(getFullyQualifiedTableNameShorten(table));
+        println("(", ddl);
+        writeColumns(table, ddl);
+        println(ddl);
+        /* transactional so that creating the table does not commit the load */
+        ddl.append(") TRANSACTIONAL");
+        return ddl.toString();
+    }
+
     @Override
     public void writeExternalIndexDropStmt(Table table, IIndex index, StringBuilder ddl) {
         ddl.append("DROP INDEX IF EXISTS ");
@@ -77,6 +77,7 @@ public class HsqlDb2DdlBuilder extends AbstractDdlBuilder {
         databaseInfo.setBlankCharColumnSpacePadded(true);
         databaseInfo.setCharColumnSpaceTrimmed(false);
         databaseInfo.setEmptyStringNulled(false);
+        databaseInfo.setBatchUpdateCountsReported(true);
 
     }
 
@@ -139,6 +139,31 @@ public class MsSql2000DdlBuilder extends AbstractDdlBuilder {
         super.createTable(table, ddl, temporary, recreate);
     }
 
+    @Override
+    public String createTemporaryTable(Table table) {
+        table = getTemporaryTable(table);
+        StringBuilder ddl = new StringBuilder("CREATE TABLE ");
+        ddl.append(getFullyQualifiedTableNameShorten(table));
+        println("(", ddl);
+        writeColumns(table, ddl);
+        println(ddl);
+        ddl.append(")");
+        return ddl.toString();
+    }
+
+    /**
+     * Local temporary tables are named with a leading # and always belong to
+     * tempdb.
+     */
+    @Override
+    public Table getTemporaryTable(Table table) {
+        Table temporaryTable = table.copy();
+        temporaryTable.setCatalog(null);
+        temporaryTable.setSchema(null);
+        temporaryTable.setName("#" + table.getName());
+        return temporaryTable;
+    }
+
     @Override
     protected void dropTable(Table table, StringBuilder ddl, boolean temporary, boolean recreate) {
         String tableName = getTableName(table.getName());
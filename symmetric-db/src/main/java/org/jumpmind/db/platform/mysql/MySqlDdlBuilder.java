@@ -66,6 +66,7 @@ public class MySqlDdlBuilder extends AbstractDdlBuilder {
         // server SQL mode includes ANSI_QUOTES
         databaseInfo.setDelimiterToken("`");
         databaseInfo.setZeroDateAllowed(true);
+        databaseInfo.setBatchUpdateCountsReported(true);
 
         databaseInfo.addNativeTypeMapping(Types.ARRAY, "LONGBLOB", Types.LONGVARBINARY);
         databaseInfo.addNativeTypeMapping(Types.BIT, "BIT");
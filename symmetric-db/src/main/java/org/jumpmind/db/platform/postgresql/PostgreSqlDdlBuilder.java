@@ -116,6 +116,29 @@ public class PostgreSqlDdlBuilder extends AbstractDdlBuilder {
                 "org.jumpmind.symmetric.ddl.use.postgres.map.json", "true"));
     }
 
+    @Override
+    public String createTemporaryTable(Table table) {
+        table = getTemporaryTable(table);
+        StringBuilder ddl = new StringBuilder("CREATE TEMPORARY TABLE ");
+        ddl.append(getFullyQualifiedTableNameShorten(table));
+        println("(", ddl);
+        writeColumns(table, ddl);
+        println(ddl);
+        ddl.append(")");
+        return ddl.toString();
+    }
+
+    /**
+     * Temporary tables always belong to the session's own temporary schema.
+     */
+    @Override
+    public Table getTemporaryTable(Table table) {
+        Table temporaryTable = table.copy();
+        temporaryTable.setCatalog(null);
+        temporaryTable.setSchema(null);
+        return temporaryTable;
+    }
+
     @Override
     protected void dropTable(Table table, StringBuilder ddl, boolean temporary, boolean recreate) {
         ddl.append("DROP TABLE ");
@@ -48,6 +48,7 @@ public class SqliteDdlBuilder extends AbstractDdlBuilder {
         databaseInfo.setSystemForeignKeyIndicesAlwaysNonUnique(true);
         databaseInfo.setNullAsDefaultValueRequired(false);
         databaseInfo.setRequiresAutoCommitForDdl(true);
+        databaseInfo.setBatchUpdateCountsReported(true);
 
         databaseInfo.addNativeTypeMapping(Types.ARRAY, "BINARY", Types.BINARY);
         databaseInfo.addNativeTypeMapping(Types.CHAR, "VARCHAR", Types.VARCHAR);
@@ -77,6 +77,8 @@ public class DmlStatement {
     protected Column[] columns;
 
     protected boolean[] nullKeyValues;
+
+    protected Column[] nullKeys;
     
     protected String textColumnExpression;
     
@@ -117,15 +119,20 @@ public class DmlStatement {
                 || nullKeyValues.length != keysColumns.length) {
             this.keys = keysColumns;
             this.nullKeyValues = keysColumns == null ? null : new boolean[keysColumns.length];
+            this.nullKeys = new Column[0];
         } else {
             List<Column> cols = new ArrayList<Column>(keysColumns.length);
+            List<Column> nullCols = new ArrayList<Column>();
             // weed out null values
             for (int i = 0; i < keysColumns.length; i++) {
                 if (!nullKeyValues[i]) {
                     cols.add(keysColumns[i]);
+                } else {
+                    nullCols.add(keysColumns[i]);
                 }
             }
             this.keys = cols.toArray(new Column[cols.size()]);
+            this.nullKeys = nullCols.toArray(new Column[nullCols.size()]);
             this.nullKeyValues = nullKeyValues;
         }
         this.quote = databaseInfo.getDelimiterToken() == null || !useQuotedIdentifiers ? "" : 
@@ -410,6 +417,14 @@ public class DmlStatement {
     public Column[] getKeys() {
         return keys;
     }
+
+    /**
+     * The key columns that are matched with "is null" instead of a bound
+     * value.
+     */
+    public Column[] getNullKeys() {
+        return nullKeys;
+    }
    
     @SuppressWarnings("unchecked")
     public <T> T[] getValueArray(T[] columnValues, T[] keyValues) {
@@ -68,6 +68,22 @@ public interface ISqlTransaction {
 
     public int flush();
 
+    /**
+     * Flush the rows that have been added in batch mode and return the update
+     * count of each row in the order the rows were added. Rows that failed, or
+     * that were never run because an earlier row in the batch failed, are
+     * reported as {@link java.sql.Statement#EXECUTE_FAILED}. Rows that the
+     * driver ran without reporting a count are reported as
+     * {@link java.sql.Statement#SUCCESS_NO_INFO}.
+     */
+    public int[] flushWithUpdateCounts();
+
+    /**
+     * The number of rows that will be added in batch mode before they are
+     * flushed automatically.
+     */
+    public int getBatchSize();
+
     public <T> List<T> getUnflushedMarkers(boolean clear);
 
     /**
@@ -33,6 +33,7 @@ public class SqlTemplateSettings {
     protected int resultSetType = java.sql.ResultSet.TYPE_FORWARD_ONLY;
     protected LogSqlBuilder logSqlBuilder;
     protected boolean allowUpdatesWithResults = false;
+    protected int preparedStatementCacheSize = 10;
     
     public SqlTemplateSettings() {     
     }      
@@ -117,6 +118,14 @@ public class SqlTemplateSettings {
         this.allowUpdatesWithResults = allowUpdatesWithResults;
     }
 
+    public int getPreparedStatementCacheSize() {
+        return preparedStatementCacheSize;
+    }
+
+    public void setPreparedStatementCacheSize(int preparedStatementCacheSize) {
+        this.preparedStatementCacheSize = preparedStatementCacheSize;
+    }
+
     public int getBatchBulkLoaderSize() {
         return batchBulkLoaderSize;
     }
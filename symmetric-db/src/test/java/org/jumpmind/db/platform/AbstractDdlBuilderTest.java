@@ -20,6 +20,7 @@
  */
 package org.jumpmind.db.platform;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.sql.Types;
@@ -424,4 +425,36 @@ public class AbstractDdlBuilderTest {
         }
     }
 
+    @Test
+    public void testCreateTemporaryTableLeavesTableUnchanged() throws Exception {
+        for (AbstractDdlBuilder ddlBuilder : ddlBuilders) {
+            Table table = new Table("CATALOG", "APP", "TEMP_TEST");
+            table.addColumn(new Column("ID", false, Types.INTEGER, 0, 0));
+            String ddl = ddlBuilder.createTemporaryTable(table);
+            assertEquals(ddlBuilder.databaseName, "CATALOG", table.getCatalog());
+            assertEquals(ddlBuilder.databaseName, "APP", table.getSchema());
+            if (ddl != null) {
+                Table temporaryTable = ddlBuilder.getTemporaryTable(table);
+                assertTrue(ddlBuilder.databaseName, ddl.contains(ddlBuilder.getFullyQualifiedTableNameShorten(temporaryTable)));
+                assertTrue(ddlBuilder.databaseName, ddlBuilder.dropTemporaryTable(table).contains(
+                        ddlBuilder.getFullyQualifiedTableNameShorten(temporaryTable)));
+            }
+        }
+
+        Table table = new Table("TEMP_TEST", new Column("ID", false, Types.INTEGER, 0, 0));
+        table.setSchema("APP");
+        Table temporaryTable = new DerbyDdlBuilder().getTemporaryTable(table);
+        assertEquals("SESSION", temporaryTable.getSchema());
+        assertEquals("APP", table.getSchema());
+
+        temporaryTable = new MsSql2008DdlBuilder().getTemporaryTable(table);
+        assertEquals("#TEMP_TEST", temporaryTable.getName());
+        assertEquals(null, temporaryTable.getSchema());
+        assertEquals("TEMP_TEST", table.getName());
+
+        temporaryTable = new PostgreSqlDdlBuilder().getTemporaryTable(table);
+        assertEquals(null, temporaryTable.getSchema());
+        assertTrue(new PostgreSqlDdlBuilder().createTemporaryTable(table).startsWith("CREATE TEMPORARY TABLE "));
+    }
+
 }
@@ -23,6 +23,7 @@ package org.jumpmind.symmetric.io.data;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Base64;
@@ -54,6 +55,7 @@ public class Batch {
     protected BatchType batchType;
     protected Statistics statistics;
     protected boolean invalidRetry = false;
+    protected Set<String> tableNames;
     
     protected Map<String, Long> timers = new HashMap<String, Long>();
         
@@ -220,6 +222,18 @@ public class Batch {
         return invalidRetry;
     }
     
+    /**
+     * The lower case, fully qualified names of the tables in the batch when
+     * they are known, or null when they are not.
+     */
+    public Set<String> getTableNames() {
+        return tableNames;
+    }
+
+    public void setTableNames(Set<String> tableNames) {
+        this.tableNames = tableNames;
+    }
+
     public String encodeBinary(String value) {
         if (value != null) {
             if (binaryEncoding == BinaryEncoding.HEX) {
@@ -48,5 +48,18 @@ public class DataReaderStatistics extends Statistics {
     public static final String EXTRACT_UPDATE_ROW_COUNT = "EXTRACT_UPDATE_ROW_COUNT";
     public static final String EXTRACT_DELETE_ROW_COUNT = "EXTRACT_DELETE_ROW_COUNT";
     public static final String FAILED_DATA_ID = "FAILED_DATA_ID";
+    public static final String MIN_CAPTURE_TIME = "MIN_CAPTURE_TIME";
+    public static final String MAX_CAPTURE_TIME = "MAX_CAPTURE_TIME";
+
+    public static final int READ_BYTE_COUNT_ID = register(READ_BYTE_COUNT);
+    public static final int READ_RECORD_COUNT_ID = register(READ_RECORD_COUNT);
+
+    static {
+        register(LOAD_FLAG, EXTRACT_COUNT, SENT_COUNT, LOAD_COUNT, LOAD_ID, COMMON_FLAG, ROUTER_MILLIS, EXTRACT_MILLIS,
+                TRANSFORM_EXTRACT_MILLIS, TRANSFORM_LOAD_MILLIS, RELOAD_ROW_COUNT, OTHER_ROW_COUNT, DATA_ROW_COUNT,
+                DATA_INSERT_ROW_COUNT, DATA_UPDATE_ROW_COUNT, DATA_DELETE_ROW_COUNT, EXTRACT_ROW_COUNT,
+                EXTRACT_INSERT_ROW_COUNT, EXTRACT_UPDATE_ROW_COUNT, EXTRACT_DELETE_ROW_COUNT, FAILED_DATA_ID,
+                MIN_CAPTURE_TIME, MAX_CAPTURE_TIME);
+    }
     
 }
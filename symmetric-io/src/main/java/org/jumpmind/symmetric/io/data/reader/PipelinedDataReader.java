@@ -0,0 +1,243 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.reader;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.IDataReader;
+import org.jumpmind.util.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses a data reader on another thread ahead of the thread that is
+ * processing it. Batches, tables and data are handed over through a bounded
+ * queue in the same order that a {@link org.jumpmind.symmetric.io.data.DataProcessor}
+ * asks for them, so parsing the next batch can overlap with writing the
+ * current one while the amount of parsed data held in memory stays limited.
+ * <p>
+ * The source reader is opened with its own {@link DataContext} because it
+ * runs concurrently with the writers that use the processing context.
+ */
+public class PipelinedDataReader implements IDataReader {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelinedDataReader.class);
+
+    protected static final long POLL_INTERVAL_MS = 100;
+
+    protected IDataReader source;
+
+    protected DataContext sourceContext;
+
+    protected DataContext context;
+
+    protected BlockingQueue<Element> queue;
+
+    protected CountDownLatch done = new CountDownLatch(1);
+
+    protected volatile boolean started;
+
+    protected volatile boolean closed;
+
+    public PipelinedDataReader(IDataReader source, int queueSize) {
+        this(source, new DataContext(), queueSize);
+    }
+
+    public PipelinedDataReader(IDataReader source, DataContext sourceContext, int queueSize) {
+        this.source = source;
+        this.sourceContext = sourceContext;
+        this.queue = new ArrayBlockingQueue<Element>(Math.max(1, queueSize));
+    }
+
+    /**
+     * Start parsing on the given executor. Parsing blocks when the queue is
+     * full and stops when this reader is closed.
+     */
+    public void start(Executor executor) {
+        started = true;
+        executor.execute(new Runnable() {
+            public void run() {
+                parse();
+            }
+        });
+    }
+
+    protected void parse() {
+        try {
+            source.open(sourceContext);
+            Batch batch = null;
+            do {
+                batch = source.nextBatch();
+                if (!put(Type.BATCH, batch) || (batch != null && !parseBatch())) {
+                    break;
+                }
+            } while (batch != null);
+        } catch (Throwable ex) {
+            put(Type.ERROR, ex);
+        } finally {
+            try {
+                source.close();
+            } catch (Exception ex) {
+                log.error("Failed to close data reader " + source, ex);
+            }
+            done.countDown();
+        }
+    }
+
+    protected boolean parseBatch() {
+        if (!parseData()) {
+            return false;
+        }
+        Table table = null;
+        do {
+            table = source.nextTable();
+            if (!put(Type.TABLE, table) || (table != null && !parseData())) {
+                return false;
+            }
+        } while (table != null);
+        return true;
+    }
+
+    protected boolean parseData() {
+        CsvData data = null;
+        do {
+            data = source.nextData();
+            if (!put(Type.DATA, data)) {
+                return false;
+            }
+        } while (data != null);
+        return true;
+    }
+
+    protected boolean put(Type type, Object value) {
+        Element element = new Element(type, value);
+        try {
+            while (!closed) {
+                if (queue.offer(element, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    protected Object take(Type type) {
+        Element element = null;
+        try {
+            while (element == null) {
+                boolean finished = !started || done.getCount() == 0;
+                element = queue.poll(finished ? 0 : POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (element == null && finished) {
+                    return null;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("This thread was interrupted");
+        }
+
+        if (element.type == Type.ERROR) {
+            Throwable ex = (Throwable) element.value;
+            if (ex instanceof RuntimeException) {
+                throw (RuntimeException) ex;
+            } else if (ex instanceof Error) {
+                throw (Error) ex;
+            } else {
+                throw new IoException(ex.getMessage(), ex);
+            }
+        } else if (element.type != type) {
+            throw new IllegalStateException(String.format("Expected to read a %s but the parser was at a %s", type, element.type));
+        }
+        return element.value;
+    }
+
+    public void open(DataContext context) {
+        this.context = context;
+    }
+
+    public Batch nextBatch() {
+        return (Batch) take(Type.BATCH);
+    }
+
+    public Table nextTable() {
+        Table table = (Table) take(Type.TABLE);
+        if (table != null && context != null) {
+            context.setLastParsedTable(table);
+        }
+        return table;
+    }
+
+    public CsvData nextData() {
+        return (CsvData) take(Type.DATA);
+    }
+
+    /**
+     * Stop parsing and wait for the source reader to be closed so the
+     * resource it reads from can be safely cleaned up afterwards.
+     */
+    public void close() {
+        closed = true;
+        queue.clear();
+        if (started) {
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public Map<Batch, Statistics> getStatistics() {
+        return source.getStatistics();
+    }
+
+    public IDataReader getSource() {
+        return source;
+    }
+
+    protected enum Type {
+        BATCH, TABLE, DATA, ERROR
+    }
+
+    protected static class Element {
+        Type type;
+        Object value;
+
+        Element(Type type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+}
@@ -153,7 +153,7 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
                 
                 if (batch != null) {
                     stats = statistics.get(batch);
-                    stats.increment(DataReaderStatistics.READ_BYTE_COUNT, bytesRead);
+                    stats.increment(DataReaderStatistics.READ_BYTE_COUNT_ID, bytesRead);
                     bytesRead = 0;
                 }
 
@@ -164,7 +164,7 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
 
                 if (stats != null && (tokens[0].equals(CsvConstants.INSERT) || tokens[0].equals(CsvConstants.UPDATE)
                         || tokens[0].equals(CsvConstants.DELETE))) {
-                    stats.increment(DataReaderStatistics.READ_RECORD_COUNT, 1);
+                    stats.increment(DataReaderStatistics.READ_RECORD_COUNT_ID, 1);
                 }
 
                 if (tokens[0].equals(CsvConstants.INSERT)) {
@@ -255,7 +255,12 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
                         keys.add(tokens[i]);
                     }
                 } else if (tokens[0].equals(CsvConstants.COLUMNS)) {
-                    table.removeAllColumns();
+                    /*
+                     * Tables that were already returned may still be in use by
+                     * a writer on another thread, so never change them in place
+                     */
+                    table = new Table(table.getCatalog(), table.getSchema(), table.getName());
+                    context.setLastParsedTable(table);
                     for (int i = 1; i < tokens.length; i++) {
                         Column column = new Column(tokens[i], keys != null && keys.contains(tokens[i]));
                         table.addColumn(column);
@@ -83,6 +83,12 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
 
     protected Set<String> missingTables = new HashSet<String>();
 
+    /*
+     * The last exception that already went through error handling, so that it
+     * is not handled a second time when it surfaces while writing a later row
+     */
+    protected RuntimeException handledError;
+
     public AbstractDatabaseWriter() {
         this(null, null);
     }
@@ -163,8 +169,8 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
                     || (targetTable == null && data.getDataEventType() == DataEventType.SQL)) {
                 try {
                     
-                    statistics.get(batch).increment(DataWriterStatisticConstants.ROWCOUNT);
-                    statistics.get(batch).increment(DataWriterStatisticConstants.LINENUMBER);
+                    statistics.get(batch).increment(DataWriterStatisticConstants.ROWCOUNT_ID);
+                    statistics.get(batch).increment(DataWriterStatisticConstants.LINENUMBER_ID);
                     if (filterBefore(data)) {
                         
                         switch (data.getDataEventType()) {
@@ -207,15 +213,7 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
                                 break;
                         }
 
-                        if (loadStatus == LoadStatus.CONFLICT) {
-                            if (conflictResolver != null) {
-                                conflictResolver.needsResolved(this, data, loadStatus);
-                            } else {
-                                throw new ConflictException(data, targetTable, false,
-                                        writerSettings.pickConflict(targetTable, batch),
-                                        (Exception) context.get(AbstractDatabaseWriter.CONFLICT_ERROR));
-                            }
-                        }
+                        resolveConflict(data, loadStatus);
 
                         uncommittedCount++;
 
@@ -231,31 +229,11 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
                     rollback();
                     throw ex;
                 } catch (RuntimeException ex) {
-                    Statistics batchStatistics = getStatistics().get(getBatch());
-                    long statementCount = batchStatistics.get(DataWriterStatisticConstants.ROWCOUNT);
-                    ResolvedData resolvedData = getWriterSettings().getResolvedData(statementCount);
-
-                    if (conflictResolver != null && conflictResolver.isIgnoreRow(this, data)) {
-                        statistics.get(batch).increment(DataWriterStatisticConstants.IGNOREROWCOUNT);
-                    } else if (conflictResolver != null && resolvedData != null) {
-                        Conflict conflict = new Conflict();
-                        conflict.setPingBack(PingBack.REMAINING_ROWS);
-                        conflictResolver.attemptToResolve(resolvedData, data, this, conflict);
-                    } else {
-                       if (filterError(data, ex)) {
-                            if (!(ex instanceof SqlException)) {
-                                /*
-                                 * SQL exceptions should have already been logged
-                                 */
-                                logFailureDetails(ex, data, false);
-                            }
-                            throw ex;
-                        } else {
-                            uncommittedCount++;
-                            statistics.get(batch).increment(DataWriterStatisticConstants.IGNORECOUNT);
-                            checkForEarlyCommit();
-                        }
+                    if (ex == handledError) {
+                        throw ex;
                     }
+                    Statistics batchStatistics = getStatistics().get(getBatch());
+                    handleError(data, ex, batchStatistics.get(DataWriterStatisticConstants.ROWCOUNT));
                 }
             } else {
                 if (sourceTable != null) {
@@ -270,6 +248,50 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
         }
     }
 
+    protected void resolveConflict(CsvData data, LoadStatus loadStatus) {
+        if (loadStatus == LoadStatus.CONFLICT) {
+            if (conflictResolver != null) {
+                conflictResolver.needsResolved(this, data, loadStatus);
+            } else {
+                throw new ConflictException(data, targetTable, false,
+                        writerSettings.pickConflict(targetTable, batch),
+                        (Exception) context.get(AbstractDatabaseWriter.CONFLICT_ERROR));
+            }
+        }
+    }
+
+    /**
+     * Either ignores the failed row or rethrows the exception. The statement
+     * count is the position of the row in the batch and is used to look up
+     * manually resolved data.
+     */
+    protected void handleError(CsvData data, RuntimeException ex, long statementCount) {
+        ResolvedData resolvedData = getWriterSettings().getResolvedData(statementCount);
+
+        if (conflictResolver != null && conflictResolver.isIgnoreRow(this, data)) {
+            statistics.get(batch).increment(DataWriterStatisticConstants.IGNOREROWCOUNT);
+        } else if (conflictResolver != null && resolvedData != null) {
+            Conflict conflict = new Conflict();
+            conflict.setPingBack(PingBack.REMAINING_ROWS);
+            conflictResolver.attemptToResolve(resolvedData, data, this, conflict);
+        } else {
+            if (filterError(data, ex)) {
+                if (!(ex instanceof SqlException)) {
+                    /*
+                     * SQL exceptions should have already been logged
+                     */
+                    logFailureDetails(ex, data, false);
+                }
+                handledError = ex;
+                throw ex;
+            } else {
+                uncommittedCount++;
+                statistics.get(batch).increment(DataWriterStatisticConstants.IGNORECOUNT);
+                checkForEarlyCommit();
+            }
+        }
+    }
+
     protected void checkForEarlyCommit() {
         if (uncommittedCount >= writerSettings.getMaxRowsBeforeCommit()) {
             commit(true);
@@ -306,12 +328,12 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
                 .getDatabaseWriterErrorHandlers();
         if (filters != null) {
             try {
-                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
                 for (IDatabaseWriterErrorHandler filter : filters) {
                     process &= filter.handleError(context, targetTable, data, ex);
                 }
             } finally {
-                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
             }
         }
         return process;
@@ -322,7 +344,7 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
         List<IDatabaseWriterFilter> filters = this.writerSettings.getDatabaseWriterFilters();
         if (filters != null) {
             try {
-                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
                 for (IDatabaseWriterFilter filter : filters) {
                     process &= filter.beforeWrite(this.context, this.sourceTable, data);
                 }
@@ -335,7 +357,7 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
                      targetTableWasChangedByFilter(oldTargetTable);
                 }
             } finally {
-                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
             }
         }
         return process;
@@ -348,12 +370,12 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
         List<IDatabaseWriterFilter> filters = this.writerSettings.getDatabaseWriterFilters();
         if (filters != null) {
             try {
-                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
                 for (IDatabaseWriterFilter filter : filters) {
                     filter.earlyCommit(context);
                 }
             } finally {
-                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
             }
         }
     }
@@ -362,12 +384,12 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
         List<IDatabaseWriterFilter> filters = this.writerSettings.getDatabaseWriterFilters();
         if (filters != null) {
             try {
-                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
                 for (IDatabaseWriterFilter filter : filters) {
                     filter.batchComplete(context);
                 }
             } finally {
-                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
             }
         }
     }
@@ -376,12 +398,12 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
         List<IDatabaseWriterFilter> filters = this.writerSettings.getDatabaseWriterFilters();
         if (filters != null) {
             try {
-                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
                 for (IDatabaseWriterFilter filter : filters) {
                     filter.batchCommitted(context);
                 }
             } finally {
-                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
             }
         }
     }
@@ -390,12 +412,12 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
         List<IDatabaseWriterFilter> filters = this.writerSettings.getDatabaseWriterFilters();
         if (filters != null) {
             try {
-                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
                 for (IDatabaseWriterFilter filter : filters) {
                     filter.batchRolledback(context);
                 }
             } finally {
-                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
             }
         }
     }
@@ -404,12 +426,12 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
         List<IDatabaseWriterFilter> filters = this.writerSettings.getDatabaseWriterFilters();
         if (filters != null) {
             try {
-                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).startTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
                 for (IDatabaseWriterFilter filter : filters) {
                     filter.afterWrite(this.context, this.sourceTable, data);
                 }
             } finally {
-                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS);
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.FILTERMILLIS_ID);
             }
         }
     }
@@ -453,7 +475,7 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
 
     protected boolean script(CsvData data) {
         try {
-            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
             String script = data.getParsedData(CsvData.ROW_DATA)[0];
             Map<String, Object> variables = new HashMap<String, Object>();
             bindVariables(variables);
@@ -0,0 +1,73 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+
+/**
+ * A row that a {@link DefaultDatabaseWriter} held back to apply together with
+ * other rows, along with what the writer needs to run it again on its own.
+ */
+public class BatchedRow {
+
+    CsvData data;
+
+    Table sourceTable;
+
+    Table targetTable;
+
+    Table contextTable;
+
+    boolean applyChangesOnly;
+
+    boolean useConflictDetection;
+
+    long statementCount;
+
+    /*
+     * The values bound to the statement, kept when the row is merged
+     */
+    Object[] values;
+
+    public BatchedRow(CsvData data, Table sourceTable, Table targetTable, Table contextTable,
+            boolean applyChangesOnly, boolean useConflictDetection, long statementCount) {
+        this.data = data;
+        this.sourceTable = sourceTable;
+        this.targetTable = targetTable;
+        this.contextTable = contextTable;
+        this.applyChangesOnly = applyChangesOnly;
+        this.useConflictDetection = useConflictDetection;
+        this.statementCount = statementCount;
+    }
+
+    public String getStatisticName() {
+        DataEventType type = data.getDataEventType();
+        if (type == DataEventType.INSERT) {
+            return DataWriterStatisticConstants.INSERTCOUNT;
+        } else if (type == DataEventType.UPDATE) {
+            return DataWriterStatisticConstants.UPDATECOUNT;
+        } else {
+            return DataWriterStatisticConstants.DELETECOUNT;
+        }
+    }
+}
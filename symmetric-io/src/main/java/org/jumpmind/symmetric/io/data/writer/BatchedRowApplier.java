@@ -0,0 +1,232 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.sql.DmlStatement.DmlType;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.util.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adds the inserts, updates and deletes of a {@link DefaultDatabaseWriter} to
+ * a JDBC batch and checks the update count of each row when the batch is
+ * flushed. Rows that did not change anything, or that failed, are handed back
+ * to the writer to run again one at a time, so that their conflicts are
+ * detected and resolved the same way as when batching is off.
+ */
+public class BatchedRowApplier {
+
+    protected final static Logger log = LoggerFactory.getLogger(BatchedRowApplier.class);
+
+    protected DefaultDatabaseWriter writer;
+
+    /*
+     * Rows that have been added to the current JDBC batch but not yet flushed
+     */
+    protected List<BatchedRow> rows = new ArrayList<BatchedRow>();
+
+    /*
+     * The keys of the rows in the current JDBC batch, so that a batch never
+     * holds two rows for the same key
+     */
+    protected Set<List<String>> rowKeys = new HashSet<List<String>>();
+
+    /*
+     * Turned off when the driver returns no update count for an update or
+     * delete, for example because of how its connection is configured
+     */
+    protected boolean updateCountsReported = true;
+
+    public BatchedRowApplier(DefaultDatabaseWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Rows are only batched when the database can continue a transaction after
+     * a failed statement. Otherwise a conflict in the batch would abort the
+     * transaction before the row could be run again. Updates and deletes are
+     * only batched when the driver reports how many rows each of them changed,
+     * because a row that changed nothing is a conflict. A failed insert is
+     * reported by every driver.
+     */
+    public boolean isBatched() {
+        return writer.getWriterSettings().isJdbcBatchEnabled() && !writer.replayingBatchedRows
+                && !writer.getPlatform().getDatabaseInfo().isRequiresSavePointsInTransaction()
+                && writer.getTransaction().getBatchSize() > 1
+                && (writer.getCurrentDmlStatement().getDmlType() == DmlType.INSERT || isUpdateCountsReported());
+    }
+
+    /**
+     * Whether the JDBC driver of the platform is known to report how many rows
+     * each statement of a batch changed, and has not failed to for this writer
+     */
+    protected boolean isUpdateCountsReported() {
+        return updateCountsReported && writer.getPlatform().getDatabaseInfo().isBatchUpdateCountsReported();
+    }
+
+    /**
+     * Adds the row to the JDBC batch with the values the writer bound and
+     * assumes it succeeded. The actual update count is checked when the batch
+     * is flushed.
+     */
+    public int add(CsvData data) {
+        ISqlTransaction transaction = writer.getTransaction();
+        Table targetTable = writer.getTargetTable();
+        List<List<String>> keys = getRowKeys(data, targetTable);
+        boolean keyInBatch = false;
+        for (List<String> key : keys) {
+            keyInBatch |= rowKeys.contains(key);
+        }
+        if (rows.size() >= transaction.getBatchSize() - 1 || keyInBatch) {
+            /*
+             * Flush before the transaction flushes on its own so that the
+             * update count of every row is seen.  Also flush before a second
+             * row for the same key so that a conflict on the first row is
+             * resolved before the second row is applied.
+             */
+            Object[] values = writer.currentDmlValues;
+            writer.flushBatchedRows();
+            writer.currentDmlValues = values;
+            transaction.setInBatchMode(true);
+        }
+        rowKeys.addAll(keys);
+        transaction.addRow(data, writer.currentDmlValues, writer.getCurrentDmlStatement().getTypes());
+        rows.add(new BatchedRow(data, writer.getSourceTable(), targetTable, writer.getContext().getTable(),
+                writer.lastApplyChangesOnly, writer.lastUseConflictDetection,
+                writer.getStatistics().get(writer.getBatch()).get(DataWriterStatisticConstants.ROWCOUNT)));
+        return 1;
+    }
+
+    /**
+     * The primary key of the row, and for an update the new primary key when
+     * it changes
+     */
+    protected List<List<String>> getRowKeys(CsvData data, Table table) {
+        List<List<String>> keys = new ArrayList<List<String>>(2);
+        keys.add(Arrays.asList(data.getPkData(table)));
+        if (data.getDataEventType() == DataEventType.UPDATE) {
+            Map<String, String> rowData = data.toColumnNameValuePairs(table.getColumnNames(), CsvData.ROW_DATA);
+            String[] keyNames = table.getPrimaryKeyColumnNames();
+            if (rowData.size() > 0 && keyNames.length > 0) {
+                String[] newKey = new String[keyNames.length];
+                for (int i = 0; i < keyNames.length; i++) {
+                    newKey[i] = rowData.get(keyNames[i]);
+                }
+                if (!Arrays.equals(newKey, data.getPkData(table))) {
+                    keys.add(Arrays.asList(newKey));
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Runs the JDBC batch and checks the update count of each row. Rows that
+     * did not change anything, or that failed, are run again in statement
+     * order. A batch never holds two rows for the same key, so no later row
+     * for the same key has been applied yet.
+     */
+    public void flush() {
+        if (rows.size() == 0) {
+            return;
+        }
+        List<BatchedRow> flushedRows = rows;
+        rows = new ArrayList<BatchedRow>();
+        rowKeys.clear();
+
+        Statistics statistics = writer.getStatistics().get(writer.getBatch());
+        Table currentSourceTable = writer.sourceTable;
+        Table currentTargetTable = writer.targetTable;
+        int[] updateCounts = null;
+        try {
+            writer.sourceTable = flushedRows.get(0).sourceTable;
+            writer.targetTable = flushedRows.get(0).targetTable;
+            statistics.startTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
+            updateCounts = writer.getTransaction().flushWithUpdateCounts();
+        } finally {
+            statistics.stopTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
+            writer.sourceTable = currentSourceTable;
+            writer.targetTable = currentTargetTable;
+        }
+
+        List<BatchedRow> conflictedRows = new ArrayList<BatchedRow>();
+        for (int i = 0; i < flushedRows.size(); i++) {
+            BatchedRow row = flushedRows.get(i);
+            int count = i < updateCounts.length ? updateCounts[i] : Statement.EXECUTE_FAILED;
+            if (count == Statement.SUCCESS_NO_INFO) {
+                if (row.data.getDataEventType() == DataEventType.INSERT) {
+                    /* an insert that did not fail inserted its row */
+                    count = 1;
+                } else {
+                    /*
+                     * It is not known whether the row changed anything, so
+                     * it is run again on its own and batching of updates
+                     * and deletes stops
+                     */
+                    if (updateCountsReported) {
+                        updateCountsReported = false;
+                        log.info("The JDBC driver did not report update counts for batched rows.  Updates and deletes will be loaded one at a time");
+                    }
+                    count = 0;
+                }
+            }
+            if (count != 1) {
+                /* adjust for the row count that was assumed when the row was batched */
+                String statisticName = row.getStatisticName();
+                long adjustment = count > 0 ? count - 1 : -1;
+                statistics.increment(statisticName, adjustment);
+                statistics.increment(writer.getTableStatisticName(row.targetTable, statisticName), adjustment);
+            }
+            if (count <= 0) {
+                conflictedRows.add(row);
+            }
+        }
+
+        try {
+            writer.conflictPrefetcher.prefetch(conflictedRows);
+            writer.replayRows(conflictedRows);
+        } finally {
+            writer.clearPrefetchedConflictRows();
+        }
+    }
+
+    public boolean isEmpty() {
+        return rows.size() == 0;
+    }
+
+    public void clear() {
+        rows.clear();
+        rowKeys.clear();
+    }
+
+}
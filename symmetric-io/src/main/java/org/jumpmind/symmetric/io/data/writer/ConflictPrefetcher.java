@@ -0,0 +1,189 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
+
+/**
+ * Reads the current rows of the conflicting rows of a {@link DefaultDatabaseWriter}
+ * with keyed queries when their conflicts are resolved by comparing a
+ * timestamp or version, so that each row does not have to query for its own.
+ */
+public class ConflictPrefetcher {
+
+    protected static final int CHUNK_SIZE = 100;
+
+    protected DefaultDatabaseWriter writer;
+
+    /*
+     * Current rows of the conflicting rows, keyed by primary key, read with
+     * one query while the conflicts are resolved
+     */
+    protected Map<List<String>, Row> rows;
+
+    protected Table table;
+
+    public ConflictPrefetcher(DefaultDatabaseWriter writer) {
+        this.writer = writer;
+    }
+
+    public void prefetch(List<BatchedRow> conflictedRows) {
+        DatabaseWriterSettings writerSettings = writer.getWriterSettings();
+        if (!writerSettings.isConflictPrefetchEnabled() || conflictedRows.size() < 2) {
+            return;
+        }
+        Table table = conflictedRows.get(0).targetTable;
+        Conflict conflict = writerSettings.pickConflict(table, writer.getBatch());
+        if (conflict.getResolveType() != Conflict.ResolveConflict.NEWER_WINS
+                || (conflict.getDetectType() != DetectConflict.USE_TIMESTAMP
+                        && conflict.getDetectType() != DetectConflict.USE_VERSION)) {
+            return;
+        }
+        Column detectColumn = table.getColumnWithName(conflict.getDetectExpression());
+        Column[] keyColumns = table.getPrimaryKeyColumns();
+        if (detectColumn == null || detectColumn.isTimestampWithTimezone() || keyColumns.length == 0) {
+            return;
+        }
+
+        IDatabasePlatform platform = writer.getPlatform();
+        List<Object[]> keys = new ArrayList<Object[]>();
+        for (BatchedRow row : conflictedRows) {
+            if (row.targetTable == table) {
+                Object[] keyValues = platform.getObjectValues(writer.getBatch().getBinaryEncoding(),
+                        row.data.getPkData(table), keyColumns);
+                if (!ArrayUtils.contains(keyValues, null)) {
+                    keys.add(keyValues);
+                }
+            }
+        }
+        if (keys.size() < 2) {
+            return;
+        }
+
+        DatabaseInfo dbInfo = platform.getDatabaseInfo();
+        String quote = platform.getDdlBuilder().isDelimitedIdentifierModeOn() ? dbInfo.getDelimiterToken() : "";
+        StringBuilder select = new StringBuilder("select ");
+        for (Column keyColumn : keyColumns) {
+            select.append(quote).append(keyColumn.getName()).append(quote).append(", ");
+        }
+        select.append(quote).append(detectColumn.getName()).append(quote).append(" from ")
+                .append(table.getQualifiedTableName(quote, dbInfo.getCatalogSeparator(), dbInfo.getSchemaSeparator()))
+                .append(" where ");
+
+        rows = new HashMap<List<String>, Row>();
+        this.table = table;
+        final Column[] mapperKeyColumns = keyColumns;
+        final String detectColumnName = detectColumn.getName();
+        ISqlRowMapper<Row> mapper = new ISqlRowMapper<Row>() {
+            public Row mapRow(Row row) {
+                Object value = row.get(detectColumnName);
+                /* values that are not read as a date or number are left to the resolver */
+                if (value == null || value instanceof java.util.Date || value instanceof Number) {
+                    Object[] keyValues = new Object[mapperKeyColumns.length];
+                    for (int i = 0; i < mapperKeyColumns.length; i++) {
+                        keyValues[i] = row.get(mapperKeyColumns[i].getName());
+                    }
+                    rows.put(getKey(keyValues), row);
+                }
+                return null;
+            }
+        };
+
+        for (int start = 0; start < keys.size(); start += CHUNK_SIZE) {
+            List<Object[]> chunk = keys.subList(start, Math.min(keys.size(), start + CHUNK_SIZE));
+            StringBuilder sql = new StringBuilder(select);
+            Object[] args = new Object[chunk.size() * keyColumns.length];
+            if (keyColumns.length == 1) {
+                sql.append(quote).append(keyColumns[0].getName()).append(quote).append(" in (");
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                if (keyColumns.length == 1) {
+                    sql.append(i > 0 ? ", ?" : "?");
+                } else {
+                    sql.append(i > 0 ? " or (" : "(");
+                    for (int j = 0; j < keyColumns.length; j++) {
+                        sql.append(j > 0 ? " and " : "").append(quote).append(keyColumns[j].getName()).append(quote)
+                                .append(" = ?");
+                    }
+                    sql.append(")");
+                }
+                System.arraycopy(chunk.get(i), 0, args, i * keyColumns.length, keyColumns.length);
+            }
+            if (keyColumns.length == 1) {
+                sql.append(")");
+            }
+            writer.getTransaction().query(sql.toString(), mapper, args, null);
+        }
+    }
+
+    /**
+     * Returns the prefetched current row of a conflicting row, or null when
+     * the current row was not prefetched and has to be queried.
+     */
+    public Row get(Table table, Object[] keyValues) {
+        if (rows != null && this.table == table) {
+            return rows.get(getKey(keyValues));
+        }
+        return null;
+    }
+
+    /**
+     * Forgets the prefetched current row of a row that has been applied,
+     * since applying it may have changed its current row
+     */
+    public void remove(BatchedRow row) {
+        if (rows != null) {
+            rows.remove(getKey(row.data, row.targetTable));
+        }
+    }
+
+    public void clear() {
+        rows = null;
+        table = null;
+    }
+
+    protected List<String> getKey(CsvData data, Table table) {
+        return getKey(writer.getPlatform().getObjectValues(writer.getBatch().getBinaryEncoding(),
+                data.getPkData(table), table.getPrimaryKeyColumns()));
+    }
+
+    protected List<String> getKey(Object[] keyValues) {
+        List<String> key = new ArrayList<String>(keyValues.length);
+        for (Object keyValue : keyValues) {
+            key.add(String.valueOf(keyValue));
+        }
+        return key;
+    }
+
+}
@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.io.data.writer;
 
+import org.jumpmind.util.Statistics;
 
 abstract public class DataWriterStatisticConstants {
     
@@ -43,4 +44,18 @@ abstract public class DataWriterStatisticConstants {
     public static final String LINENUMBER = "LINENUMBER";
     public static final String STARTTIME = "STARTTIME";
 
+    public static final int TRANSFORMMILLIS_ID = Statistics.register(TRANSFORMMILLIS);
+    public static final int FILTERMILLIS_ID = Statistics.register(FILTERMILLIS);
+    public static final int LOADMILLIS_ID = Statistics.register(LOADMILLIS);
+    public static final int ROWCOUNT_ID = Statistics.register(ROWCOUNT);
+    public static final int INSERTCOUNT_ID = Statistics.register(INSERTCOUNT);
+    public static final int DELETECOUNT_ID = Statistics.register(DELETECOUNT);
+    public static final int UPDATECOUNT_ID = Statistics.register(UPDATECOUNT);
+    public static final int LINENUMBER_ID = Statistics.register(LINENUMBER);
+
+    static {
+        Statistics.register(BYTECOUNT, SQLCOUNT, CREATECOUNT, SCRIPTCOUNT, SQLROWSAFFECTEDCOUNT, FALLBACKINSERTCOUNT,
+                FALLBACKUPDATECOUNT, MISSINGDELETECOUNT, IGNORECOUNT, IGNOREROWCOUNT, STARTTIME);
+    }
+
 }
@@ -28,7 +28,7 @@ import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.symmetric.io.data.Batch;
 
-public class DatabaseWriterSettings {
+public class DatabaseWriterSettings implements Cloneable {
 
     protected long maxRowsBeforeCommit = 10000;
 
@@ -61,6 +61,14 @@ public class DatabaseWriterSettings {
     
     protected String textColumnExpression;
 
+    protected boolean jdbcBatchEnabled = false;
+
+    protected boolean conflictPrefetchEnabled = true;
+
+    protected int reloadPartitionCount = 1;
+
+    protected int mergeApplyThreshold = 0;
+
     protected Map<String, Conflict> conflictSettingsByChannel;
 
     protected Map<String, Conflict> conflictSettingsByTable;
@@ -292,4 +300,48 @@ public class DatabaseWriterSettings {
     public boolean isApplyChangesOnly() {
         return applyChangesOnly;
     }
+
+    public void setJdbcBatchEnabled(boolean jdbcBatchEnabled) {
+        this.jdbcBatchEnabled = jdbcBatchEnabled;
+    }
+
+    public boolean isJdbcBatchEnabled() {
+        return jdbcBatchEnabled;
+    }
+
+    public void setConflictPrefetchEnabled(boolean conflictPrefetchEnabled) {
+        this.conflictPrefetchEnabled = conflictPrefetchEnabled;
+    }
+
+    public boolean isConflictPrefetchEnabled() {
+        return conflictPrefetchEnabled;
+    }
+
+    public void setReloadPartitionCount(int reloadPartitionCount) {
+        this.reloadPartitionCount = reloadPartitionCount;
+    }
+
+    public int getReloadPartitionCount() {
+        return reloadPartitionCount;
+    }
+
+    public void setMergeApplyThreshold(int mergeApplyThreshold) {
+        this.mergeApplyThreshold = mergeApplyThreshold;
+    }
+
+    public int getMergeApplyThreshold() {
+        return mergeApplyThreshold;
+    }
+
+    /**
+     * A shallow copy. The filters, error handlers and conflict settings are
+     * shared with this instance until they are replaced on the copy.
+     */
+    public DatabaseWriterSettings copy() {
+        try {
+            return (DatabaseWriterSettings) clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
 }
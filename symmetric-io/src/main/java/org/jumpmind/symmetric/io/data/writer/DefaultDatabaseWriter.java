@@ -28,15 +28,16 @@ import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.io.DatabaseXmlUtil;
 import org.jumpmind.db.model.Column;
 import org.jumpmind.db.model.Database;
+import org.jumpmind.db.model.ForeignKey;
 import org.jumpmind.db.model.IIndex;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.model.TypeMap;
@@ -56,6 +57,7 @@ import org.jumpmind.symmetric.io.data.Batch;
 import org.jumpmind.symmetric.io.data.CsvData;
 import org.jumpmind.symmetric.io.data.CsvUtils;
 import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
 import org.jumpmind.symmetric.io.data.writer.Conflict.DetectExpressionKey;
 import org.jumpmind.util.CollectionUtils;
@@ -85,6 +87,34 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     
     protected LogSqlBuilder logSqlBuilder = new LogSqlBuilder();
 
+    protected BatchedRowApplier batchedRowApplier = new BatchedRowApplier(this);
+
+    protected boolean replayingBatchedRows;
+
+    protected boolean ignoreRemainingRows;
+
+    /*
+     * Statements that have been built by this writer, keyed by their table
+     * and the columns they bind, so that switching between update shapes
+     * does not rebuild the sql
+     */
+    protected Map<String, DmlStatement> dmlStatements = new HashMap<String, DmlStatement>();
+
+    protected Map<String, Map<String, String>> tableStatisticNames = new HashMap<String, Map<String, String>>();
+
+    protected String[] bindValues;
+
+    protected ReloadPartitionApplier reloadPartitionApplier = new ReloadPartitionApplier(this);
+
+    /*
+     * Whether this writer writes one partition of a reload table's inserts
+     */
+    protected boolean reloadPartition;
+
+    protected MergeApplier mergeApplier = new MergeApplier(this);
+
+    protected ConflictPrefetcher conflictPrefetcher = new ConflictPrefetcher(this);
+
     public DefaultDatabaseWriter(IDatabasePlatform platform) {
         this(platform, null, null);
     }
@@ -129,31 +159,84 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         this.transaction = this.platform.getSqlTemplate().startSqlTransaction();
     }
 
+    @Override
+    public void start(Batch batch) {
+        super.start(batch);
+        this.ignoreRemainingRows = false;
+        this.mergeApplier.startBatch();
+    }
+
     @Override
     public boolean start(Table table) {
+        reloadPartitionApplier.finish();
         this.currentDmlStatement = null;
         boolean process = super.start(table);
         if (process && targetTable != null) {
             allowInsertIntoAutoIncrementColumns(true, this.targetTable);
         } 
+        this.reloadPartitionApplier.start(process && isReloadPartitionable());
         return process;
     }    
 
+    @Override
+    public void write(CsvData data) {
+        if (!ignoreRemainingRows) {
+            if (reloadPartitionApplier.isPartitioned(data)) {
+                /* filters are not thread safe, so they see partitioned rows on this thread */
+                if (filterBefore(data)) {
+                    reloadPartitionApplier.write(data);
+                    filterAfter(data);
+                }
+            } else {
+                reloadPartitionApplier.finish();
+                super.write(data);
+            }
+        }
+    }
+
     @Override
     public void end(Table table) {
+        reloadPartitionApplier.finish();
+        flushBatchedRowsAtEnd();
         super.end(table);
         allowInsertIntoAutoIncrementColumns(false, this.targetTable);
     }
 
     @Override
     public void end(Batch batch, boolean inError) {
+        if (!inError) {
+            reloadPartitionApplier.finish();
+            flushBatchedRowsAtEnd();
+        } else {
+            try {
+                reloadPartitionApplier.finish();
+            } catch (RuntimeException ex) {
+                log.debug("A reload partition also failed", ex);
+            }
+        }
         this.currentDmlStatement = null;
         super.end(batch, inError);
     }
 
+    /*
+     * An ignored batch is normally signaled while writing a row, which stops
+     * the rest of the batch from being written. When the conflict is only
+     * found at the end of a table, the work is rolled back here and the
+     * remaining rows are skipped instead.
+     */
+    protected void flushBatchedRowsAtEnd() {
+        try {
+            flushBatchedRows();
+        } catch (IgnoreBatchException ex) {
+            rollback();
+            ignoreRemainingRows = true;
+        }
+    }
+
     @Override
     public void close() {
         super.close();
+        this.reloadPartitionApplier.close();
         if (this.transaction != null) {
             this.transaction.close();
         }
@@ -161,9 +244,13 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
 
     @Override
     protected void commit(boolean earlyCommit) {
+        flushBatchedRows();
+        if (!earlyCommit) {
+            mergeApplier.dropTables();
+        }
         if (this.transaction != null) {
             try {
-                statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+                statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
                 this.transaction.commit();
                 if (!earlyCommit) {
                    notifyFiltersBatchCommitted();
@@ -171,7 +258,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                     notifyFiltersEarlyCommit();
                 }
             } finally {
-                statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
             }
 
         }
@@ -180,27 +267,30 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
 
     @Override
     protected void rollback() {
+        batchedRowApplier.clear();
+        mergeApplier.clear();
         if (this.transaction != null) {
             try {
-                statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+                statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
                 this.transaction.rollback();
                 notifyFiltersBatchRolledback();
             } finally {
-                statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
             }
 
         }
+        mergeApplier.dropTables();
         super.rollback();
     }
 
     @Override
     protected LoadStatus insert(CsvData data) {
         try {
-            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
             if (requireNewStatement(DmlType.INSERT, data, false, true, null)) {
                 this.lastUseConflictDetection = true;
-                this.currentDmlStatement = getPlatform()
-                		.createDmlStatement(DmlType.INSERT, targetTable, writerSettings.getTextColumnExpression());
+                this.currentDmlStatement = getDmlStatement(DmlType.INSERT, targetTable,
+                        targetTable.getPrimaryKeyColumns(), targetTable.getColumns(), null);
                 if (log.isDebugEnabled()) {
                     log.debug("Preparing dml: " + this.currentDmlStatement.getSql());
                 }
@@ -208,11 +298,11 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             }
             try {
                 Conflict conflict = writerSettings.pickConflict(this.targetTable, batch);
-                String[] values = (String[]) ArrayUtils.addAll(getRowData(data, CsvData.ROW_DATA),
+                String[] values = getBindValues(getRowData(data, CsvData.ROW_DATA),
                         this.currentDmlStatement.getLookupKeyData(getLookupDataMap(data, conflict)));
                 long count = execute(data, values);
-                statistics.get(batch).increment(DataWriterStatisticConstants.INSERTCOUNT, count);
-                statistics.get(batch).increment(String.format("%s %s", targetTable.getName(), DataWriterStatisticConstants.INSERTCOUNT), count);
+                statistics.get(batch).increment(DataWriterStatisticConstants.INSERTCOUNT_ID, count);
+                statistics.get(batch).increment(getTableStatisticName(targetTable, DataWriterStatisticConstants.INSERTCOUNT), count);
                 if (count > 0) {
                     return LoadStatus.SUCCESS;
                 } else {
@@ -239,7 +329,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             logFailureDetails(ex, data, true);
             throw ex;
         } finally {
-            statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
         }
     }
     
@@ -256,7 +346,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     @Override
     protected LoadStatus delete(CsvData data, boolean useConflictDetection) {
         try {
-            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
             Conflict conflict = writerSettings.pickConflict(this.targetTable, batch);
             Map<String, String> lookupDataMap = null;
             if (requireNewStatement(DmlType.DELETE, data, useConflictDetection, useConflictDetection,
@@ -333,9 +423,8 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                             && lookupDataMap.get(column.getName()) == null;
                 }
 
-                this.currentDmlStatement = getPlatform().createDmlStatement(DmlType.DELETE,
-                        targetTable.getCatalog(), targetTable.getSchema(), targetTable.getName(),
-                        lookupKeys.toArray(new Column[lookupKeys.size()]), null, nullKeyValues, writerSettings.getTextColumnExpression());
+                this.currentDmlStatement = getDmlStatement(DmlType.DELETE, targetTable,
+                        lookupKeys.toArray(new Column[lookupKeys.size()]), null, nullKeyValues);
                 if (log.isDebugEnabled()) {
                     log.debug("Preparing dml: " + this.currentDmlStatement.getSql());
                 }
@@ -344,8 +433,8 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             try {
                 lookupDataMap = lookupDataMap == null ? getLookupDataMap(data, conflict) : lookupDataMap;
                 long count = execute(data, this.currentDmlStatement.getLookupKeyData(lookupDataMap));
-                statistics.get(batch).increment(DataWriterStatisticConstants.DELETECOUNT, count);
-                statistics.get(batch).increment(String.format("%s %s", targetTable.getName(), DataWriterStatisticConstants.DELETECOUNT), count);
+                statistics.get(batch).increment(DataWriterStatisticConstants.DELETECOUNT_ID, count);
+                statistics.get(batch).increment(getTableStatisticName(targetTable, DataWriterStatisticConstants.DELETECOUNT), count);
                 if (count > 0) {
                     return LoadStatus.SUCCESS;
                 } else {
@@ -365,7 +454,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             logFailureDetails(ex, data, true);
             throw ex;
         } finally {
-            statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
         }
 
     }
@@ -373,7 +462,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     @Override
     protected LoadStatus update(CsvData data, boolean applyChangesOnly, boolean useConflictDetection) {
         try {
-            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
             String[] rowData = getRowData(data, CsvData.ROW_DATA);
             String[] oldData = getRowData(data, CsvData.OLD_DATA);
             ArrayList<String> changedColumnNameList = new ArrayList<String>();
@@ -486,12 +575,10 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                                 && lookupDataMap.get(column.getName()) == null;
                     }
 
-                    this.currentDmlStatement = getPlatform().createDmlStatement(DmlType.UPDATE,
-                            targetTable.getCatalog(), targetTable.getSchema(),
-                            targetTable.getName(),
+                    this.currentDmlStatement = getDmlStatement(DmlType.UPDATE, targetTable,
                             lookupKeys.toArray(new Column[lookupKeys.size()]),
                             changedColumnsList.toArray(new Column[changedColumnsList.size()]),
-                            nullKeyValues, writerSettings.getTextColumnExpression());
+                            nullKeyValues);
                     if (log.isDebugEnabled()) {
                         log.debug("Preparing dml: " + this.currentDmlStatement.getSql());
                     }
@@ -501,13 +588,13 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                 rowData = (String[]) changedColumnValueList
                         .toArray(new String[changedColumnValueList.size()]);
                 lookupDataMap = lookupDataMap == null ? getLookupDataMap(data, conflict) : lookupDataMap;
-                String[] values = (String[]) ArrayUtils.addAll(rowData,
+                String[] values = getBindValues(rowData,
                         this.currentDmlStatement.getLookupKeyData(lookupDataMap));
 
                 try {
                     long count = execute(data, values);
-                    statistics.get(batch).increment(DataWriterStatisticConstants.UPDATECOUNT, count);
-                    statistics.get(batch).increment(String.format("%s %s", targetTable.getName(), DataWriterStatisticConstants.UPDATECOUNT), count);
+                    statistics.get(batch).increment(DataWriterStatisticConstants.UPDATECOUNT_ID, count);
+                    statistics.get(batch).increment(getTableStatisticName(targetTable, DataWriterStatisticConstants.UPDATECOUNT), count);
                     if (count > 0) {
                         return LoadStatus.SUCCESS;
                     } else {
@@ -535,7 +622,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             logFailureDetails(ex, data, true);
             throw ex;
         } finally {
-            statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
         }
     }
     
@@ -546,9 +633,10 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     		// Placeholder to ensure target platform and transaction is returned.  SYM_* tables are not created through this process.
     		String tempNonSymTable = "NON_SYM_TABLE";
     		
+    		flushBatchedRows();
     		getTransaction(tempNonSymTable).commit();
 
-            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
             xml = data.getParsedData(CsvData.ROW_DATA)[0];
             log.info("About to create table using the following definition: {}", xml);
             StringReader reader = new StringReader(xml);
@@ -566,20 +654,22 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             }
 
             getPlatform().resetCachedTableModel();
+            dmlStatements.clear();
             statistics.get(batch).increment(DataWriterStatisticConstants.CREATECOUNT);
             return true;
         } catch (RuntimeException ex) {
             log.error("Failed to alter table using the following xml: " + xml, ex); // This is not logged upstream
             throw ex;
         } finally {
-            statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
         }
     }
 
     @Override
     protected boolean sql(CsvData data) {
+        flushBatchedRows();
         try {
-            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
             String script = data.getParsedData(CsvData.ROW_DATA)[0];
             List<String> sqlStatements = getSqlStatements(script);
             long count = 0;
@@ -604,10 +694,16 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                     count);
             return true;
         } finally {
-            statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
+            statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
         }
     }
     
+    @Override
+    protected boolean script(CsvData data) {
+        flushBatchedRows();
+        return super.script(data);
+    }
+
     protected boolean requireNewStatement(DmlType currentType, CsvData data,
             boolean applyChangesOnly, boolean useConflictDetection,
             Conflict.DetectConflict detectType) {
@@ -617,9 +713,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                 || lastApplyChangesOnly != applyChangesOnly
                 || lastUseConflictDetection != useConflictDetection;
         if (!requiresNew && currentType == DmlType.UPDATE) {
-            String currentChanges = Arrays.toString(data.getChangedDataIndicators());
-            String lastChanges = Arrays.toString(lastData.getChangedDataIndicators());
-            requiresNew = !currentChanges.equals(lastChanges);
+            requiresNew = !Arrays.equals(data.getChangedDataIndicators(), lastData.getChangedDataIndicators());
         }
 
         if (!requiresNew) {
@@ -630,6 +724,69 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         return requiresNew;
     }
 
+    protected DmlStatement getDmlStatement(DmlType type, Table table, Column[] keys, Column[] columns,
+            boolean[] nullKeyValues) {
+        StringBuilder key = new StringBuilder(type.name()).append(":").append(table.getFullyQualifiedTableName());
+        appendColumnNames(key.append(":"), keys);
+        appendColumnNames(key.append(":"), columns);
+        if (nullKeyValues != null) {
+            key.append(":");
+            for (boolean nullKeyValue : nullKeyValues) {
+                key.append(nullKeyValue ? '1' : '0');
+            }
+        }
+        String statementKey = key.toString();
+        DmlStatement statement = dmlStatements.get(statementKey);
+        if (statement == null) {
+            statement = getPlatform().createDmlStatement(type, table.getCatalog(), table.getSchema(),
+                    table.getName(), keys, columns, nullKeyValues, writerSettings.getTextColumnExpression());
+            dmlStatements.put(statementKey, statement);
+        }
+        return statement;
+    }
+
+    private void appendColumnNames(StringBuilder key, Column[] columns) {
+        if (columns != null) {
+            for (Column column : columns) {
+                key.append(column.getName()).append(",");
+            }
+        }
+    }
+
+    /**
+     * Concatenates the column values and key values into an array that is
+     * reused from row to row. The values are copied when they are converted
+     * to objects, so the array is free to reuse once the row is submitted.
+     */
+    protected String[] getBindValues(String[] values, String[] keyValues) {
+        if (keyValues == null || keyValues.length == 0) {
+            return values;
+        } else if (values == null) {
+            return keyValues;
+        }
+        int length = values.length + keyValues.length;
+        if (bindValues == null || bindValues.length != length) {
+            bindValues = new String[length];
+        }
+        System.arraycopy(values, 0, bindValues, 0, values.length);
+        System.arraycopy(keyValues, 0, bindValues, values.length, keyValues.length);
+        return bindValues;
+    }
+
+    protected String getTableStatisticName(Table table, String statisticName) {
+        Map<String, String> names = tableStatisticNames.get(table.getName());
+        if (names == null) {
+            names = new HashMap<String, String>();
+            tableStatisticNames.put(table.getName(), names);
+        }
+        String name = names.get(statisticName);
+        if (name == null) {
+            name = String.format("%s %s", table.getName(), statisticName);
+            names.put(statisticName, name);
+        }
+        return name;
+    }
+
     protected boolean containsNullLookupKeyDataSinceLastStatement(DmlType currentType,
             CsvData data, DetectConflict detectType) {
         boolean foundNullValueChange = false;
@@ -668,6 +825,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     
     @Override
     protected void targetTableWasChangedByFilter(Table oldTargetTable) {
+        flushBatchedRows();
         // allow for auto increment columns to be inserted into if appropriate
         if (oldTargetTable!=null) {
             allowInsertIntoAutoIncrementColumns(false, oldTargetTable);            
@@ -916,6 +1074,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     }
 
     protected void prepare() {
+        flushBatchedRows();
         getTransaction().prepare(this.currentDmlStatement.getSql());
     }
     
@@ -931,7 +1090,135 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                     dmlValuesToString(currentDmlValues, this.currentDmlStatement.getTypes()),
                     TypeMap.getJdbcTypeDescriptions(this.currentDmlStatement.getTypes()));
         }
-        return getTransaction().addRow(data, currentDmlValues, this.currentDmlStatement.getTypes());
+        if (isMergeApply()) {
+            String key = mergeApplier.getRowKey();
+            if (key != null) {
+                return mergeApplier.add(data, key);
+            }
+        }
+        if (!mergeApplier.isEmpty()) {
+            Object[] dmlValues = currentDmlValues;
+            mergeApplier.flush();
+            currentDmlValues = dmlValues;
+        }
+        ISqlTransaction transaction = getTransaction();
+        if (writerSettings.isJdbcBatchEnabled()) {
+            boolean useJdbcBatch = isJdbcBatch();
+            if (transaction.isInBatchMode() != useJdbcBatch) {
+                transaction.setInBatchMode(useJdbcBatch);
+            }
+            if (useJdbcBatch) {
+                return batchedRowApplier.add(data);
+            }
+        }
+        return transaction.addRow(data, currentDmlValues, this.currentDmlStatement.getTypes());
+    }
+
+    protected boolean isMergeApply() {
+        return mergeApplier.isApplicable();
+    }
+
+    protected boolean isJdbcBatch() {
+        return batchedRowApplier.isBatched();
+    }
+
+    /**
+     * Runs the rows of the JDBC batch and merges that are held back and
+     * checks that each of them changed its row.
+     */
+    protected void flushBatchedRows() {
+        mergeApplier.flush();
+        batchedRowApplier.flush();
+    }
+
+    /**
+     * Runs rows that were batched or merged again one at a time, in statement
+     * order, so that conflicts are detected and resolved the same way as when
+     * batching is off. The state of the row being written is put back
+     * afterwards.
+     */
+    protected void replayRows(List<BatchedRow> rows) {
+        if (rows.size() == 0) {
+            return;
+        }
+        Table currentSourceTable = sourceTable;
+        Table currentTargetTable = targetTable;
+        Table currentContextTable = context.getTable();
+        CsvData currentContextData = context.getData();
+        DmlStatement dmlStatement = currentDmlStatement;
+        Object[] dmlValues = currentDmlValues;
+        boolean applyChangesOnly = lastApplyChangesOnly;
+        boolean useConflictDetection = lastUseConflictDetection;
+        try {
+            for (BatchedRow row : rows) {
+                replayBatchedRow(row);
+                /* the row may have changed its current row */
+                conflictPrefetcher.remove(row);
+            }
+        } finally {
+            sourceTable = currentSourceTable;
+            targetTable = currentTargetTable;
+            context.setTable(currentContextTable);
+            context.setData(currentContextData);
+            currentDmlStatement = dmlStatement;
+            currentDmlValues = dmlValues;
+            lastApplyChangesOnly = applyChangesOnly;
+            lastUseConflictDetection = useConflictDetection;
+        }
+
+        if (currentDmlStatement != null) {
+            getTransaction().prepare(currentDmlStatement.getSql());
+        }
+    }
+
+    /**
+     * Returns the prefetched current row of a conflicting row, or null when
+     * the current row was not prefetched and has to be queried.
+     */
+    public Row getPrefetchedConflictRow(Table table, Object[] keyValues) {
+        return conflictPrefetcher.get(table, keyValues);
+    }
+
+    public void clearPrefetchedConflictRows() {
+        conflictPrefetcher.clear();
+    }
+
+    protected void replayBatchedRow(BatchedRow row) {
+        CsvData data = row.data;
+        sourceTable = row.sourceTable;
+        targetTable = row.targetTable;
+        context.setTable(row.contextTable);
+        context.setData(data);
+        context.put(CONFLICT_ERROR, null);
+        currentDmlStatement = null;
+        replayingBatchedRows = true;
+        try {
+            LoadStatus loadStatus = LoadStatus.SUCCESS;
+            switch (data.getDataEventType()) {
+                case UPDATE:
+                    loadStatus = update(data, row.applyChangesOnly, row.useConflictDetection);
+                    break;
+                case INSERT:
+                    loadStatus = insert(data);
+                    break;
+                case DELETE:
+                    loadStatus = delete(data, row.useConflictDetection);
+                    break;
+                default:
+                    break;
+            }
+            resolveConflict(data, loadStatus);
+        } catch (IgnoreBatchException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (ex == handledError) {
+                throw ex;
+            }
+            handleError(data, ex, row.statementCount);
+        } finally {
+            replayingBatchedRows = false;
+            currentDmlStatement = null;
+        }
     }
 
     @Override
@@ -1055,4 +1342,57 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         getTransaction(table).allowInsertIntoAutoIncrementColumns(value, table, quote, catalogSeparator, schemaSeparator);
     }
     
+    /**
+     * Inserts into a table on the reload channel are only spread across
+     * partitions when the order they are applied in does not matter, which
+     * rules out tables without a primary key and tables that reference
+     * themselves.
+     */
+    protected boolean isReloadPartitionable() {
+        if (reloadPartition || writerSettings.getReloadPartitionCount() <= 1
+                || !ATTRIBUTE_CHANNEL_ID_RELOAD.equals(batch.getChannelId())
+                || targetTable == null || sourceTable.getPrimaryKeyColumnCount() == 0
+                || (writerSettings.getResolvedData() != null && writerSettings.getResolvedData().size() > 0)) {
+            return false;
+        }
+        for (ForeignKey foreignKey : targetTable.getForeignKeys()) {
+            if (targetTable.getName().equalsIgnoreCase(foreignKey.getForeignTableName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected DefaultDatabaseWriter newReloadPartitionWriter() {
+        DefaultDatabaseWriter writer = new DefaultDatabaseWriter(platform, conflictResolver,
+                getReloadPartitionWriterSettings());
+        writer.reloadPartition = true;
+        return writer;
+    }
+
+    /**
+     * The settings without the filters and error handlers, which are not
+     * thread safe. This writer filters the rows before it hands them to the
+     * partitions, and an error in a partition fails the batch.
+     */
+    protected DatabaseWriterSettings getReloadPartitionWriterSettings() {
+        DatabaseWriterSettings settings = writerSettings.copy();
+        settings.setDatabaseWriterFilters(null);
+        settings.setDatabaseWriterErrorHandlers(null);
+        return settings;
+    }
+
+    /**
+     * Called on the partition's thread after its batch has started and
+     * before any rows are written.
+     */
+    protected void startReloadPartition(DefaultDatabaseWriter partitionWriter) {
+    }
+
+    /**
+     * Called on the partition's thread before it commits or rolls back.
+     */
+    protected void endReloadPartition(DefaultDatabaseWriter partitionWriter) {
+    }
+
 }
@@ -104,8 +104,13 @@ public class DefaultDatabaseWriterConflictResolver extends AbstractDatabaseWrite
                     TimeZone.getTimeZone(loadingStr.substring(split).trim()));
         } else {
             // Get the existingTs
-            existingTs = databaseWriter.getTransaction().queryForObject(sql, Timestamp.class,
-                    objectValues);
+            Row prefetchedRow = databaseWriter.getPrefetchedConflictRow(targetTable, objectValues);
+            if (prefetchedRow != null) {
+                existingTs = prefetchedRow.getDateTime(column.getName());
+            } else {
+                existingTs = databaseWriter.getTransaction().queryForObject(sql, Timestamp.class,
+                        objectValues);
+            }
             // Get the loadingTs
             Object[] values = platform.getObjectValues(writer.getBatch().getBinaryEncoding(),
                     new String[] { loadingStr }, new Column[] { column });
@@ -138,7 +143,12 @@ public class DefaultDatabaseWriterConflictResolver extends AbstractDatabaseWrite
         Long existingVersion = null;
         
         try {            
-            existingVersion = databaseWriter.getTransaction().queryForObject(sql, Long.class, objectValues);
+            Row prefetchedRow = databaseWriter.getPrefetchedConflictRow(targetTable, objectValues);
+            if (prefetchedRow != null) {
+                existingVersion = prefetchedRow.get(columnName) != null ? prefetchedRow.getLong(columnName) : null;
+            } else {
+                existingVersion = databaseWriter.getTransaction().queryForObject(sql, Long.class, objectValues);
+            }
         } catch (Exception ex) {
             throw new RuntimeException("Failed to execute conflict resolution SQL: \"" + 
                     sql  + "\" values: " + Arrays.toString(objectValues), ex); 
@@ -242,6 +252,7 @@ public class DefaultDatabaseWriterConflictResolver extends AbstractDatabaseWrite
                 databaseWriter.getWriterSettings().getTextColumnExpression());
         String sql = "DELETE " + fromStmt.getSql();
         int count = 0;
+        databaseWriter.clearPrefetchedConflictRows();
         try {
             count = prepareAndExecute(platform, databaseWriter, sql, objectValues);
             if (count == 0) {
@@ -306,6 +317,7 @@ public class DefaultDatabaseWriterConflictResolver extends AbstractDatabaseWrite
             return false;
         }
         
+        databaseWriter.clearPrefetchedConflictRows();
         Collections.reverse(foreignTableRows);
         Set<TableRow> visited = new HashSet<TableRow>();
         
@@ -102,6 +102,30 @@ public class DynamicDefaultDatabaseWriter extends DefaultDatabaseWriter {
 			this.transaction : this.targetTransaction;
 	}
 	
+	@Override
+	protected boolean isJdbcBatch() {
+		/* configuration tables are loaded one row at a time so filters see each change as it is made */
+		return super.isJdbcBatch() && (this.targetTable == null || !isSymmetricTable(this.targetTable.getName()));
+	}
+
+	@Override
+	protected boolean isReloadPartitionable() {
+		return super.isReloadPartitionable() && !isSymmetricTable(this.targetTable.getName());
+	}
+
+	@Override
+	protected boolean isMergeApply() {
+		return !isSymmetricTable(this.targetTable.getName()) && super.isMergeApply();
+	}
+
+	@Override
+	protected DefaultDatabaseWriter newReloadPartitionWriter() {
+		DynamicDefaultDatabaseWriter writer = new DynamicDefaultDatabaseWriter(this.platform, this.targetPlatform,
+				this.tablePrefix, this.conflictResolver, getReloadPartitionWriterSettings());
+		writer.reloadPartition = true;
+		return writer;
+	}
+
 	public ISqlTransaction getTargetTransaction() {
 		return this.targetTransaction == null ? this.transaction : this.targetTransaction;
 	}
@@ -0,0 +1,425 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.DmlStatement;
+import org.jumpmind.db.sql.DmlStatement.DmlType;
+import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
+import org.jumpmind.util.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds back the updates and deletes of a {@link DefaultDatabaseWriter} for a
+ * table that has had more of them in the batch than the merge threshold,
+ * copies them to a temporary table and applies them to their table with set
+ * based statements. Rows that did not match their target row are handed back
+ * to the writer to run again one at a time.
+ */
+public class MergeApplier {
+
+    protected final static Logger log = LoggerFactory.getLogger(MergeApplier.class);
+
+    protected static final AtomicLong TABLE_SEQUENCE = new AtomicLong();
+
+    /*
+     * The platforms that have been logged as not supporting temporary tables,
+     * so that each is logged once instead of once per batch
+     */
+    protected static final Set<String> UNSUPPORTED_PLATFORMS_LOGGED = Collections
+            .synchronizedSet(new HashSet<String>());
+
+    protected DefaultDatabaseWriter writer;
+
+    /*
+     * Updates and deletes that are waiting to be copied to a temporary table
+     * and merged into their table
+     */
+    protected List<BatchedRow> rows = new ArrayList<BatchedRow>();
+
+    protected Set<String> rowKeys = new HashSet<String>();
+
+    protected DmlStatement statement;
+
+    protected Map<String, Long> rowCounts = new HashMap<String, Long>();
+
+    protected Map<DmlStatement, MergeTable> tables = new HashMap<DmlStatement, MergeTable>();
+
+    protected boolean unsupported;
+
+    public MergeApplier(DefaultDatabaseWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Updates and deletes are merged once a table has had more of them in the
+     * batch than the threshold, as long as the platform supports temporary
+     * tables and conflicts are detected by comparing values.
+     */
+    public boolean isApplicable() {
+        DatabaseWriterSettings writerSettings = writer.getWriterSettings();
+        DmlStatement currentDmlStatement = writer.getCurrentDmlStatement();
+        DmlType type = currentDmlStatement.getDmlType();
+        if (writerSettings.getMergeApplyThreshold() <= 0 || unsupported || writer.replayingBatchedRows
+                || writer.reloadPartition || (type != DmlType.UPDATE && type != DmlType.DELETE)) {
+            return false;
+        }
+        Table targetTable = writer.getTargetTable();
+        if (writer.lastUseConflictDetection) {
+            DetectConflict detectType = writerSettings.pickConflict(targetTable, writer.getBatch()).getDetectType();
+            if (detectType == DetectConflict.USE_TIMESTAMP || detectType == DetectConflict.USE_VERSION) {
+                return false;
+            }
+        }
+        String tableName = targetTable.getFullyQualifiedTableName();
+        Long count = rowCounts.get(tableName);
+        count = count == null ? 1 : count + 1;
+        rowCounts.put(tableName, count);
+        return count > writerSettings.getMergeApplyThreshold() && getTable(currentDmlStatement) != null;
+    }
+
+    /**
+     * Returns the primary key of the row, which may only be merged once in a
+     * group, or null when an update changes the primary key and so has to be
+     * applied on its own.
+     */
+    public String getRowKey() {
+        DmlStatement currentDmlStatement = writer.getCurrentDmlStatement();
+        Object[] currentDmlValues = writer.currentDmlValues;
+        Column[] columns = currentDmlStatement.getDmlType() == DmlType.UPDATE ? currentDmlStatement.getColumns()
+                : new Column[0];
+        Column[] keys = currentDmlStatement.getKeys();
+        boolean hasPrimaryKey = writer.getTargetTable().getPrimaryKeyColumnCount() > 0;
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].isPrimaryKey() || !hasPrimaryKey) {
+                Object value = currentDmlValues[columns.length + i];
+                for (int j = 0; j < columns.length; j++) {
+                    if (columns[j].getName().equals(keys[i].getName())
+                            && !ObjectUtils.equals(currentDmlValues[j], value)) {
+                        return null;
+                    }
+                }
+                key.append(value instanceof byte[] ? Arrays.toString((byte[]) value) : value).append(",");
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Holds the row until its group is merged and assumes it will match its
+     * target row. A group ends when the statement changes or a row repeats a
+     * key, since one set based statement cannot apply two changes to the same
+     * row in order.
+     */
+    public int add(CsvData data, String key) {
+        if (!writer.batchedRowApplier.isEmpty() || rowKeys.contains(key)
+                || (rows.size() > 0 && statement != writer.getCurrentDmlStatement())) {
+            Object[] values = writer.currentDmlValues;
+            writer.flushBatchedRows();
+            writer.currentDmlValues = values;
+        }
+        BatchedRow row = new BatchedRow(data, writer.getSourceTable(), writer.getTargetTable(),
+                writer.getContext().getTable(), writer.lastApplyChangesOnly, writer.lastUseConflictDetection,
+                writer.getStatistics().get(writer.getBatch()).get(DataWriterStatisticConstants.ROWCOUNT));
+        row.values = writer.currentDmlValues;
+        rows.add(row);
+        rowKeys.add(key);
+        statement = writer.getCurrentDmlStatement();
+        return 1;
+    }
+
+    /**
+     * Copies the held rows to the temporary table of their statement and
+     * applies the rows that match their target row with one statement. The
+     * rows that did not match are run again one at a time so that their
+     * conflicts are detected and resolved the same way as when merging is
+     * off.
+     */
+    public void flush() {
+        if (rows.size() == 0) {
+            return;
+        }
+        List<BatchedRow> mergedRows = rows;
+        rows = new ArrayList<BatchedRow>();
+        rowKeys.clear();
+        MergeTable mergeTable = getTable(statement);
+
+        Statistics statistics = writer.getStatistics().get(writer.getBatch());
+        Table currentSourceTable = writer.sourceTable;
+        Table currentTargetTable = writer.targetTable;
+        List<Integer> unmatchedIndexes = null;
+        try {
+            writer.sourceTable = mergedRows.get(0).sourceTable;
+            writer.targetTable = mergedRows.get(0).targetTable;
+            statistics.startTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
+            unmatchedIndexes = mergeTable.merge(mergedRows);
+        } finally {
+            statistics.stopTimer(DataWriterStatisticConstants.LOADMILLIS_ID);
+            writer.sourceTable = currentSourceTable;
+            writer.targetTable = currentTargetTable;
+        }
+
+        List<BatchedRow> unmatchedRows = new ArrayList<BatchedRow>(unmatchedIndexes.size());
+        for (Integer index : unmatchedIndexes) {
+            BatchedRow row = mergedRows.get(index);
+            /* adjust for the row count that was assumed when the row was merged */
+            String statisticName = row.getStatisticName();
+            statistics.increment(statisticName, -1);
+            statistics.increment(writer.getTableStatisticName(row.targetTable, statisticName), -1);
+            unmatchedRows.add(row);
+        }
+        writer.replayRows(unmatchedRows);
+
+        DmlStatement currentDmlStatement = writer.getCurrentDmlStatement();
+        if (unmatchedRows.isEmpty() && currentDmlStatement != null) {
+            /* the merge ran its own statements on the transaction */
+            writer.getTransaction().prepare(currentDmlStatement.getSql());
+        }
+    }
+
+    public boolean isEmpty() {
+        return rows.size() == 0;
+    }
+
+    public void clear() {
+        rows.clear();
+        rowKeys.clear();
+    }
+
+    /**
+     * Counts the updates and deletes of each table from the start of a batch
+     */
+    public void startBatch() {
+        rowCounts.clear();
+    }
+
+    protected MergeTable getTable(DmlStatement statement) {
+        MergeTable mergeTable = tables.get(statement);
+        if (mergeTable == null) {
+            Table table = new Table("sym_merge_" + TABLE_SEQUENCE.incrementAndGet());
+            table.addColumn(new Column("sym_row", false, Types.INTEGER, 0, 0));
+            table.addColumn(new Column("sym_matched", false, Types.INTEGER, 0, 0));
+            Column[] columns = statement.getMetaData();
+            for (int i = 0; i < columns.length; i++) {
+                try {
+                    Column column = (Column) columns[i].clone();
+                    column.setName("c" + i);
+                    column.setPrimaryKey(false);
+                    column.setAutoIncrement(false);
+                    column.setRequired(false);
+                    column.setUnique(false);
+                    column.setDefaultValue(null);
+                    table.addColumn(column);
+                } catch (CloneNotSupportedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            IDatabasePlatform platform = writer.getPlatform();
+            String createSql = platform.getDdlBuilder().createTemporaryTable(table);
+            if (createSql == null) {
+                if (UNSUPPORTED_PLATFORMS_LOGGED.add(platform.getName())) {
+                    log.info("Updates and deletes cannot be merged because the {} platform does not support temporary tables.  "
+                            + "The dataloader.merge.apply.threshold parameter is ignored", platform.getName());
+                }
+                unsupported = true;
+                return null;
+            }
+            mergeTable = new MergeTable(table, statement, createSql);
+            tables.put(statement, mergeTable);
+        }
+        return mergeTable;
+    }
+
+    public void dropTables() {
+        for (MergeTable mergeTable : tables.values()) {
+            if (mergeTable.created) {
+                try {
+                    mergeTable.transaction.execute(mergeTable.dropSql);
+                } catch (RuntimeException ex) {
+                    log.debug("Could not drop the merge table " + mergeTable.table.getName(), ex);
+                }
+            }
+        }
+        tables.clear();
+    }
+
+    /**
+     * A temporary table that holds the values bound to one update or delete
+     * statement, along with the sql that merges them into the target table.
+     */
+    protected class MergeTable {
+
+        Table table;
+
+        ISqlTransaction transaction;
+
+        boolean created;
+
+        int[] insertTypes;
+
+        String createSql;
+
+        String insertSql;
+
+        String matchSql;
+
+        String applySql;
+
+        String unmatchedSql;
+
+        String clearSql;
+
+        String dropSql;
+
+        public MergeTable(Table table, DmlStatement statement, String createSql) {
+            this.table = table;
+            this.transaction = writer.getTransaction();
+            this.createSql = createSql;
+
+            IDatabasePlatform platform = writer.getPlatform();
+            this.dropSql = platform.getDdlBuilder().dropTemporaryTable(table);
+
+            DatabaseInfo dbInfo = platform.getDatabaseInfo();
+            String quote = platform.getDdlBuilder().isDelimitedIdentifierModeOn() ? dbInfo.getDelimiterToken() : "";
+            String mergeName = platform.getDdlBuilder().getTemporaryTable(table).getQualifiedTableName(quote,
+                    dbInfo.getCatalogSeparator(), dbInfo.getSchemaSeparator());
+            String targetName = writer.targetTable.getQualifiedTableName(quote, dbInfo.getCatalogSeparator(),
+                    dbInfo.getSchemaSeparator());
+            String row = quote + "sym_row" + quote;
+            String matched = quote + "sym_matched" + quote;
+
+            Column[] columns = statement.getDmlType() == DmlType.UPDATE ? statement.getColumns() : new Column[0];
+            Column[] keys = statement.getKeys();
+            int[] types = statement.getTypes();
+            insertTypes = new int[types.length + 1];
+            insertTypes[0] = Types.INTEGER;
+            System.arraycopy(types, 0, insertTypes, 1, types.length);
+
+            StringBuilder insert = new StringBuilder("insert into ").append(mergeName).append(" (").append(row)
+                    .append(", ").append(matched);
+            StringBuilder values = new StringBuilder(") values (?, 0");
+            for (int i = 0; i < types.length; i++) {
+                insert.append(", ").append(quote).append("c").append(i).append(quote);
+                values.append(", ?");
+            }
+            insertSql = insert.append(values).append(")").toString();
+
+            matchSql = "update " + mergeName + " set " + matched + " = 1 where exists (select 1 from " + targetName
+                    + " where " + getMatchSql(mergeName, targetName, quote, columns.length, keys, statement) + ")";
+
+            String matchedRows = "select 1 from " + mergeName + " s where s." + matched + " = 1 and "
+                    + getMatchSql("s", targetName, quote, columns.length, keys, statement);
+            if (statement.getDmlType() == DmlType.UPDATE) {
+                StringBuilder update = new StringBuilder("update ").append(targetName).append(" set ");
+                for (int i = 0; i < columns.length; i++) {
+                    update.append(i > 0 ? ", " : "").append(quote).append(columns[i].getName()).append(quote)
+                            .append(" = (select s.").append(quote).append("c").append(i).append(quote).append(" from ")
+                            .append(mergeName).append(" s where s.").append(matched).append(" = 1 and ")
+                            .append(getMatchSql("s", targetName, quote, columns.length, keys, statement)).append(")");
+                }
+                applySql = update.append(" where exists (").append(matchedRows).append(")").toString();
+            } else {
+                applySql = "delete from " + targetName + " where exists (" + matchedRows + ")";
+            }
+
+            unmatchedSql = "select " + row + " from " + mergeName + " where " + matched + " = 0 order by " + row;
+            clearSql = "delete from " + mergeName;
+        }
+
+        protected String getMatchSql(String mergeName, String targetName, String quote, int keyOffset,
+                Column[] keys, DmlStatement statement) {
+            StringBuilder sql = new StringBuilder();
+            for (int i = 0; i < keys.length; i++) {
+                sql.append(i > 0 ? " and " : "").append(targetName).append(".").append(quote).append(keys[i].getName())
+                        .append(quote).append(" = ").append(mergeName).append(".").append(quote).append("c")
+                        .append(keyOffset + i).append(quote);
+            }
+            for (Column nullKey : statement.getNullKeys()) {
+                sql.append(sql.length() > 0 ? " and " : "").append(targetName).append(".").append(quote)
+                        .append(nullKey.getName()).append(quote).append(" is null");
+            }
+            return sql.toString();
+        }
+
+        /**
+         * Returns the positions of the rows that did not match a row in the
+         * target table.
+         */
+        public List<Integer> merge(List<BatchedRow> rows) {
+            if (!created) {
+                transaction.execute(createSql);
+                created = true;
+            }
+            boolean inBatchMode = transaction.isInBatchMode();
+            transaction.prepare(insertSql);
+            transaction.setInBatchMode(true);
+            try {
+                for (int i = 0; i < rows.size(); i++) {
+                    Object[] values = rows.get(i).values;
+                    Object[] args = new Object[values.length + 1];
+                    args[0] = i;
+                    System.arraycopy(values, 0, args, 1, values.length);
+                    transaction.addRow(null, args, insertTypes);
+                }
+                transaction.flush();
+            } finally {
+                transaction.setInBatchMode(inBatchMode);
+            }
+
+            int matchedRows = transaction.execute(matchSql);
+            if (matchedRows > 0) {
+                transaction.execute(applySql);
+            }
+            List<Integer> unmatchedRows = new ArrayList<Integer>();
+            if (matchedRows < rows.size()) {
+                unmatchedRows = transaction.query(unmatchedSql, new ISqlRowMapper<Integer>() {
+                    public Integer mapRow(Row row) {
+                        return row.getInt("sym_row");
+                    }
+                }, new Object[0], new int[0]);
+            }
+            transaction.execute(clearSql);
+            return unmatchedRows;
+        }
+    }
+
+}
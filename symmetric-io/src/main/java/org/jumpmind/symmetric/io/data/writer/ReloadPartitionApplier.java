@@ -0,0 +1,310 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.transform.TransformedData;
+import org.jumpmind.util.CustomizableThreadFactory;
+import org.jumpmind.util.Statistics;
+
+/**
+ * Spreads the inserts of a {@link DefaultDatabaseWriter} into a table on the
+ * reload channel across partitions by primary key, each with its own writer,
+ * connection and thread, when the settings allow more than one.
+ */
+public class ReloadPartitionApplier {
+
+    protected static final int QUEUE_SIZE = 1000;
+
+    protected static final long POLL_MS = 100;
+
+    protected static final CsvData END_OF_PARTITION = new CsvData();
+
+    protected DefaultDatabaseWriter writer;
+
+    protected List<ReloadPartition> partitions;
+
+    protected ExecutorService executor;
+
+    protected int[] keyIndexes;
+
+    protected volatile boolean failed;
+
+    public ReloadPartitionApplier(DefaultDatabaseWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Called when the writer starts a table. The inserts of the table are
+     * partitioned when it is partitionable.
+     */
+    public void start(boolean partitionable) {
+        if (partitionable) {
+            Table sourceTable = writer.getSourceTable();
+            Column[] keys = sourceTable.getPrimaryKeyColumns();
+            keyIndexes = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keyIndexes[i] = sourceTable.getColumnIndex(keys[i]);
+            }
+        } else {
+            keyIndexes = null;
+        }
+    }
+
+    public boolean isPartitioned(CsvData data) {
+        return keyIndexes != null && data.getDataEventType() == DataEventType.INSERT
+                && data.getAttribute(TransformedData.class.getName()) == null;
+    }
+
+    public void write(CsvData data) {
+        if (partitions == null) {
+            startPartitions();
+        }
+        int hash = 0;
+        String[] values = data.getParsedData(CsvData.ROW_DATA);
+        if (values != null) {
+            for (int index : keyIndexes) {
+                if (index >= 0 && index < values.length && values[index] != null) {
+                    hash = 31 * hash + values[index].hashCode();
+                }
+            }
+        }
+        ReloadPartition partition = partitions.get((hash & Integer.MAX_VALUE) % partitions.size());
+        if (!partition.add(data) || failed) {
+            finish();
+        }
+    }
+
+    /**
+     * Work the writer has not committed yet, like a delete of the rows that
+     * are about to be reloaded, is committed first. Otherwise the partitions
+     * could wait on its locks while it waits on them.
+     */
+    protected void startPartitions() {
+        if (writer.uncommittedCount > 0) {
+            writer.commit(true);
+        }
+        failed = false;
+        int count = writer.getWriterSettings().getReloadPartitionCount();
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(count, new CustomizableThreadFactory("reload-partition"));
+        }
+        partitions = new ArrayList<ReloadPartition>(count);
+        for (int i = 0; i < count; i++) {
+            ReloadPartition partition = new ReloadPartition(writer.newReloadPartitionWriter(), writer.getSourceTable());
+            partition.future = executor.submit(partition);
+            partitions.add(partition);
+        }
+    }
+
+    /**
+     * Waits for each partition to write the rows it was given. The partitions
+     * only commit when all of them wrote their rows. When one fails, the
+     * others roll back and the first error is thrown once all of them have
+     * stopped. Rows that partitions committed early, every max rows before
+     * commit, stay in place just like the early commits of a single
+     * connection, and are applied again when the batch is retried.
+     */
+    public void finish() {
+        if (partitions != null) {
+            List<ReloadPartition> finishedPartitions = partitions;
+            partitions = null;
+            boolean commit = false;
+            try {
+                for (ReloadPartition partition : finishedPartitions) {
+                    partition.add(END_OF_PARTITION);
+                }
+                commit = true;
+                for (ReloadPartition partition : finishedPartitions) {
+                    partition.written.await();
+                    commit &= !partition.failed;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("This thread was interrupted");
+            } finally {
+                for (ReloadPartition partition : finishedPartitions) {
+                    partition.decide(commit);
+                }
+            }
+
+            RuntimeException error = null;
+            Batch batch = writer.getBatch();
+            Statistics batchStatistics = writer.getStatistics().get(batch);
+            long startTime = batchStatistics.get(DataWriterStatisticConstants.STARTTIME);
+            for (ReloadPartition partition : finishedPartitions) {
+                try {
+                    partition.future.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("This thread was interrupted");
+                } catch (ExecutionException ex) {
+                    if (error == null) {
+                        error = ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause()
+                                : new RuntimeException(ex.getCause());
+                    }
+                }
+                Statistics partitionStatistics = partition.partitionWriter.getStatistics().get(batch);
+                if (partitionStatistics != null) {
+                    batchStatistics.add(partitionStatistics);
+                }
+            }
+            batchStatistics.set(DataWriterStatisticConstants.STARTTIME, startTime);
+
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Writes its share of a reload table's inserts with its own writer and
+     * transaction.
+     */
+    protected class ReloadPartition implements Callable<Object> {
+
+        protected DefaultDatabaseWriter partitionWriter;
+
+        protected DataContext partitionContext;
+
+        protected Batch batch;
+
+        protected Table table;
+
+        protected BlockingQueue<CsvData> queue = new ArrayBlockingQueue<CsvData>(QUEUE_SIZE);
+
+        protected Future<Object> future;
+
+        protected CountDownLatch written = new CountDownLatch(1);
+
+        protected CountDownLatch decided = new CountDownLatch(1);
+
+        protected volatile boolean failed = true;
+
+        protected volatile boolean commit;
+
+        public ReloadPartition(DefaultDatabaseWriter partitionWriter, Table table) {
+            this.partitionWriter = partitionWriter;
+            /* each writer adjusts its table's column types from the target */
+            this.table = table.copy();
+            this.batch = writer.getBatch();
+            this.partitionContext = new DataContext(batch);
+            this.partitionContext.getContext().putAll(writer.getContext().getContext());
+        }
+
+        /**
+         * Returns false when the partition has already stopped because of an
+         * error.
+         */
+        public boolean add(CsvData data) {
+            try {
+                while (!queue.offer(data, POLL_MS, TimeUnit.MILLISECONDS)) {
+                    if (future.isDone()) {
+                        return false;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("This thread was interrupted");
+            }
+            return true;
+        }
+
+        public void decide(boolean commit) {
+            this.commit = commit;
+            decided.countDown();
+        }
+
+        public Object call() throws Exception {
+            try {
+                partitionWriter.open(partitionContext);
+                partitionWriter.start(batch);
+                writer.startReloadPartition(partitionWriter);
+                boolean inError = true;
+                try {
+                    partitionWriter.start(table);
+                    for (CsvData data = queue.take(); data != END_OF_PARTITION; data = queue.take()) {
+                        /* the rows left after another partition failed would only be rolled back */
+                        if (!ReloadPartitionApplier.this.failed) {
+                            partitionWriter.write(data);
+                        }
+                    }
+                    partitionWriter.end(table);
+                    inError = false;
+                } catch (Exception ex) {
+                    ReloadPartitionApplier.this.failed = true;
+                    throw ex;
+                } finally {
+                    inError = !awaitCommit(inError);
+                    writer.endReloadPartition(partitionWriter);
+                    partitionWriter.end(batch, inError);
+                }
+            } finally {
+                written.countDown();
+                partitionWriter.close();
+            }
+            return null;
+        }
+
+        /**
+         * Tells the writer whether this partition wrote its rows and waits to
+         * be told whether every partition did.
+         */
+        protected boolean awaitCommit(boolean inError) {
+            failed = inError;
+            written.countDown();
+            if (!inError) {
+                try {
+                    decided.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return !inError && commit;
+        }
+    }
+
+}
@@ -21,11 +21,13 @@
 package org.jumpmind.symmetric.io.data.writer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Table;
@@ -35,6 +37,8 @@ import org.jumpmind.symmetric.io.data.CsvData;
 import org.jumpmind.symmetric.io.data.DataContext;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.IDataWriter;
+import org.jumpmind.symmetric.io.data.transform.ConstantColumnTransform;
+import org.jumpmind.symmetric.io.data.transform.CopyColumnTransform;
 import org.jumpmind.symmetric.io.data.transform.TargetDmlAction;
 import org.jumpmind.symmetric.io.data.transform.IColumnTransform;
 import org.jumpmind.symmetric.io.data.transform.IgnoreColumnException;
@@ -62,6 +66,10 @@ public class TransformWriter extends NestedDataWriter {
     protected Batch batch;
     protected Map<String, IColumnTransform<?>> columnTransforms;
     protected Table lastTransformedTable;
+    protected List<TransformTable> activeTransformsInDeleteOrder;
+    protected Map<String, List<TransformTable>> enhancedTransformsBySourceTable = new HashMap<String, List<TransformTable>>();
+    protected Map<TransformTable, TransformPlan> plansByTransform = new IdentityHashMap<TransformTable, TransformPlan>();
+    protected NewAndOldValue reusableValue = new NewAndOldValue();
     
     public TransformWriter(IDatabasePlatform platform, TransformPoint transformPoint,
             IDataWriter targetWriter, Map<String, IColumnTransform<?>> columnTransforms, 
@@ -102,12 +110,22 @@ public class TransformWriter extends NestedDataWriter {
         List<TransformTable> activeTransformsTemp = transformsBySourceTable.get(table.getFullyQualifiedTableNameLowerCase());
         if (activeTransformsTemp != null && activeTransformsTemp.size() > 0) { 
             this.sourceTable = table;
-            activeTransforms = new ArrayList<TransformTable>(activeTransformsTemp.size());
-            for (TransformTable transformation : activeTransformsTemp) {
-                activeTransforms.add(transformation.enhanceWithImpliedColumns(
-                        this.sourceTable.getPrimaryKeyColumnNames(),
-                        this.sourceTable.getColumnNames()));
+            String[] keyNames = this.sourceTable.getPrimaryKeyColumnNames();
+            String[] columnNames = this.sourceTable.getColumnNames();
+            String sourceTableKey = table.getFullyQualifiedTableNameLowerCase() + "|"
+                    + StringUtils.join(keyNames, ",") + "|" + StringUtils.join(columnNames, ",");
+            activeTransforms = enhancedTransformsBySourceTable.get(sourceTableKey);
+            if (activeTransforms == null) {
+                activeTransforms = new ArrayList<TransformTable>(activeTransformsTemp.size());
+                for (TransformTable transformation : activeTransformsTemp) {
+                    TransformTable enhanced = transformation.enhanceWithImpliedColumns(keyNames, columnNames);
+                    plansByTransform.put(enhanced, new TransformPlan(enhanced));
+                    activeTransforms.add(enhanced);
+                }
+                enhancedTransformsBySourceTable.put(sourceTableKey, activeTransforms);
             }
+            activeTransformsInDeleteOrder = new ArrayList<TransformTable>(activeTransforms);
+            Collections.reverse(activeTransformsInDeleteOrder);
             return true;
         } else {
             this.sourceTable = null;
@@ -159,12 +177,8 @@ public class TransformWriter extends NestedDataWriter {
                                 this.sourceTable.getFullyQualifiedTableName(), sourceValues });
             }
 
-            TransformTable[] transformTables = activeTransforms.toArray(new TransformTable[activeTransforms.size()]);
-            if (eventType == DataEventType.DELETE) {
-                CollectionUtils.reverseArray(transformTables);
-            }
-
-            for (TransformTable transformation : transformTables) {
+            for (TransformTable transformation : eventType == DataEventType.DELETE ? activeTransformsInDeleteOrder
+                    : activeTransforms) {
                 DataEventType localEventType = eventType;
                 if (localEventType == DataEventType.INSERT && transformation.isUpdateFirst()) {
                     localEventType = DataEventType.UPDATE;
@@ -175,10 +189,11 @@ public class TransformWriter extends NestedDataWriter {
                 
                 
                 for (TransformedData transformedData : dataThatHasBeenTransformed) {
-                    Table transformedTable = transformedData.buildTargetTable();
+                    Table transformedTable = buildTargetTable(transformedData);
                     CsvData csvData = transformedData.buildTargetCsvData();
                     boolean processData = true;
-                    if (lastTransformedTable == null || !lastTransformedTable.equals(transformedTable)) {
+                    if (lastTransformedTable == null || (lastTransformedTable != transformedTable
+                            && !lastTransformedTable.equals(transformedTable))) {
                         if (lastTransformedTable != null) {
                             this.nestedWriter.end(lastTransformedTable);
                         }
@@ -252,7 +267,7 @@ public class TransformWriter extends NestedDataWriter {
             long transformTimeInMs = System.currentTimeMillis() - ts;
             Statistics stats = this.nestedWriter.getStatistics().get(batch);
             if (stats != null) {
-                stats.increment(DataWriterStatisticConstants.TRANSFORMMILLIS, transformTimeInMs);
+                stats.increment(DataWriterStatisticConstants.TRANSFORMMILLIS_ID, transformTimeInMs);
             }
             ts = System.currentTimeMillis();
         }
@@ -268,7 +283,8 @@ public class TransformWriter extends NestedDataWriter {
 
 
             DataEventType eventType = data.getSourceDmlType();
-            for (TransformColumn transformColumn : transformation.getTransformColumns()) {
+            for (CompiledTransformColumn compiledColumn : getPlan(transformation).columns) {
+                TransformColumn transformColumn = compiledColumn.transformColumn;
                 if (!transformColumn.isPk()) {
                     IncludeOnType includeOn = transformColumn.getIncludeOn();
                     if (includeOn == IncludeOnType.ALL || (includeOn == IncludeOnType.INSERT && eventType == DataEventType.INSERT)
@@ -277,7 +293,7 @@ public class TransformWriter extends NestedDataWriter {
                         if (StringUtils.isBlank(transformColumn.getSourceColumnName())
                                 || sourceValues.containsKey(transformColumn.getSourceColumnName())) {
                             try {
-                                Object value = transformColumn(context, data, transformColumn, sourceValues, oldSourceValues);
+                                Object value = transformColumn(context, data, compiledColumn, sourceValues, oldSourceValues);
                                 if (value instanceof NewAndOldValue) {
                                     data.put(transformColumn, ((NewAndOldValue) value).getNewValue(),
                                             oldSourceValues != null ? ((NewAndOldValue) value).getOldValue() : null, false);
@@ -339,8 +355,8 @@ public class TransformWriter extends NestedDataWriter {
             TransformTable transformation, Map<String, String> sourceKeyValues,
             Map<String, String> oldSourceValues, Map<String, String> sourceValues)
             throws IgnoreRowException {
-        List<TransformColumn> columns = transformation.getPrimaryKeyColumns();
-        if (columns == null || columns.size() == 0) {
+        CompiledTransformColumn[] columns = getPlan(transformation).keyColumns;
+        if (columns.length == 0) {
             log.error("No primary key defined for the transformation: {}",
                     transformation.getTransformId());
             return new ArrayList<TransformedData>(0);
@@ -381,7 +397,8 @@ public class TransformWriter extends NestedDataWriter {
                     break;
             }            
             
-            for (TransformColumn transformColumn : columns) {
+            for (CompiledTransformColumn compiledColumn : columns) {
+                TransformColumn transformColumn = compiledColumn.transformColumn;
                 IncludeOnType includeOn = transformColumn.getIncludeOn();
                 if (includeOn == IncludeOnType.ALL
                         || (includeOn == IncludeOnType.INSERT && eventType == DataEventType.INSERT)
@@ -389,7 +406,7 @@ public class TransformWriter extends NestedDataWriter {
                         || (includeOn == IncludeOnType.DELETE && eventType == DataEventType.DELETE)) {
                     List<TransformedData> newDatas = null;
                     try {
-                        Object columnValue = transformColumn(context, data, transformColumn,
+                        Object columnValue = transformColumn(context, data, compiledColumn,
                                 sourceValues, oldSourceValues);
                         if (columnValue instanceof List) {
                             @SuppressWarnings("unchecked")
@@ -433,13 +450,35 @@ public class TransformWriter extends NestedDataWriter {
     protected Object transformColumn(DataContext context, TransformedData data,
             TransformColumn transformColumn, Map<String, String> sourceValues,
             Map<String, String> oldSourceValues) throws IgnoreRowException, IgnoreColumnException {
+        return transformColumn(context, data, new CompiledTransformColumn(transformColumn), sourceValues,
+                oldSourceValues);
+    }
+
+    protected Object transformColumn(DataContext context, TransformedData data,
+            CompiledTransformColumn compiledColumn, Map<String, String> sourceValues,
+            Map<String, String> oldSourceValues) throws IgnoreRowException, IgnoreColumnException {
+        TransformColumn transformColumn = compiledColumn.transformColumn;
         Object returnValue = null;
         String value = transformColumn.getSourceColumnName() != null ? sourceValues
                 .get(transformColumn.getSourceColumnName()) : null;
         returnValue = value;
-        IColumnTransform<?> transform = columnTransforms != null ? columnTransforms
-                .get(transformColumn.getTransformType()) : null;
-        if (transform != null) {
+        IColumnTransform<?> transform = compiledColumn.columnTransform;
+        if (compiledColumn.copy) {
+            /*
+             * The built in copy and constant transforms are applied inline. The
+             * returned value is consumed by the caller before the next column is
+             * transformed, so it is safe to reuse a single holder.
+             */
+            reusableValue.setNewValue(value);
+            reusableValue.setOldValue(oldSourceValues != null ? oldSourceValues.get(transformColumn.getSourceColumnName())
+                    : null);
+            returnValue = reusableValue;
+        } else if (compiledColumn.constant) {
+            boolean delete = data.getTargetDmlType().equals(DataEventType.DELETE);
+            reusableValue.setNewValue(delete ? null : transformColumn.getTransformExpression());
+            reusableValue.setOldValue(delete ? transformColumn.getTransformExpression() : null);
+            returnValue = reusableValue;
+        } else if (transform != null) {
             try {
                 String oldValue = null;
                 if (oldSourceValues != null) {
@@ -457,6 +496,28 @@ public class TransformWriter extends NestedDataWriter {
         return returnValue;
     }
 
+    protected TransformPlan getPlan(TransformTable transformation) {
+        TransformPlan plan = plansByTransform.get(transformation);
+        if (plan == null) {
+            plan = new TransformPlan(transformation);
+            plansByTransform.put(transformation, plan);
+        }
+        return plan;
+    }
+
+    protected Table buildTargetTable(TransformedData data) {
+        TransformPlan plan = getPlan(data.getTransformation());
+        String[] columnNames = data.getColumnNames();
+        String[] keyNames = data.getKeyNames();
+        if (plan.targetTable == null || !Arrays.equals(columnNames, plan.targetColumnNames)
+                || !Arrays.equals(keyNames, plan.targetKeyNames)) {
+            plan.targetTable = data.buildTargetTable();
+            plan.targetColumnNames = columnNames;
+            plan.targetKeyNames = keyNames;
+        }
+        return plan.targetTable;
+    }
+
     public void end(Table table) {
         if (this.lastTransformedTable != null) {
             this.nestedWriter.end(lastTransformedTable);
@@ -464,10 +525,64 @@ public class TransformWriter extends NestedDataWriter {
         }
         if (activeTransforms != null && activeTransforms.size() > 0) {
             activeTransforms = null;
+            activeTransformsInDeleteOrder = null;
         } else {
             super.end(table);
         }
 
     }
 
+    /**
+     * The column transforms of a {@link TransformTable} resolved once so that
+     * rows do not have to look them up by name. The last target table built
+     * for the transformation is kept so it can be reused while the target
+     * columns stay the same.
+     */
+    protected class TransformPlan {
+
+        protected CompiledTransformColumn[] keyColumns;
+
+        protected CompiledTransformColumn[] columns;
+
+        protected Table targetTable;
+
+        protected String[] targetColumnNames;
+
+        protected String[] targetKeyNames;
+
+        protected TransformPlan(TransformTable transformation) {
+            keyColumns = compile(transformation.getPrimaryKeyColumns());
+            columns = compile(transformation.getTransformColumns());
+        }
+
+        protected CompiledTransformColumn[] compile(List<TransformColumn> transformColumns) {
+            int size = transformColumns != null ? transformColumns.size() : 0;
+            CompiledTransformColumn[] compiled = new CompiledTransformColumn[size];
+            for (int i = 0; i < size; i++) {
+                compiled[i] = new CompiledTransformColumn(transformColumns.get(i));
+            }
+            return compiled;
+        }
+    }
+
+    protected class CompiledTransformColumn {
+
+        protected TransformColumn transformColumn;
+
+        protected IColumnTransform<?> columnTransform;
+
+        protected boolean copy;
+
+        protected boolean constant;
+
+        protected CompiledTransformColumn(TransformColumn transformColumn) {
+            this.transformColumn = transformColumn;
+            this.columnTransform = columnTransforms != null ? columnTransforms.get(transformColumn.getTransformType()) : null;
+            if (columnTransform != null) {
+                copy = columnTransform.getClass().equals(CopyColumnTransform.class);
+                constant = columnTransform.getClass().equals(ConstantColumnTransform.class);
+            }
+        }
+    }
+
 }
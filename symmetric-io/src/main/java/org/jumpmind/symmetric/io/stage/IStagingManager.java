@@ -29,6 +29,14 @@ public interface IStagingManager {
     public IStagedResource find(String path);
 
     public IStagedResource create(Object... path);
+
+    /**
+     * Delete a finished resource by its path without searching the staging
+     * directory for it.
+     * 
+     * @return true if a resource was deleted
+     */
+    public boolean delete(Object... path);
     
     public long clean(long timeToLiveInMs);
     
@@ -243,6 +243,18 @@ public class StagingManager implements IStagingManager {
         return find(buildFilePath(path));
     }
 
+    public boolean delete(Object... path) {
+        String filePath = buildFilePath(path);
+        IStagedResource resource = inUse.get(filePath);
+        if (resource == null) {
+            resource = createStagedResource(filePath);
+        }
+        if (resource.getState() == State.DONE && !resource.isInUse()) {
+            return resource.delete();
+        }
+        return false;
+    }
+
     public void removeResourcePath(String path) {
         resourcePathsCache.remove(path);
         inUse.remove(path);
@@ -0,0 +1,179 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.reader;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.CsvConstants;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PipelinedDataReaderTest {
+
+    ExecutorService executor;
+
+    @Before
+    public void setup() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testProcessThroughSmallQueue() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%s,%s\n", CsvConstants.NODEID, "1"));
+        putBatch(builder, 1, 10);
+        putBatch(builder, 2, 5);
+
+        PipelinedDataReader reader = new PipelinedDataReader(new ProtocolDataReader(BatchType.LOAD, "test", builder), 2);
+        reader.start(executor);
+        TestableDataWriter writer = new TestableDataWriter();
+        DataContext context = new DataContext();
+        new DataProcessor(reader, writer, "test").process(context);
+
+        assertEquals(15, writer.getDatas().size());
+        assertEquals("1", writer.getDatas().get(1).getParsedData(CsvData.ROW_DATA)[0]);
+        assertEquals("test2", writer.getLastTableRead().getName());
+        assertEquals("test2", context.getLastParsedTable().getName());
+        assertEquals(2, reader.getStatistics().size());
+    }
+
+    @Test
+    public void testCloseBeforeFullyRead() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        putBatch(builder, 1, 100);
+
+        PipelinedDataReader reader = new PipelinedDataReader(new ProtocolDataReader(BatchType.LOAD, "test", builder), 1);
+        reader.start(executor);
+        reader.open(new DataContext());
+        Batch batch = reader.nextBatch();
+        assertNotNull(batch);
+        assertNull(reader.nextData());
+        Table table = reader.nextTable();
+        assertEquals("test1", table.getName());
+        assertNotNull(reader.nextData());
+        reader.close();
+        assertEquals(0, reader.done.getCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseErrorIsRethrown() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%s,%d\n", CsvConstants.BATCH, 1));
+        builder.append(String.format("%s,%s\n", CsvConstants.TABLE, "test1"));
+        builder.append(String.format("%s,%s,%s\n", CsvConstants.COLUMNS, "id", "text"));
+        builder.append(String.format("%s,%s\n", CsvConstants.UPDATE, "1"));
+        builder.append(String.format("%s\n", CsvConstants.COMMIT));
+
+        PipelinedDataReader reader = new PipelinedDataReader(new ProtocolDataReader(BatchType.LOAD, "test", builder), 10);
+        reader.start(executor);
+        new DataProcessor(reader, new TestableDataWriter(), "test").process(new DataContext());
+    }
+
+    @Test
+    public void testColumnsChangeForSameTableWhileParsingAhead() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%s,%s\n", CsvConstants.NODEID, "1"));
+        builder.append(String.format("%s,%s\n", CsvConstants.CHANNEL, "test"));
+        builder.append(String.format("%s,%d\n", CsvConstants.BATCH, 1));
+        builder.append(String.format("%s,%s\n", CsvConstants.TABLE, "same"));
+        builder.append(String.format("%s,%s\n", CsvConstants.KEYS, "id"));
+        builder.append(String.format("%s,%s,%s\n", CsvConstants.COLUMNS, "id", "text"));
+        builder.append(String.format("%s,%d,%s\n", CsvConstants.INSERT, 1, "\"one\""));
+        builder.append(String.format("%s\n", CsvConstants.COMMIT));
+        builder.append(String.format("%s,%d\n", CsvConstants.BATCH, 2));
+        builder.append(String.format("%s,%s\n", CsvConstants.TABLE, "same"));
+        builder.append(String.format("%s,%s,%s,%s\n", CsvConstants.COLUMNS, "id", "text", "extra"));
+        builder.append(String.format("%s,%d,%s,%s\n", CsvConstants.INSERT, 2, "\"two\"", "\"x\""));
+        builder.append(String.format("%s\n", CsvConstants.COMMIT));
+
+        final PipelinedDataReader reader = new PipelinedDataReader(new ProtocolDataReader(BatchType.LOAD, "test", builder), 100);
+        final List<Table> tables = new ArrayList<Table>();
+        final List<String> errors = new ArrayList<String>();
+        TestableDataWriter writer = new TestableDataWriter() {
+            Table current;
+
+            @Override
+            public boolean start(Table table) {
+                if (tables.isEmpty()) {
+                    /* Let the parser get through both batches before writing the first one */
+                    try {
+                        reader.done.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                tables.add(table);
+                current = table;
+                return super.start(table);
+            }
+
+            @Override
+            public void write(CsvData data) {
+                int columnCount = data.getParsedData(CsvData.ROW_DATA).length;
+                if (current.getColumnCount() != columnCount) {
+                    errors.add(String.format("Table %s had %d columns for a row of %d values", current.getName(),
+                            current.getColumnCount(), columnCount));
+                }
+                super.write(data);
+            }
+        };
+        reader.start(executor);
+        new DataProcessor(reader, writer, "test").process(new DataContext());
+
+        assertEquals(errors.toString(), 0, errors.size());
+        assertEquals(2, tables.size());
+        assertNotSame(tables.get(0), tables.get(1));
+        assertEquals(2, tables.get(0).getColumnCount());
+        assertEquals(3, tables.get(1).getColumnCount());
+        assertTrue(tables.get(0).getColumnWithName("id").isPrimaryKey());
+        assertEquals(2, writer.getDatas().size());
+    }
+
+    protected void putBatch(StringBuilder builder, long batchId, int rows) {
+        builder.append(String.format("%s,%s\n", CsvConstants.CHANNEL, "test"));
+        builder.append(String.format("%s,%d\n", CsvConstants.BATCH, batchId));
+        builder.append(String.format("%s,%s%d\n", CsvConstants.TABLE, "test", batchId));
+        builder.append(String.format("%s,%s\n", CsvConstants.KEYS, "id"));
+        builder.append(String.format("%s,%s,%s\n", CsvConstants.COLUMNS, "id", "text"));
+        for (int i = 0; i < rows; i++) {
+            builder.append(String.format("%s,%d,%s\n", CsvConstants.INSERT, i, "\"test\""));
+        }
+        builder.append(String.format("%s\n", CsvConstants.COMMIT));
+    }
+
+}
@@ -0,0 +1,277 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jumpmind.db.DbTestUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.symmetric.io.AbstractWriterTest;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
+import org.jumpmind.symmetric.io.data.writer.Conflict.ResolveConflict;
+import org.jumpmind.util.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DatabaseWriterJdbcBatchTest extends AbstractWriterTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        platform = DbTestUtils.createDatabasePlatform(DbTestUtils.ROOT);
+        platform.createDatabase(platform.readDatabaseFromXml("/testDatabaseWriter.xml", true),
+                true, false);
+    }
+
+    @Before
+    public void notExpectingError() {
+        setErrorExpected(false);
+        writerSettings.setDefaultConflictSetting(new Conflict());
+        writerSettings.setJdbcBatchEnabled(true);
+    }
+
+    @Test
+    public void testInsertConflictsInBatch() {
+        List<String> existingIds = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            String id = getNextId();
+            existingIds.add(id);
+            writeData(new CsvData(DataEventType.INSERT, values(id, "original")));
+        }
+
+        List<String> ids = new ArrayList<String>();
+        List<CsvData> datas = new ArrayList<CsvData>();
+        for (int i = 0; i < 10; i++) {
+            String id = i % 3 == 0 && existingIds.size() > 0 ? existingIds.remove(0) : getNextId();
+            ids.add(id);
+            datas.add(new CsvData(DataEventType.INSERT, values(id, "batched")));
+        }
+        writeData(datas.toArray(new CsvData[datas.size()]));
+
+        for (String id : ids) {
+            Assert.assertEquals("batched", getStringValue(id));
+        }
+        Assert.assertEquals(7, getStatistics().get(DataWriterStatisticConstants.INSERTCOUNT));
+    }
+
+    @Test
+    public void testUpdateConflictsInBatch() {
+        String existingId = getNextId();
+        writeData(new CsvData(DataEventType.INSERT, values(existingId, "original")));
+
+        String missingId = getNextId();
+        writeData(new CsvData(DataEventType.UPDATE, new String[] { existingId }, values(existingId, "updated")),
+                new CsvData(DataEventType.UPDATE, new String[] { missingId }, values(missingId, "updated")));
+
+        Assert.assertEquals("updated", getStringValue(existingId));
+        Assert.assertEquals("updated", getStringValue(missingId));
+    }
+
+    @Test
+    public void testDeleteConflictsInBatch() {
+        String existingId = getNextId();
+        writeData(new CsvData(DataEventType.INSERT, values(existingId, "original")));
+
+        String missingId = getNextId();
+        writeData(new CsvData(DataEventType.DELETE, new String[] { missingId }, null),
+                new CsvData(DataEventType.DELETE, new String[] { existingId }, null));
+
+        Assert.assertNull(queryForRow(existingId));
+        Assert.assertEquals(1, getStatistics().get(DataWriterStatisticConstants.DELETECOUNT));
+    }
+
+    @Test
+    public void testConflictsAcrossSeveralBatches() {
+        List<String> ids = new ArrayList<String>();
+        List<CsvData> datas = new ArrayList<CsvData>();
+        for (int i = 0; i < 250; i++) {
+            String id = getNextId();
+            ids.add(id);
+            datas.add(new CsvData(DataEventType.INSERT, values(id, "first")));
+        }
+        writeData(datas.toArray(new CsvData[datas.size()]));
+
+        datas.clear();
+        for (int i = 0; i < ids.size(); i++) {
+            String id = i % 10 == 0 ? ids.get(i) : getNextId();
+            datas.add(new CsvData(DataEventType.INSERT, values(id, "second")));
+        }
+        writeData(datas.toArray(new CsvData[datas.size()]));
+
+        for (int i = 0; i < ids.size(); i += 10) {
+            Assert.assertEquals("second", getStringValue(ids.get(i)));
+        }
+        Assert.assertEquals(225, getStatistics().get(DataWriterStatisticConstants.INSERTCOUNT));
+    }
+
+    @Test
+    public void testNewerWinsConflictsInBatch() {
+        Assert.assertTrue(writeNewerWinsConflicts(true) >= 4);
+        Assert.assertEquals(0, writeNewerWinsConflicts(false));
+    }
+
+    /**
+     * Returns the number of conflicts that were resolved with a prefetched
+     * row instead of a query of their own.
+     */
+    protected int writeNewerWinsConflicts(boolean prefetch) {
+        writerSettings.setConflictPrefetchEnabled(prefetch);
+        Conflict setting = new Conflict();
+        setting.setConflictId("unit.test");
+        setting.setDetectType(DetectConflict.USE_TIMESTAMP);
+        setting.setDetectExpression("time_value");
+        setting.setResolveRowOnly(true);
+        setting.setResolveChangesOnly(false);
+        setting.setResolveType(ResolveConflict.NEWER_WINS);
+        writerSettings.setDefaultConflictSetting(setting);
+
+        List<String> existingIds = new ArrayList<String>();
+        for (int i = 0; i < 4; i++) {
+            String id = getNextId();
+            existingIds.add(id);
+            writeData(new CsvData(DataEventType.INSERT, values(id, "original", "2012-03-12 07:00:00.000")));
+        }
+
+        final AtomicInteger prefetchedRows = new AtomicInteger();
+        DynamicDefaultDatabaseWriter writer = new DynamicDefaultDatabaseWriter(platform, platform, "sym", writerSettings) {
+            @Override
+            public Row getPrefetchedConflictRow(Table table, Object[] keyValues) {
+                Row row = super.getPrefetchedConflictRow(table, keyValues);
+                if (row != null) {
+                    prefetchedRows.incrementAndGet();
+                }
+                return row;
+            }
+        };
+        String newId = getNextId();
+        writeData(writer, new TableCsvData(buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS),
+                new CsvData(DataEventType.INSERT, values(existingIds.get(0), "newer", "2012-03-12 08:00:00.000")),
+                new CsvData(DataEventType.INSERT, values(existingIds.get(1), "older", "2012-03-12 06:00:00.000")),
+                new CsvData(DataEventType.INSERT, values(newId, "new", "2012-03-12 07:00:00.000")),
+                new CsvData(DataEventType.INSERT, values(existingIds.get(2), "newer", "2012-03-12 08:00:00.000")),
+                new CsvData(DataEventType.INSERT, values(existingIds.get(3), "older", "2012-03-12 06:00:00.000"))));
+
+        Assert.assertEquals("newer", getStringValue(existingIds.get(0)));
+        Assert.assertEquals("original", getStringValue(existingIds.get(1)));
+        Assert.assertEquals("new", getStringValue(newId));
+        Assert.assertEquals("newer", getStringValue(existingIds.get(2)));
+        Assert.assertEquals("original", getStringValue(existingIds.get(3)));
+        return prefetchedRows.get();
+    }
+
+    @Test
+    public void testConflictsResolvedInStatementOrder() {
+        Conflict setting = new Conflict();
+        setting.setConflictId("unit.test");
+        setting.setDetectType(DetectConflict.USE_OLD_DATA);
+        setting.setResolveRowOnly(true);
+        setting.setResolveChangesOnly(false);
+        setting.setResolveType(ResolveConflict.FALLBACK);
+        writerSettings.setDefaultConflictSetting(setting);
+
+        String id = getNextId();
+        writeData(new CsvData(DataEventType.INSERT, values(id, "original")));
+
+        /*
+         * The first update conflicts and falls back to an update by key.  The
+         * second one was captured after it, so it has to win.
+         */
+        CsvData first = new CsvData(DataEventType.UPDATE);
+        first.putParsedData(CsvData.ROW_DATA, values(id, "first"));
+        first.putParsedData(CsvData.OLD_DATA, values(id, "stale"));
+        CsvData second = new CsvData(DataEventType.UPDATE);
+        second.putParsedData(CsvData.ROW_DATA, values(id, "second"));
+        second.putParsedData(CsvData.OLD_DATA, values(id, "original"));
+        writeData(first, second);
+
+        Assert.assertEquals("second", getStringValue(id));
+    }
+
+    @Test
+    public void testBenchmark() {
+        final int rowCount = 2000;
+        writerSettings.setJdbcBatchEnabled(false);
+        long serialMillis = writeInsertsUpdatesAndDeletes(rowCount);
+        writerSettings.setJdbcBatchEnabled(true);
+        long batchedMillis = writeInsertsUpdatesAndDeletes(rowCount);
+
+        String message = String.format("Loaded %d inserts, updates and deletes in %dms with JDBC batches and %dms without",
+                rowCount, batchedMillis, serialMillis);
+        Assert.assertTrue(message, batchedMillis <= 15000);
+    }
+
+    protected long writeInsertsUpdatesAndDeletes(int rowCount) {
+        List<String> ids = new ArrayList<String>(rowCount);
+        List<CsvData> inserts = new ArrayList<CsvData>(rowCount);
+        List<CsvData> updates = new ArrayList<CsvData>(rowCount);
+        List<CsvData> deletes = new ArrayList<CsvData>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            String id = getNextId();
+            ids.add(id);
+            inserts.add(new CsvData(DataEventType.INSERT, values(id, "inserted")));
+            updates.add(new CsvData(DataEventType.UPDATE, new String[] { id }, values(id, "updated")));
+            deletes.add(new CsvData(DataEventType.DELETE, new String[] { id }, null));
+        }
+
+        long startTime = System.currentTimeMillis();
+        writeData(inserts.toArray(new CsvData[rowCount]));
+        Assert.assertEquals(rowCount, getStatistics().get(DataWriterStatisticConstants.INSERTCOUNT));
+        writeData(updates.toArray(new CsvData[rowCount]));
+        Assert.assertEquals(rowCount, getStatistics().get(DataWriterStatisticConstants.UPDATECOUNT));
+        Assert.assertEquals("updated", getStringValue(ids.get(rowCount - 1)));
+        writeData(deletes.toArray(new CsvData[rowCount]));
+        Assert.assertEquals(rowCount, getStatistics().get(DataWriterStatisticConstants.DELETECOUNT));
+        long millis = System.currentTimeMillis() - startTime;
+
+        Assert.assertNull(queryForRow(ids.get(0)));
+        return millis;
+    }
+
+    protected String[] values(String id, String stringValue, String timeValue) {
+        String[] values = values(id, stringValue);
+        values[6] = timeValue;
+        return values;
+    }
+
+    protected String[] values(String id, String stringValue) {
+        String[] values = new String[TEST_COLUMNS.length];
+        values[0] = id;
+        values[1] = stringValue;
+        values[2] = "string not null";
+        values[4] = "char not null";
+        return values;
+    }
+
+    protected String getStringValue(String id) {
+        return (String) queryForRow(id).get("string_value");
+    }
+
+    protected Statistics getStatistics() {
+        return lastDataWriterUsed.getStatistics().values().iterator().next();
+    }
+
+}
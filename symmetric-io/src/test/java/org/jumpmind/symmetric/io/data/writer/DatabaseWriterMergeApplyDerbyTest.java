@@ -0,0 +1,53 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.db.platform.JdbcDatabasePlatformFactory;
+import org.jumpmind.db.sql.SqlTemplateSettings;
+import org.jumpmind.db.util.BasicDataSourceFactory;
+import org.jumpmind.db.util.BasicDataSourcePropertyConstants;
+import org.jumpmind.properties.TypedProperties;
+import org.junit.BeforeClass;
+
+/**
+ * Merges into a Derby database, whose temporary tables are declared in the
+ * SESSION schema.
+ */
+public class DatabaseWriterMergeApplyDerbyTest extends DatabaseWriterMergeApplyTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final String DB_DIR = "target/mergedbs";
+        FileUtils.deleteDirectory(new File(DB_DIR));
+        TypedProperties properties = new TypedProperties();
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_DRIVER, "org.apache.derby.jdbc.EmbeddedDriver");
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_URL, "jdbc:derby:" + DB_DIR + "/merge;create=true");
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_USER, "");
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_PASSWORD, "");
+        platform = JdbcDatabasePlatformFactory.createNewPlatformInstance(BasicDataSourceFactory.create(properties),
+                new SqlTemplateSettings(), true, false);
+        platform.createDatabase(platform.readDatabaseFromXml("/testDatabaseWriter.xml", true), true, false);
+    }
+
+}
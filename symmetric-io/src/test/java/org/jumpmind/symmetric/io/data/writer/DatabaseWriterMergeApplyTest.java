@@ -0,0 +1,156 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jumpmind.db.DbTestUtils;
+import org.jumpmind.symmetric.io.AbstractWriterTest;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
+import org.jumpmind.util.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DatabaseWriterMergeApplyTest extends AbstractWriterTest {
+
+    protected static final String[] STATISTICS = { DataWriterStatisticConstants.UPDATECOUNT,
+            DataWriterStatisticConstants.DELETECOUNT, DataWriterStatisticConstants.FALLBACKINSERTCOUNT,
+            DataWriterStatisticConstants.FALLBACKUPDATECOUNT, DataWriterStatisticConstants.MISSINGDELETECOUNT,
+            DataWriterStatisticConstants.ROWCOUNT };
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        platform = DbTestUtils.createDatabasePlatform(DbTestUtils.ROOT);
+        platform.createDatabase(platform.readDatabaseFromXml("/testDatabaseWriter.xml", true),
+                true, false);
+    }
+
+    @Before
+    public void notExpectingError() {
+        setErrorExpected(false);
+        writerSettings.setDefaultConflictSetting(new Conflict());
+    }
+
+    @Test
+    public void testMergeMatchesRowByRowUsingPrimaryKey() {
+        assertMergeMatchesRowByRow(DetectConflict.USE_PK_DATA);
+    }
+
+    @Test
+    public void testMergeMatchesRowByRowUsingOldData() {
+        assertMergeMatchesRowByRow(DetectConflict.USE_OLD_DATA);
+    }
+
+    protected void assertMergeMatchesRowByRow(DetectConflict detectType) {
+        Conflict conflict = new Conflict();
+        conflict.setDetectType(detectType);
+        writerSettings.setDefaultConflictSetting(conflict);
+
+        writerSettings.setMergeApplyThreshold(0);
+        List<String> rowByRowValues = new ArrayList<String>();
+        long[] rowByRowStatistics = writeUpdatesAndDeletes(rowByRowValues);
+
+        writerSettings.setMergeApplyThreshold(10);
+        long mergeTableCount = MergeApplier.TABLE_SEQUENCE.get();
+        List<String> mergedValues = new ArrayList<String>();
+        long[] mergedStatistics = writeUpdatesAndDeletes(mergedValues);
+
+        /* the rows went through a temporary table instead of falling back to one at a time */
+        Assert.assertTrue(MergeApplier.TABLE_SEQUENCE.get() > mergeTableCount);
+        Assert.assertFalse(((DefaultDatabaseWriter) lastDataWriterUsed).mergeApplier.unsupported);
+
+        Assert.assertEquals(rowByRowValues, mergedValues);
+        for (int i = 0; i < STATISTICS.length; i++) {
+            Assert.assertEquals(STATISTICS[i], rowByRowStatistics[i], mergedStatistics[i]);
+        }
+    }
+
+    /**
+     * Loads 100 rows, then updates and deletes them with a batch that repeats
+     * a key, updates and deletes rows that are missing and updates rows with
+     * old data that no longer matches. Returns the statistics of the second
+     * batch and adds the resulting value of each row to the list.
+     */
+    protected long[] writeUpdatesAndDeletes(List<String> results) {
+        List<String> ids = new ArrayList<String>();
+        List<CsvData> datas = new ArrayList<CsvData>();
+        for (int i = 0; i < 100; i++) {
+            String id = getNextId();
+            ids.add(id);
+            datas.add(new CsvData(DataEventType.INSERT, values(id, "original")));
+        }
+        writeData(new TableCsvData(buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS), datas));
+
+        datas.clear();
+        for (int i = 0; i < 60; i++) {
+            datas.add(update(ids.get(i), "original", "updated " + i));
+        }
+        datas.add(update(ids.get(5), "updated 5", "updated twice"));
+        datas.add(update(ids.get(6), "stale", "updated stale"));
+        String missingId = getNextId();
+        ids.add(missingId);
+        datas.add(update(missingId, "original", "updated missing"));
+        for (int i = 60; i < 90; i++) {
+            datas.add(delete(ids.get(i)));
+        }
+        String missingDeleteId = getNextId();
+        datas.add(delete(missingDeleteId));
+        writeData(new TableCsvData(buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS), datas));
+
+        Statistics statistics = lastDataWriterUsed.getStatistics().values().iterator().next();
+        long[] counts = new long[STATISTICS.length];
+        for (int i = 0; i < STATISTICS.length; i++) {
+            counts[i] = statistics.get(STATISTICS[i]);
+        }
+        for (String id : ids) {
+            results.add(queryForRow(id) == null ? null : (String) queryForRow(id).get("string_value"));
+        }
+        return counts;
+    }
+
+    protected CsvData update(String id, String oldValue, String newValue) {
+        CsvData data = new CsvData(DataEventType.UPDATE, values(id, newValue), values(id, oldValue), null);
+        data.putParsedData(CsvData.PK_DATA, new String[] { id });
+        return data;
+    }
+
+    protected CsvData delete(String id) {
+        CsvData data = new CsvData(DataEventType.DELETE);
+        data.putParsedData(CsvData.PK_DATA, new String[] { id });
+        data.putParsedData(CsvData.OLD_DATA, values(id, "original"));
+        return data;
+    }
+
+    protected String[] values(String id, String stringValue) {
+        String[] values = new String[TEST_COLUMNS.length];
+        values[0] = id;
+        values[1] = stringValue;
+        values[2] = "string not null";
+        values[4] = "char not null";
+        return values;
+    }
+
+}
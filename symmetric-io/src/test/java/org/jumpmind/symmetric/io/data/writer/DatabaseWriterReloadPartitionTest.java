@@ -0,0 +1,291 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.JdbcDatabasePlatformFactory;
+import org.jumpmind.db.sql.SqlTemplateSettings;
+import org.jumpmind.db.util.BasicDataSourceFactory;
+import org.jumpmind.db.util.BasicDataSourcePropertyConstants;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.properties.TypedProperties;
+import org.jumpmind.symmetric.io.AbstractWriterTest;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.util.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DatabaseWriterReloadPartitionTest extends AbstractWriterTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final String DB_DIR = "target/reloaddbs";
+        FileUtils.deleteDirectory(new File(DB_DIR));
+        /* Row level locking so that the partitions can insert into the same table at once */
+        TypedProperties properties = new TypedProperties();
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_DRIVER, "org.h2.Driver");
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_URL, "jdbc:h2:file:" + DB_DIR
+                + "/reload;MVCC=TRUE;LOCK_TIMEOUT=10000");
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_USER, "sa");
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_PASSWORD, "");
+        platform = JdbcDatabasePlatformFactory.createNewPlatformInstance(BasicDataSourceFactory.create(properties),
+                new SqlTemplateSettings(), true, false);
+        platform.createDatabase(platform.readDatabaseFromXml("/testDatabaseWriter.xml", true), true, false);
+    }
+
+    @Before
+    public void notExpectingError() {
+        setErrorExpected(false);
+        writerSettings.setDefaultConflictSetting(new Conflict());
+        writerSettings.setMaxRowsBeforeCommit(100);
+    }
+
+    @Test
+    public void testReloadPartitionsApplyEveryRow() {
+        for (int partitionCount : new int[] { 1, 4 }) {
+            List<String> ids = new ArrayList<String>();
+            List<CsvData> datas = new ArrayList<CsvData>();
+            for (int i = 0; i < 2000; i++) {
+                String id = getNextId();
+                ids.add(id);
+                datas.add(new CsvData(DataEventType.INSERT, values(id, "reload " + partitionCount)));
+            }
+
+            DynamicDefaultDatabaseWriter writer = writeReloadBatch(partitionCount, datas);
+
+            for (String id : ids) {
+                Assert.assertEquals("reload " + partitionCount, getStringValue(id));
+            }
+            Assert.assertEquals(partitionCount > 1, writer.reloadPartitionApplier.executor != null);
+            Assert.assertEquals(2000, getStatistics().get(DataWriterStatisticConstants.INSERTCOUNT));
+            Assert.assertEquals(2000, getStatistics().get(DataWriterStatisticConstants.ROWCOUNT));
+        }
+    }
+
+    @Test
+    public void testReloadPartitionsFallBackToUpdate() {
+        List<String> ids = new ArrayList<String>();
+        List<CsvData> datas = new ArrayList<CsvData>();
+        for (int i = 0; i < 200; i++) {
+            String id = getNextId();
+            ids.add(id);
+            datas.add(new CsvData(DataEventType.INSERT, values(id, "first")));
+        }
+        writeReloadBatch(4, datas);
+
+        datas.clear();
+        for (String id : ids) {
+            datas.add(new CsvData(DataEventType.INSERT, values(id, "second")));
+        }
+        writeReloadBatch(4, datas);
+
+        for (String id : ids) {
+            Assert.assertEquals("second", getStringValue(id));
+        }
+        Assert.assertEquals(200, getStatistics().get(DataWriterStatisticConstants.FALLBACKUPDATECOUNT));
+    }
+
+    @Test
+    public void testReloadPartitionErrorFailsBatch() {
+        List<CsvData> datas = new ArrayList<CsvData>();
+        for (int i = 0; i < 200; i++) {
+            String[] values = values(getNextId(), "bad");
+            if (i == 150) {
+                values[2] = null;
+            }
+            datas.add(new CsvData(DataEventType.INSERT, values));
+        }
+
+        try {
+            writeReloadBatch(4, datas);
+            Assert.fail("The batch should have failed because of the missing required value");
+        } catch (RuntimeException ex) {
+        }
+    }
+
+    @Test
+    public void testReloadPartitionErrorRollsBackEveryPartition() {
+        writerSettings.setMaxRowsBeforeCommit(10000);
+        List<String> ids = new ArrayList<String>();
+        List<CsvData> datas = new ArrayList<CsvData>();
+        for (int i = 0; i < 200; i++) {
+            String id = getNextId();
+            String[] values = values(id, "rolled back");
+            if (i == 150) {
+                values[2] = null;
+            } else {
+                ids.add(id);
+            }
+            datas.add(new CsvData(DataEventType.INSERT, values));
+        }
+
+        try {
+            writeReloadBatch(4, datas);
+            Assert.fail("The batch should have failed because of the missing required value");
+        } catch (RuntimeException ex) {
+        }
+        for (String id : ids) {
+            Assert.assertNull(queryForRow(id));
+        }
+    }
+
+    @Test
+    public void testDeletesBeforeReloadDoNotBlockPartitions() {
+        List<String> ids = new ArrayList<String>();
+        List<CsvData> datas = new ArrayList<CsvData>();
+        for (int i = 0; i < 50; i++) {
+            String id = getNextId();
+            ids.add(id);
+            datas.add(new CsvData(DataEventType.INSERT, values(id, "before")));
+        }
+        writeReloadBatch(1, datas);
+
+        /* the deletes are not committed early, so their row locks are held when the inserts start */
+        writerSettings.setMaxRowsBeforeCommit(10000);
+        datas.clear();
+        for (String id : ids) {
+            datas.add(new CsvData(DataEventType.DELETE, new String[] { id }, null));
+        }
+        for (String id : ids) {
+            datas.add(new CsvData(DataEventType.INSERT, values(id, "after")));
+        }
+        DynamicDefaultDatabaseWriter writer = writeReloadBatch(4, datas);
+
+        Assert.assertNotNull(writer.reloadPartitionApplier.executor);
+        for (String id : ids) {
+            Assert.assertEquals("after", getStringValue(id));
+        }
+        Assert.assertEquals(50, getStatistics().get(DataWriterStatisticConstants.DELETECOUNT));
+        Assert.assertEquals(50, getStatistics().get(DataWriterStatisticConstants.INSERTCOUNT));
+        Assert.assertEquals(0, getStatistics().get(DataWriterStatisticConstants.FALLBACKUPDATECOUNT));
+    }
+
+    @Test
+    public void testFiltersRunOnTheWriterThread() {
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        final AtomicInteger filtered = new AtomicInteger();
+        List<IDatabaseWriterFilter> filters = new ArrayList<IDatabaseWriterFilter>();
+        filters.add(new DatabaseWriterFilterAdapter() {
+            @Override
+            public boolean beforeWrite(DataContext context, Table table, CsvData data) {
+                threads.add(Thread.currentThread());
+                return filtered.incrementAndGet() % 2 == 0;
+            }
+
+            @Override
+            public void afterWrite(DataContext context, Table table, CsvData data) {
+                threads.add(Thread.currentThread());
+            }
+        });
+        writerSettings.setDatabaseWriterFilters(filters);
+
+        List<String> ids = new ArrayList<String>();
+        List<CsvData> datas = new ArrayList<CsvData>();
+        for (int i = 0; i < 200; i++) {
+            String id = getNextId();
+            ids.add(id);
+            datas.add(new CsvData(DataEventType.INSERT, values(id, "filtered")));
+        }
+        DynamicDefaultDatabaseWriter writer = writeReloadBatch(4, datas);
+
+        Assert.assertNotNull(writer.reloadPartitionApplier.executor);
+        Assert.assertEquals(200, filtered.get());
+        Assert.assertEquals(Collections.singleton(Thread.currentThread()), threads);
+        for (int i = 0; i < ids.size(); i++) {
+            Assert.assertEquals(i % 2 == 1, queryForRow(ids.get(i)) != null);
+        }
+    }
+
+    @Test
+    public void testSelfReferencingTableIsNotPartitioned() {
+        writerSettings.setReloadPartitionCount(4);
+        DynamicDefaultDatabaseWriter writer = new DynamicDefaultDatabaseWriter(platform, platform, "sym", writerSettings);
+        Table table = buildSourceTable("test_dataloader_parent", new String[] { "id" }, new String[] { "id", "name", "pid" });
+        writeReloadBatch(writer, table, new CsvData(DataEventType.INSERT, new String[] { "1", "parent", null }),
+                new CsvData(DataEventType.INSERT, new String[] { "2", "child", "1" }));
+
+        Assert.assertNull(writer.reloadPartitionApplier.executor);
+        Assert.assertEquals(2, countRows("test_dataloader_parent"));
+    }
+
+    protected DynamicDefaultDatabaseWriter writeReloadBatch(int partitionCount, List<CsvData> datas) {
+        writerSettings.setReloadPartitionCount(partitionCount);
+        DynamicDefaultDatabaseWriter writer = new DynamicDefaultDatabaseWriter(platform, platform, "sym", writerSettings);
+        writeReloadBatch(writer, buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS),
+                datas.toArray(new CsvData[datas.size()]));
+        return writer;
+    }
+
+    protected void writeReloadBatch(DynamicDefaultDatabaseWriter writer, Table table, CsvData... datas) {
+        this.lastDataWriterUsed = writer;
+        Batch batch = new Batch(BatchType.LOAD, getNextBatchId(), "reload", BinaryEncoding.BASE64, "00000", "00001", false);
+        writer.open(new DataContext(batch));
+        try {
+            writer.start(batch);
+            boolean inError = true;
+            try {
+                writer.start(table);
+                for (CsvData data : datas) {
+                    writer.write(data);
+                }
+                writer.end(table);
+                inError = false;
+            } finally {
+                writer.end(batch, inError);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    protected String[] values(String id, String stringValue) {
+        String[] values = new String[TEST_COLUMNS.length];
+        values[0] = id;
+        values[1] = stringValue;
+        values[2] = "string not null";
+        values[4] = "char not null";
+        return values;
+    }
+
+    protected String getStringValue(String id) {
+        return (String) queryForRow(id).get("string_value");
+    }
+
+    protected Statistics getStatistics() {
+        return lastDataWriterUsed.getStatistics().values().iterator().next();
+    }
+
+}
@@ -107,6 +107,73 @@ public class TransformWriterTest extends AbstractWriterTest {
     }
 
 
+    @Test
+    public void testCompiledTransformsMatchColumnTransforms() throws Exception {
+        /*
+         * Subclasses of the built in transforms are not applied inline, so the
+         * second writer runs every column through the column transform
+         */
+        Map<String, IColumnTransform<?>> uncompiledTransforms = buildDefaultColumnTransforms();
+        addColumnTransform(CopyColumnTransform.NAME, uncompiledTransforms, new CopyColumnTransform() {
+        });
+        addColumnTransform(ConstantColumnTransform.NAME, uncompiledTransforms, new ConstantColumnTransform() {
+        });
+        MockDataWriter compiledWriter = new MockDataWriter();
+        MockDataWriter uncompiledWriter = new MockDataWriter();
+        TransformWriter compiled = new TransformWriter(platform, TransformPoint.LOAD, compiledWriter,
+                buildDefaultColumnTransforms(), buildParityTransforms());
+        TransformWriter uncompiled = new TransformWriter(platform, TransformPoint.LOAD, uncompiledWriter,
+                uncompiledTransforms, buildParityTransforms());
+
+        Table table = new Table("s4", new Column("id", true), new Column("name"), new Column("amount"));
+        for (int i = 0; i < 2; i++) {
+            TableCsvData tableData = new TableCsvData(table,
+                    data(DataEventType.INSERT, new String[] { "1", "a", "10" }, null, null),
+                    data(DataEventType.UPDATE, new String[] { "1", "b", "20" }, new String[] { "1", "a", "10" },
+                            new String[] { "1" }),
+                    data(DataEventType.UPDATE, new String[] { "1", "c", "30" }, null, new String[] { "1" }),
+                    data(DataEventType.DELETE, null, new String[] { "1", "c", "30" }, new String[] { "1" }),
+                    data(DataEventType.DELETE, null, null, new String[] { "1" }));
+            writeData(compiled, tableData);
+            writeData(uncompiled, tableData);
+        }
+
+        for (String targetTable : new String[] { "t4", "t5" }) {
+            List<CsvData> expected = uncompiledWriter.writtenDatas.get(targetTable);
+            List<CsvData> actual = compiledWriter.writtenDatas.get(targetTable);
+            Assert.assertEquals(10, expected.size());
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals(expected.get(i).getDataEventType(), actual.get(i).getDataEventType());
+                for (String key : new String[] { CsvData.ROW_DATA, CsvData.OLD_DATA, CsvData.PK_DATA }) {
+                    Assert.assertArrayEquals(expected.get(i).getParsedData(key), actual.get(i).getParsedData(key));
+                }
+            }
+        }
+        Assert.assertArrayEquals(new String[] { "1", "a", "A", "10" },
+                compiledWriter.writtenDatas.get("t4").get(0).getParsedData(CsvData.ROW_DATA));
+    }
+
+    protected TransformTable[] buildParityTransforms() {
+        TransformTable transformTable4 = new TransformTable("s4", "t4", TransformPoint.LOAD,
+                new TransformColumn("id", "id", true), new TransformColumn("name", "target_name", false),
+                new TransformColumn(null, "status", false, "const", "A"),
+                new TransformColumn("amount", "total", false, "copy", null));
+        transformTable4.setUpdateAction(TargetDmlAction.UPD_ROW.name());
+        TransformTable transformTable5 = new TransformTable("s4", "t5", TransformPoint.LOAD,
+                new TransformColumn("id", "id", true), new TransformColumn("name", "name", false, "remove", null),
+                new TransformColumn("amount", "total", false, "copy", null));
+        return new TransformTable[] { transformTable4, transformTable5 };
+    }
+
+    protected CsvData data(DataEventType eventType, String[] rowData, String[] oldData, String[] pkData) {
+        CsvData data = new CsvData(eventType);
+        data.putParsedData(CsvData.ROW_DATA, rowData);
+        data.putParsedData(CsvData.OLD_DATA, oldData);
+        data.putParsedData(CsvData.PK_DATA, pkData);
+        return data;
+    }
+
     @Test
     public void testSimpleTableBeanShellMapping() throws Exception {
     }
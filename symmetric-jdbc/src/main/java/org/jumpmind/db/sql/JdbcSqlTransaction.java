@@ -29,6 +29,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -67,6 +68,17 @@ public class JdbcSqlTransaction implements ISqlTransaction {
     protected List<ISqlTransactionListener> listeners = new ArrayList<ISqlTransactionListener>();
     
     protected int batchSize = 100;
+
+    protected int preparedStatementCacheSize;
+
+    /*
+     * Statements prepared by this transaction in least recently used order
+     */
+    protected Map<String, PreparedStatement> preparedStatements;
+
+    protected long preparedStatementCacheHits;
+
+    protected long preparedStatementCacheMisses;
     
     public JdbcSqlTransaction(JdbcSqlTemplate jdbcSqlTemplate) {
         this(jdbcSqlTemplate, false);
@@ -77,6 +89,7 @@ public class JdbcSqlTransaction implements ISqlTransaction {
         this.jdbcSqlTemplate = jdbcSqlTemplate;
         this.logSqlBuilder = jdbcSqlTemplate.logSqlBuilder;
         this.batchSize = jdbcSqlTemplate.getSettings().getBatchSize();
+        this.preparedStatementCacheSize = jdbcSqlTemplate.getSettings().getPreparedStatementCacheSize();
         this.init();
     }
     
@@ -156,6 +169,7 @@ public class JdbcSqlTransaction implements ISqlTransaction {
 
     public void close() {
         if (connection != null) {
+            closePreparedStatements();
             JdbcSqlTemplate.close(pstmt);
             try {
                 connection.setAutoCommit(this.oldAutoCommitValue);
@@ -186,6 +200,35 @@ public class JdbcSqlTransaction implements ISqlTransaction {
         }
         return rowsUpdated;
     }
+
+    public int[] flushWithUpdateCounts() {
+        int[] updateCounts = new int[markers.size()];
+        if (markers.size() > 0 && pstmt != null) {
+            try {
+                int[] updates = pstmt.executeBatch();
+                for (int i = 0; i < updateCounts.length; i++) {
+                    updateCounts[i] = i < updates.length ? updates[i] : Statement.EXECUTE_FAILED;
+                }
+                markers.clear();
+            } catch (BatchUpdateException ex) {
+                /*
+                 * Drivers either stop at the first failed row or keep going
+                 * and mark the failed rows. Either way, the rows without a
+                 * count are reported as failed so they can be run again.
+                 */
+                int[] updates = ex.getUpdateCounts();
+                for (int i = 0; i < updateCounts.length; i++) {
+                    updateCounts[i] = updates != null && i < updates.length ? updates[i]
+                            : Statement.EXECUTE_FAILED;
+                }
+                log.debug("Batch of {} rows reported a failure: {}", updateCounts.length, ex.getMessage());
+                markers.clear();
+            } catch (SQLException ex) {
+                throw jdbcSqlTemplate.translate(ex);
+            }
+        }
+        return updateCounts;
+    }
     
     @Override
     public Row queryForRow(String sql, Object... args) {
@@ -432,14 +475,60 @@ public class JdbcSqlTransaction implements ISqlTransaction {
                 throw new IllegalStateException(
                         "Cannot prepare a new batch before the last batch has been flushed.");
             }
-            JdbcSqlTemplate.close(pstmt);
-            pstmt = connection.prepareStatement(sql);
+            if (preparedStatementCacheSize > 0) {
+                pstmt = getCachedPreparedStatement(sql);
+            } else {
+                JdbcSqlTemplate.close(pstmt);
+                pstmt = connection.prepareStatement(sql);
+            }
             psql = sql;
         } catch (SQLException ex) {
             throw jdbcSqlTemplate.translate(new SqlException("Exception while preparing sql [" + sql + "]", ex));
         }
     }
 
+    protected PreparedStatement getCachedPreparedStatement(String sql) throws SQLException {
+        if (preparedStatements == null) {
+            preparedStatements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+        }
+        PreparedStatement statement = preparedStatements.get(sql);
+        if (statement != null) {
+            preparedStatementCacheHits++;
+        } else {
+            preparedStatementCacheMisses++;
+            statement = connection.prepareStatement(sql);
+            preparedStatements.put(sql, statement);
+            if (preparedStatements.size() > preparedStatementCacheSize) {
+                Iterator<PreparedStatement> it = preparedStatements.values().iterator();
+                PreparedStatement eldest = it.next();
+                it.remove();
+                JdbcSqlTemplate.close(eldest);
+            }
+        }
+        return statement;
+    }
+
+    protected void closePreparedStatements() {
+        if (preparedStatements != null) {
+            for (PreparedStatement statement : preparedStatements.values()) {
+                JdbcSqlTemplate.close(statement);
+            }
+            preparedStatements.clear();
+            if (log.isDebugEnabled()) {
+                log.debug("Prepared statement cache had {} hits and {} misses", preparedStatementCacheHits,
+                        preparedStatementCacheMisses);
+            }
+        }
+    }
+
+    public long getPreparedStatementCacheHits() {
+        return preparedStatementCacheHits;
+    }
+
+    public long getPreparedStatementCacheMisses() {
+        return preparedStatementCacheMisses;
+    }
+
     public int addRow(Object marker, Object[] args, int[] argTypes) {
         int rowsUpdated = 0;
         try {
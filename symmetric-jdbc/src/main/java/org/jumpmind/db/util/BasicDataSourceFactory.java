@@ -119,6 +119,10 @@ public class BasicDataSourceFactory {
                 BasicDataSourcePropertyConstants.DB_POOL_TEST_ON_RETURN, false));
         dataSource.setTestWhileIdle(properties.is(
                 BasicDataSourcePropertyConstants.DB_POOL_TEST_WHILE_IDLE, false));
+        dataSource.setPoolPreparedStatements(properties.is(
+                BasicDataSourcePropertyConstants.DB_POOL_PREPARED_STATEMENTS, false));
+        dataSource.setMaxOpenPreparedStatements(properties.getInt(
+                BasicDataSourcePropertyConstants.DB_POOL_MAX_OPEN_PREPARED_STATEMENTS, 50));
 
         String connectionProperties = properties.get(
                 BasicDataSourcePropertyConstants.DB_POOL_CONNECTION_PROPERTIES, null);
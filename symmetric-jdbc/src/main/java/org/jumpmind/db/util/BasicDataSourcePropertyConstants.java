@@ -47,6 +47,8 @@ final public class BasicDataSourcePropertyConstants {
     public final static String DB_POOL_TEST_WHILE_IDLE = "db.test.while.idle";
     public final static String DB_POOL_INIT_SQL = "db.init.sql";
     public final static String DB_POOL_CONNECTION_PROPERTIES = "db.connection.properties";
+    public final static String DB_POOL_PREPARED_STATEMENTS = "db.pool.prepared.statements";
+    public final static String DB_POOL_MAX_OPEN_PREPARED_STATEMENTS = "db.pool.max.open.prepared.statements";
 
     public final static String[] allProps = new String[] { 
     		DB_POOL_URL,
@@ -64,7 +66,9 @@ final public class BasicDataSourcePropertyConstants {
     	    DB_POOL_TEST_ON_RETURN,
     	    DB_POOL_TEST_WHILE_IDLE,
     	    DB_POOL_INIT_SQL,
-    	    DB_POOL_CONNECTION_PROPERTIES
+    	    DB_POOL_CONNECTION_PROPERTIES,
+    	    DB_POOL_PREPARED_STATEMENTS,
+    	    DB_POOL_MAX_OPEN_PREPARED_STATEMENTS
     		};
     
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.platform.JdbcDatabasePlatformFactory;
+import org.jumpmind.db.util.BasicDataSourceFactory;
+import org.jumpmind.db.util.BasicDataSourcePropertyConstants;
+import org.jumpmind.db.util.ResettableBasicDataSource;
+import org.jumpmind.properties.TypedProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JdbcSqlTransactionTest {
+
+    IDatabasePlatform platform;
+
+    @Before
+    public void setup() throws Exception {
+        final String DB_DIR = "build/dbs/transaction";
+        File dir = new File(DB_DIR);
+        if (dir.exists()) {
+            FileUtils.deleteDirectory(dir);
+        }
+        TypedProperties properties = new TypedProperties();
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_DRIVER, "org.h2.Driver");
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_URL, "jdbc:h2:file:"
+                + DB_DIR + "/testdb");
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_USER, "jumpmind");
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_PASSWORD, "jumpmind");
+        DataSource ds = BasicDataSourceFactory.create(properties);
+        SqlTemplateSettings settings = new SqlTemplateSettings();
+        settings.setPreparedStatementCacheSize(2);
+        platform = JdbcDatabasePlatformFactory.createNewPlatformInstance(ds, settings, false, false);
+
+        for (String name : new String[] { "A", "B", "C" }) {
+            Table table = new Table(name);
+            table.addColumn(new Column("ID", true, Types.INTEGER, -1, -1));
+            platform.alterCaseToMatchDatabaseDefaultCase(table);
+            platform.createTables(true, true, table);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ResettableBasicDataSource ds = platform.getDataSource();
+        ds.close();
+    }
+
+    @Test
+    public void testPreparedStatementsReusedAcrossTables() {
+        JdbcSqlTransaction transaction = (JdbcSqlTransaction) platform.getSqlTemplate().startSqlTransaction();
+        try {
+            int[] types = new int[] { Types.INTEGER };
+            for (int i = 0; i < 10; i++) {
+                transaction.prepare("insert into A (ID) values (?)");
+                transaction.addRow(null, new Object[] { i }, types);
+                transaction.prepare("insert into B (ID) values (?)");
+                transaction.addRow(null, new Object[] { i }, types);
+            }
+            transaction.commit();
+            assertEquals(2, transaction.getPreparedStatementCacheMisses());
+            assertEquals(18, transaction.getPreparedStatementCacheHits());
+        } finally {
+            transaction.close();
+        }
+        assertEquals(10, platform.getSqlTemplate().queryForInt("select count(*) from A"));
+        assertEquals(10, platform.getSqlTemplate().queryForInt("select count(*) from B"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedStatementIsEvicted() {
+        JdbcSqlTransaction transaction = (JdbcSqlTransaction) platform.getSqlTemplate().startSqlTransaction();
+        try {
+            transaction.prepare("insert into A (ID) values (?)");
+            PreparedStatement statementA = transaction.pstmt;
+            transaction.prepare("insert into B (ID) values (?)");
+            transaction.prepare("insert into A (ID) values (?)");
+            assertSame(statementA, transaction.pstmt);
+
+            transaction.prepare("insert into C (ID) values (?)");
+            transaction.prepare("insert into A (ID) values (?)");
+            assertSame(statementA, transaction.pstmt);
+
+            transaction.prepare("insert into B (ID) values (?)");
+            assertEquals(4, transaction.getPreparedStatementCacheMisses());
+            assertNotSame(statementA, transaction.pstmt);
+        } finally {
+            transaction.close();
+        }
+    }
+
+}
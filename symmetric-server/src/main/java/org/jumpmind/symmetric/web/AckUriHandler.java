@@ -66,8 +66,9 @@ public class AckUriHandler extends AbstractUriHandler {
         long ts = System.currentTimeMillis();
         PrintWriter writer = res.getWriter();
 
-        for (BatchAck batchInfo : batches) {
-            acknowledgeService.ack(batchInfo);
+        int maxBatches = Math.max(1, parameterService.getInt(ParameterConstants.ACK_BULK_MAX_BATCHES, 500));
+        for (int i = 0; i < batches.size(); i += maxBatches) {
+            acknowledgeService.ack(batches.subList(i, Math.min(i + maxBatches, batches.size())));
 
             if (keepAliveMillis > 0 && System.currentTimeMillis() - ts >= keepAliveMillis) {
                 try {
@@ -85,9 +86,7 @@ public class AckUriHandler extends AbstractUriHandler {
     }
 
     protected void ack(List<BatchAck> batches) throws IOException {
-        for (BatchAck batchInfo : batches) {
-            acknowledgeService.ack(batchInfo);
-        }
+        acknowledgeService.ack(batches);
     }
 
 }
@@ -46,6 +46,8 @@ import org.jumpmind.symmetric.service.IOutgoingBatchService;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.IRegistrationService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.transport.ConcurrentConnectionManager.LongPoll;
+import org.jumpmind.symmetric.transport.IConcurrentConnectionManager;
 import org.jumpmind.symmetric.transport.IOutgoingTransport;
 import org.jumpmind.symmetric.transport.TransportUtils;
 
@@ -66,10 +68,13 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
     
     private IOutgoingBatchService outgoingBatchService;
     
+    private IConcurrentConnectionManager concurrentConnectionManager;
+    
     public PullUriHandler(IParameterService parameterService,
             INodeService nodeService,
             IConfigurationService configurationService, IDataExtractorService dataExtractorService,
-            IRegistrationService registrationService, IStatisticManager statisticManager,  IOutgoingBatchService outgoingBatchService, IInterceptor... interceptors) {
+            IRegistrationService registrationService, IStatisticManager statisticManager,  IOutgoingBatchService outgoingBatchService, 
+            IConcurrentConnectionManager concurrentConnectionManager, IInterceptor... interceptors) {
         super("/pull/*", parameterService, interceptors);
         this.nodeService = nodeService;
         this.configurationService = configurationService;
@@ -77,6 +82,7 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
         this.registrationService = registrationService;
         this.statisticManager = statisticManager;
         this.outgoingBatchService = outgoingBatchService;
+        this.concurrentConnectionManager = concurrentConnectionManager;
     }
 
     public void handleWithCompression(HttpServletRequest req, HttpServletResponse res) throws IOException,
@@ -97,7 +103,8 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
         map.setChannelQueue(req.getHeader(WebConstants.CHANNEL_QUEUE));
         
         // pull out headers and pass to pull() method
-        handlePull(nodeId, req.getRemoteHost(), req.getRemoteAddr(), res.getOutputStream(), req.getHeader(WebConstants.HEADER_ACCEPT_CHARSET), res, map);
+        handlePull(nodeId, req.getRemoteHost(), req.getRemoteAddr(), res.getOutputStream(), req.getHeader(WebConstants.HEADER_ACCEPT_CHARSET), res, map,
+                getLongPollTimeoutMs(req));
 
         log.debug("Done with Pull request from {}", nodeId);
 
@@ -105,6 +112,12 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
         
     protected void handlePull(String nodeId, String remoteHost, String remoteAddress,
             OutputStream outputStream,  String encoding, HttpServletResponse res, ChannelMap map) throws IOException {
+        handlePull(nodeId, remoteHost, remoteAddress, outputStream, encoding, res, map, 0);
+    }
+
+    protected void handlePull(String nodeId, String remoteHost, String remoteAddress,
+            OutputStream outputStream,  String encoding, HttpServletResponse res, ChannelMap map, 
+            long longPollTimeoutMs) throws IOException {
         NodeSecurity nodeSecurity = nodeService.findNodeSecurity(nodeId, true);
         long ts = System.currentTimeMillis();
         try {
@@ -125,10 +138,25 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
                     ProcessInfo processInfo = statisticManager.newProcessInfo(new ProcessInfoKey(
                             nodeService.findIdentityNodeId(), map.getChannelQueue(), nodeId, ProcessType.PULL_HANDLER_EXTRACT));
                     
+                    if (parameterService.is(ParameterConstants.PULL_LONG_POLL_ENABLED)) {
+                        res.setHeader(WebConstants.LONG_POLL_SUPPORTED, Boolean.TRUE.toString());
+                    }
+                    
+                    /*
+                     * Register before looking for batches so that data routed
+                     * in between is not missed
+                     */
+                    LongPoll longPoll = longPollTimeoutMs > 0 && concurrentConnectionManager != null ? 
+                            concurrentConnectionManager.startLongPoll(nodeId, map.getChannelQueue()) : null;
                     try {
                         Node targetNode = nodeService.findNode(nodeId, true);
                         List<OutgoingBatch> batchList = dataExtractorService.extract(processInfo, targetNode,
                         		map.getChannelQueue(), outgoingTransport);
+                        if (longPoll != null && batchList.isEmpty() && processInfo.getStatus() != ProcessStatus.ERROR
+                                && waitForLongPoll(longPoll, longPollTimeoutMs)) {
+                            batchList = dataExtractorService.extract(processInfo, targetNode,
+                                    map.getChannelQueue(), outgoingTransport);
+                        }
                         logDataReceivedFromPull(targetNode, batchList, processInfo, remoteHost);
                         
                         if (processInfo.getStatus() != ProcessStatus.ERROR) {
@@ -136,6 +164,9 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
                             processInfo.setStatus(ProcessStatus.OK);
                         }
                     } finally {
+                        if (longPoll != null) {
+                            concurrentConnectionManager.endLongPoll(longPoll);
+                        }
                         if (processInfo.getStatus() != ProcessStatus.OK) {
                             processInfo.setStatus(ProcessStatus.ERROR);
                         }
@@ -151,6 +182,28 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
         }
     }
     
+    protected long getLongPollTimeoutMs(HttpServletRequest req) {
+        long timeoutMs = 0;
+        String header = req.getHeader(WebConstants.LONG_POLL_TIMEOUT);
+        if (StringUtils.isNumeric(header) && StringUtils.isNotBlank(header)
+                && parameterService.is(ParameterConstants.PULL_LONG_POLL_ENABLED)) {
+            timeoutMs = Math.min(Long.parseLong(header),
+                    parameterService.getLong(ParameterConstants.PULL_LONG_POLL_TIMEOUT_MS, 30000));
+        }
+        return timeoutMs;
+    }
+
+    protected boolean waitForLongPoll(LongPoll longPoll, long timeoutMs) {
+        try {
+            boolean signaled = longPoll.await(timeoutMs);
+            log.debug("Long poll for {} was {}", longPoll.getNodeId(), signaled ? "signaled" : "timed out");
+            return signaled;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
     private void addPendingBatchCounts(String targetNodeId, HttpServletResponse res) {
         if (this.parameterService.is(ParameterConstants.HYBRID_PUSH_PULL_ENABLED))   {            
             Map<String, Integer> batchesToSendByChannel = 
@@ -93,7 +93,7 @@ public class ServerSymmetricEngine extends ClientSymmetricEngine {
         this.uriHandlers.add(new BandwidthSamplerUriHandler(parameterService, customInterceptors));
         this.uriHandlers.add(new PullUriHandler(parameterService, nodeService,
                 configurationService, dataExtractorService, registrationService, statisticManager, outgoingBatchService,
-                add(customInterceptors, authInterceptor, concurrencyInterceptor)));
+                concurrentConnectionManager, add(customInterceptors, authInterceptor, concurrencyInterceptor)));
         this.uriHandlers.add(new PushUriHandler(parameterService, dataLoaderService,
                 statisticManager, nodeService, add(customInterceptors, authInterceptor, concurrencyInterceptor)));
         this.uriHandlers.add(new PushStatusUriHandler(parameterService, nodeCommunicationService, 
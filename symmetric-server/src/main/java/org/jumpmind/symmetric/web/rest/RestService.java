@@ -82,6 +82,7 @@ import org.jumpmind.symmetric.service.IOutgoingBatchService;
 import org.jumpmind.symmetric.service.IRegistrationService;
 import org.jumpmind.symmetric.service.ITriggerRouterService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.statistic.StageStats;
 import org.jumpmind.symmetric.web.ServerSymmetricEngine;
 import org.jumpmind.symmetric.web.SymmetricEngineHolder;
 import org.jumpmind.symmetric.web.WebConstants;
@@ -103,6 +104,7 @@ import org.jumpmind.symmetric.web.rest.model.QueryResults;
 import org.jumpmind.symmetric.web.rest.model.RegistrationInfo;
 import org.jumpmind.symmetric.web.rest.model.SendSchemaRequest;
 import org.jumpmind.symmetric.web.rest.model.SendSchemaResponse;
+import org.jumpmind.symmetric.web.rest.model.StageLatency;
 import org.jumpmind.symmetric.web.rest.model.TableName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -784,6 +786,62 @@ public class RestService {
         return channelStatusImpl(getSymmetricEngine(engineName));
     }
 
+    /**
+     * Returns the latency percentiles of each stage and channel since the
+     * statistics were last flushed for the single engine of the node.
+     * 
+     * @return List<{@link StageLatency}>
+     */
+    @ApiOperation(value = "Obtain the stage latency percentiles of the single engine")
+    @RequestMapping(value = "/engine/stagelatency", method = RequestMethod.GET)
+    @ResponseBody
+    public final List<StageLatency> getStageLatency() {
+        return stageLatencyImpl(getSymmetricEngine());
+    }
+
+    /**
+     * Returns the latency percentiles of each stage and channel since the
+     * statistics were last flushed for the specified engine of the node.
+     * 
+     * @return List<{@link StageLatency}>
+     */
+    @ApiOperation(value = "Obtain the stage latency percentiles of the specified engine")
+    @RequestMapping(value = "/engine/{engine}/stagelatency", method = RequestMethod.GET)
+    @ResponseBody
+    public final List<StageLatency> getStageLatencyByEngine(
+            @PathVariable("engine") String engineName) {
+        return stageLatencyImpl(getSymmetricEngine(engineName));
+    }
+
+    /**
+     * Downloads the stacks sampled from running processes of the single engine
+     * as a collapsed stack text file that flame graph tools can read. Samples
+     * are only collected when statistic.sampler.enabled is turned on. With
+     * reset=true the samples are discarded after they are downloaded, so the
+     * next download only covers the time since this one.
+     */
+    @ApiOperation(value = "Download the sampled process stacks of the single engine")
+    @RequestMapping(value = "/engine/sampledstacks", method = RequestMethod.GET)
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public final void getSampledStacks(@RequestParam(required = false, value = "reset") boolean reset,
+            HttpServletResponse resp) {
+        sampledStacksImpl(getSymmetricEngine(), reset, resp);
+    }
+
+    /**
+     * Downloads the stacks sampled from running processes of the specified
+     * engine as a collapsed stack text file.
+     */
+    @ApiOperation(value = "Download the sampled process stacks of the specified engine")
+    @RequestMapping(value = "/engine/{engine}/sampledstacks", method = RequestMethod.GET)
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public final void getSampledStacksByEngine(@PathVariable("engine") String engineName,
+            @RequestParam(required = false, value = "reset") boolean reset, HttpServletResponse resp) {
+        sampledStacksImpl(getSymmetricEngine(engineName), reset, resp);
+    }
+
     /**
      * Removes (unregisters and cleans up) a node for the single engine
      */
@@ -1698,6 +1756,39 @@ public class RestService {
         return channelStatus;
     }
 
+    private List<StageLatency> stageLatencyImpl(ISymmetricEngine engine) {
+        List<StageLatency> latencies = new ArrayList<StageLatency>();
+        for (StageStats stats : engine.getStatisticManager().getWorkingStageStats()) {
+            StageLatency latency = new StageLatency();
+            latency.setStage(stats.getStage());
+            latency.setChannelId(stats.getChannelId());
+            latency.setCount(stats.getSampleCount());
+            latency.setMeanMillis(stats.getTotalMillis() / stats.getSampleCount());
+            latency.setP50Millis(stats.getP50Millis());
+            latency.setP90Millis(stats.getP90Millis());
+            latency.setP99Millis(stats.getP99Millis());
+            latency.setP999Millis(stats.getP999Millis());
+            latency.setMaxMillis(stats.getMaxMillis());
+            latencies.add(latency);
+        }
+        return latencies;
+    }
+
+    private void sampledStacksImpl(ISymmetricEngine engine, boolean reset, HttpServletResponse resp) {
+        resp.setContentType("text/plain");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Content-Disposition", String.format("attachment; filename=%s-stacks.txt",
+                engine.getEngineName()));
+        try {
+            engine.getStatisticManager().writeSampledStacks(resp.getWriter());
+        } catch (IOException e) {
+            throw new IoException(e);
+        }
+        if (reset) {
+            engine.getStatisticManager().clearSampledStacks();
+        }
+    }
+
     private QueryResults queryNodeImpl(ISymmetricEngine engine, String sql, boolean isQuery) {
 
         QueryResults results = new QueryResults();
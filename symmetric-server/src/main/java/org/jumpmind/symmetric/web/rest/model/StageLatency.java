@@ -0,0 +1,142 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.web.rest.model;
+
+public class StageLatency {
+
+    /**
+     * The stage that was timed: ROUTE, EXTRACT, TRANSFER, LOAD, ACK or LAG.
+     */
+    private String stage;
+
+    /**
+     * The ID or name of the channel of the batches that were timed.
+     */
+    private String channelId;
+
+    /**
+     * The number of batches that were timed.
+     */
+    private long count;
+
+    /**
+     * The mean time in milliseconds.
+     */
+    private long meanMillis;
+
+    /**
+     * The median time in milliseconds.
+     */
+    private long p50Millis;
+
+    /**
+     * The 90th percentile time in milliseconds.
+     */
+    private long p90Millis;
+
+    /**
+     * The 99th percentile time in milliseconds.
+     */
+    private long p99Millis;
+
+    /**
+     * The 99.9th percentile time in milliseconds.
+     */
+    private long p999Millis;
+
+    /**
+     * The longest time in milliseconds.
+     */
+    private long maxMillis;
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(String channelId) {
+        this.channelId = channelId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getMeanMillis() {
+        return meanMillis;
+    }
+
+    public void setMeanMillis(long meanMillis) {
+        this.meanMillis = meanMillis;
+    }
+
+    public long getP50Millis() {
+        return p50Millis;
+    }
+
+    public void setP50Millis(long p50Millis) {
+        this.p50Millis = p50Millis;
+    }
+
+    public long getP90Millis() {
+        return p90Millis;
+    }
+
+    public void setP90Millis(long p90Millis) {
+        this.p90Millis = p90Millis;
+    }
+
+    public long getP99Millis() {
+        return p99Millis;
+    }
+
+    public void setP99Millis(long p99Millis) {
+        this.p99Millis = p99Millis;
+    }
+
+    public long getP999Millis() {
+        return p999Millis;
+    }
+
+    public void setP999Millis(long p999Millis) {
+        this.p999Millis = p999Millis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(long maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+}
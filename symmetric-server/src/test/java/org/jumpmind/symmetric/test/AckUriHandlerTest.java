@@ -3,13 +3,20 @@ package org.jumpmind.symmetric.test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -17,7 +24,10 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.jumpmind.db.platform.DatabaseInfo;
 import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.AbstractBatch.Status;
 import org.jumpmind.symmetric.model.BatchAck;
@@ -49,6 +59,12 @@ public class AckUriHandlerTest {
     
     OutgoingBatch batch;
 
+    IParameterService parameterService;
+
+    IOutgoingBatchService outgoingBatchService;
+
+    ISqlTransaction transaction;
+
     HttpServletRequest request;
 
     HttpServletResponse response;
@@ -58,18 +74,22 @@ public class AckUriHandlerTest {
     @Before
     public void setup() throws IOException {
         engine = mock(ISymmetricEngine.class);
-        IParameterService parameterService = mock(IParameterService.class);
+        parameterService = mock(IParameterService.class);
         ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
         IDatabasePlatform databasePlatform = mock(IDatabasePlatform.class);        
         IExtensionService extensionService = mock(IExtensionService.class);
         IRegistrationService registrationService = mock(IRegistrationService.class);
-        IOutgoingBatchService outgoingBatchService = mock(IOutgoingBatchService.class);
+        outgoingBatchService = mock(IOutgoingBatchService.class);
         IConfigurationService configService = mock(IConfigurationService.class);
         IStatisticManager statMan = mock(StatisticManager.class);
         batch = new OutgoingBatch(NODE_ID, CHANNEL_ID, Status.LD);
         batch.setBatchId(BATCH_ID);
         when(outgoingBatchService.findOutgoingBatch(BATCH_ID, NODE_ID)).thenReturn(batch);
         
+        ISqlTemplate sqlTemplate = mock(ISqlTemplate.class);
+        transaction = mock(ISqlTransaction.class);
+        when(sqlTemplate.startSqlTransaction()).thenReturn(transaction);
+        when(databasePlatform.getSqlTemplate()).thenReturn(sqlTemplate);
         when(databasePlatform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
         when(symmetricDialect.getPlatform()).thenReturn(databasePlatform);
         when(engine.getDatabasePlatform()).thenReturn(databasePlatform);
@@ -157,4 +177,36 @@ public class AckUriHandlerTest {
         assertFalse(batch.isErrorFlag());
     }
 
+    /**
+     * Test that a list of acks for a node is read with one query and saved in one transaction
+     */
+    @Test
+    public void testOutgoingBatchBulkAck() throws Exception {
+        OutgoingBatch batch2 = new OutgoingBatch(NODE_ID, CHANNEL_ID, Status.LD);
+        batch2.setBatchId(BATCH_ID + 1);
+        List<OutgoingBatch> batches = new ArrayList<OutgoingBatch>();
+        batches.add(batch);
+        batches.add(batch2);
+        when(outgoingBatchService.findOutgoingBatches(eq(NODE_ID), anyList())).thenReturn(batches);
+        when(parameterService.getInt(ParameterConstants.ACK_BULK_MAX_BATCHES, 500)).thenReturn(500);
+
+        paramMap.put(WebConstants.ACK_BATCH_NAME + BATCH_ID, new String[] { WebConstants.ACK_BATCH_OK });
+        paramMap.put(WebConstants.ACK_NODE_ID + BATCH_ID, new String[] { NODE_ID });
+        paramMap.put(WebConstants.ACK_BATCH_NAME + (BATCH_ID + 1), new String[] { WebConstants.ACK_BATCH_RESEND });
+        paramMap.put(WebConstants.ACK_NODE_ID + (BATCH_ID + 1), new String[] { NODE_ID });
+
+        IAcknowledgeService ackService = new AcknowledgeService(engine);
+        AckUriHandler uriHandler = new AckUriHandler(engine.getParameterService(), ackService);
+        uriHandler.handle(request, response);
+
+        verify(outgoingBatchService, times(1)).findOutgoingBatches(eq(NODE_ID), anyList());
+        verify(outgoingBatchService, times(1)).updateOutgoingBatches(eq(transaction), anyList());
+        verify(outgoingBatchService, times(0)).updateOutgoingBatch(any(OutgoingBatch.class));
+        verify(transaction, times(1)).commit();
+        assertEquals(Status.OK, batch.getStatus());
+        assertEquals(Status.RS, batch2.getStatus());
+        assertFalse(batch.isErrorFlag());
+        assertFalse(batch2.isErrorFlag());
+    }
+
 }
@@ -20,64 +20,295 @@
  */
 package org.jumpmind.util;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Counters and timers by category. Categories that are registered with
+ * {@link #register(String)} are kept in arrays indexed by the id that was
+ * handed out for them, so counting them does not box or allocate. They can
+ * be counted by id or by name. Any other category is kept in a map with one
+ * mutable holder per category. A category that was counted by name before it
+ * was registered is moved from the map to its array slot the first time the
+ * instance is used after the registration.
+ */
 public class Statistics {
 
-    Map<String, Long> stats = new HashMap<String, Long>();
+    private static final Map<String, Integer> registeredIds = new ConcurrentHashMap<String, Integer>();
+
+    private static volatile String[] registeredNames = new String[0];
+
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    long[] values = new long[0];
+
+    boolean[] present = new boolean[0];
+
+    long[] timerStarts = new long[0];
+
+    long[] timerRemainders = new long[0];
+
+    boolean[] timing = new boolean[0];
 
-    Map<String, Long> timers = new HashMap<String, Long>();
+    Map<String, long[]> stats = new HashMap<String, long[]>();
+
+    Map<String, long[]> timers = new HashMap<String, long[]>();
+
+    /*
+     * Registered categories with an id below this are known not to be in the
+     * maps. A category is only put in the maps while it is unregistered, so
+     * the maps only need to be checked again after more categories are
+     * registered.
+     */
+    int migratedIds;
+
+    /**
+     * Register a category so that it is counted in an array instead of a map.
+     * Registering a category that was already counted by name is safe, because
+     * the counted value is moved over when the category is next used.
+     * 
+     * @return the id of the category, which stays the same for the life of
+     *         the class loader
+     */
+    public static synchronized int register(String category) {
+        Integer id = registeredIds.get(category);
+        if (id == null) {
+            String[] names = Arrays.copyOf(registeredNames, registeredNames.length + 1);
+            id = names.length - 1;
+            names[id] = category;
+            registeredNames = names;
+            registeredIds.put(category, id);
+        }
+        return id;
+    }
+
+    public static void register(String... categories) {
+        for (String category : categories) {
+            register(category);
+        }
+    }
+
+    public static String getRegisteredName(int id) {
+        return registeredNames[id];
+    }
 
     public void increment(String category) {
         increment(category, 1);
     }
-    
+
+    public void increment(int id) {
+        increment(id, 1);
+    }
+
     public long get(String category) {
-        Long value = stats.get(category);
+        int id = getId(category);
+        if (id >= 0) {
+            return get(id);
+        }
+        long[] value = stats.get(category);
         if (value != null) {
-            return value;
+            return value[0];
         } else {
             return 0l;
         }
-    } 
-    
+    }
+
+    public long get(int id) {
+        migrate();
+        return id < values.length ? values[id] : 0l;
+    }
+
     public void set(String category, long value) {
-        stats.put(category, value);
+        int id = getId(category);
+        if (id >= 0) {
+            set(id, value);
+        } else {
+            getHolder(stats, category, 1)[0] = value;
+        }
+    }
+
+    public void set(int id, long value) {
+        migrate();
+        ensureCapacity(id);
+        values[id] = value;
+        present[id] = true;
     }
-    
+
     public boolean contains(String category) {
+        int id = getId(category);
+        if (id >= 0) {
+            return contains(id);
+        }
         return stats.containsKey(category);
     }
 
+    public boolean contains(int id) {
+        migrate();
+        return id < present.length && present[id];
+    }
+
     public void increment(String category, long increment) {
-        Long value = stats.get(category);
-        if (value == null) {
-            value = increment;
+        int id = getId(category);
+        if (id >= 0) {
+            increment(id, increment);
         } else {
-            value = value + increment;
+            getHolder(stats, category, 1)[0] += increment;
+        }
+    }
+
+    public void increment(int id, long increment) {
+        migrate();
+        ensureCapacity(id);
+        values[id] += increment;
+        present[id] = true;
+    }
+
+    public void add(Statistics statistics) {
+        migrate();
+        statistics.migrate();
+        for (int id = 0; id < statistics.present.length; id++) {
+            if (statistics.present[id]) {
+                increment(id, statistics.values[id]);
+            }
+        }
+        for (Map.Entry<String, long[]> entry : statistics.stats.entrySet()) {
+            increment(entry.getKey(), entry.getValue()[0]);
         }
-        stats.put(category, value);
     }
 
     public void startTimer(String category) {
-        timers.put(category, System.currentTimeMillis());
+        int id = getId(category);
+        if (id >= 0) {
+            startTimer(id);
+        } else {
+            long[] timer = getHolder(timers, category, 3);
+            timer[0] = System.nanoTime();
+            timer[2] = 1;
+        }
+    }
+
+    public void startTimer(int id) {
+        migrate();
+        ensureCapacity(id);
+        timerStarts[id] = System.nanoTime();
+        timing[id] = true;
     }
 
+    /**
+     * Stop the timer for the category and add the elapsed milliseconds to it.
+     * The part of the elapsed time that is less than a millisecond is carried
+     * over to the next time the timer is stopped, so that many short timings
+     * still add up.
+     * 
+     * @return the elapsed milliseconds that were added
+     */
     public long stopTimer(String category) {
+        int id = getId(category);
+        if (id >= 0) {
+            return stopTimer(id);
+        }
         long time = 0;
-        Long startTime = timers.get(category);
-        if (startTime != null) {
-            time = System.currentTimeMillis() - startTime;
+        long[] timer = timers.get(category);
+        if (timer != null && timer[2] == 1) {
+            long nanos = System.nanoTime() - timer[0] + timer[1];
+            time = nanos / NANOS_PER_MILLI;
+            timer[1] = nanos % NANOS_PER_MILLI;
+            timer[2] = 0;
             increment(category, time);
         }
-        timers.remove(category);
         return time;
     }
-    
+
+    public long stopTimer(int id) {
+        migrate();
+        long time = 0;
+        if (id < timing.length && timing[id]) {
+            long nanos = System.nanoTime() - timerStarts[id] + timerRemainders[id];
+            time = nanos / NANOS_PER_MILLI;
+            timerRemainders[id] = nanos % NANOS_PER_MILLI;
+            timing[id] = false;
+            increment(id, time);
+        }
+        return time;
+    }
+
+    /*
+     * @return the id of a registered category, or -1 if the category is kept
+     *         in the map
+     */
+    protected int getId(String category) {
+        Integer id = registeredIds.get(category);
+        return id != null ? id : -1;
+    }
+
+    /*
+     * Moves the values and timers that were kept in the maps for categories
+     * registered since the last call over to the arrays. When nothing new
+     * was registered this is a single comparison.
+     */
+    protected void migrate() {
+        String[] names = registeredNames;
+        if (migratedIds < names.length) {
+            int from = migratedIds;
+            migratedIds = names.length;
+            if (!stats.isEmpty() || !timers.isEmpty()) {
+                for (int id = from; id < names.length; id++) {
+                    migrate(id, names[id]);
+                }
+            }
+        }
+    }
+
+    private void migrate(int id, String category) {
+        long[] value = stats.remove(category);
+        if (value != null) {
+            increment(id, value[0]);
+        }
+        long[] timer = timers.remove(category);
+        if (timer != null) {
+            ensureCapacity(id);
+            timerStarts[id] = timer[0];
+            timerRemainders[id] = timer[1];
+            timing[id] = timer[2] == 1;
+        }
+    }
+
+    protected void ensureCapacity(int id) {
+        if (id >= values.length) {
+            int length = Math.max(id + 1, registeredNames.length);
+            values = Arrays.copyOf(values, length);
+            present = Arrays.copyOf(present, length);
+            timerStarts = Arrays.copyOf(timerStarts, length);
+            timerRemainders = Arrays.copyOf(timerRemainders, length);
+            timing = Arrays.copyOf(timing, length);
+        }
+    }
+
+    private static long[] getHolder(Map<String, long[]> holders, String category, int size) {
+        long[] holder = holders.get(category);
+        if (holder == null) {
+            holder = new long[size];
+            holders.put(category, holder);
+        }
+        return holder;
+    }
+
     @Override
     public String toString() {
-        return stats.toString();
+        migrate();
+        Map<String, Long> all = new LinkedHashMap<String, Long>();
+        for (int id = 0; id < present.length; id++) {
+            if (present[id]) {
+                all.put(getRegisteredName(id), values[id]);
+            }
+        }
+        for (Map.Entry<String, long[]> entry : stats.entrySet()) {
+            all.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return all.toString();
     }
 
 }
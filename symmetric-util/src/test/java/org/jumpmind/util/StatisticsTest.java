@@ -0,0 +1,117 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StatisticsTest {
+
+    private static final int REGISTERED_ID = Statistics.register("TEST_REGISTERED");
+
+    @Test
+    public void testRegisteredAndUnregisteredCategories() {
+        Statistics statistics = new Statistics();
+        assertFalse(statistics.contains("TEST_REGISTERED"));
+        assertFalse(statistics.contains("TEST_UNREGISTERED"));
+
+        statistics.increment(REGISTERED_ID);
+        statistics.increment("TEST_REGISTERED", 2);
+        statistics.increment("TEST_UNREGISTERED", 5);
+        statistics.increment("TEST_UNREGISTERED");
+
+        assertTrue(statistics.contains(REGISTERED_ID));
+        assertEquals(3, statistics.get("TEST_REGISTERED"));
+        assertEquals(3, statistics.get(REGISTERED_ID));
+        assertEquals(6, statistics.get("TEST_UNREGISTERED"));
+        assertEquals(REGISTERED_ID, Statistics.register("TEST_REGISTERED"));
+        assertEquals("TEST_REGISTERED", Statistics.getRegisteredName(REGISTERED_ID));
+
+        statistics.set("TEST_UNREGISTERED", 1);
+        assertEquals(1, statistics.get("TEST_UNREGISTERED"));
+        assertEquals(0, statistics.get("TEST_MISSING"));
+    }
+
+    @Test
+    public void testAdd() {
+        Statistics total = new Statistics();
+        total.increment(REGISTERED_ID, 1);
+        Statistics statistics = new Statistics();
+        statistics.increment(REGISTERED_ID, 2);
+        statistics.increment("TEST_UNREGISTERED", 3);
+
+        total.add(statistics);
+
+        assertEquals(3, total.get(REGISTERED_ID));
+        assertEquals(3, total.get("TEST_UNREGISTERED"));
+    }
+
+    @Test
+    public void testTimers() throws Exception {
+        Statistics statistics = new Statistics();
+        assertEquals(0, statistics.stopTimer(REGISTERED_ID));
+        assertEquals(0, statistics.stopTimer("TEST_UNREGISTERED"));
+
+        statistics.startTimer(REGISTERED_ID);
+        statistics.startTimer("TEST_UNREGISTERED");
+        Thread.sleep(5);
+        long registeredTime = statistics.stopTimer(REGISTERED_ID);
+        long unregisteredTime = statistics.stopTimer("TEST_UNREGISTERED");
+
+        assertTrue(registeredTime >= 5);
+        assertTrue(unregisteredTime >= 5);
+        assertEquals(registeredTime, statistics.get(REGISTERED_ID));
+        assertEquals(unregisteredTime, statistics.get("TEST_UNREGISTERED"));
+        assertEquals(0, statistics.stopTimer(REGISTERED_ID));
+    }
+
+    /*
+     * Constants classes register their categories when they are initialized,
+     * but reading one of their String constants does not initialize them, so
+     * a category can be counted by name before it is registered.
+     */
+    @Test
+    public void testCountedByNameBeforeRegistered() throws Exception {
+        Statistics statistics = new Statistics();
+        statistics.increment("TEST_LATE_BY_NAME", 4);
+        statistics.startTimer("TEST_LATE_TIMER");
+        Statistics other = new Statistics();
+        other.increment("TEST_LATE_BY_NAME", 1);
+
+        int id = Statistics.register("TEST_LATE_BY_NAME");
+        int timerId = Statistics.register("TEST_LATE_TIMER");
+        Thread.sleep(2);
+
+        assertTrue(statistics.contains(id));
+        assertEquals(4, statistics.get(id));
+        statistics.increment(id, 2);
+        assertEquals(6, statistics.get("TEST_LATE_BY_NAME"));
+        assertTrue(statistics.stopTimer(timerId) >= 2);
+        assertEquals("{TEST_LATE_BY_NAME=6, TEST_LATE_TIMER=" + statistics.get(timerId) + "}", statistics.toString());
+
+        other.add(statistics);
+        assertEquals(7, other.get(id));
+    }
+
+}